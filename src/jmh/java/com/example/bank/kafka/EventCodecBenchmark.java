@@ -0,0 +1,67 @@
+package com.example.bank.kafka;
+
+import com.example.bank.Enums.OperationType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Сравнение кодеков события TransactionEvent: время кодирования и разбора, размер сообщения печатается
+// при подготовке. JSON идёт через ObjectMapper, настроенный как в приложении:
+//   mvn -Pjmh test-compile exec:exec -Djmh.args="EventCodec -prof gc"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventCodecBenchmark {
+
+    @Param({JsonEventCodec.NAME, BinaryEventCodec.NAME})
+    public String codecName;
+
+    private EventCodec codec;
+    private EventDTO event;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        codec = JsonEventCodec.NAME.equals(codecName)
+                ? new JsonEventCodec(Jackson2ObjectMapperBuilder.json().build())
+                : new BinaryEventCodec();
+        event = new EventDTO();
+        event.setTransactionId(123456L);
+        event.setType(OperationType.transfer);
+        event.setCardNumber("4000001234567899");
+        event.setCardTransferTo("**** **** **** 3210");
+        event.setReceiverCardNumber("4000009876543210");
+        event.setAmount(new BigDecimal("1500.00"));
+        event.setUserId(7L);
+        event.setComment("Оплата аренды");
+        event.setTimestamp(LocalDateTime.of(2026, 10, 17, 12, 30, 15, 123_456_789));
+        encoded = codec.encode(event);
+        System.out.printf("%s: TransactionEvent message is %d bytes%n", codecName, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(event);
+    }
+
+    @Benchmark
+    public EventDTO decode() {
+        return codec.decode(encoded);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.bank.kafka;
+
+import com.example.bank.Enums.OperationType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// Сериализация события в outbox и разбор в консьюмере; ObjectMapper настроен как в приложении
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDtoJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private EventDTO event;
+    private String json;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        event = new EventDTO();
+        event.setTransactionId(42L);
+        event.setType(OperationType.transfer);
+        event.setCardNumber("4000001234567899");
+        event.setCardTransferTo("**** **** **** 3210");
+        event.setReceiverCardNumber("4000009876543210");
+        event.setAmount(new BigDecimal("1500.00"));
+        event.setUserId(7L);
+        event.setComment("Оплата аренды");
+        json = objectMapper.writeValueAsString(event);
+    }
+
+    @Benchmark
+    public String serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(event);
+    }
+
+    @Benchmark
+    public EventDTO deserialize() throws JsonProcessingException {
+        return objectMapper.readValue(json, EventDTO.class);
+    }
+}
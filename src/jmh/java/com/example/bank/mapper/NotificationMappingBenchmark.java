@@ -0,0 +1,66 @@
+package com.example.bank.mapper;
+
+import com.example.bank.Enums.NotflicationType;
+import com.example.bank.Enums.OperationType;
+import com.example.bank.kafka.EventDTO;
+import com.example.bank.model.Notification;
+import com.example.bank.service.CardServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// Построение уведомления из события Kafka: выполняется консьюмером для каждой записи пачки
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationMappingBenchmark {
+
+    @Param({"deposit", "transfer"})
+    private OperationType type;
+
+    private EventDTO event;
+    private NotflicationType notificationType;
+
+    @Setup
+    public void setUp() {
+        event = new EventDTO();
+        event.setTransactionId(42L);
+        event.setType(type);
+        event.setCardNumber("4000001234567899");
+        event.setCardTransferTo(CardServiceImpl.maskCardNumber("4000009876543210"));
+        event.setReceiverCardNumber(type == OperationType.transfer ? "4000009876543210" : null);
+        event.setAmount(new BigDecimal("1500.00"));
+        event.setUserId(7L);
+        event.setComment("Оплата аренды");
+        notificationType = NotificationMapper.toNotificationType(type);
+    }
+
+    @Benchmark
+    public Notification toNotification() {
+        return NotificationMapper.toNotification(event);
+    }
+
+    @Benchmark
+    public String toMessage() {
+        return NotificationMapper.toMessage(event, notificationType);
+    }
+
+    @Benchmark
+    public String maskCardNumber() {
+        return CardServiceImpl.maskCardNumber(event.getCardNumber());
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.bank.security;
+
+import com.example.bank.Enums.Role;
+import com.example.bank.model.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Выпуск токена при входе и проверка подписи на каждом запросе (JwtFilter)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final String SECRET = "MjEyMzQ1Njc4OTAxMjM0NTY3ODkwMTIzNDU2Nzg5MD123456";
+
+    private JwtUtil jwtUtil;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET, 60);
+        user = new User();
+        user.setUserId(7L);
+        user.setUsername("benchmark-user");
+        user.setRole(Role.USER);
+        user.setBlocked(false);
+        user.setTokenVersion(3L);
+        token = jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public String validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public TokenClaims parseToken() {
+        return jwtUtil.parseToken(token);
+    }
+}
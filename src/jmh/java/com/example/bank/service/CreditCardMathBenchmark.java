@@ -0,0 +1,56 @@
+package com.example.bank.service;
+
+import com.example.bank.Enums.CardStatus;
+import com.example.bank.model.card.creditCard.CreditCard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Арифметика кредитной карты на BigDecimal без обращения к БД.
+// Пополнение и списание считаются условными UPDATE в БД, здесь остаются только проценты и итоговый долг
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreditCardMathBenchmark {
+
+    private CreditCard card;
+
+    @Setup
+    public void setUp() {
+        card = new CreditCard();
+        card.setCardNumber("4000001234567899");
+        card.setStatus(CardStatus.ACTIVE);
+        card.setExpiryDate(LocalDate.now().plusYears(5));
+        card.setCreditLimit(new BigDecimal("1000000000000.00"));
+        card.setBalance(new BigDecimal("1000000000000.00"));
+        card.setInterestRate(new BigDecimal("15.00"));
+        card.setDebt(new BigDecimal("12345.67"));
+        card.setAccruedInterest(new BigDecimal("12.34"));
+    }
+
+    @Benchmark
+    public BigDecimal accrueInterest() {
+        card.accrueInterest();
+        return card.getAccruedInterest();
+    }
+
+    @Benchmark
+    public BigDecimal updateTotalDebt() {
+        card.updateTotalDebt();
+        return card.getTotalDebt();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.bank.Enums;
+
+// Счета двойной записи: карта клиента и системные счета банка
+public enum LedgerAccount {
+    CARD,            // карта клиента (cardId заполнен)
+    EXTERNAL,        // внешний мир: наличные, пополнения и снятия
+    INTEREST_INCOME, // погашенные проценты по кредитным картам
+    CREDIT_LINE      // кредитный лимит, выданный банком
+}
@@ -0,0 +1,148 @@
+package com.example.bank.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// Ограниченный кэш с приближённым LRU и временем жизни записей.
+// Записи лежат в ConcurrentHashMap: чтение не берёт блокировок, а только отмечает в записи номер обращения.
+// Когда размер превышает maxEntries, один поток за проход по карте удаляет просроченные и самые давние записи,
+// освобождая десятую часть лимита, — так проход случается раз на много вставок, а не на каждую.
+// Остальные потоки в это время не ждут: размер может ненадолго превысить лимит.
+// Просроченные записи также удаляются лениво при обращении к ним.
+public class ExpiringLruCache<K, V> {
+
+    // Доля лимита, освобождаемая одним проходом вытеснения
+    private static final int EVICTION_BATCH_DIVISOR = 10;
+
+    private final int maxEntries;
+    private final int evictToSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong accessCounter = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    public ExpiringLruCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, System::currentTimeMillis);
+    }
+
+    ExpiringLruCache(int maxEntries, long ttlMillis, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.evictToSize = maxEntries - maxEntries / EVICTION_BATCH_DIVISOR;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= clock.getAsLong()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        entry.lastAccess = accessCounter.incrementAndGet();
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        entries.put(key, newEntry(value));
+        evictIfNeeded();
+    }
+
+    // Живое значение по ключу или новое от factory; новая запись получает полный срок жизни.
+    // Для одного ключа factory вызывается не больше одного раза одновременно
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> factory) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        Entry<V> entry = entries.compute(key, (k, current) ->
+                current != null && current.expiresAt > clock.getAsLong() ? current : newEntry(factory.apply(k)));
+        evictIfNeeded();
+        return entry.value;
+    }
+
+    // Копия живых записей от давно не использованных к недавним; просроченные попутно удаляются
+    public Map<K, V> snapshot() {
+        long now = clock.getAsLong();
+        List<Map.Entry<K, Entry<V>>> live = new ArrayList<>();
+        entries.forEach((key, entry) -> {
+            if (entry.expiresAt <= now) {
+                entries.remove(key, entry);
+            } else {
+                live.add(Map.entry(key, entry));
+            }
+        });
+        live.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+        Map<K, V> copy = new LinkedHashMap<>();
+        live.forEach(e -> copy.put(e.getKey(), e.getValue().value));
+        return copy;
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private Entry<V> newEntry(V value) {
+        return new Entry<>(value, clock.getAsLong() + ttlMillis, accessCounter.incrementAndGet());
+    }
+
+    private void evictIfNeeded() {
+        if (entries.size() <= maxEntries || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = clock.getAsLong();
+            entries.values().removeIf(entry -> entry.expiresAt <= now);
+            long[] accesses = entries.values().stream().mapToLong(entry -> entry.lastAccess).toArray();
+            int excess = accesses.length - evictToSize;
+            if (excess <= 0) {
+                return;
+            }
+            // Граница — номер обращения excess-й по давности записи; записи, прочитанные после снимка, её не пройдут
+            Arrays.sort(accesses);
+            long threshold = accesses[excess - 1];
+            entries.forEach((key, entry) -> {
+                if (entry.lastAccess <= threshold) {
+                    entries.remove(key, entry);
+                }
+            });
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+        private volatile long lastAccess;
+
+        private Entry(V value, long expiresAt, long lastAccess) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
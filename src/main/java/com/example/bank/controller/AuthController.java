@@ -1,6 +1,8 @@
 package com.example.bank.controller;
 
 import com.example.bank.model.user.LoginRequest;
+import com.example.bank.model.user.User;
+import com.example.bank.repository.UserRepository;
 import com.example.bank.security.JwtUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirements;
@@ -16,10 +18,12 @@ public class AuthController {
 
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authManager;
+    private final UserRepository userRepository;
 
-    public AuthController(JwtUtil jwtUtil, AuthenticationManager authManager) {
+    public AuthController(JwtUtil jwtUtil, AuthenticationManager authManager, UserRepository userRepository) {
         this.jwtUtil = jwtUtil;
         this.authManager = authManager;
+        this.userRepository = userRepository;
     }
 
     @SecurityRequirements
@@ -34,7 +38,10 @@ public class AuthController {
             );
 
             if (authentication.isAuthenticated()) {
-                return jwtUtil.generateToken(username);
+                // id, роль и версия попадают в токен, чтобы запросы аутентифицировались без обращения к БД
+                User user = userRepository.findByUsername(username)
+                        .orElseThrow(() -> new RuntimeException("Login failed"));
+                return jwtUtil.generateToken(user);
             } else {
                 throw new RuntimeException("Login failed");
             }
@@ -4,9 +4,13 @@ package com.example.bank.controller;
 import com.example.bank.model.card.Card;
 
 import com.example.bank.model.card.CardDto;
+import com.example.bank.model.card.issuance.CardIssuanceFormat;
+import com.example.bank.service.CardIssuanceService;
 import com.example.bank.service.CardServiceImpl;
 import com.example.bank.service.DebitCardService;
 import io.swagger.v3.oas.annotations.Operation;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -14,6 +18,8 @@ import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -22,10 +28,26 @@ public class CardController {
 
     private final CardServiceImpl cardService;
     private final DebitCardService debitCardService;
+    private final CardIssuanceService cardIssuanceService;
 
-    public CardController(CardServiceImpl cardService, DebitCardService debitCardService) {
+    public CardController(CardServiceImpl cardService, DebitCardService debitCardService,
+                          CardIssuanceService cardIssuanceService) {
         this.cardService = cardService;
         this.debitCardService = debitCardService;
+        this.cardIssuanceService = cardIssuanceService;
+    }
+
+    // Тело читается и ответ пишется потоком: по строке результата на каждую строку заявки
+    @PostMapping(value = "/bulk",
+            consumes = {CardIssuanceFormat.NDJSON_MEDIA_TYPE, CardIssuanceFormat.CSV_MEDIA_TYPE},
+            produces = CardIssuanceFormat.NDJSON_MEDIA_TYPE)
+    @Operation(summary = "Массовый выпуск карт",
+            description = "Заявки в NDJSON или CSV (userId,type,creditLimit,interestRate,gracePeriod), результат — NDJSON")
+    public void issueCards(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(CardIssuanceFormat.NDJSON_MEDIA_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        cardIssuanceService.issue(request.getReader(),
+                CardIssuanceFormat.fromContentType(request.getContentType()), response.getWriter());
     }
 
     @PostMapping("/{id}/block")
@@ -3,7 +3,9 @@ package com.example.bank.controller;
 import com.example.bank.model.card.creditCard.CreditCard;
 import com.example.bank.model.card.creditCard.CreditCardCreateRequest;
 import com.example.bank.model.card.creditCard.CreditCardResponseDto;
+import com.example.bank.model.interest.InterestAccrualReport;
 import com.example.bank.service.CreditCardService;
+import com.example.bank.service.InterestAccrualService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
@@ -19,9 +21,11 @@ import java.math.BigDecimal;
 public class CreditCardController {
 
     private final CreditCardService creditCardService;
+    private final InterestAccrualService interestAccrualService;
 
-    public CreditCardController(CreditCardService creditCardService) {
+    public CreditCardController(CreditCardService creditCardService, InterestAccrualService interestAccrualService) {
         this.creditCardService = creditCardService;
+        this.interestAccrualService = interestAccrualService;
     }
 
 
@@ -99,8 +103,7 @@ public class CreditCardController {
 
     @PostMapping("/accrue-interest")
     @Operation(summary = "Начислить проценты", description = "Ручной запуск начисления процентов по кредитным картам")
-    public ResponseEntity<String> runAccrueInterest() {
-        creditCardService.accrueMonthlyInterest(); // вызываем метод
-        return ResponseEntity.ok("Начисление процентов выполнено");
+    public ResponseEntity<InterestAccrualReport> runAccrueInterest() {
+        return ResponseEntity.ok(interestAccrualService.accrueNow());
     }
 }
@@ -0,0 +1,41 @@
+package com.example.bank.controller;
+
+import com.example.bank.model.ledger.CardBalanceResponse;
+import com.example.bank.model.ledger.ReconciliationReport;
+import com.example.bank.service.LedgerService;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/ledger")
+public class LedgerController {
+
+    private final LedgerService ledgerService;
+
+    public LedgerController(LedgerService ledgerService) {
+        this.ledgerService = ledgerService;
+    }
+
+    @GetMapping("/cards/{cardId}/balance")
+    @Operation(summary = "Баланс карты по журналу", description = "Баланс карты на момент времени (по умолчанию — сейчас): снимок + проводки после него")
+    public CardBalanceResponse getBalanceAt(@PathVariable Long cardId,
+                                            @RequestParam(required = false)
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ledgerService.getBalanceAt(cardId, at);
+    }
+
+    @PostMapping("/snapshots")
+    @Operation(summary = "Снять снимки балансов", description = "Внеплановый снимок балансов всех карт с новыми проводками")
+    public int takeSnapshots() {
+        return ledgerService.takeSnapshotsNow();
+    }
+
+    @PostMapping("/reconcile")
+    @Operation(summary = "Сверка балансов с журналом", description = "Параллельная сверка cards.balance с журналом проводок")
+    public ReconciliationReport reconcile() {
+        return ledgerService.reconcile();
+    }
+}
@@ -1,10 +1,16 @@
 package com.example.bank.controller;
 
 
+import com.example.bank.model.NotificationCountResponse;
+import com.example.bank.model.NotificationPage;
 import com.example.bank.model.NotificationResponse;
+import com.example.bank.service.NotificationPushService;
 import com.example.bank.service.NotificationService;
 import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -12,22 +18,58 @@ import java.util.List;
 @RequestMapping("/api/notifications")
 public class NotificationController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final NotificationService notificationService;
+    private final NotificationPushService notificationPushService;
 
-    public NotificationController(NotificationService notificationService) {
+    public NotificationController(NotificationService notificationService,
+                                  NotificationPushService notificationPushService) {
         this.notificationService = notificationService;
+        this.notificationPushService = notificationPushService;
+    }
+
+    // Поток новых уведомлений (Server-Sent Events) вместо опроса /unread; при переподключении клиент
+    // передаёт Last-Event-ID и получает пропущенные уведомления
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Поток уведомлений", description = "Server-Sent Events с новыми уведомлениями пользователя; id события — id уведомления")
+    public SseEmitter streamNotifications(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return notificationPushService.subscribe(lastEventId);
     }
 
-    // Получить только непрочитанные уведомления пользователя
+    // Получить только непрочитанные уведомления пользователя; выданная страница отмечается прочитанной
     @GetMapping("/unread")
-    @Operation(summary = "Получить непрочитанные уведомления", description = "Получение списка непрочитанных уведомлений пользователя")
-    public List<NotificationResponse> getUnreadNotifications() {
-        return notificationService.getUnreadNotification();
+    @Operation(summary = "Получить непрочитанные уведомления", description = "Получение страницы непрочитанных уведомлений пользователя, курсор следующей страницы в заголовке X-Next-Cursor")
+    public ResponseEntity<List<NotificationResponse>> getUnreadNotifications(@RequestParam(required = false) String cursor,
+                                                                             @RequestParam(required = false) Integer size) {
+        return toResponse(notificationService.getUnreadNotification(cursor, size));
     }
     //Получить все уведомления
     @GetMapping("/all")
-    @Operation(summary = "Получить все уведомления", description = "Получение списка всех уведомлений пользователя")
-    public List<NotificationResponse> getAllNotifications() {
-        return notificationService.getAlldNotification();
+    @Operation(summary = "Получить все уведомления", description = "Получение страницы всех уведомлений пользователя, курсор следующей страницы в заголовке X-Next-Cursor")
+    public ResponseEntity<List<NotificationResponse>> getAllNotifications(@RequestParam(required = false) String cursor,
+                                                                          @RequestParam(required = false) Integer size) {
+        return toResponse(notificationService.getAlldNotification(cursor, size));
+    }
+
+    @GetMapping("/unread/count")
+    @Operation(summary = "Количество непрочитанных уведомлений", description = "Число непрочитанных уведомлений пользователя без их загрузки")
+    public NotificationCountResponse getUnreadCount() {
+        return new NotificationCountResponse(notificationService.countUnread());
+    }
+
+    @PostMapping("/read")
+    @Operation(summary = "Отметить уведомления прочитанными", description = "Отмечает прочитанными все уведомления пользователя с id не больше upToId, возвращает число отмеченных")
+    public NotificationCountResponse markRead(@RequestParam Long upToId) {
+        return new NotificationCountResponse(notificationService.markReadUpTo(upToId));
+    }
+
+    // Тело ответа остаётся массивом; курсор следующей страницы передаётся в заголовке
+    private ResponseEntity<List<NotificationResponse>> toResponse(NotificationPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 }
@@ -1,13 +1,17 @@
 package com.example.bank.controller;
 
 import com.example.bank.model.transaction.TransactionOperationRequest;
+import com.example.bank.model.transaction.TransactionPage;
 import com.example.bank.model.transaction.TransactionResponse;
 
+import com.example.bank.model.card.CardContentionResponse;
 import com.example.bank.model.card.CardDto;
 import com.example.bank.model.transaction.TransferRequest;
+import com.example.bank.service.IdempotencyService;
 import com.example.bank.service.TransactionService;
 import io.swagger.v3.oas.annotations.Operation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 
 import org.springframework.web.bind.annotation.*;
 
@@ -17,50 +21,60 @@ import java.util.List;
 @RequestMapping("/api/transactions")
 public class TransactionController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final TransactionService transactionService;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService, IdempotencyService idempotencyService) {
         this.transactionService = transactionService;
+        this.idempotencyService = idempotencyService;
     }
 
     // Операции
     @PostMapping("/deposit")
     @Operation(summary = "Пополнение карты", description = "Пополнение баланса карты")
-    public CardDto deposit(@RequestBody TransactionOperationRequest request) {
-        return transactionService.deposit(
+    public CardDto deposit(@RequestBody TransactionOperationRequest request,
+                           @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("deposit", idempotencyKey, request, () -> transactionService.deposit(
                 request.getId(),
                 request.getAmount(),
                 request.getComment()
-        );
+        ));
     }
 
     @PostMapping("/withdraw")
     @Operation(summary = "Снятие со счёта", description = "Снятие средств с карты")
-    public CardDto withdraw(@RequestBody TransactionOperationRequest request) {
-        return transactionService.withdraw(
+    public CardDto withdraw(@RequestBody TransactionOperationRequest request,
+                            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("withdraw", idempotencyKey, request, () -> transactionService.withdraw(
                 request.getId(),
                 request.getAmount(),
                 request.getComment()
-        );
+        ));
     }
 
     @PostMapping("/transfer")
     @Operation(summary = "Перевод между картами", description = "Перевод средств между картами")
-    public CardDto transfer(@RequestBody TransferRequest request) {
-        return transactionService.transfer(
+    public CardDto transfer(@RequestBody TransferRequest request,
+                            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("transfer", idempotencyKey, request, () -> transactionService.transfer(
                 request.getFromId(),
                 request.getToId(),
                 request.getAmount(),
                 request.getComment()
-        );
+        ));
     }
 
     // Запросы данных
     @GetMapping("/by-card/{cardNumber}")
     @Operation(summary = "Получить транзакции по карте", description = "Получение списка транзакций по номеру карты")
-    public List<TransactionResponse> getTransactionsByCard(@PathVariable String cardNumber) {
-        return transactionService.getTransactionsByCard(cardNumber);
+    public ResponseEntity<List<TransactionResponse>> getTransactionsByCard(@PathVariable String cardNumber,
+                                                                           @RequestParam(required = false) String cursor,
+                                                                           @RequestParam(required = false) Integer size) {
+        return toResponse(transactionService.getTransactionsByCard(cardNumber, cursor, size));
     }
 
     @GetMapping("/{id}")
@@ -79,14 +93,32 @@ public class TransactionController {
 
     @GetMapping("/by-user/{userId}")
     @Operation(summary = "Получить транзакции по пользователю", description = "Получение транзакций по ID пользователя")
-    public List<TransactionResponse> getTransactionsByUser(@PathVariable Long userId) {
-        return transactionService.getTransactionsByUser(userId);
+    public ResponseEntity<List<TransactionResponse>> getTransactionsByUser(@PathVariable Long userId,
+                                                                           @RequestParam(required = false) String cursor,
+                                                                           @RequestParam(required = false) Integer size) {
+        return toResponse(transactionService.getTransactionsByUser(userId, cursor, size));
+    }
+
+    @GetMapping("/contention")
+    @Operation(summary = "Конкуренция за карты", description = "Счётчики ожиданий блокировок и повторов переводов по картам")
+    public List<CardContentionResponse> getCardContention() {
+        return transactionService.getCardContention();
     }
 
     @GetMapping("/getAllForUser")
     @Operation(summary = "Получить транзакции для текущего пользователя", description = "Получение транзакций для авторизованного пользователя")
-    public List<TransactionResponse> getTransactionsForUser() {
-        return transactionService.getTransactionsForUser();
+    public ResponseEntity<List<TransactionResponse>> getTransactionsForUser(@RequestParam(required = false) String cursor,
+                                                                            @RequestParam(required = false) Integer size) {
+        return toResponse(transactionService.getTransactionsForUser(cursor, size));
+    }
+
+    // Тело ответа остаётся массивом; курсор следующей страницы передаётся в заголовке
+    private ResponseEntity<List<TransactionResponse>> toResponse(TransactionPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 
 
@@ -45,21 +45,7 @@ public class UserController {
     @PatchMapping("/{id}")
     @Operation(summary = "Обновить пользователя", description = "Частичное обновление данных пользователя")
     public ResponseEntity<UserDto> updateUser(@PathVariable Long id, @RequestBody Map<String, Object> updates) {
-        User user = userService.getUserById(id); // если не найдёт — GlobalExceptionHandler вернёт 404
-
-        updates.forEach((key, value) -> {
-            switch (key) {
-                case "username" -> user.setUsername((String) value);
-                case "password" -> user.setPassword((String) value);
-                case "email" -> user.setEmail((String) value);
-                case "firstName" -> user.setFirstName((String) value);
-                case "lastName" -> user.setLastName((String) value);
-                case "phoneNumber" -> user.setPhoneNumber((String) value);
-                case "status" -> user.setBlocked((Boolean) value);
-            }
-        });
-
-        User updatedUser = userService.update(user);
+        User updatedUser = userService.applyUpdates(id, updates); // если не найдёт — GlobalExceptionHandler вернёт 404
         return ResponseEntity.ok(UserMapper.toDto(updatedUser));
     }
 
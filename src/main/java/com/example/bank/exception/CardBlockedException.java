@@ -1,10 +1,19 @@
 package com.example.bank.exception;
 
 import com.example.bank.model.card.Card;
+import com.example.bank.model.card.CardSummary;
 
 
 public class CardBlockedException extends RuntimeException {
     public CardBlockedException(Card card) {
-        super("Operation failed user: " + card.getCardNumber() + " is status blocked");
+        this(card.getCardNumber());
+    }
+
+    public CardBlockedException(CardSummary card) {
+        this(card.getCardNumber());
+    }
+
+    private CardBlockedException(String cardNumber) {
+        super("Operation failed user: " + cardNumber + " is status blocked");
     }
 }
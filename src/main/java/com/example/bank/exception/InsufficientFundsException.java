@@ -0,0 +1,9 @@
+package com.example.bank.exception;
+
+// Списание отклонено из-за остатка; обрабатывается как InvalidOperationException,
+// отдельный тип нужен, чтобы отличать этот исход в метриках
+public class InsufficientFundsException extends InvalidOperationException {
+    public InsufficientFundsException(String message) {
+        super(message);
+    }
+}
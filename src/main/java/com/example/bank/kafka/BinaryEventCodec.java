@@ -0,0 +1,296 @@
+package com.example.bank.kafka;
+
+import com.example.bank.Enums.OperationType;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+// Компактный двоичный формат EventDTO без реестра схем.
+// Кадр: MAGIC, VERSION, затем поля в виде (номер поля << 3 | тип) varint и значения, как в protobuf:
+// тип 0 — varint, тип 2 — длина varint и байты. null-поля не пишутся.
+// Эволюция схемы: новые поля получают новые номера, номера удалённых полей не переиспользуются;
+// неизвестные поля читатель пропускает, отсутствующие остаются значениями по умолчанию EventDTO.
+// VERSION меняется только при несовместимом изменении самого кадра
+@Component
+public class BinaryEventCodec implements EventCodec {
+
+    public static final String NAME = "binary";
+
+    static final byte MAGIC = (byte) 0xBE;
+    static final byte VERSION = 1;
+
+    private static final int VARINT = 0;
+    private static final int LENGTH_DELIMITED = 2;
+
+    // Номера полей — часть формата
+    private static final int TRANSACTION_ID = 1;
+    private static final int TYPE = 2;
+    private static final int CARD_NUMBER = 3;
+    private static final int CARD_TRANSFER_TO = 4;
+    private static final int RECEIVER_CARD_NUMBER = 5;
+    private static final int AMOUNT = 6;
+    private static final int USER_ID = 7;
+    private static final int COMMENT = 8;
+    private static final int TIMESTAMP_SECONDS = 9;
+    private static final int TIMESTAMP_NANOS = 10;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(EventDTO event) {
+        Writer out = new Writer(96);
+        out.raw(MAGIC);
+        out.raw(VERSION);
+        if (event.getTransactionId() != null) {
+            out.varintField(TRANSACTION_ID, event.getTransactionId());
+        }
+        if (event.getType() != null) {
+            out.varintField(TYPE, typeCode(event.getType()));
+        }
+        out.stringField(CARD_NUMBER, event.getCardNumber());
+        out.stringField(CARD_TRANSFER_TO, event.getCardTransferTo());
+        out.stringField(RECEIVER_CARD_NUMBER, event.getReceiverCardNumber());
+        if (event.getAmount() != null) {
+            // scale (zigzag) и unscaled value в дополнительном коде — без потери точности
+            byte[] unscaled = event.getAmount().unscaledValue().toByteArray();
+            out.tag(AMOUNT, LENGTH_DELIMITED);
+            out.varint(varintSize(zigzag(event.getAmount().scale())) + unscaled.length);
+            out.varint(zigzag(event.getAmount().scale()));
+            out.bytes(unscaled);
+        }
+        if (event.getUserId() != null) {
+            out.varintField(USER_ID, event.getUserId());
+        }
+        out.stringField(COMMENT, event.getComment());
+        if (event.getTimestamp() != null) {
+            out.varintField(TIMESTAMP_SECONDS, zigzag(event.getTimestamp().toEpochSecond(ZoneOffset.UTC)));
+            if (event.getTimestamp().getNano() != 0) {
+                out.varintField(TIMESTAMP_NANOS, event.getTimestamp().getNano());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public EventDTO decode(byte[] payload) {
+        if (!accepts(payload)) {
+            throw new IllegalArgumentException("Not a binary event frame");
+        }
+        if (payload[1] != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary event version " + payload[1]);
+        }
+        Reader in = new Reader(payload, 2);
+        EventDTO event = new EventDTO();
+        long seconds = Long.MIN_VALUE;
+        int nanos = 0;
+        while (in.hasRemaining()) {
+            long tag = in.varint();
+            int field = (int) (tag >>> 3);
+            int wireType = (int) (tag & 7);
+            switch (field) {
+                case TRANSACTION_ID -> event.setTransactionId(in.expect(wireType, VARINT).varint());
+                case TYPE -> event.setType(fromTypeCode((int) in.expect(wireType, VARINT).varint()));
+                case CARD_NUMBER -> event.setCardNumber(in.expect(wireType, LENGTH_DELIMITED).string());
+                case CARD_TRANSFER_TO -> event.setCardTransferTo(in.expect(wireType, LENGTH_DELIMITED).string());
+                case RECEIVER_CARD_NUMBER -> event.setReceiverCardNumber(in.expect(wireType, LENGTH_DELIMITED).string());
+                case AMOUNT -> event.setAmount(in.expect(wireType, LENGTH_DELIMITED).decimal());
+                case USER_ID -> event.setUserId(in.expect(wireType, VARINT).varint());
+                case COMMENT -> event.setComment(in.expect(wireType, LENGTH_DELIMITED).string());
+                case TIMESTAMP_SECONDS -> seconds = unzigzag(in.expect(wireType, VARINT).varint());
+                case TIMESTAMP_NANOS -> nanos = (int) in.expect(wireType, VARINT).varint();
+                default -> in.skip(wireType);
+            }
+        }
+        if (seconds != Long.MIN_VALUE) {
+            event.setTimestamp(LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+        }
+        return event;
+    }
+
+    @Override
+    public boolean accepts(byte[] payload) {
+        return payload != null && payload.length >= 2 && payload[0] == MAGIC;
+    }
+
+    @Override
+    public boolean isText() {
+        return false;
+    }
+
+    // Коды операций закреплены явно: порядок констант в OperationType на формат не влияет
+    private static int typeCode(OperationType type) {
+        return switch (type) {
+            case deposit -> 1;
+            case withdraw -> 2;
+            case transfer -> 3;
+            case payment -> 4;
+        };
+    }
+
+    private static OperationType fromTypeCode(int code) {
+        return switch (code) {
+            case 1 -> OperationType.deposit;
+            case 2 -> OperationType.withdraw;
+            case 3 -> OperationType.transfer;
+            case 4 -> OperationType.payment;
+            default -> throw new IllegalArgumentException("Unknown operation type code " + code);
+        };
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void raw(byte value) {
+            ensure(1);
+            buffer[position++] = value;
+        }
+
+        void tag(int field, int wireType) {
+            varint(((long) field << 3) | wireType);
+        }
+
+        void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void varintField(int field, long value) {
+            tag(field, VARINT);
+            varint(value);
+        }
+
+        void stringField(int field, String value) {
+            if (value == null) {
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            tag(field, LENGTH_DELIMITED);
+            varint(utf8.length);
+            bytes(utf8);
+        }
+
+        void bytes(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, buffer, position, value.length);
+            position += value.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        boolean hasRemaining() {
+            return position < buffer.length;
+        }
+
+        Reader expect(int wireType, int expected) {
+            if (wireType != expected) {
+                throw new IllegalArgumentException("Unexpected wire type " + wireType + " at " + position);
+            }
+            return this;
+        }
+
+        long varint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= buffer.length) {
+                    throw new IllegalArgumentException("Truncated varint");
+                }
+                byte b = buffer[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        String string() {
+            int length = length();
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        BigDecimal decimal() {
+            int end = length() + position;
+            int scale = (int) unzigzag(varint());
+            if (position >= end) {
+                throw new IllegalArgumentException("Empty decimal value");
+            }
+            BigInteger unscaled = new BigInteger(buffer, position, end - position);
+            position = end;
+            return new BigDecimal(unscaled, scale);
+        }
+
+        void skip(int wireType) {
+            switch (wireType) {
+                case VARINT -> varint();
+                case LENGTH_DELIMITED -> {
+                    // length() сдвигает position, поэтому не position += length()
+                    int length = length();
+                    position += length;
+                }
+                default -> throw new IllegalArgumentException("Unsupported wire type " + wireType);
+            }
+        }
+
+        private int length() {
+            long length = varint();
+            if (length < 0 || length > buffer.length - position) {
+                throw new IllegalArgumentException("Field length " + length + " exceeds frame");
+            }
+            return (int) length;
+        }
+    }
+}
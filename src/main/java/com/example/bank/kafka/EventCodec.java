@@ -0,0 +1,19 @@
+package com.example.bank.kafka;
+
+// Формат события в Kafka. Кодек выбирается по топику (EventCodecs), а консьюмер определяет формат
+// по первым байтам сообщения, поэтому в одном топике могут лежать сообщения разных форматов
+public interface EventCodec {
+
+    // Значение bank.kafka.codec.<topic>
+    String name();
+
+    byte[] encode(EventDTO event);
+
+    EventDTO decode(byte[] payload);
+
+    // Сообщение записано этим кодеком
+    boolean accepts(byte[] payload);
+
+    // Кадр можно хранить в текстовой колонке outbox как есть (UTF-8)
+    boolean isText();
+}
@@ -0,0 +1,71 @@
+package com.example.bank.kafka;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Выбор кодека событий по топику: bank.kafka.codec.<topic>, иначе bank.kafka.codec.default (json).
+// Чтение не зависит от настройки: формат определяется по сообщению, поэтому переход на другой кодек —
+// сначала обновить консьюмеры, затем переключить топик; сообщения старого формата дочитываются как есть
+@Component
+public class EventCodecs {
+
+    // Двоичный кадр в текстовой колонке outbox.payload хранится в base64 с этим префиксом
+    static final String OUTBOX_BASE64_PREFIX = "base64:";
+
+    private final Map<String, EventCodec> codecsByName;
+    private final List<EventCodec> codecs;
+    private final Environment environment;
+    private final Map<String, EventCodec> codecsByTopic = new ConcurrentHashMap<>();
+
+    public EventCodecs(List<EventCodec> codecs, Environment environment) {
+        this.codecs = List.copyOf(codecs);
+        this.codecsByName = codecs.stream().collect(Collectors.toMap(EventCodec::name, Function.identity()));
+        this.environment = environment;
+    }
+
+    public EventCodec forTopic(String topic) {
+        return codecsByTopic.computeIfAbsent(topic, t -> {
+            String name = environment.getProperty("bank.kafka.codec." + t,
+                    environment.getProperty("bank.kafka.codec.default", JsonEventCodec.NAME));
+            EventCodec codec = codecsByName.get(name);
+            if (codec == null) {
+                throw new IllegalStateException("Unknown event codec '" + name + "' for topic " + t
+                        + ", available: " + codecsByName.keySet());
+            }
+            return codec;
+        });
+    }
+
+    public EventDTO decode(byte[] payload) {
+        for (EventCodec codec : codecs) {
+            if (codec.accepts(payload)) {
+                return codec.decode(payload);
+            }
+        }
+        throw new IllegalArgumentException("Unrecognized event format");
+    }
+
+    // Событие для outbox в формате топика: текстовые кодеки хранятся как есть, двоичные — в base64
+    public String encodeForOutbox(String topic, EventDTO event) {
+        EventCodec codec = forTopic(topic);
+        byte[] frame = codec.encode(event);
+        return codec.isText()
+                ? new String(frame, StandardCharsets.UTF_8)
+                : OUTBOX_BASE64_PREFIX + Base64.getEncoder().encodeToString(frame);
+    }
+
+    // Значение сообщения Kafka из outbox.payload
+    public static byte[] fromOutboxPayload(String payload) {
+        return payload.startsWith(OUTBOX_BASE64_PREFIX)
+                ? Base64.getDecoder().decode(payload.substring(OUTBOX_BASE64_PREFIX.length()))
+                : payload.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -22,7 +22,9 @@ public class EventDTO {
     @NotNull
     private String cardNumber; // "4724118063"
 
-    private String cardTransferTo;
+    private String cardTransferTo;       // маска номера карты получателя
+
+    private String receiverCardNumber;   // полный номер карты получателя (только для переводов)
 
     @NotNull
     private BigDecimal amount;    // 100
@@ -0,0 +1,58 @@
+package com.example.bank.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+// Прежний формат: JSON через ObjectMapper приложения. Байты совпадают с тем, что писал StringSerializer,
+// поэтому старые сообщения в топике читаются без изменений
+@Component
+public class JsonEventCodec implements EventCodec {
+
+    public static final String NAME = "json";
+
+    private final ObjectMapper objectMapper;
+
+    public JsonEventCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(EventDTO event) {
+        try {
+            return objectMapper.writeValueAsBytes(event);
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка при сериализации события", e);
+        }
+    }
+
+    @Override
+    public EventDTO decode(byte[] payload) {
+        try {
+            return objectMapper.readValue(payload, EventDTO.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed JSON event: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean accepts(byte[] payload) {
+        for (byte b : payload) {
+            if (!Character.isWhitespace(b)) {
+                return b == '{';
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isText() {
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.bank.kafka;
+
+import com.example.bank.model.Notification;
+import com.example.bank.service.NotificationPushService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Рассылка только что вставленных уведомлений всем экземплярам: поток SSE пользователя может быть открыт
+// не на том экземпляре, чей консьюмер вставил уведомления. Каждый экземпляр читает топик своей группой
+// (случайный group id, только новые сообщения) и отдаёт уведомления локальным подключениям.
+// Рассылка best-effort: потерянное сообщение поток восполнит из БД, увидев пропуск в userSeq
+// при следующем уведомлении пользователя
+@Service
+public class NotificationBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationBroadcaster.class);
+
+    public static final String TOPIC = "NotificationPush";
+
+    private static final TypeReference<List<Notification>> NOTIFICATIONS = new TypeReference<>() {
+    };
+
+    private final TransactionEventProducer producer;
+    private final NotificationPushService notificationPushService;
+    private final ObjectMapper objectMapper;
+
+    public NotificationBroadcaster(TransactionEventProducer producer,
+                                   NotificationPushService notificationPushService,
+                                   ObjectMapper objectMapper) {
+        this.producer = producer;
+        this.notificationPushService = notificationPushService;
+        this.objectMapper = objectMapper;
+    }
+
+    // Вызывается после фиксации вставки: по сообщению на пользователя, ключ — userId, чтобы его уведомления
+    // шли через одну партицию по порядку
+    public void broadcast(List<Notification> notifications) {
+        Map<Long, List<Notification>> byUser = notifications.stream()
+                .collect(Collectors.groupingBy(Notification::getUserId));
+        byUser.forEach((userId, userNotifications) -> {
+            try {
+                producer.send(TOPIC, String.valueOf(userId), objectMapper.writeValueAsBytes(userNotifications))
+                        .whenComplete((result, ex) -> {
+                            if (ex != null) {
+                                log.warn("Failed to broadcast notifications of user {}: {}", userId, ex.getMessage());
+                            }
+                        });
+            } catch (Exception e) {
+                log.warn("Failed to broadcast notifications of user {}: {}", userId, e.getMessage());
+            }
+        });
+    }
+
+    @KafkaListener(topics = TOPIC, groupId = "notification-push-${random.uuid}",
+            properties = "auto.offset.reset=latest")
+    public void listen(ConsumerRecord<String, byte[]> record) {
+        try {
+            notificationPushService.publish(objectMapper.readValue(record.value(), NOTIFICATIONS));
+        } catch (Exception e) {
+            // Битое сообщение пропускается: пропуск в номерах клиент добирает из БД
+            log.error("Failed to read notification broadcast: partition={}, offset={}",
+                    record.partition(), record.offset(), e);
+        }
+    }
+}
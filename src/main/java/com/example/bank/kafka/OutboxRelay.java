@@ -0,0 +1,138 @@
+package com.example.bank.kafka;
+
+import com.example.bank.model.outbox.OutboxEvent;
+import com.example.bank.model.outbox.OutboxRelayState;
+import com.example.bank.repository.OutboxEventRepository;
+import com.example.bank.repository.OutboxRelayStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Фоновый ретранслятор outbox → Kafka.
+// Забирает события пачками по возрастанию id, отправляет, дожидается подтверждения брокера,
+// удаляет отправленные строки и сдвигает позицию в outbox_relay_state. Доставка — at-least-once.
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxRelayStateRepository relayStateRepository;
+    private final TransactionEventProducer producer;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${bank.outbox.relay.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bank.outbox.relay.batch-size:200}")
+    private int batchSize;
+
+    @Value("${bank.outbox.relay.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Value("${bank.outbox.relay.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OutboxRelayStateRepository relayStateRepository,
+                       TransactionEventProducer producer,
+                       PlatformTransactionManager transactionManager) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.relayStateRepository = relayStateRepository;
+        this.producer = producer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${bank.outbox.relay.interval-ms:500}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int batches = 0;
+            int drained;
+            do {
+                Integer sent = transactionTemplate.execute(status -> drainBatch(TransactionEventOutbox.TOPIC));
+                drained = sent == null ? 0 : sent;
+                batches++;
+            } while (drained == batchSize && batches < maxBatchesPerRun);
+        } catch (Exception e) {
+            log.error("Outbox relay run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Выгружает одну пачку; возвращает число отправленных событий
+    int drainBatch(String topic) {
+        OutboxRelayState state = lockState(topic);
+        if (state == null) {
+            return 0;
+        }
+
+        List<OutboxEvent> events = outboxEventRepository.findByTopicOrderByIdAsc(topic, PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        long started = System.nanoTime();
+        List<CompletableFuture<SendResult<String, byte[]>>> futures = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            CompletableFuture<SendResult<String, byte[]>> future =
+                    producer.send(topic, event.getMessageKey(), EventCodecs.fromOutboxPayload(event.getPayload()));
+            futures.add(future);
+            // Отказ без отправки (окно in-flight заполнено) останавливает пачку: хвост всё равно не удалится,
+            // а каждая следующая отправка снова ждала бы acquire-timeout-ms
+            if (future.isCompletedExceptionally()) {
+                break;
+            }
+        }
+        producer.flush();
+
+        // Удаляем только непрерывный отправленный префикс, чтобы не нарушить порядок событий
+        List<Long> sentIds = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+                sentIds.add(events.get(i).getId());
+            } catch (Exception e) {
+                log.error("Failed to relay outbox event {} to {}: {}", events.get(i).getId(), topic, e.getMessage());
+                break;
+            }
+        }
+
+        if (!sentIds.isEmpty()) {
+            outboxEventRepository.deleteAllByIdInBatch(sentIds);
+            state.setLastEventId(sentIds.get(sentIds.size() - 1));
+            state.setDrainedTotal(state.getDrainedTotal() + sentIds.size());
+            state.setUpdatedAt(LocalDateTime.now());
+            relayStateRepository.save(state);
+        }
+        log.info("Relayed {}/{} outbox events to {} in {} ms, position={}", sentIds.size(), events.size(), topic,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), state.getLastEventId());
+        return sentIds.size();
+    }
+
+    private OutboxRelayState lockState(String topic) {
+        Optional<OutboxRelayState> state = relayStateRepository.findByTopicForUpdate(topic);
+        if (state.isPresent()) {
+            return state.get();
+        }
+        // Первая выгрузка топика: строку могут создавать несколько узлов сразу, поэтому INSERT ... ON CONFLICT,
+        // а не save — исключение уникального ключа пометило бы транзакцию на откат
+        relayStateRepository.insertIfAbsent(topic, LocalDateTime.now());
+        return relayStateRepository.findByTopicForUpdate(topic)
+                .orElseThrow(() -> new IllegalStateException("Outbox relay state for " + topic + " was not created"));
+    }
+}
@@ -4,58 +4,191 @@ package com.example.bank.kafka;
 import com.example.bank.mapper.NotificationMapper;
 import com.example.bank.Enums.NotflicationType;
 import com.example.bank.model.Notification;
-import com.example.bank.repository.NotificationRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.bank.model.card.CardOwnership;
+import com.example.bank.repository.CardRepository;
+import com.example.bank.repository.NotificationBatchWriter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
-
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+
+// Пакетный консьюмер событий транзакций: уведомления по всему poll'у создаются
+// одним IN-запросом за владельцами карт получателей и одной JDBC batch-вставкой.
+// Офсеты коммитятся контейнером после успешной обработки пачки (AckMode.BATCH);
+// при ошибке БД пачка повторяется целиком, поэтому доставка at-least-once
 @Service
 public class TransactionEventConsumer {
 
-    private final NotificationRepository notificationRepository;
-
-
-
-    private final ObjectMapper objectMapper;
-
     private static final Logger log = LoggerFactory.getLogger(TransactionEventConsumer.class);
-;
 
-    public TransactionEventConsumer(NotificationRepository notificationRepository, ObjectMapper objectMapper) {
-        this.notificationRepository = notificationRepository;
-        this.objectMapper = objectMapper;
+    private final NotificationBatchWriter notificationWriter;
+    private final CardRepository cardRepository;
+    private final EventCodecs eventCodecs;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationBroadcaster notificationBroadcaster;
+
+    private final AtomicLong recordsConsumed = new AtomicLong();
+    private final AtomicLong notificationsInserted = new AtomicLong();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong lastLag = new AtomicLong();
+
+    private final DistributionSummary batchSizes;
+    private final Timer batchTimer;
+
+    @Value("${bank.notifications.consumer.insert-batch-size:500}")
+    private int insertBatchSize;
+
+    public TransactionEventConsumer(NotificationBatchWriter notificationWriter,
+                                    CardRepository cardRepository,
+                                    EventCodecs eventCodecs,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    NotificationBroadcaster notificationBroadcaster) {
+        this.notificationWriter = notificationWriter;
+        this.notificationBroadcaster = notificationBroadcaster;
+        this.cardRepository = cardRepository;
+        this.eventCodecs = eventCodecs;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Счётчики уже ведутся в AtomicLong; метрики читают их без дополнительной синхронизации
+        this.batchSizes = DistributionSummary.builder("bank.notifications.consumer.batch.size")
+                .description("Records per poll handed to the batch listener")
+                .baseUnit("records")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("bank.notifications.consumer.batch")
+                .description("Time to parse a poll and insert its notifications")
+                .register(meterRegistry);
+        Gauge.builder("bank.notifications.consumer.lag", lastLag, AtomicLong::get)
+                .description("Records behind the log end on the partitions of the last poll")
+                .baseUnit("records")
+                .register(meterRegistry);
+        FunctionCounter.builder("bank.notifications.consumer.records", recordsConsumed, AtomicLong::get)
+                .description("Transaction events consumed")
+                .register(meterRegistry);
+        FunctionCounter.builder("bank.notifications.consumer.inserted", notificationsInserted, AtomicLong::get)
+                .description("Notifications inserted")
+                .register(meterRegistry);
         log.info(">>> TransactionEventConsumer constructed");
     }
 
-    @KafkaListener(topics = "TransactionEvent", groupId = "hello-group")
-    public void listen(String message) {
-        try {
+    @KafkaListener(topics = TransactionEventOutbox.TOPIC, groupId = "hello-group", batch = "true",
+            properties = "max.poll.records=${bank.notifications.consumer.max-poll-records:500}")
+    public void listen(List<ConsumerRecord<String, byte[]>> records, Consumer<?, ?> consumer) {
+        long started = System.nanoTime();
+
+        List<EventDTO> events = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, byte[]> record : records) {
+            try {
+                // Формат (JSON или двоичный) определяется по самому сообщению
+                events.add(eventCodecs.decode(record.value()));
+            } catch (Exception ex) {
+                // Битое сообщение пропускается, чтобы не блокировать партицию
+                log.error("Ошибка парсинга события из Kafka: partition={}, offset={}, size={}",
+                        record.partition(), record.offset(), record.value() == null ? -1 : record.value().length, ex);
+            }
+        }
+
+        List<Notification> notifications = toNotifications(events);
+        Integer inserted = transactionTemplate.execute(
+                status -> notificationWriter.insertAll(notifications, insertBatchSize));
+        // После фиксации: подключённые к любому экземпляру клиенты получают уведомления, которые уже можно догнать
+        notificationBroadcaster.broadcast(notifications);
+
+        long elapsedNanos = System.nanoTime() - started;
+        long elapsedMs = elapsedNanos / 1_000_000;
+        long lag = currentLag(consumer, records);
+        recordsConsumed.addAndGet(records.size());
+        notificationsInserted.addAndGet(inserted == null ? 0 : inserted);
+        lastBatchSize.set(records.size());
+        lastLag.set(lag);
+        batchSizes.record(records.size());
+        batchTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.info("Consumed {} transaction events, inserted {} notifications in {} ms ({} records/sec), lag {}",
+                records.size(), inserted, elapsedMs,
+                String.format("%.1f", elapsedMs == 0 ? records.size() : records.size() * 1000.0 / elapsedMs), lag);
+    }
+
+    List<Notification> toNotifications(List<EventDTO> events) {
+        Set<String> receiverCards = events.stream()
+                .filter(e -> NotificationMapper.toNotificationType(e.getType()) == NotflicationType.TRANSFER)
+                .map(EventDTO::getReceiverCardNumber)
+                .filter(number -> number != null)
+                .collect(Collectors.toCollection(HashSet::new));
 
-            EventDTO event = objectMapper.readValue(message, EventDTO.class);
+        Map<String, Long> receiverOwners = receiverCards.isEmpty()
+                ? Map.of()
+                : cardRepository.findOwnershipByCardNumberIn(receiverCards).stream()
+                        .collect(Collectors.toMap(CardOwnership::getCardNumber, CardOwnership::getOwnerId));
 
-            log.info("💡 [KAFKA] Получено событие: type={}, card={}, amount={}",
-                   event.getType(), event.getCardNumber(), event.getAmount());
+        List<Notification> notifications = new ArrayList<>(events.size() * 2);
+        for (EventDTO event : events) {
             Notification notification = NotificationMapper.toNotification(event);
-            log.info("notification.getMessage() = " + notification.getMessage());
-            notificationRepository.save(notification);
+            notifications.add(notification);
             if (notification.getType() == NotflicationType.TRANSFER) {
-                notificationRepository.save(NotificationMapper.makeNotificationForReciever(notification));
-
+                Long receiverId = event.getReceiverCardNumber() == null
+                        ? null : receiverOwners.get(event.getReceiverCardNumber());
+                if (receiverId != null) {
+                    notifications.add(NotificationMapper.makeNotificationForReciever(notification, receiverId));
+                } else {
+                    log.warn("Receiver of transfer {} not found, skipping receiver notification", event.getTransactionId());
+                }
             }
-
-
-            // Можно дальше обработать (записать уведомление и т.д.)
-        } catch (Exception ex) {
-            log.error("Ошибка парсинга события из Kafka: {}", message, ex);
         }
+        return notifications;
     }
 
+    // Отставание по партициям пачки из метаданных последнего fetch, без обращения к брокеру
+    private long currentLag(Consumer<?, ?> consumer, List<ConsumerRecord<String, byte[]>> records) {
+        if (consumer == null) {
+            return -1;
+        }
+        long lag = 0;
+        Set<TopicPartition> partitions = records.stream()
+                .map(r -> new TopicPartition(r.topic(), r.partition()))
+                .collect(Collectors.toSet());
+        for (TopicPartition partition : partitions) {
+            OptionalLong partitionLag = consumer.currentLag(partition);
+            if (partitionLag.isPresent()) {
+                lag += partitionLag.getAsLong();
+            }
+        }
+        return lag;
+    }
 
+    public long getRecordsConsumed() {
+        return recordsConsumed.get();
+    }
 
+    public long getNotificationsInserted() {
+        return notificationsInserted.get();
+    }
 
+    public long getLastBatchSize() {
+        return lastBatchSize.get();
+    }
 
-
+    public long getLastLag() {
+        return lastLag.get();
+    }
 }
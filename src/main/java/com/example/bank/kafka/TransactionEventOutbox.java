@@ -0,0 +1,45 @@
+package com.example.bank.kafka;
+
+import com.example.bank.model.outbox.OutboxEvent;
+import com.example.bank.repository.OutboxEventRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Кладёт события операций в таблицу outbox в текущей транзакции.
+// В Kafka их отправляет OutboxRelay в фоне, вне запроса пользователя
+@Service
+public class TransactionEventOutbox {
+
+    public static final String TOPIC = "TransactionEvent";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final EventCodecs eventCodecs;
+
+    public TransactionEventOutbox(OutboxEventRepository outboxEventRepository, EventCodecs eventCodecs) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.eventCodecs = eventCodecs;
+        // Неизвестное имя кодека в настройках должно ронять запуск, а не денежные операции
+        eventCodecs.forTopic(TOPIC);
+    }
+
+    // Вызывается только внутри транзакции операции: событие и операция фиксируются вместе
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(EventDTO eventDTO) {
+        OutboxEvent event = new OutboxEvent();
+        event.setTopic(TOPIC);
+        event.setMessageKey(messageKey(eventDTO));
+        // Событие сразу в формате топика: ретранслятор отправляет payload без повторной сериализации
+        event.setPayload(eventCodecs.encodeForOutbox(TOPIC, eventDTO));
+        outboxEventRepository.save(event);
+    }
+
+    // Ключ сообщения — номер карты списания (иначе пользователь): события одной карты попадают
+    // в одну партицию и читаются в порядке операций
+    static String messageKey(EventDTO eventDTO) {
+        if (eventDTO.getCardNumber() != null) {
+            return eventDTO.getCardNumber();
+        }
+        return eventDTO.getUserId() == null ? null : "user-" + eventDTO.getUserId();
+    }
+}
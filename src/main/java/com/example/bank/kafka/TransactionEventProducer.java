@@ -1,40 +1,96 @@
 package com.example.bank.kafka;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 @Slf4j
 @Service
 public class TransactionEventProducer {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    static final String SEND_TIMER = "bank.kafka.produce";
 
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    // Окно неподтверждённых отправок: ретранслятор не может обогнать брокер больше чем на maxInFlight сообщений
+    private final Semaphore inFlight;
+    private final Counter throttled;
 
-    private final ObjectMapper objectMapper;
+    @Value("${bank.kafka.producer.acquire-timeout-ms:5000}")
+    private long acquireTimeoutMs;
 
     @Autowired
-    public TransactionEventProducer(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper) {
+    public TransactionEventProducer(KafkaTemplate<String, byte[]> kafkaTemplate, MeterRegistry meterRegistry,
+                                    @Value("${bank.kafka.producer.max-in-flight:1000}") int maxInFlight) {
         this.kafkaTemplate = kafkaTemplate;
-        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        int window = Math.max(1, maxInFlight);
+        this.inFlight = new Semaphore(window);
+        Gauge.builder(SEND_TIMER + ".in-flight", inFlight, s -> window - s.availablePermits())
+                .description("Records sent to Kafka and not yet acknowledged")
+                .baseUnit("records")
+                .register(meterRegistry);
+        this.throttled = Counter.builder(SEND_TIMER + ".throttled")
+                .description("Sends refused because the in-flight window stayed full")
+                .register(meterRegistry);
     }
 
 
-
-    public void sendTransactionEvent(EventDTO eventDTO) {
-        String eventJson;
+    // Отправляет уже сериализованное событие; вызывается ретранслятором outbox, а не из запроса.
+    // Время от send до подтверждения брокером пишется в bank.kafka.produce с тегами topic и outcome.
+    // Если окно не освободилось за acquire-timeout-ms, возвращается неуспешный future без отправки:
+    // событие остаётся в outbox и уходит при следующем проходе ретранслятора
+    public CompletableFuture<SendResult<String, byte[]>> send(String topic, String key, byte[] payload) {
+        if (!acquire()) {
+            throttled.increment();
+            return CompletableFuture.failedFuture(new TimeoutException(
+                    "Kafka in-flight window is full for " + acquireTimeoutMs + " ms"));
+        }
+        log.debug("Sending {} bytes to Kafka topic {} with key {}", payload.length, topic, key);
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            eventJson = objectMapper.writeValueAsString(eventDTO);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Ошибка при сериализации события", e);
+            return kafkaTemplate.send(topic, key, payload)
+                    .whenComplete((result, ex) -> {
+                        inFlight.release();
+                        sample.stop(sendTimer(topic, ex == null ? "success" : "error"));
+                    });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            sample.stop(sendTimer(topic, "error"));
+            throw e;
         }
-        kafkaTemplate.send("TransactionEvent", eventJson);
+    }
 
-        log.info("Sent to Kafka: {}", eventJson);
+    public void flush() {
+        kafkaTemplate.flush();
     }
 
+    private boolean acquire() {
+        try {
+            return inFlight.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
 
+    private Timer sendTimer(String topic, String outcome) {
+        return Timer.builder(SEND_TIMER)
+                .description("Kafka send latency until broker acknowledgement")
+                .tag("topic", topic)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 }
@@ -2,6 +2,7 @@ package com.example.bank.mapper;
 
 import com.example.bank.model.card.Card;
 import com.example.bank.model.card.CardDto;
+import com.example.bank.model.card.CardSummary;
 
 import com.example.bank.service.CardServiceImpl;
 import org.springframework.stereotype.Component;
@@ -20,6 +21,15 @@ public class CardMapper {
         return dto;
     }
 
+    public static CardDto toDto(CardSummary card) {
+        CardDto dto = new CardDto();
+        dto.setId(card.getId());
+        dto.setCardNumber(CardServiceImpl.maskCardNumber(card.getCardNumber()));
+        dto.setBalance(card.getBalance());
+        dto.setCardType(card.getCardType());
+        return dto;
+    }
+
 }
 
 
@@ -1,24 +1,16 @@
 package com.example.bank.mapper;
 
 import com.example.bank.Enums.OperationType;
-import com.example.bank.exception.ResourceNotFoundException;
 import com.example.bank.kafka.EventDTO;
 import com.example.bank.Enums.NotflicationType;
 import com.example.bank.model.Notification;
 import com.example.bank.model.NotificationResponse;
 import com.example.bank.model.transaction.Transaction;
-import com.example.bank.repository.CardRepository;
 import com.example.bank.service.CardServiceImpl;
 import org.springframework.stereotype.Component;
 
 @Component
 public class NotificationMapper {
-    private static CardRepository cardRepository;
-
-    public NotificationMapper(CardRepository cardRepository) {
-        NotificationMapper.cardRepository = cardRepository;
-    }
-
 
     public static NotflicationType toNotificationType(OperationType opType) {
         switch (opType) {
@@ -46,6 +38,10 @@ public class NotificationMapper {
         }
 
         eventDTO.setCardTransferTo(CardServiceImpl.maskCardNumber(transaction.getToCard()));
+        if (transaction.getType() == OperationType.transfer) {
+            // Полный номер нужен консьюмеру, чтобы найти получателя; в уведомления попадает только маска
+            eventDTO.setReceiverCardNumber(transaction.getToCard());
+        }
         eventDTO.setAmount(transaction.getAmount());
         eventDTO.setUserId(transaction.getUser().getUserId());
         eventDTO.setComment(transaction.getComment());
@@ -71,12 +67,11 @@ public class NotificationMapper {
         return notification;
     }
 
-    public static Notification makeNotificationForReciever(Notification notification) {
+    // Копия уведомления о переводе для получателя; владелец карты получателя определяется вызывающим
+    public static Notification makeNotificationForReciever(Notification notification, Long receiverUserId) {
         Notification clone = new Notification();
         String accTrTo = notification.getCardTransferTo();
-        clone.setUserId(cardRepository.findByCardNumber(accTrTo)
-                .orElseThrow(() -> new ResourceNotFoundException("Card", "UserId",accTrTo))
-                .getUser().getUserId());
+        clone.setUserId(receiverUserId);
         clone.setType(notification.getType());
         clone.setTitle(notification.getTitle());
         clone.setCardNumber(notification.getCardNumber());
@@ -92,6 +87,7 @@ public class NotificationMapper {
 
     public static NotificationResponse toResponse(Notification notification) {
         NotificationResponse response = new NotificationResponse();
+        response.setId(notification.getId());
         response.setType(notification.getType());
         response.setTitle(notification.getTitle());
         response.setCardTransferTo(notification.getCardTransferTo());
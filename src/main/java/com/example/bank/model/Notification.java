@@ -13,13 +13,28 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "notifications")
+// Индекс обслуживает keyset-страницы непрочитанных и прочитанных уведомлений, счётчик непрочитанных
+// и массовую отметку о прочтении — все они идут по (user_id, read) в порядке id.
+// (type, created_at) — для удаления просроченных уведомлений по сроку хранения типа.
+// (user_id, user_seq) — догонка потока уведомлений после переподключения
+@Table(name = "notifications", indexes = {
+        @Index(name = "idx_notifications_user_read_id", columnList = "user_id, read, id"),
+        @Index(name = "idx_notifications_type_created_at", columnList = "type, created_at"),
+        @Index(name = "idx_notifications_user_seq", columnList = "user_id, user_seq")
+})
 public class Notification {
+    // Общие с NotificationBatchWriter, который выдаёт id из той же последовательности
+    public static final String ID_SEQUENCE = "notifications_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id; // уникальный идентификатор уведомления
     @NotNull
     private Long userId; // кому принадлежит уведомление
+
+    private Long userSeq; // номер уведомления у пользователя (NotificationUserSeq) — курсор потока, в отличие от id
     @Enumerated(EnumType.STRING)
     private NotflicationType type; // тип операции: WITHDRAW, DEPOSIT, TRANSFER, FRAUD, INFO
     @NotNull
@@ -0,0 +1,15 @@
+package com.example.bank.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationPage {
+    private List<NotificationResponse> items;
+    private String nextCursor; // null, если это последняя страница
+}
@@ -9,6 +9,7 @@ import java.time.LocalDateTime;
 @Data
 public class NotificationResponse {
 
+    private Long id; // курсор страниц и upToId для отметки о прочтении
     private NotflicationType type;
     private String title;
     private String cardTransferTo;
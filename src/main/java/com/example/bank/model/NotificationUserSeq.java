@@ -0,0 +1,20 @@
+package com.example.bank.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Счётчик уведомлений пользователя: lastSeq — номер его последнего уведомления (Notification.userSeq).
+// Вставка уведомлений увеличивает счётчик и держит строку заблокированной до фиксации, поэтому номера
+// пользователя идут без пропусков и становятся видимыми строго по возрастанию
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "notification_user_seqs")
+public class NotificationUserSeq {
+    @Id
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long lastSeq = 0L;
+}
@@ -9,6 +9,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -17,11 +18,19 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @Entity
 @Table(name = "cards")
-@Inheritance(strategy = InheritanceType.JOINED)
+// UPDATE сущности пишет только изменённые колонки: смена статуса или лимита не перезаписывает balance,
+// который денежные операции меняют условными UPDATE в обход сущности. Аннотация не наследуется — она есть и у подклассов
+@DynamicUpdate
+// Вся иерархия в одной строке cards: чтение и обновление карты не требуют join'ов по таблицам подклассов.
+// Прежнюю раскладку JOINED (cards + credit_cards + debit_cards) включает
+// spring.jpa.mapping-resources=META-INF/card-joined-orm.xml
+@Inheritance(strategy = InheritanceType.SINGLE_TABLE)
+@DiscriminatorColumn(name = "card_type", discriminatorType = DiscriminatorType.STRING)
 public abstract class Card {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_seq")
+    @SequenceGenerator(name = "cards_seq", sequenceName = "cards_seq", allocationSize = 50)
     private long id;
 
     @Column(length = 16, unique = true, nullable = false)
@@ -41,7 +50,9 @@ public abstract class Card {
     private CardStatus status = CardStatus.ACTIVE;
 
 
+    // Та же колонка, что и дискриминатор: значение пишет Hibernate по классу сущности
     @Enumerated(EnumType.STRING)
+    @Column(name = "card_type", insertable = false, updatable = false)
     private CardType cardType;
 
 
@@ -0,0 +1,14 @@
+package com.example.bank.model.card;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardContentionResponse {
+    private Long cardId;
+    private long lockWaits; // сколько раз операция ждала блокировку карты
+    private long retries;   // сколько раз операция повторялась из-за конфликта в БД
+}
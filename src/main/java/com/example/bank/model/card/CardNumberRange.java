@@ -0,0 +1,34 @@
+package com.example.bank.model.card;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Диапазон номеров карт для одного BIN: узлы резервируют из него блоки, сдвигая nextAccount под блокировкой строки.
+// Номер счёта — цифры между BIN и контрольной цифрой Луна
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "card_number_ranges")
+public class CardNumberRange {
+    @Id
+    @Column(length = 8)
+    private String bin;
+
+    private Long nextAccount = 0L;    // первый ещё не зарезервированный номер счёта
+
+    private Long reservedBlocks = 0L; // сколько блоков выдано всего
+
+    // Наибольший номер счёта среди карт, выпущенных с этим BIN до аллокатора; до него блоки пропускают
+    // уже занятые номера. null — диапазон создан без учёта старых карт
+    private Long legacyMaxAccount;
+
+    private LocalDateTime updatedAt;
+
+    public CardNumberRange(String bin, Long nextAccount) {
+        this.bin = bin;
+        this.nextAccount = nextAccount;
+    }
+}
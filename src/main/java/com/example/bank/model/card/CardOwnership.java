@@ -0,0 +1,15 @@
+package com.example.bank.model.card;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Владелец карты без загрузки самой карты и пользователя
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardOwnership {
+    private Long cardId;
+    private String cardNumber;
+    private Long ownerId;
+}
@@ -0,0 +1,29 @@
+package com.example.bank.model.card;
+
+import com.example.bank.Enums.CardType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Поля карты, нужные денежной операции, одним скалярным запросом: без сущности, владельца и его основной карты.
+// balance заполняется новым значением из UPDATE ... RETURNING, которым операция меняет баланс
+@Data
+@NoArgsConstructor
+public class CardSummary {
+    private Long id;
+    private String cardNumber;
+    private CardType cardType;
+    private LocalDate expiryDate;
+    private Long ownerId;
+    private BigDecimal balance;
+
+    public CardSummary(Long id, String cardNumber, CardType cardType, LocalDate expiryDate, Long ownerId) {
+        this.id = id;
+        this.cardNumber = cardNumber;
+        this.cardType = cardType;
+        this.expiryDate = expiryDate;
+        this.ownerId = ownerId;
+    }
+}
@@ -6,6 +6,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -21,7 +22,8 @@ import java.time.LocalDate;
 @Data
 @NoArgsConstructor
 @Entity
-@Table(name = "credit_cards")
+@DynamicUpdate
+@DiscriminatorValue("CREDIT")
 public class CreditCard extends Card {
 
     // Кредитный лимит счета
@@ -58,6 +60,10 @@ public class CreditCard extends Card {
     @NotNull
     private LocalDate paymentDueDate = LocalDate.now().plusMonths(1).withDayOfMonth(1);
 
+    // Месяц (первое число), за который проценты уже начислены — защита от повторного начисления при перезапуске
+    @JsonIgnore
+    private LocalDate lastInterestAccrual;
+
 
     // ==================== Бизнес-методы ====================
 
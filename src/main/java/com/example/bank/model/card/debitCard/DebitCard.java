@@ -3,7 +3,10 @@ package com.example.bank.model.card.debitCard;
 import com.example.bank.model.card.Card;
 import com.example.bank.Enums.CardType;
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 @Entity
+@DynamicUpdate
+@DiscriminatorValue("DEBIT")
 public class DebitCard extends Card {
     public DebitCard() { super();
         setCardType(CardType.DEBIT);
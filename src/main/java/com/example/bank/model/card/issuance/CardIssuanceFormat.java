@@ -0,0 +1,14 @@
+package com.example.bank.model.card.issuance;
+
+// Формат входного потока: NDJSON — JSON-объект CardIssuanceRequest в строке,
+// CSV — userId,type,creditLimit,interestRate,gracePeriod (строка заголовка необязательна)
+public enum CardIssuanceFormat {
+    NDJSON, CSV;
+
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    public static final String CSV_MEDIA_TYPE = "text/csv";
+
+    public static CardIssuanceFormat fromContentType(String contentType) {
+        return contentType != null && contentType.toLowerCase().startsWith(CSV_MEDIA_TYPE) ? CSV : NDJSON;
+    }
+}
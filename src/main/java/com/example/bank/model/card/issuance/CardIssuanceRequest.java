@@ -0,0 +1,20 @@
+package com.example.bank.model.card.issuance;
+
+import com.example.bank.Enums.CardType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Одна строка массового выпуска. Для кредитных карт незаданные параметры берутся из bank.credit.default.*
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardIssuanceRequest {
+    private Long userId;
+    private CardType type;
+    private BigDecimal creditLimit;
+    private BigDecimal interestRate;
+    private Integer gracePeriod;
+}
@@ -0,0 +1,29 @@
+package com.example.bank.model.card.issuance;
+
+import com.example.bank.Enums.CardType;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Результат по строке входного потока: line — номер строки, cardNumber маскирован
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CardIssuanceResult {
+    public static final String CREATED = "CREATED";
+    public static final String ERROR = "ERROR";
+
+    private long line;
+    private Long userId;
+    private CardType type;
+    private Long cardId;
+    private String cardNumber;
+    private String status;
+    private String error;
+
+    public static CardIssuanceResult failed(long line, Long userId, CardType type, String error) {
+        return new CardIssuanceResult(line, userId, type, null, null, ERROR, error);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.bank.model.card.issuance;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardIssuanceSummary {
+    private long lines;
+    private long created;
+    private long failed;
+    private long elapsedMs;
+    private double cardsPerSecond;
+}
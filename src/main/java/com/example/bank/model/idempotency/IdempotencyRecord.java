@@ -0,0 +1,32 @@
+package com.example.bank.model.idempotency;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Результат операции, выполненной с заголовком Idempotency-Key.
+// Ключ хранится вместе с пользователем и типом операции; пока операция выполняется, response = null,
+// а expiresAt — короткая аренда захвата, которая продлевается до полного срока только после завершения
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "idempotency_keys")
+public class IdempotencyRecord {
+    @Id
+    @Column(length = 255)
+    private String scopeKey;
+
+    @Column(length = 4000)
+    private String response; // сериализованный CardDto
+
+    @Column(length = 64)
+    private String requestHash; // SHA-256 тела запроса: тот же ключ с другим телом отклоняется
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
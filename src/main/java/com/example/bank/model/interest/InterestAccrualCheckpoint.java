@@ -0,0 +1,47 @@
+package com.example.bank.model.interest;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Отметка о завершённом чанке начисления процентов.
+// Пишется в той же транзакции, что и UPDATE чанка, поэтому после падения
+// повторный запуск за тот же период пропускает уже обработанные диапазоны
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "interest_accrual_checkpoints",
+        uniqueConstraints = @UniqueConstraint(name = "uk_interest_checkpoint_chunk",
+                columnNames = {"period", "from_id", "to_id"}))
+public class InterestAccrualCheckpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate period;   // первое число месяца начисления
+
+    @Column(name = "from_id", nullable = false)
+    private Long fromId;        // включительно
+
+    @Column(name = "to_id", nullable = false)
+    private Long toId;          // не включительно
+
+    private int cardsUpdated;
+
+    private long elapsedMs;
+
+    private LocalDateTime completedAt;
+
+    public InterestAccrualCheckpoint(LocalDate period, Long fromId, Long toId, int cardsUpdated, long elapsedMs) {
+        this.period = period;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.cardsUpdated = cardsUpdated;
+        this.elapsedMs = elapsedMs;
+        this.completedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.bank.model.interest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InterestAccrualChunkResult {
+    private long fromId;
+    private long toId;
+    private int cardsUpdated;
+    private long elapsedMs;
+    private String error;   // null, если чанк закоммичен
+}
@@ -0,0 +1,22 @@
+package com.example.bank.model.interest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InterestAccrualReport {
+    private LocalDate period;
+    private int chunksTotal;
+    private int chunksSkipped;      // уже завершены в предыдущем запуске
+    private int chunksFailed;
+    private long cardsUpdated;
+    private long elapsedMs;
+    private double cardsPerSecond;
+    private List<InterestAccrualChunkResult> chunks;
+}
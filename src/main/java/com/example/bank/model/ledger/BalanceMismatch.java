@@ -0,0 +1,16 @@
+package com.example.bank.model.ledger;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceMismatch {
+    private Long cardId;
+    private BigDecimal cardBalance;   // значение в cards.balance
+    private BigDecimal ledgerBalance; // снимок + хвост проводок
+}
@@ -0,0 +1,34 @@
+package com.example.bank.model.ledger;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Снимок баланса карты: сумма всех проводок по карте с cardSeq до lastCardSeq включительно.
+// Баланс на любой момент = последний снимок до этого момента + проводки после lastCardSeq
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "balance_snapshots", indexes = {
+        @Index(name = "idx_balance_snapshots_card_id", columnList = "card_id, id")
+})
+public class BalanceSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    @Column(nullable = false)
+    private Long lastCardSeq;
+
+    @Column(nullable = false)
+    private LocalDateTime takenAt;
+}
@@ -0,0 +1,57 @@
+package com.example.bank.model.ledger;
+
+import com.example.bank.Enums.LedgerAccount;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Проводка журнала двойной записи. Строки только добавляются и никогда не изменяются.
+// amount со знаком: приход на счет положительный, расход отрицательный;
+// сумма всех проводок одной операции равна нулю.
+// cardSeq — порядковый номер проводки внутри карты (1, 2, 3...), по нему считаются снимки баланса:
+// номер = последний закоммиченный + 1, а уникальный индекс не даёт двум транзакциям взять один номер,
+// поэтому номера становятся видимыми строго по порядку, в отличие от id
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "ledger_entries", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ledger_entries_card_seq", columnNames = {"card_id", "card_seq"})
+})
+public class LedgerEntry {
+    @Id
+    // pooled-блоки разных экземпляров: id не отражает порядок фиксации, упорядочивать проводки — только по cardSeq
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entries_seq")
+    @SequenceGenerator(name = "ledger_entries_seq", sequenceName = "ledger_entries_seq", allocationSize = 50)
+    private Long id;
+
+    private Long transactionId; // null для операций без Transaction (выдача кредитного лимита)
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private LedgerAccount account;
+
+    @Column(name = "card_id")
+    private Long cardId; // только для account = CARD
+
+    @Column(name = "card_seq")
+    private Long cardSeq; // только для account = CARD
+
+    @NotNull
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public LedgerEntry(Long transactionId, LedgerAccount account, Long cardId, BigDecimal amount) {
+        this.transactionId = transactionId;
+        this.account = account;
+        this.cardId = cardId;
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.bank.model.ledger;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationReport {
+    private long cardsChecked;
+    private int chunks;
+    private long elapsedMs;
+    private List<BalanceMismatch> mismatches;
+}
@@ -0,0 +1,32 @@
+package com.example.bank.model.outbox;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Событие, ожидающее отправки в Kafka.
+// Пишется в той же транзакции, что и сама операция, поэтому при откате операции событие тоже исчезает
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "outbox")
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(nullable = false)
+    private String topic;
+
+    private String messageKey;
+
+    @NotNull
+    @Column(nullable = false, length = 4000)
+    private String payload; // уже сериализованное событие
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
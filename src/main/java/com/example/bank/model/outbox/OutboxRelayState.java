@@ -0,0 +1,28 @@
+package com.example.bank.model.outbox;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Позиция ретранслятора outbox: до какого события очередь уже выгружена в Kafka.
+// Строка блокируется на время выгрузки, поэтому на нескольких узлах пачки не отправляются дважды
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "outbox_relay_state")
+public class OutboxRelayState {
+    @Id
+    private String topic;
+
+    private Long lastEventId = 0L;   // id последнего отправленного события
+
+    private Long drainedTotal = 0L;  // сколько событий отправлено всего
+
+    private LocalDateTime updatedAt;
+
+    public OutboxRelayState(String topic) {
+        this.topic = topic;
+    }
+}
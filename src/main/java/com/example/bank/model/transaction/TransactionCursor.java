@@ -0,0 +1,47 @@
+package com.example.bank.model.transaction;
+
+import com.example.bank.exception.InvalidOperationException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Позиция в истории транзакций для keyset-пагинации по (timestamp, id).
+// Клиенту отдаётся непрозрачной строкой base64url
+@Data
+@AllArgsConstructor
+public class TransactionCursor {
+
+    // Начало истории: позже любой реальной транзакции
+    public static final TransactionCursor START =
+            new TransactionCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    private LocalDateTime timestamp;
+    private Long id;
+
+    public static TransactionCursor of(TransactionResponse last) {
+        return new TransactionCursor(last.getTimestamp(), last.getId());
+    }
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TransactionCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new TransactionCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new InvalidOperationException("Invalid cursor");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.bank.model.transaction;
 
 import com.example.bank.Enums.OperationType;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -11,6 +12,7 @@ import java.time.LocalDateTime;
 
 @Data
 @NoArgsConstructor
+@AllArgsConstructor // используется в JPQL-проекциях (SELECT new ...), без загрузки Transaction и User
 public class TransactionResponse {
     private Long Id;
     private String fromCard;
@@ -0,0 +1,28 @@
+package com.example.bank.model.user;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Отзыв JWT пользователя: токены с версией ниже minVersion не принимаются ни одним узлом.
+// Внешнего ключа на users нет — отзыв удалённого пользователя (minVersion = Long.MAX_VALUE) должен пережить его строку
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "token_revocations", indexes = {
+        @Index(name = "idx_token_revocations_revoked_at", columnList = "revokedAt")
+})
+public class TokenRevocation {
+    @Id
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long minVersion;
+
+    @Column(nullable = false)
+    private LocalDateTime revokedAt;
+}
@@ -19,7 +19,8 @@ import java.util.List;
 @Table(name = "users")
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long userId;
 
     @Column(unique = true, nullable = false)
@@ -47,6 +48,10 @@ public class User {
 
     private Boolean blocked;
 
+    // Версия токенов: увеличивается при блокировке, смене роли или пароля, старые JWT перестают приниматься
+    @JsonIgnore
+    private Long tokenVersion = 0L;
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL)
     @JsonIgnore
     private List<DebitCard> cards = new ArrayList<>();
@@ -0,0 +1,49 @@
+package com.example.bank.repository;
+
+import com.example.bank.model.ledger.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+
+    Optional<BalanceSnapshot> findFirstByCardIdAndTakenAtLessThanEqualOrderByIdDesc(Long cardId, LocalDateTime at);
+
+    // Новый снимок для каждой карты, у которой после последнего снимка появились проводки.
+    // Незакоммиченные проводки всегда имеют номер больше видимых, поэтому снимок берёт
+    // непрерывный префикс номеров карты и ничего не теряет
+    @Modifying
+    @Query(value = "INSERT INTO balance_snapshots (card_id, balance, last_card_seq, taken_at) " +
+            "SELECT e.card_id, COALESCE(s.balance, 0) + SUM(e.amount), MAX(e.card_seq), :takenAt " +
+            "FROM ledger_entries e " +
+            "LEFT JOIN balance_snapshots s ON s.id = " +
+            "(SELECT MAX(s2.id) FROM balance_snapshots s2 WHERE s2.card_id = e.card_id) " +
+            "WHERE e.card_id IS NOT NULL AND e.card_seq > COALESCE(s.last_card_seq, 0) " +
+            "GROUP BY e.card_id, s.balance", nativeQuery = true)
+    int takeSnapshots(@Param("takenAt") LocalDateTime takenAt);
+
+    // Карты, заведённые до появления журнала: текущий баланс принимается за начальный снимок
+    @Modifying
+    @Query(value = "INSERT INTO balance_snapshots (card_id, balance, last_card_seq, taken_at) " +
+            "SELECT c.id, c.balance, 0, :takenAt FROM cards c " +
+            "WHERE NOT EXISTS (SELECT 1 FROM balance_snapshots s WHERE s.card_id = c.id) " +
+            "AND NOT EXISTS (SELECT 1 FROM ledger_entries e WHERE e.card_id = c.id)", nativeQuery = true)
+    int baselineCardsWithoutHistory(@Param("takenAt") LocalDateTime takenAt);
+
+    // Строки сверки [id карты, cards.balance, баланс по журналу] для диапазона id
+    @Query(value = "SELECT c.id, c.balance, COALESCE(s.balance, 0) + COALESCE(" +
+            "(SELECT SUM(e.amount) FROM ledger_entries e " +
+            "WHERE e.card_id = c.id AND e.card_seq > COALESCE(s.last_card_seq, 0)), 0) " +
+            "FROM cards c " +
+            "LEFT JOIN balance_snapshots s ON s.id = " +
+            "(SELECT MAX(s2.id) FROM balance_snapshots s2 WHERE s2.card_id = c.id) " +
+            "WHERE c.id >= :fromId AND c.id < :toId", nativeQuery = true)
+    List<Object[]> findReconciliationRows(@Param("fromId") long fromId, @Param("toId") long toId);
+}
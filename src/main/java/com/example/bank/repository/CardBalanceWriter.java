@@ -0,0 +1,69 @@
+package com.example.bank.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.Optional;
+
+// Условные UPDATE баланса карты, которые сразу возвращают новый баланс.
+// Колонка balance запрашивается как сгенерированный ключ: драйвер PostgreSQL дописывает к UPDATE
+// RETURNING balance, H2 отдаёт её так же, поэтому повторный SELECT баланса не нужен.
+// Запросы идут мимо persistence context; balance лежит в cards при любой раскладке иерархии карт
+@Repository
+public class CardBalanceWriter {
+
+    private static final String[] BALANCE = {"balance"};
+    private static final String DEPOSIT_SQL = "UPDATE cards SET balance = balance + ? " +
+            "WHERE id = ? AND status = 'ACTIVE' AND expiry_date >= ?";
+    private static final String WITHDRAW_SQL = "UPDATE cards SET balance = balance - ? " +
+            "WHERE id = ? AND status = 'ACTIVE' AND expiry_date >= ? AND balance >= ?";
+    private static final String DEDUCT_SQL = "UPDATE cards SET balance = balance - ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CardBalanceWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Пополнение активной карты; пусто, если статус или срок действия не прошли условие WHERE
+    public Optional<BigDecimal> depositIfActive(Long id, BigDecimal amount, LocalDate today) {
+        return execute(DEPOSIT_SQL, amount, id, Date.valueOf(today));
+    }
+
+    // Списание: нехватка средств и блокировка карты отсекаются условием WHERE
+    public Optional<BigDecimal> withdrawIfActive(Long id, BigDecimal amount, LocalDate today) {
+        return execute(WITHDRAW_SQL, amount, id, Date.valueOf(today), amount);
+    }
+
+    // Безусловное списание внутри операции, которая уже заблокировала строку карты
+    public BigDecimal deduct(Long id, BigDecimal amount) {
+        return execute(DEDUCT_SQL, amount, id)
+                .orElseThrow(() -> new IllegalStateException("Card " + id + " disappeared during the operation"));
+    }
+
+    private Optional<BigDecimal> execute(String sql, Object... args) {
+        PreparedStatementCreator update = connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, BALANCE);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        };
+        PreparedStatementCallback<BigDecimal> newBalance = ps -> {
+            if (ps.executeUpdate() == 0) {
+                return null;
+            }
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                return keys.next() ? keys.getBigDecimal(1) : null;
+            }
+        };
+        return Optional.ofNullable(jdbcTemplate.execute(update, newBalance));
+    }
+}
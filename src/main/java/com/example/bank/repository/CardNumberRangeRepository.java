@@ -0,0 +1,17 @@
+package com.example.bank.repository;
+
+import com.example.bank.model.card.CardNumberRange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CardNumberRangeRepository extends JpaRepository<CardNumberRange, String> {
+
+    // Нативный FOR UPDATE: PESSIMISTIC_WRITE диалект PostgreSQL превращает в FOR NO KEY UPDATE, который H2 не понимает
+    @Query(value = "SELECT * FROM card_number_ranges WHERE bin = :bin FOR UPDATE", nativeQuery = true)
+    Optional<CardNumberRange> findByBinForUpdate(@Param("bin") String bin);
+}
@@ -2,14 +2,19 @@ package com.example.bank.repository;
 
 import com.example.bank.Enums.CardStatus;
 import com.example.bank.model.card.Card;
+import com.example.bank.model.card.CardOwnership;
+import com.example.bank.model.card.CardSummary;
 import com.example.bank.Enums.CardType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +25,14 @@ public interface CardRepository extends JpaRepository<Card, Long> {
 
     boolean existsByCardNumber(String number);
 
+    // Наибольший выданный номер с данным префиксом: до него аллокатор проверяет номера на совпадение со старыми картами
+    @Query("SELECT MAX(c.cardNumber) FROM Card c WHERE c.cardNumber LIKE CONCAT(:prefix, '%')")
+    Optional<String> findMaxCardNumberStartingWith(@Param("prefix") String prefix);
+
+    // Занятые номера внутри резервируемого блока: один запрос по индексу card_number на блок
+    @Query("SELECT c.cardNumber FROM Card c WHERE c.cardNumber BETWEEN :from AND :to")
+    List<String> findCardNumbersBetween(@Param("from") String from, @Param("to") String to);
+
     Optional<Card> findByCardNumber(String cardNumber);
 
     Optional<Card> findByCardNumberAndCardType(String cardNumber, CardType type);
@@ -35,5 +48,41 @@ public interface CardRepository extends JpaRepository<Card, Long> {
 
     List<Card> findByUser_UserIdAndCardNumberContaining(Long userId, String cardNumber);
 
+    // Страницы карт для администратора: владелец и его основная карта (EAGER) приходят тем же запросом,
+    // а не отдельным SELECT на каждого владельца
+    @Override
+    @EntityGraph(attributePaths = {"user", "user.mainCard"})
+    Page<Card> findAll(Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "user.mainCard"})
     Page<Card> findByStatus(CardStatus cardStatus, Pageable pageable);
+
+    @Query("SELECT c.balance FROM Card c WHERE c.id = :id")
+    Optional<BigDecimal> findBalanceById(@Param("id") Long id);
+
+    // Карта для денежной операции без загрузки сущности; баланс меняют условные UPDATE в CardBalanceWriter
+    @Query("SELECT new com.example.bank.model.card.CardSummary(c.id, c.cardNumber, c.cardType, c.expiryDate, c.user.userId) " +
+            "FROM Card c WHERE c.id = :id")
+    Optional<CardSummary> findSummaryById(@Param("id") Long id);
+
+    @Query("SELECT new com.example.bank.model.card.CardOwnership(c.id, c.cardNumber, c.user.userId) " +
+            "FROM Card c WHERE c.id = :id")
+    Optional<CardOwnership> findOwnershipById(@Param("id") Long id);
+
+    @Query("SELECT new com.example.bank.model.card.CardOwnership(c.id, c.cardNumber, c.user.userId) " +
+            "FROM Card c WHERE c.cardNumber = :cardNumber")
+    Optional<CardOwnership> findOwnershipByCardNumber(@Param("cardNumber") String cardNumber);
+
+    @Query("SELECT new com.example.bank.model.card.CardOwnership(c.id, c.cardNumber, c.user.userId) " +
+            "FROM Card c WHERE c.cardNumber IN :cardNumbers")
+    List<CardOwnership> findOwnershipByCardNumberIn(@Param("cardNumbers") Collection<String> cardNumbers);
+
+    @Query("SELECT c.cardNumber FROM Card c WHERE c.user.userId = :userId")
+    List<String> findCardNumbersByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT MAX(c.id) FROM Card c")
+    Long findMaxId();
+
+    @Query("SELECT c.status FROM Card c WHERE c.id = :id")
+    Optional<CardStatus> findStatusById(@Param("id") Long id);
 }
@@ -2,8 +2,13 @@ package com.example.bank.repository;
 
 import com.example.bank.model.card.creditCard.CreditCard;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +18,62 @@ public interface CreditCardRepository extends JpaRepository<CreditCard, Long> {
     Optional<CreditCard>findByCardNumber(String cardNumber);
 
     List<CreditCard> findByUserUserId(Long userId);
+
+    // Запросы по полям кредитной карты — HQL: SQL строит Hibernate под текущую раскладку иерархии (см. Card)
+    @Query("SELECT c.accruedInterest FROM CreditCard c WHERE c.id = :id")
+    Optional<BigDecimal> findAccruedInterestById(@Param("id") Long id);
+
+    // balance лежит в cards при любой раскладке
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE cards SET balance = balance + :amount WHERE id = :id", nativeQuery = true)
+    int addToBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    // Смена лимита срабатывает, только если лимит не изменили с момента чтения
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CreditCard c SET c.creditLimit = :newLimit WHERE c.id = :id AND c.creditLimit = :currentLimit")
+    int changeCreditLimit(@Param("id") Long id,
+                          @Param("currentLimit") BigDecimal currentLimit,
+                          @Param("newLimit") BigDecimal newLimit);
+
+    // Пополнение гасит сначала проценты, затем основной долг; totalDebt = debt + accruedInterest.
+    // Срабатывает, только если проценты не изменились с момента чтения: на раскладке JOINED строку credit_cards
+    // блокирует лишь этот UPDATE, и начисление процентов могло успеть между чтением и ним
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CreditCard c SET " +
+            "c.accruedInterest = c.accruedInterest - least(c.accruedInterest, :amount), " +
+            "c.debt = c.debt - greatest(:amount - c.accruedInterest, 0), " +
+            "c.totalDebt = c.debt + c.accruedInterest - :amount " +
+            "WHERE c.id = :id AND c.accruedInterest = :accruedInterest")
+    int applyDepositToDebt(@Param("id") Long id,
+                           @Param("amount") BigDecimal amount,
+                           @Param("accruedInterest") BigDecimal accruedInterest);
+
+    // После списания долг растёт на ту часть, которая не покрыта собственными средствами (limit - debt).
+    // Баланс передаётся параметром: на раскладке JOINED он лежит в cards, а UPDATE подкласса
+    // не может ссылаться на колонки другой таблицы
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CreditCard c SET " +
+            "c.debt = c.debt + greatest(c.creditLimit - c.debt - :balance, 0), " +
+            "c.totalDebt = c.debt + greatest(c.creditLimit - c.debt - :balance, 0) + c.accruedInterest " +
+            "WHERE c.id = :id")
+    int applyWithdrawToDebt(@Param("id") Long id, @Param("balance") BigDecimal balance);
+
+    @Query("SELECT MIN(c.id) FROM CreditCard c")
+    Long findMinId();
+
+    @Query("SELECT MAX(c.id) FROM CreditCard c")
+    Long findMaxId();
+
+    // Начисление процентов одним UPDATE на диапазон id [fromId, toId).
+    // Формула совпадает с CreditCard.accrueInterest(); карты, уже обработанные за период, пропускаются
+    @Modifying
+    @Query("UPDATE CreditCard c SET " +
+            "c.accruedInterest = c.accruedInterest + round(c.debt * round(c.interestRate / 12, 10) / 100, 2), " +
+            "c.totalDebt = c.debt + c.accruedInterest + round(c.debt * round(c.interestRate / 12, 10) / 100, 2), " +
+            "c.lastInterestAccrual = :period " +
+            "WHERE c.id >= :fromId AND c.id < :toId AND c.debt > 0 " +
+            "AND (c.lastInterestAccrual IS NULL OR c.lastInterestAccrual < :period)")
+    int accrueInterestInRange(@Param("fromId") Long fromId,
+                              @Param("toId") Long toId,
+                              @Param("period") LocalDate period);
 }
@@ -0,0 +1,37 @@
+package com.example.bank.repository;
+
+import com.example.bank.model.idempotency.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Захват ключа: вставка проходит только у первого запроса, остальные получают 0 строк
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (scope_key, request_hash, created_at, expires_at) " +
+            "VALUES (:scopeKey, :requestHash, :createdAt, :expiresAt) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int claim(@Param("scopeKey") String scopeKey,
+              @Param("requestHash") String requestHash,
+              @Param("createdAt") LocalDateTime createdAt,
+              @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.response = :response, r.expiresAt = :expiresAt WHERE r.scopeKey = :scopeKey")
+    int complete(@Param("scopeKey") String scopeKey,
+                 @Param("response") String response,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.scopeKey = :scopeKey AND r.expiresAt < :now")
+    int deleteExpired(@Param("scopeKey") String scopeKey, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteAllExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,14 @@
+package com.example.bank.repository;
+
+import com.example.bank.model.interest.InterestAccrualCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface InterestAccrualCheckpointRepository extends JpaRepository<InterestAccrualCheckpoint, Long> {
+
+    List<InterestAccrualCheckpoint> findByPeriod(LocalDate period);
+}
@@ -0,0 +1,28 @@
+package com.example.bank.repository;
+
+import com.example.bank.model.ledger.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    List<LedgerEntry> findByTransactionIdOrderByIdAsc(Long transactionId);
+
+    // Хвост проводок по карте после снимка, не позже указанного момента
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM LedgerEntry e " +
+            "WHERE e.cardId = :cardId AND e.cardSeq > :afterCardSeq AND e.createdAt <= :at")
+    BigDecimal sumForCardAfter(@Param("cardId") Long cardId,
+                               @Param("afterCardSeq") Long afterCardSeq,
+                               @Param("at") LocalDateTime at);
+
+    // Последний закоммиченный номер проводки карты (индекс uk_ledger_entries_card_seq)
+    @Query("SELECT MAX(e.cardSeq) FROM LedgerEntry e WHERE e.cardId = :cardId")
+    Long findLastCardSeq(@Param("cardId") Long cardId);
+}
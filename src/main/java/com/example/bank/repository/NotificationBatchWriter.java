@@ -0,0 +1,107 @@
+package com.example.bank.repository;
+
+import com.example.bank.model.Notification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Пакетная вставка уведомлений через JDBC batch, минуя persistence context.
+// id берутся из notifications_seq блоками по ID_ALLOCATION_SIZE, как у pooled-оптимизатора Hibernate:
+// значение последовательности — верхняя граница блока, поэтому диапазоны не пересекаются с сущностями.
+// Номера userSeq выдаются счётчиками notification_user_seqs; вызывать внутри транзакции вставки
+@Repository
+public class NotificationBatchWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO notifications " +
+            "(id, user_id, user_seq, type, title, card_transfer_to, card_number, comment, message, read, created_at, amount, reference_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String NEXT_ID_SQL = "SELECT nextval('" + Notification.ID_SEQUENCE + "')";
+    private static final String CREATE_SEQ_SQL =
+            "INSERT INTO notification_user_seqs (user_id, last_seq) VALUES (?, 0) ON CONFLICT DO NOTHING";
+    private static final String ADVANCE_SEQ_SQL = "UPDATE notification_user_seqs SET last_seq = last_seq + ? WHERE user_id = ?";
+    private static final String SELECT_SEQ_SQL = "SELECT user_id, last_seq FROM notification_user_seqs WHERE user_id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public NotificationBatchWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public int insertAll(List<Notification> notifications, int batchSize) {
+        if (notifications.isEmpty()) {
+            return 0;
+        }
+        Iterator<Long> ids = allocateIds(notifications.size()).iterator();
+        notifications.forEach(n -> n.setId(ids.next()));
+        assignUserSeqs(notifications);
+        jdbcTemplate.batchUpdate(INSERT_SQL, notifications, batchSize, (ps, n) -> {
+            ps.setLong(1, n.getId());
+            ps.setLong(2, n.getUserId());
+            ps.setLong(3, n.getUserSeq());
+            ps.setString(4, n.getType() == null ? null : n.getType().name());
+            ps.setString(5, n.getTitle());
+            ps.setString(6, n.getCardTransferTo());
+            ps.setString(7, n.getCardNumber());
+            ps.setString(8, n.getComment());
+            ps.setString(9, n.getMessage());
+            ps.setBoolean(10, Boolean.TRUE.equals(n.getRead()));
+            ps.setTimestamp(11, n.getCreatedAt() == null ? null : Timestamp.valueOf(n.getCreatedAt()));
+            ps.setBigDecimal(12, n.getAmount());
+            if (n.getReferenceId() == null) {
+                ps.setNull(13, Types.BIGINT);
+            } else {
+                ps.setLong(13, n.getReferenceId());
+            }
+        });
+        return notifications.size();
+    }
+
+    // Счётчик каждого пользователя сдвигается на число его уведомлений в пачке; UPDATE блокирует строку
+    // до фиксации, и параллельная пачка того же пользователя получит следующие номера только после неё.
+    // Строки блокируются по возрастанию user_id, чтобы встречные пачки не взаимоблокировались
+    private void assignUserSeqs(List<Notification> notifications) {
+        Map<Long, Long> counts = new TreeMap<>();
+        notifications.forEach(n -> counts.merge(n.getUserId(), 1L, Long::sum));
+        List<Long> userIds = new ArrayList<>(counts.keySet());
+
+        jdbcTemplate.batchUpdate(CREATE_SEQ_SQL, userIds, userIds.size(), (ps, userId) -> ps.setLong(1, userId));
+        jdbcTemplate.batchUpdate(ADVANCE_SEQ_SQL, userIds, userIds.size(), (ps, userId) -> {
+            ps.setLong(1, counts.get(userId));
+            ps.setLong(2, userId);
+        });
+
+        // Первый номер пачки = новое значение счётчика - число уведомлений пользователя + 1
+        Map<Long, Long> next = new HashMap<>();
+        String placeholders = String.join(", ", Collections.nCopies(userIds.size(), "?"));
+        jdbcTemplate.query(String.format(SELECT_SEQ_SQL, placeholders), rs -> {
+            long userId = rs.getLong(1);
+            next.put(userId, rs.getLong(2) - counts.get(userId) + 1);
+        }, userIds.toArray());
+        notifications.forEach(n -> n.setUserSeq(next.merge(n.getUserId(), 1L, Long::sum) - 1));
+    }
+
+    // Один nextval на ID_ALLOCATION_SIZE строк вместо обращения к последовательности на каждую
+    private List<Long> allocateIds(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            long hi = jdbcTemplate.queryForObject(NEXT_ID_SQL, Long.class);
+            if (hi < Notification.ID_ALLOCATION_SIZE) {
+                // Первое значение новой последовательности: блок под ним ушёл бы в неположительные id
+                continue;
+            }
+            for (long id = hi - Notification.ID_ALLOCATION_SIZE + 1; id <= hi && ids.size() < count; id++) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+}
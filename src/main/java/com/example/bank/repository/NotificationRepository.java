@@ -1,16 +1,55 @@
 package com.example.bank.repository;
 
 import com.example.bank.model.Notification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import javax.swing.plaf.nimbus.NimbusStyle;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+// Пользовательские запросы ограничены снизу по created_at горизонтом хранения (NotificationRetentionPolicy):
+// уведомления старше него ждут удаления и не показываются, а на секционированной таблице старые секции отсекаются
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
-    List<Notification> findByUserId(Long userId);
 
-    List<Notification> findByUserIdAndReadFalse(Long userId);
+    // Keyset-страница от новых к старым: диапазон индекса (user_id, read, id) ниже курсора
+    @Query("SELECT n FROM Notification n WHERE n.userId = :userId AND n.read = :read AND n.id < :beforeId " +
+            "AND n.createdAt >= :since ORDER BY n.id DESC")
+    List<Notification> findPage(@Param("userId") Long userId, @Param("read") Boolean read,
+                                @Param("beforeId") Long beforeId, @Param("since") LocalDateTime since,
+                                Pageable pageable);
+
+    long countByUserIdAndReadFalseAndCreatedAtGreaterThanEqual(Long userId, LocalDateTime since);
+
+    // Одно UPDATE на выданные клиенту id вместо загрузки сущностей и построчного dirty checking.
+    // Не диапазон: уведомление, вставленное позже с id внутри диапазона страницы, клиент не видел
+    @Modifying
+    @Query("UPDATE Notification n SET n.read = true " +
+            "WHERE n.userId = :userId AND n.read = false AND n.id IN :ids AND n.createdAt >= :since")
+    int markRead(@Param("userId") Long userId, @Param("ids") Collection<Long> ids, @Param("since") LocalDateTime since);
+
+    // Явная отметка клиентом всего, что не новее upToId (POST /api/notifications/read)
+    @Modifying
+    @Query("UPDATE Notification n SET n.read = true " +
+            "WHERE n.userId = :userId AND n.read = false AND n.id <= :upToId AND n.createdAt >= :since")
+    int markReadUpTo(@Param("userId") Long userId, @Param("upToId") Long upToId, @Param("since") LocalDateTime since);
+
+    // Догонка потока уведомлений: всё, что новее номера userSeq из Last-Event-ID (индекс (user_id, user_seq))
+    @Query("SELECT n FROM Notification n WHERE n.userId = :userId AND n.userSeq > :afterSeq AND n.createdAt >= :since " +
+            "ORDER BY n.userSeq ASC")
+    List<Notification> findAfter(@Param("userId") Long userId, @Param("afterSeq") Long afterSeq,
+                                 @Param("since") LocalDateTime since, Pageable pageable);
+
+    // Пачка просроченных уведомлений одного типа; created_at во внешнем условии отсекает секции в PostgreSQL
+    @Modifying
+    @Query(value = "DELETE FROM notifications WHERE type = :type AND created_at < :cutoff AND id IN (" +
+            "SELECT id FROM notifications WHERE type = :type AND created_at < :cutoff ORDER BY created_at LIMIT :limit)",
+            nativeQuery = true)
+    int deleteExpiredBatch(@Param("type") String type, @Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
 
 }
@@ -0,0 +1,14 @@
+package com.example.bank.repository;
+
+import com.example.bank.model.outbox.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    List<OutboxEvent> findByTopicOrderByIdAsc(String topic, Pageable pageable);
+}
@@ -0,0 +1,26 @@
+package com.example.bank.repository;
+
+import com.example.bank.model.outbox.OutboxRelayState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface OutboxRelayStateRepository extends JpaRepository<OutboxRelayState, String> {
+
+    // Нативный FOR UPDATE: PESSIMISTIC_WRITE диалект PostgreSQL превращает в FOR NO KEY UPDATE, который H2 не понимает
+    @Query(value = "SELECT * FROM outbox_relay_state WHERE topic = :topic FOR UPDATE", nativeQuery = true)
+    Optional<OutboxRelayState> findByTopicForUpdate(@Param("topic") String topic);
+
+    // Создание строки топика: если её одновременно вставил другой узел, вставка просто ничего не делает,
+    // а не падает на уникальном ключе и не помечает транзакцию ретранслятора на откат
+    @Modifying
+    @Query(value = "INSERT INTO outbox_relay_state (topic, last_event_id, drained_total, updated_at) " +
+            "VALUES (:topic, 0, 0, :now) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("topic") String topic, @Param("now") LocalDateTime now);
+}
@@ -2,14 +2,49 @@ package com.example.bank.repository;
 
 
 import com.example.bank.model.transaction.Transaction;
+import com.example.bank.model.transaction.TransactionResponse;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
-    List<Transaction> findByFromCardOrToCard(String fromCard, String toCard);
-    List<Transaction> findByFromCardInOrToCardIn(List<String> fromCards, List<String> toCards);
+    // Keyset-страницы истории, от новых к старым по (timestamp, id).
+    // Отправитель и получатель выбираются отдельными запросами, чтобы каждый шёл по своему индексу;
+    // результат сразу проецируется в DTO, поэтому User не загружается
+    String PAGE_SELECT = "SELECT new com.example.bank.model.transaction.TransactionResponse(" +
+            "t.id, t.fromCard, t.toCard, t.amount, t.timestamp, t.type, t.comment) FROM Transaction t ";
+    String PAGE_AFTER = " AND (t.timestamp < :ts OR (t.timestamp = :ts AND t.id < :id)) " +
+            "ORDER BY t.timestamp DESC, t.id DESC";
+
+    @Query(PAGE_SELECT + "WHERE t.fromCard = :card" + PAGE_AFTER)
+    List<TransactionResponse> findPageByFromCard(@Param("card") String card,
+                                                 @Param("ts") LocalDateTime ts,
+                                                 @Param("id") Long id,
+                                                 Pageable pageable);
+
+    @Query(PAGE_SELECT + "WHERE t.toCard = :card" + PAGE_AFTER)
+    List<TransactionResponse> findPageByToCard(@Param("card") String card,
+                                               @Param("ts") LocalDateTime ts,
+                                               @Param("id") Long id,
+                                               Pageable pageable);
+
+    @Query(PAGE_SELECT + "WHERE t.fromCard IN :cards" + PAGE_AFTER)
+    List<TransactionResponse> findPageByFromCardIn(@Param("cards") Collection<String> cards,
+                                                   @Param("ts") LocalDateTime ts,
+                                                   @Param("id") Long id,
+                                                   Pageable pageable);
+
+    @Query(PAGE_SELECT + "WHERE t.toCard IN :cards" + PAGE_AFTER)
+    List<TransactionResponse> findPageByToCardIn(@Param("cards") Collection<String> cards,
+                                                 @Param("ts") LocalDateTime ts,
+                                                 @Param("id") Long id,
+                                                 Pageable pageable);
 }
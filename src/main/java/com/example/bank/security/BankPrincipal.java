@@ -0,0 +1,38 @@
+package com.example.bank.security;
+
+import com.example.bank.Enums.Role;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.Serializable;
+
+// Аутентифицированный пользователь запроса. Заполняется JwtFilter из claims токена,
+// поэтому сервисы получают id и роль без запроса к users
+@Data
+@AllArgsConstructor
+public class BankPrincipal implements AuthenticatedPrincipal, Serializable {
+    private Long userId;
+    private String username;
+    private Role role;
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public boolean isAdmin() {
+        return role == Role.ADMIN;
+    }
+
+    // Принципал текущего запроса или null, если запрос аутентифицирован иначе (например, при логине)
+    public static BankPrincipal current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof BankPrincipal principal) {
+            return principal;
+        }
+        return null;
+    }
+}
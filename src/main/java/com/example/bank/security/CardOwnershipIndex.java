@@ -0,0 +1,74 @@
+package com.example.bank.security;
+
+import com.example.bank.cache.ExpiringLruCache;
+import com.example.bank.exception.ResourceNotFoundException;
+import com.example.bank.model.card.Card;
+import com.example.bank.model.card.CardOwnership;
+import com.example.bank.repository.CardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+// Индекс владельцев карт (id / номер карты -> userId) для проверок @cardSecurity.isOwner.
+// Промах кэша — один скалярный запрос к cards без загрузки Card и User.
+// Записи сбрасываются при создании, изменении и удалении карты; TTL ограничивает расхождение между узлами
+@Component
+public class CardOwnershipIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CardOwnershipIndex.class);
+
+    private final CardRepository cardRepository;
+    private final ExpiringLruCache<Long, CardOwnership> byId;
+    private final ExpiringLruCache<String, CardOwnership> byNumber;
+
+    public CardOwnershipIndex(CardRepository cardRepository,
+                              @Value("${bank.security.ownership-cache.max-entries:50000}") int maxEntries,
+                              @Value("${bank.security.ownership-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.cardRepository = cardRepository;
+        this.byId = new ExpiringLruCache<>(maxEntries, ttlSeconds * 1000);
+        this.byNumber = new ExpiringLruCache<>(maxEntries, ttlSeconds * 1000);
+    }
+
+    public Long ownerOf(Long cardId) {
+        CardOwnership ownership = byId.get(cardId);
+        if (ownership == null) {
+            ownership = cardRepository.findOwnershipById(cardId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Card", "id", cardId));
+            remember(ownership);
+        }
+        return ownership.getOwnerId();
+    }
+
+    public Long ownerOf(String cardNumber) {
+        CardOwnership ownership = byNumber.get(cardNumber);
+        if (ownership == null) {
+            ownership = cardRepository.findOwnershipByCardNumber(cardNumber)
+                    .orElseThrow(() -> new ResourceNotFoundException("Card", "cardNumber", cardNumber));
+            remember(ownership);
+        }
+        return ownership.getOwnerId();
+    }
+
+    // Новая карта сразу попадает в индекс: владелец обычно обращается к ней следующим запросом
+    public void cardSaved(Card card) {
+        invalidate(card.getId());
+        if (card.getUser() != null) {
+            remember(new CardOwnership(card.getId(), card.getCardNumber(), card.getUser().getUserId()));
+        }
+    }
+
+    public void invalidate(Long cardId) {
+        CardOwnership ownership = byId.get(cardId);
+        byId.remove(cardId);
+        Optional.ofNullable(ownership).ifPresent(o -> byNumber.remove(o.getCardNumber()));
+        log.debug("Invalidated ownership of card {}", cardId);
+    }
+
+    private void remember(CardOwnership ownership) {
+        byId.put(ownership.getCardId(), ownership);
+        byNumber.put(ownership.getCardNumber(), ownership);
+    }
+}
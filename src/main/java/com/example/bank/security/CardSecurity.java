@@ -1,11 +1,8 @@
 package com.example.bank.security;
 
-import com.example.bank.Enums.Role;
 import com.example.bank.exception.ResourceNotFoundException;
 import com.example.bank.model.card.Card;
-import com.example.bank.model.user.User;
 import com.example.bank.repository.CardRepository;
-import com.example.bank.repository.UserRepository;
 
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -18,27 +15,31 @@ public class CardSecurity {
     private static final Logger logger = LoggerFactory.getLogger(CardSecurity.class);
     
     private final CardRepository cardRepository;
+    private final CardOwnershipIndex ownershipIndex;
 
 
-    public CardSecurity(CardRepository cardRepository) {
+    public CardSecurity(CardRepository cardRepository, CardOwnershipIndex ownershipIndex) {
         this.cardRepository = cardRepository;
+        this.ownershipIndex = ownershipIndex;
     }
 
+    // Владелец карты берётся из индекса, а пользователь — из принципала запроса: ни Card, ни User не загружаются
     public boolean isOwner(Long cardId) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null) {
             logger.warn("No authentication found for card ID: {}", cardId);
             return false;
         }
-        
-        String username = auth.getName();
-        logger.debug("Checking ownership for user: {} and card ID: {}", username, cardId);
-        
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new ResourceNotFoundException("Card", "id", cardId));
 
-        boolean isOwner = card.getUser().getUsername().equals(username);
-        logger.debug("Ownership check result: {}", isOwner);
+        BankPrincipal principal = BankPrincipal.current();
+        if (principal == null) {
+            Card card = cardRepository.findById(cardId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Card", "id", cardId));
+            return isOwnedByName(card, auth.getName());
+        }
+
+        boolean isOwner = principal.getUserId().equals(ownershipIndex.ownerOf(cardId));
+        logger.debug("Ownership check for user: {} and card ID: {} -> {}", principal.getUsername(), cardId, isOwner);
         return isOwner;
     }
 
@@ -48,21 +49,41 @@ public class CardSecurity {
             logger.warn("No authentication found for card number: {}", cardNumber);
             return false;
         }
-        
-        String username = auth.getName();
-        logger.debug("Checking ownership for user: {} and card number: {}", username, cardNumber);
-        
-        Card card = cardRepository.findByCardNumber(cardNumber)
-                .orElseThrow(() -> new ResourceNotFoundException("Card", "cardNumber", cardNumber));
 
-        boolean isOwner = card.getUser().getUsername().equals(username);
-        logger.debug("Ownership check result: {}", isOwner);
+        BankPrincipal principal = BankPrincipal.current();
+        if (principal == null) {
+            Card card = cardRepository.findByCardNumber(cardNumber)
+                    .orElseThrow(() -> new ResourceNotFoundException("Card", "cardNumber", cardNumber));
+            return isOwnedByName(card, auth.getName());
+        }
+
+        boolean isOwner = principal.getUserId().equals(ownershipIndex.ownerOf(cardNumber));
+        logger.debug("Ownership check for user: {} and card number -> {}", principal.getUsername(), isOwner);
         return isOwner;
     }
 
     public boolean isSelfOrAdmin(Long userId) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        User currentUser = (User) auth.getPrincipal();
-        return currentUser.getRole() == Role.ADMIN || currentUser.getUserId().equals(userId);
+        BankPrincipal principal = BankPrincipal.current();
+        if (principal == null) {
+            logger.warn("No authenticated principal for user ID: {}", userId);
+            return false;
+        }
+        return principal.isAdmin() || principal.getUserId().equals(userId);
+    }
+
+    // Сброс индекса владельцев при создании, изменении и удалении карт
+    public void cardSaved(Card card) {
+        ownershipIndex.cardSaved(card);
+    }
+
+    public void cardRemoved(Long cardId) {
+        ownershipIndex.invalidate(cardId);
+    }
+
+    // Запасной путь для аутентификации без BankPrincipal
+    private boolean isOwnedByName(Card card, String username) {
+        boolean isOwner = card.getUser().getUsername().equals(username);
+        logger.debug("Ownership check result: {}", isOwner);
+        return isOwner;
     }
-}
\ No newline at end of file
+}
@@ -6,12 +6,14 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,11 +22,11 @@ public class JwtFilter extends OncePerRequestFilter {
     private static final Logger logger = LoggerFactory.getLogger(JwtFilter.class);
 
     private final JwtUtil jwtUtil;
-    private final CustomUserDetailsService userDetailsService;
+    private final TokenRevocationList revocationList;
 
-    public JwtFilter(JwtUtil jwtUtil, CustomUserDetailsService userDetailsService) {
+    public JwtFilter(JwtUtil jwtUtil, TokenRevocationList revocationList) {
         this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.revocationList = revocationList;
     }
 
     @Override
@@ -38,19 +40,20 @@ public class JwtFilter extends OncePerRequestFilter {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
             try {
-                logger.debug("Attempting to validate JWT token: {}", token);
-                String username = jwtUtil.validateToken(token);
+                // Аутентификация строится только из проверенных claims, без запроса к users
+                TokenClaims claims = jwtUtil.parseToken(token);
+                String username = claims.getUsername();
                 logger.debug("Token validated successfully for user: {}", username);
 
-                if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    // Получаем UserDetails с ролями
-                    var userDetails = userDetailsService.loadUserByUsername(username);
-                    logger.debug("User details loaded for: {}, with authorities: {}", username, userDetails.getAuthorities());
-
-                    // Создаём authToken с authorities
+                if (claims.isBlocked() || revocationList.isRevoked(claims)) {
+                    logger.warn("Rejected token of user {}: blocked={}, version={}",
+                            username, claims.isBlocked(), claims.getVersion());
+                } else if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                    BankPrincipal principal = new BankPrincipal(claims.getUserId(), username, claims.getRole());
                     UsernamePasswordAuthenticationToken authToken =
                             new UsernamePasswordAuthenticationToken(
-                                    userDetails, null, userDetails.getAuthorities());
+                                    principal, null,
+                                    List.of(new SimpleGrantedAuthority("ROLE_" + claims.getRole().name())));
 
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
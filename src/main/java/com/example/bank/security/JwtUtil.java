@@ -1,5 +1,9 @@
 package com.example.bank.security;
 
+import com.example.bank.Enums.Role;
+import com.example.bank.model.user.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -8,36 +12,69 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.time.Duration;
 import java.util.Date;
 
 @Component
 public class JwtUtil {
 
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_ROLE = "role";
+    private static final String CLAIM_BLOCKED = "blocked";
+    private static final String CLAIM_VERSION = "ver";
+
     private final SecretKey key;
+    // Парсер потокобезопасен, создаётся один раз
+    private final JwtParser parser;
+    private final Duration tokenTtl;
 
     // Секретный ключ можно задать через application.properties
-    public JwtUtil(@Value("${jwt.secret}") String secret) {
-        // this.key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
-        // Для простоты здесь:
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.expiration-minutes:60}") long expirationMinutes) {
         this.key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
-
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+        this.tokenTtl = Duration.ofMinutes(expirationMinutes);
     }
 
-    public String generateToken(String username) {
+    public String generateToken(User user) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
-                .setSubject(username)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60))
+                .setSubject(user.getUsername())
+                .claim(CLAIM_USER_ID, user.getUserId())
+                .claim(CLAIM_ROLE, user.getRole().name())
+                .claim(CLAIM_BLOCKED, Boolean.TRUE.equals(user.getBlocked()))
+                .claim(CLAIM_VERSION, user.getTokenVersion() == null ? 0L : user.getTokenVersion())
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + tokenTtl.toMillis()))
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    // Проверяет подпись и срок действия, возвращает данные пользователя из токена
+    public TokenClaims parseToken(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        Number version = claims.get(CLAIM_VERSION, Number.class);
+        if (userId == null || role == null) {
+            // Токен старого формата, выданный до добавления claims
+            throw new IllegalArgumentException("Token does not carry user claims");
+        }
+        return new TokenClaims(
+                claims.getSubject(),
+                userId.longValue(),
+                Role.valueOf(role),
+                Boolean.TRUE.equals(claims.get(CLAIM_BLOCKED, Boolean.class)),
+                version == null ? 0L : version.longValue());
+    }
+
     public String validateToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    public Duration getTokenTtl() {
+        return tokenTtl;
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,16 @@
 package com.example.bank.security;
 
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authorization.AuthorizationEventPublisher;
+import org.springframework.security.authorization.SpringAuthorizationEventPublisher;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -32,6 +39,8 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http.csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
+                        // Завершение SSE-потока (таймаут, обрыв) идёт ASYNC-диспетчеризацией уже проверенного запроса
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                             "/auth/**",
                             "/register",
@@ -39,6 +48,9 @@ public class SecurityConfig {
                             "/v3/api-docs/**",
                             "/swagger-ui/**"
                         ).permitAll()
+                        // Health и scrape для Prometheus открыты только на management.server.port, который наружу
+                        // не публикуется; на основном порту матчер их не находит. Остальные endpoints actuator требуют аутентификации
+                        .requestMatchers(EndpointRequest.to(HealthEndpoint.class, PrometheusScrapeEndpoint.class)).permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/card/**", "/api/debit-cards/**", "/api/credit-cards/**").authenticated()
                         .requestMatchers(HttpMethod.PUT, "/api/credit-cards/**").authenticated()
 
@@ -59,6 +71,12 @@ public class SecurityConfig {
                 .build();
     }
 
+    // Публикует AuthorizationDeniedEvent при отказе @PreAuthorize; на них считаются метрики отказов в доступе
+    @Bean
+    public AuthorizationEventPublisher authorizationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        return new SpringAuthorizationEventPublisher(applicationEventPublisher);
+    }
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -0,0 +1,16 @@
+package com.example.bank.security;
+
+import com.example.bank.Enums.Role;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Проверенные данные из JWT: всё, что нужно для аутентификации запроса без обращения к БД
+@Data
+@AllArgsConstructor
+public class TokenClaims {
+    private String username;
+    private Long userId;
+    private Role role;
+    private boolean blocked;
+    private long version;
+}
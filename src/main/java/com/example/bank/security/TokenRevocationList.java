@@ -0,0 +1,133 @@
+package com.example.bank.security;
+
+import com.example.bank.model.user.TokenRevocation;
+import com.example.bank.repository.TokenRevocationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+// Deny-list отозванных JWT: для пользователя хранится минимальная допустимая версия токена.
+// Источник истины — таблица token_revocations, общая для всех узлов; в памяти лежит её копия без вытеснения
+// по размеру, которая перечитывается каждые jwt.revocation.sync-ms. Запись живёт столько же, сколько токен,
+// после этого все старые токены истекают сами
+@Component
+public class TokenRevocationList {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private record Revocation(long minVersion, long revokedAtMillis) {
+        Revocation merge(Revocation other) {
+            return new Revocation(Math.max(minVersion, other.minVersion), Math.max(revokedAtMillis, other.revokedAtMillis));
+        }
+    }
+
+    private final Map<Long, Revocation> minVersions = new ConcurrentHashMap<>();
+    private final TokenRevocationRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    @Autowired
+    public TokenRevocationList(TokenRevocationRepository repository,
+                               PlatformTransactionManager transactionManager,
+                               JwtUtil jwtUtil) {
+        this(repository, new TransactionTemplate(transactionManager), jwtUtil.getTokenTtl(), System::currentTimeMillis);
+    }
+
+    TokenRevocationList(TokenRevocationRepository repository, TransactionTemplate transactionTemplate,
+                        Duration tokenTtl, LongSupplier clock) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.ttlMillis = tokenTtl.toMillis();
+        this.clock = clock;
+    }
+
+    // Все токены пользователя с версией ниже minVersion перестают приниматься.
+    // Запись сохраняется в транзакции вызывающего: откат отменяет и её, и локальную запись
+    public void revokeBefore(Long userId, long minVersion) {
+        long now = clock.getAsLong();
+        transactionTemplate.executeWithoutResult(status -> {
+            TokenRevocation revocation = repository.findById(userId)
+                    .orElseGet(() -> new TokenRevocation(userId, minVersion, null));
+            revocation.setMinVersion(Math.max(revocation.getMinVersion(), minVersion));
+            revocation.setRevokedAt(toDateTime(now));
+            repository.save(revocation);
+        });
+
+        // Локально отзыв действует сразу, другие узлы увидят его при следующей синхронизации
+        Revocation previous = minVersions.get(userId);
+        minVersions.merge(userId, new Revocation(minVersion, now), Revocation::merge);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        if (previous == null) {
+                            minVersions.remove(userId);
+                        } else {
+                            minVersions.put(userId, previous);
+                        }
+                    }
+                }
+            });
+        }
+        log.info("Revoked JWT tokens of user {} below version {}", userId, minVersion);
+    }
+
+    public boolean isRevoked(TokenClaims claims) {
+        Revocation revocation = minVersions.get(claims.getUserId());
+        return revocation != null
+                && revocation.revokedAtMillis() + ttlMillis > clock.getAsLong()
+                && claims.getVersion() < revocation.minVersion();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreFromDatabase() {
+        synchronize();
+        log.info("Restored {} JWT revocations", minVersions.size());
+    }
+
+    // Полное перечитывание отзывов за время жизни токена: так узел видит отзывы, сделанные на других узлах
+    // и до его старта, а истёкшие записи удаляются и из памяти, и из таблицы
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-ms:5000}")
+    public void synchronize() {
+        try {
+            long now = clock.getAsLong();
+            LocalDateTime since = toDateTime(now - ttlMillis);
+            List<TokenRevocation> revocations = repository.findByRevokedAtAfter(since);
+            for (TokenRevocation revocation : revocations) {
+                long revokedAt = revocation.getRevokedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                minVersions.merge(revocation.getUserId(), new Revocation(revocation.getMinVersion(), revokedAt),
+                        Revocation::merge);
+            }
+            minVersions.values().removeIf(revocation -> revocation.revokedAtMillis() + ttlMillis <= now);
+            Integer removed = transactionTemplate.execute(status -> repository.deleteRevokedBefore(since));
+            if (removed != null && removed > 0) {
+                log.debug("Purged {} expired JWT revocations", removed);
+            }
+        } catch (Exception e) {
+            log.error("Failed to synchronize JWT revocations: {}", e.getMessage(), e);
+        }
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -2,13 +2,17 @@ package com.example.bank.service;
 
 import com.example.bank.Enums.CardStatus;
 import com.example.bank.exception.CardBlockedException;
+import com.example.bank.exception.InsufficientFundsException;
 import com.example.bank.exception.InvalidOperationException;
 import com.example.bank.exception.ResourceNotFoundException;
 import com.example.bank.model.card.Card;
+import com.example.bank.model.card.CardSummary;
 import com.example.bank.Enums.Role;
 import com.example.bank.model.user.User;
+import com.example.bank.repository.CardBalanceWriter;
 import com.example.bank.repository.CardRepository;
 import com.example.bank.repository.UserRepository;
+import com.example.bank.security.BankPrincipal;
 import com.example.bank.security.CardSecurity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,7 +22,6 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
-import java.security.SecureRandom;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -30,19 +33,44 @@ public abstract class AbstractCardService {
     protected final CardRepository cardRepository;
     protected final UserRepository userRepository;
     protected final CardSecurity cardSecurity;
-    private final SecureRandom secureRandom = new SecureRandom();
+    protected final CardBalanceWriter balanceWriter;
+    private final CardNumberAllocator cardNumberAllocator;
 
     public AbstractCardService(CardRepository cardRepository,
                                   UserRepository userRepository,
-                                  CardSecurity cardSecurity) {
+                                  CardSecurity cardSecurity,
+                                  CardBalanceWriter balanceWriter,
+                                  CardNumberAllocator cardNumberAllocator) {
         this.cardRepository = cardRepository;
         this.userRepository = userRepository;
         this.cardSecurity = cardSecurity;
+        this.balanceWriter = balanceWriter;
+        this.cardNumberAllocator = cardNumberAllocator;
     }
 
     // Получает текущего аутентифицированного пользователя
-
+    // Сущность User загружается лениво: пока нужен только id, запроса к users нет
     protected User getCurrentUser() {
+        BankPrincipal principal = BankPrincipal.current();
+        if (principal != null) {
+            return userRepository.getReferenceById(principal.getUserId());
+        }
+        return findCurrentUserByName();
+    }
+
+    // id текущего пользователя из принципала запроса
+    protected Long getCurrentUserId() {
+        BankPrincipal principal = BankPrincipal.current();
+        return principal != null ? principal.getUserId() : findCurrentUserByName().getUserId();
+    }
+
+    protected boolean isCurrentUserAdmin() {
+        BankPrincipal principal = BankPrincipal.current();
+        return principal != null ? principal.isAdmin() : findCurrentUserByName().getRole() == Role.ADMIN;
+    }
+
+    // Запасной путь для аутентификации без BankPrincipal: поиск по имени пользователя
+    private User findCurrentUserByName() {
         log.info("Retrieving current user from security context");
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -83,22 +111,11 @@ public abstract class AbstractCardService {
     }
 
 
-// Генерирует уникальный 16-значный номер карты
+// Выдаёт уникальный 16-значный номер карты из зарезервированного узлом блока
     public String generateUniqueCardNumber() {
         log.info("Generating unique card number");
-        String number;
-
-        long min = 1_000_000_000_000_000L;  // 16 цифр, первая минимум 1
-        long max = 9_999_999_999_999_999L;  // 16 цифр, первая максимум 9
-
         try {
-            do {
-                long randomNum = Math.abs(secureRandom.nextLong());
-                long valueInRange = min + (randomNum % (max - min + 1)); // [min, max]
-                number = Long.toString(valueInRange);
-            } while (cardRepository.existsByCardNumber(number));
-
-            return number;
+            return cardNumberAllocator.nextCardNumber();
         } catch (Exception e) {
             log.error("Error generating card number: {}", e.getMessage(), e);
             throw e;
@@ -156,7 +173,9 @@ public abstract class AbstractCardService {
     public Card update(Card card) {
         log.info("Updating card with ID: {}", card.getCardNumber());
         try {
-            return cardRepository.save(card);
+            Card saved = cardRepository.save(card);
+            cardSecurity.cardSaved(saved); // владелец мог смениться
+            return saved;
         } catch (Exception e) {
             log.error("Error updating card: {}", e.getMessage(), e);
             throw e;
@@ -168,6 +187,7 @@ public abstract class AbstractCardService {
         log.info("Deleting card by ID: {}", id);
         try {
             cardRepository.deleteById(id);
+            cardSecurity.cardRemoved(id);
         } catch (Exception e) {
             log.error("Error deleting card by ID: {}", e.getMessage(), e);
             throw e;
@@ -218,46 +238,107 @@ public abstract class AbstractCardService {
         }
     }
 
-    // Обрабатывает операцию пополнения счета
-    protected Card processDeposit(Card card, BigDecimal amount) {
-        log.info("Depositing to card {} amount {}", card.getCardNumber(), amount);
+    // Поля карты для денежной операции скалярным запросом, без загрузки сущности и её связей
+    public CardSummary getCardSummary(Long cardId) {
+        return cardRepository.findSummaryById(cardId)
+                .orElseThrow(() -> {
+                    log.error("Card not found with ID {}", cardId);
+                    return new ResourceNotFoundException("Card", "id", cardId);
+                });
+    }
+
+    // Атомарное пополнение счета одним UPDATE в БД, без загрузки и сохранения сущности.
+    // Новый баланс приходит из того же UPDATE и записывается в card.
+    // Возвращает сумму, на которую фактически вырос баланс карты
+    public BigDecimal applyDeposit(CardSummary card, BigDecimal amount) {
+        log.info("Atomic deposit to card {} amount {}", card.getCardNumber(), amount);
         try {
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-                log.error("Deposit attempt with non-positive amount: {}", amount);
-                throw new IllegalArgumentException("Сумма пополнения должна быть больше нуля");
+            validateAmount(amount, "Сумма пополнения должна быть больше нуля");
+            BigDecimal credited = depositAtomically(card, amount, LocalDate.now());
+            if (credited == null) {
+                throw rejectedUpdate(card, amount, false);
             }
-            checkCardBlock(card);
-
-            card.setBalance(card.getBalance().add(amount));
-            return card;
+            return credited;
         } catch (Exception e) {
             log.error("Error depositing to card: {}", e.getMessage(), e);
             throw e;
         }
     }
 
-    // Обрабатывает операцию снятия со счета
-    protected Card processWithdraw(Card card, BigDecimal amount) {
-        log.info("Withdrawing from card {} amount {}", card.getCardNumber(), amount);
+    // Атомарное списание: проверка статуса и остатка выполняется в том же UPDATE (balance >= amount)
+    public void applyWithdraw(CardSummary card, BigDecimal amount) {
+        log.info("Atomic withdraw from card {} amount {}", card.getCardNumber(), amount);
         try {
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-                log.error("Withdrawal attempt with non-positive amount: {}", amount);
-                throw new IllegalArgumentException("Сумма снятия должна быть больше нуля");
-            }
-            checkCardBlock(card);
-            BigDecimal balance = card.getBalance();
-            if (amount.compareTo(balance) > 0) {
-                log.error("Insufficient funds: card {}, balance {}, attempt to withdraw {}", card.getCardNumber(), balance, amount);
-                throw new InvalidOperationException("Недостаточно средств");
+            validateAmount(amount, "Сумма снятия должна быть больше нуля");
+            if (!withdrawAtomically(card, amount, LocalDate.now())) {
+                throw rejectedUpdate(card, amount, true);
             }
-            card.setBalance(balance.subtract(amount));
-            return card;
         } catch (Exception e) {
             log.error("Error withdrawing from card: {}", e.getMessage(), e);
             throw e;
         }
     }
 
+    // Текущий баланс карты скалярным запросом, без загрузки сущности и таблиц наследников
+    public BigDecimal getBalance(Long cardId) {
+        return cardRepository.findBalanceById(cardId)
+                .orElseThrow(() -> {
+                    log.error("Card not found with ID {}", cardId);
+                    return new ResourceNotFoundException("Card", "id", cardId);
+                });
+    }
+
+    // SQL пополнения; наследники переопределяют, если затрагиваются их собственные таблицы.
+    // Возвращает прирост баланса или null, если карта не прошла условия UPDATE
+    protected BigDecimal depositAtomically(CardSummary card, BigDecimal amount, LocalDate today) {
+        return balanceWriter.depositIfActive(card.getId(), amount, today)
+                .map(balance -> {
+                    card.setBalance(balance);
+                    return amount;
+                })
+                .orElse(null);
+    }
+
+    // SQL списания; наследники переопределяют, если затрагиваются их собственные таблицы
+    protected boolean withdrawAtomically(CardSummary card, BigDecimal amount, LocalDate today) {
+        return balanceWriter.withdrawIfActive(card.getId(), amount, today)
+                .map(balance -> {
+                    card.setBalance(balance);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    protected void validateAmount(BigDecimal amount, String message) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            log.error("Operation attempt with non-positive amount: {}", amount);
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    protected String insufficientFundsMessage() {
+        return "Недостаточно средств";
+    }
+
+    // UPDATE не затронул строку: причину выясняем отдельным лёгким запросом только на этом редком пути
+    private RuntimeException rejectedUpdate(CardSummary card, BigDecimal amount, boolean withdrawal) {
+        CardStatus status = cardRepository.findStatusById(card.getId())
+                .orElseThrow(() -> {
+                    log.error("Card not found with ID {}", card.getId());
+                    return new ResourceNotFoundException("Card", "id", card.getId());
+                });
+        if (status != CardStatus.ACTIVE || LocalDate.now().isAfter(card.getExpiryDate())) {
+            log.error("Operation attempt on status card {}", card.getCardNumber());
+            return new CardBlockedException(card);
+        }
+        if (withdrawal) {
+            log.error("Insufficient funds: card {}, attempt to withdraw {}", card.getCardNumber(), amount);
+            return new InsufficientFundsException(insufficientFundsMessage());
+        }
+        log.error("Card {} was not updated by deposit of {}", card.getCardNumber(), amount);
+        return new InvalidOperationException("Не удалось пополнить счет");
+    }
+
     // Удаляет счет пользователем только если баланс равен нулю
     @PreAuthorize("hasRole('ADMIN')")
     public void deleteCard(Long id) {
@@ -274,6 +355,7 @@ public abstract class AbstractCardService {
             }
 
             cardRepository.deleteById(id);
+            cardSecurity.cardRemoved(id);
         } catch (Exception e) {
             log.error("Error deleting card by user: {}", e.getMessage(), e);
             throw e;
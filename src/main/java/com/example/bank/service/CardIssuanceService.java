@@ -0,0 +1,293 @@
+package com.example.bank.service;
+
+import com.example.bank.Enums.CardType;
+import com.example.bank.model.card.Card;
+import com.example.bank.model.card.creditCard.CreditCard;
+import com.example.bank.model.card.debitCard.DebitCard;
+import com.example.bank.model.card.issuance.CardIssuanceFormat;
+import com.example.bank.model.card.issuance.CardIssuanceRequest;
+import com.example.bank.model.card.issuance.CardIssuanceResult;
+import com.example.bank.model.card.issuance.CardIssuanceSummary;
+import com.example.bank.model.user.User;
+import com.example.bank.repository.CardRepository;
+import com.example.bank.repository.UserRepository;
+import com.example.bank.security.CardSecurity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Массовый выпуск карт: входной поток читается построчно, строки обрабатываются пачками по chunk-size.
+// На пачку — один запрос за пользователями, номера из CardNumberAllocator и batch-вставка карт в своей транзакции.
+// Результаты пишутся в выходной поток после каждой пачки, поэтому память не зависит от размера входа
+@Service
+public class CardIssuanceService {
+
+    private static final Logger log = LoggerFactory.getLogger(CardIssuanceService.class);
+
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+    private final CardNumberAllocator cardNumberAllocator;
+    private final LedgerService ledgerService;
+    private final CardSecurity cardSecurity;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${bank.cards.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${bank.credit.default.interest-rate}")
+    private BigDecimal defaultInterestRate;
+
+    @Value("${bank.credit.default.limit}")
+    private BigDecimal defaultCreditLimit;
+
+    @Value("${bank.credit.default.minimum-payment-rate}")
+    private BigDecimal defaultMinimumPaymentRate;
+
+    @Value("${bank.credit.default.grace-period}")
+    private Integer defaultGracePeriod;
+
+    public CardIssuanceService(UserRepository userRepository,
+                               CardRepository cardRepository,
+                               CardNumberAllocator cardNumberAllocator,
+                               LedgerService ledgerService,
+                               CardSecurity cardSecurity,
+                               ObjectMapper objectMapper,
+                               EntityManager entityManager,
+                               PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.cardRepository = cardRepository;
+        this.cardNumberAllocator = cardNumberAllocator;
+        this.ledgerService = ledgerService;
+        this.cardSecurity = cardSecurity;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Выпуск карт по потоку заявок; по каждой непустой строке в output пишется одна строка NDJSON с результатом
+    @PreAuthorize("hasRole('ADMIN')")
+    public CardIssuanceSummary issue(BufferedReader input, CardIssuanceFormat format, Writer output) throws IOException {
+        long started = System.nanoTime();
+        log.info("Bulk card issuance started, format={}, chunkSize={}", format, chunkSize);
+
+        long lineNumber = 0;
+        long created = 0;
+        long failed = 0;
+        List<IssuanceLine> chunk = new ArrayList<>(chunkSize);
+        String raw;
+        while (true) {
+            raw = input.readLine();
+            if (raw != null) {
+                lineNumber++;
+                if (raw.isBlank() || (format == CardIssuanceFormat.CSV && lineNumber == 1 && isCsvHeader(raw))) {
+                    continue;
+                }
+                chunk.add(parse(lineNumber, raw, format));
+            }
+            if (chunk.size() >= chunkSize || (raw == null && !chunk.isEmpty())) {
+                for (CardIssuanceResult result : issueChunk(chunk)) {
+                    if (CardIssuanceResult.CREATED.equals(result.getStatus())) {
+                        created++;
+                    } else {
+                        failed++;
+                    }
+                    output.write(objectMapper.writeValueAsString(result));
+                    output.write('\n');
+                }
+                output.flush();
+                chunk.clear();
+            }
+            if (raw == null) {
+                break;
+            }
+        }
+
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        double cardsPerSecond = elapsedMs == 0 ? created : created * 1000.0 / elapsedMs;
+        log.info("Bulk card issuance finished: {} lines, {} created, {} failed in {} ms ({} cards/sec)",
+                lineNumber, created, failed, elapsedMs, String.format("%.1f", cardsPerSecond));
+        return new CardIssuanceSummary(lineNumber, created, failed, elapsedMs, cardsPerSecond);
+    }
+
+    // Одна пачка в одной транзакции; при ошибке БД вся пачка отмечается как неуспешная, обработка продолжается
+    List<CardIssuanceResult> issueChunk(List<IssuanceLine> chunk) {
+        CardIssuanceResult[] results = new CardIssuanceResult[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            IssuanceLine line = chunk.get(i);
+            if (line.error != null) {
+                results[i] = CardIssuanceResult.failed(line.number, line.userId(), line.type(), line.error);
+            }
+        }
+
+        try {
+            List<Card> saved = transactionTemplate.execute(status -> createCards(chunk, results));
+            saved.forEach(cardSecurity::cardSaved);
+        } catch (Exception e) {
+            log.error("Bulk issuance chunk of lines {}-{} failed: {}",
+                    chunk.get(0).number, chunk.get(chunk.size() - 1).number, e.getMessage(), e);
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null || CardIssuanceResult.CREATED.equals(results[i].getStatus())) {
+                    IssuanceLine line = chunk.get(i);
+                    results[i] = CardIssuanceResult.failed(line.number, line.userId(), line.type(), e.getMessage());
+                }
+            }
+        }
+        return List.of(results);
+    }
+
+    private List<Card> createCards(List<IssuanceLine> chunk, CardIssuanceResult[] results) {
+        Set<Long> userIds = chunk.stream()
+                .filter(line -> line.error == null)
+                .map(IssuanceLine::userId)
+                .collect(Collectors.toSet());
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getUserId, Function.identity()));
+
+        List<Card> cards = new ArrayList<>(chunk.size());
+        int[] cardLines = new int[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            IssuanceLine line = chunk.get(i);
+            if (results[i] != null) {
+                continue;
+            }
+            User user = users.get(line.userId());
+            if (user == null) {
+                results[i] = CardIssuanceResult.failed(line.number, line.userId(), line.type(),
+                        "User not found with id " + line.userId());
+                continue;
+            }
+            try {
+                Card card = line.type() == CardType.CREDIT ? newCreditCard(user, line.request) : newDebitCard(user);
+                cardLines[cards.size()] = i;
+                cards.add(card);
+            } catch (IllegalArgumentException e) {
+                results[i] = CardIssuanceResult.failed(line.number, line.userId(), line.type(), e.getMessage());
+            }
+        }
+
+        cardRepository.saveAll(cards);
+        for (int c = 0; c < cards.size(); c++) {
+            Card card = cards.get(c);
+            if (card instanceof CreditCard credit) {
+                ledgerService.recordOpeningCreditLine(credit.getId(), credit.getCreditLimit());
+            } else if (card.getUser().getMainCard() == null) {
+                card.getUser().setMainCard((DebitCard) card);
+            }
+            IssuanceLine line = chunk.get(cardLines[c]);
+            results[cardLines[c]] = new CardIssuanceResult(line.number, line.userId(), card.getCardType(), card.getId(),
+                    CardServiceImpl.maskCardNumber(card.getCardNumber()), CardIssuanceResult.CREATED, null);
+        }
+        // Пачка уходит в БД batch-вставками; persistence context не должен расти от пачки к пачке
+        entityManager.flush();
+        entityManager.clear();
+        return cards;
+    }
+
+    private DebitCard newDebitCard(User user) {
+        DebitCard card = new DebitCard();
+        card.setUser(user);
+        card.setCardNumber(cardNumberAllocator.nextCardNumber());
+        card.setExpiryDate(LocalDate.now().plusYears(5));
+        return card;
+    }
+
+    private CreditCard newCreditCard(User user, CardIssuanceRequest request) {
+        BigDecimal creditLimit = request.getCreditLimit() != null ? request.getCreditLimit() : defaultCreditLimit;
+        BigDecimal interestRate = request.getInterestRate() != null ? request.getInterestRate() : defaultInterestRate;
+        if (creditLimit.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Credit limit must be > 0");
+        }
+        if (interestRate.compareTo(BigDecimal.ZERO) < 0) {
+            throw new IllegalArgumentException("Interest rate cannot be negative");
+        }
+
+        CreditCard card = new CreditCard();
+        card.setUser(user);
+        card.setCardNumber(cardNumberAllocator.nextCardNumber());
+        card.setCreditLimit(creditLimit);
+        card.setExpiryDate(LocalDate.now().plusYears(5));
+        card.setBalance(creditLimit);
+        card.setInterestRate(interestRate);
+        card.setMinimumPaymentRate(defaultMinimumPaymentRate);
+        card.setGracePeriod(request.getGracePeriod() != null ? request.getGracePeriod() : defaultGracePeriod);
+        card.setAccruedInterest(BigDecimal.ZERO);
+        card.setCardType(CardType.CREDIT);
+        return card;
+    }
+
+    IssuanceLine parse(long number, String raw, CardIssuanceFormat format) {
+        CardIssuanceRequest request;
+        try {
+            request = format == CardIssuanceFormat.CSV ? parseCsv(raw) : objectMapper.readValue(raw, CardIssuanceRequest.class);
+        } catch (JsonProcessingException e) {
+            return new IssuanceLine(number, null, "Malformed line: " + e.getOriginalMessage());
+        } catch (RuntimeException e) {
+            return new IssuanceLine(number, null, "Malformed line: " + e.getMessage());
+        }
+        if (request.getUserId() == null) {
+            return new IssuanceLine(number, request, "userId is required");
+        }
+        if (request.getType() == null) {
+            return new IssuanceLine(number, request, "type is required");
+        }
+        return new IssuanceLine(number, request, null);
+    }
+
+    // userId,type,creditLimit,interestRate,gracePeriod; пустые поля — значения по умолчанию
+    private CardIssuanceRequest parseCsv(String raw) {
+        String[] fields = raw.split(",", -1);
+        CardIssuanceRequest request = new CardIssuanceRequest();
+        request.setUserId(Long.parseLong(fields[0].trim()));
+        request.setType(fields.length > 1 && !fields[1].isBlank() ? CardType.valueOf(fields[1].trim().toUpperCase()) : null);
+        request.setCreditLimit(fields.length > 2 && !fields[2].isBlank() ? new BigDecimal(fields[2].trim()) : null);
+        request.setInterestRate(fields.length > 3 && !fields[3].isBlank() ? new BigDecimal(fields[3].trim()) : null);
+        request.setGracePeriod(fields.length > 4 && !fields[4].isBlank() ? Integer.valueOf(fields[4].trim()) : null);
+        return request;
+    }
+
+    private boolean isCsvHeader(String raw) {
+        return raw.trim().toLowerCase().startsWith("userid");
+    }
+
+    // Разобранная строка входа; error != null — строка отклонена до обращения к БД
+    static final class IssuanceLine {
+        final long number;
+        final CardIssuanceRequest request;
+        final String error;
+
+        IssuanceLine(long number, CardIssuanceRequest request, String error) {
+            this.number = number;
+            this.request = request;
+            this.error = error;
+        }
+
+        Long userId() {
+            return request == null ? null : request.getUserId();
+        }
+
+        CardType type() {
+            return request == null ? null : request.getType();
+        }
+    }
+}
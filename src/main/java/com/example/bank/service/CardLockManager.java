@@ -0,0 +1,151 @@
+package com.example.bank.service;
+
+import com.example.bank.cache.ExpiringLruCache;
+import com.example.bank.model.card.CardContentionResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Таблица блокировок карт внутри JVM (striped lock).
+// Запросы к одной и той же карте выстраиваются в очередь в памяти, а не на строке в БД,
+// поэтому ожидающие потоки не держат соединение и блокировку строки.
+// Блокировки берутся в порядке номера полосы, строки в БД — в порядке id, поэтому взаимоблокировок нет.
+@Component
+public class CardLockManager {
+
+    private static final Logger log = LoggerFactory.getLogger(CardLockManager.class);
+
+    private final ReentrantLock[] stripes;
+    private final long lockWaitMs;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+
+    // Счётчики конкуренции по картам: сколько раз пришлось ждать блокировку и сколько было повторов.
+    // Хранятся только недавно конкурировавшие карты за окно contention.window-ms, не больше contention.max-cards,
+    // иначе память росла бы с числом карт, на которых конкуренция была хоть раз
+    private final ExpiringLruCache<Long, Contention> contention;
+
+    public CardLockManager(@Value("${bank.transfer.lock-stripes:1024}") int stripeCount,
+                           @Value("${bank.transfer.lock-wait-ms:2000}") long lockWaitMs,
+                           @Value("${bank.transfer.max-attempts:3}") int maxAttempts,
+                           @Value("${bank.transfer.retry-backoff-ms:50}") long retryBackoffMs,
+                           @Value("${bank.transfer.contention.max-cards:1000}") int contentionMaxCards,
+                           @Value("${bank.transfer.contention.window-ms:3600000}") long contentionWindowMs) {
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.lockWaitMs = lockWaitMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMs = retryBackoffMs;
+        this.contention = new ExpiringLruCache<>(contentionMaxCards, contentionWindowMs);
+    }
+
+    // Выполняет действие под блокировками обеих карт с ограниченным числом повторов
+    // при конфликте блокировок в БД (lock timeout, deadlock, serialization failure)
+    public <T> T executeLocked(Long firstCardId, Long secondCardId, Supplier<T> action) {
+        List<Long> cardIds = new ArrayList<>(new TreeSet<>(List.of(firstCardId, secondCardId)));
+
+        for (int attempt = 1; ; attempt++) {
+            List<ReentrantLock> acquired = acquire(cardIds);
+            try {
+                return action.get();
+            } catch (ConcurrencyFailureException e) {
+                cardIds.forEach(id -> contentionOf(id).retries().increment());
+                if (attempt >= maxAttempts) {
+                    log.error("Giving up on cards {} after {} attempts: {}", cardIds, attempt, e.getMessage());
+                    throw e;
+                }
+                log.warn("Lock conflict on cards {} (attempt {}/{}): {}", cardIds, attempt, maxAttempts, e.getMessage());
+            } finally {
+                for (int i = acquired.size() - 1; i >= 0; i--) {
+                    acquired.get(i).unlock();
+                }
+            }
+            backoff(attempt);
+        }
+    }
+
+    // Снимок счётчиков конкуренции по картам за текущее окно (только карты, на которых была конкуренция)
+    public List<CardContentionResponse> getContentionSnapshot() {
+        List<CardContentionResponse> snapshot = new ArrayList<>();
+        contention.snapshot().forEach((cardId, counters) -> snapshot.add(new CardContentionResponse(
+                cardId, counters.lockWaits().sum(), counters.retries().sum())));
+        snapshot.sort(Comparator.comparingLong(CardContentionResponse::getLockWaits).reversed()
+                .thenComparing(CardContentionResponse::getCardId));
+        return snapshot;
+    }
+
+    private Contention contentionOf(Long cardId) {
+        return contention.computeIfAbsent(cardId, id -> new Contention(new LongAdder(), new LongAdder()));
+    }
+
+    private List<ReentrantLock> acquire(List<Long> cardIds) {
+        // Разные карты могут попасть в одну полосу, а порядок полос может не совпадать с порядком id
+        TreeMap<Integer, Long> cardByStripe = new TreeMap<>();
+        for (Long cardId : cardIds) {
+            cardByStripe.putIfAbsent(stripeIndex(cardId), cardId);
+        }
+
+        List<ReentrantLock> acquired = new ArrayList<>(cardByStripe.size());
+        try {
+            for (Map.Entry<Integer, Long> entry : cardByStripe.entrySet()) {
+                ReentrantLock lock = stripes[entry.getKey()];
+                if (!lock.tryLock()) {
+                    Long cardId = entry.getValue();
+                    contentionOf(cardId).lockWaits().increment();
+                    if (!tryLock(lock)) {
+                        log.error("Timed out waiting {} ms for lock on card {}", lockWaitMs, cardId);
+                        throw new CannotAcquireLockException("Card " + cardId + " is busy, try again later");
+                    }
+                }
+                acquired.add(lock);
+            }
+            return acquired;
+        } catch (RuntimeException e) {
+            for (int i = acquired.size() - 1; i >= 0; i--) {
+                acquired.get(i).unlock();
+            }
+            throw e;
+        }
+    }
+
+    private boolean tryLock(ReentrantLock lock) {
+        try {
+            return lock.tryLock(lockWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted while waiting for card lock", e);
+        }
+    }
+
+    private int stripeIndex(Long cardId) {
+        return Math.floorMod(Long.hashCode(cardId) * 0x9E3779B9, stripes.length);
+    }
+
+    private void backoff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMs * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted while retrying card operation", e);
+        }
+    }
+
+    private record Contention(LongAdder lockWaits, LongAdder retries) {
+    }
+}
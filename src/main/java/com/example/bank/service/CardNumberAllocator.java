@@ -0,0 +1,199 @@
+package com.example.bank.service;
+
+import com.example.bank.model.card.CardNumberRange;
+import com.example.bank.repository.CardNumberRangeRepository;
+import com.example.bank.repository.CardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Выдача номеров карт: BIN + номер счёта + контрольная цифра Луна.
+// Узел резервирует в card_number_ranges блок номеров счёта и раздаёт его из памяти без блокировок и запросов к БД;
+// к базе обращается только исчерпавший блок поток. Резерв коммитится в отдельной транзакции,
+// поэтому откат выпуска карты не возвращает номера в общий диапазон и они не достанутся другому узлу.
+// Диапазон начинается с нуля; пока блоки не прошли самый большой номер старых карт с тем же BIN,
+// занятые ими номера блока загружаются одним запросом и пропускаются
+@Service
+public class CardNumberAllocator {
+
+    private static final Logger log = LoggerFactory.getLogger(CardNumberAllocator.class);
+
+    static final int CARD_NUMBER_LENGTH = 16;
+
+    private final CardNumberRangeRepository rangeRepository;
+    private final CardRepository cardRepository;
+    private final TransactionTemplate requiresNew;
+    private final String bin;
+    private final int blockSize;
+    private final int accountDigits;
+    private final long accountLimit;
+    private final AtomicReference<Block> current = new AtomicReference<>(Block.EMPTY);
+
+    public CardNumberAllocator(CardNumberRangeRepository rangeRepository,
+                               CardRepository cardRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${bank.cards.number.bin:400000}") String bin,
+                               @Value("${bank.cards.number.block-size:1000}") int blockSize) {
+        if (!bin.matches("\\d{6,8}")) {
+            throw new IllegalStateException("bank.cards.number.bin must be 6 to 8 digits: " + bin);
+        }
+        this.rangeRepository = rangeRepository;
+        this.cardRepository = cardRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.bin = bin;
+        this.blockSize = Math.max(1, blockSize);
+        this.accountDigits = CARD_NUMBER_LENGTH - 1 - bin.length();
+        this.accountLimit = (long) Math.pow(10, accountDigits);
+    }
+
+    // Следующий свободный номер карты
+    public String nextCardNumber() {
+        while (true) {
+            Block block = current.get();
+            long account = block.next.getAndIncrement();
+            if (account < block.end) {
+                if (block.taken.contains(account)) {
+                    continue;
+                }
+                return toCardNumber(account);
+            }
+            refill(block);
+        }
+    }
+
+    // Новый блок берёт один поток; остальные, дождавшись монитора, видят уже заменённый блок
+    private synchronized void refill(Block exhausted) {
+        if (current.get() != exhausted) {
+            return;
+        }
+        try {
+            current.set(reserveBlock());
+        } catch (DataIntegrityViolationException e) {
+            // Строку диапазона одновременно создал другой узел — следующая попытка её заблокирует
+            log.debug("Card number range for BIN {} created concurrently, retrying", bin);
+        }
+    }
+
+    private Block reserveBlock() {
+        long started = System.nanoTime();
+        Block block = requiresNew.execute(status -> {
+            CardNumberRange range = rangeRepository.findByBinForUpdate(bin).orElseGet(() -> {
+                CardNumberRange created = new CardNumberRange(bin, 0L);
+                created.setLegacyMaxAccount(legacyMaxAccount());
+                return created;
+            });
+            long start = range.getNextAccount();
+            long end = Math.min(start + blockSize, accountLimit);
+            if (start >= end) {
+                throw new IllegalStateException("Card number range exhausted for BIN " + bin);
+            }
+            range.setNextAccount(end);
+            range.setReservedBlocks(range.getReservedBlocks() + 1);
+            range.setUpdatedAt(LocalDateTime.now());
+            rangeRepository.saveAndFlush(range);
+            Long legacyMax = range.getLegacyMaxAccount();
+            Set<Long> taken = legacyMax != null && start <= legacyMax
+                    ? takenAccounts(start, Math.min(end, legacyMax + 1))
+                    : Set.of();
+            return new Block(start, end, taken);
+        });
+        log.info("Reserved card numbers for BIN {}: accounts [{}, {}) in {} ms, {} taken by existing cards",
+                bin, block.next.get(), block.end, (System.nanoTime() - started) / 1_000_000, block.taken.size());
+        return block;
+    }
+
+    // Наибольший номер счёта среди карт, выданных с этим BIN до появления аллокатора; -1, если их нет
+    private long legacyMaxAccount() {
+        return cardRepository.findMaxCardNumberStartingWith(bin)
+                .filter(number -> number.length() == CARD_NUMBER_LENGTH)
+                .map(this::accountOf)
+                .orElse(-1L);
+    }
+
+    // Номера счёта в [start, end), уже занятые существующими картами
+    private Set<Long> takenAccounts(long start, long end) {
+        List<String> numbers = cardRepository.findCardNumbersBetween(
+                toPrefix(start) + "0", toPrefix(end - 1) + "9");
+        Set<Long> taken = new HashSet<>();
+        for (String number : numbers) {
+            if (number.length() == CARD_NUMBER_LENGTH) {
+                taken.add(accountOf(number));
+            }
+        }
+        return taken;
+    }
+
+    private long accountOf(String cardNumber) {
+        return Long.parseLong(cardNumber.substring(bin.length(), CARD_NUMBER_LENGTH - 1));
+    }
+
+    String toCardNumber(long account) {
+        StringBuilder number = toPrefix(account);
+        return number.append(luhnCheckDigit(number)).toString();
+    }
+
+    // BIN и номер счёта с ведущими нулями, без контрольной цифры
+    private StringBuilder toPrefix(long account) {
+        StringBuilder number = new StringBuilder(CARD_NUMBER_LENGTH).append(bin);
+        String digits = Long.toString(account);
+        for (int i = digits.length(); i < accountDigits; i++) {
+            number.append('0');
+        }
+        return number.append(digits);
+    }
+
+    // Контрольная цифра Луна для номера без неё
+    static int luhnCheckDigit(CharSequence payload) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = payload.length() - 1; i >= 0; i--) {
+            int digit = payload.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    public static boolean isLuhnValid(String cardNumber) {
+        if (cardNumber == null || cardNumber.length() < 2 || !cardNumber.chars().allMatch(Character::isDigit)) {
+            return false;
+        }
+        int last = cardNumber.length() - 1;
+        return luhnCheckDigit(cardNumber.subSequence(0, last)) == cardNumber.charAt(last) - '0';
+    }
+
+    // Зарезервированный блок [next, end); next только растёт, выход за end означает исчерпание.
+    // taken — номера блока, занятые старыми картами
+    private static final class Block {
+        static final Block EMPTY = new Block(0, 0, Set.of());
+
+        final AtomicLong next;
+        final long end;
+        final Set<Long> taken;
+
+        Block(long start, long end, Set<Long> taken) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+            this.taken = taken;
+        }
+    }
+}
@@ -2,11 +2,10 @@ package com.example.bank.service;
 
 import com.example.bank.Enums.CardStatus;
 import com.example.bank.Enums.CardType;
-import com.example.bank.Enums.Role;
 import com.example.bank.mapper.CardMapper;
 import com.example.bank.model.card.Card;
 import com.example.bank.model.card.CardDto;
-import com.example.bank.model.user.User;
+import com.example.bank.repository.CardBalanceWriter;
 import com.example.bank.repository.CardRepository;
 import com.example.bank.repository.UserRepository;
 import com.example.bank.security.CardSecurity;
@@ -27,8 +26,10 @@ public class CardServiceImpl extends AbstractCardService {
 
     public CardServiceImpl(CardRepository cardRepository,
                            UserRepository userRepository,
-                           CardSecurity cardSecurity) {
-        super(cardRepository, userRepository, cardSecurity);
+                           CardSecurity cardSecurity,
+                           CardBalanceWriter balanceWriter,
+                           CardNumberAllocator cardNumberAllocator) {
+        super(cardRepository, userRepository, cardSecurity, balanceWriter, cardNumberAllocator);
     }
 
     public static String maskCardNumber(String cardNumber) {
@@ -42,8 +43,7 @@ public class CardServiceImpl extends AbstractCardService {
 
     @Transactional
     public List<CardDto> getAllCards() {
-        User currentUser = getCurrentUser();
-        List<Card> cards = cardRepository.findByUser_UserId(currentUser.getUserId());
+        List<Card> cards = cardRepository.findByUser_UserId(getCurrentUserId());
 
         List<CardDto> cardDtos = new ArrayList<>();
         for (Card card : cards) {
@@ -63,9 +63,7 @@ public class CardServiceImpl extends AbstractCardService {
     // Метод для поиска карт по номеру карты (доступен только владельцу или администратору)
     @PreAuthorize("@cardSecurity.isOwner(#cardNumber) or hasRole('ADMIN')")
     public List<CardDto> searchCardsByNumber(String cardNumber) {
-        User currentUser = getCurrentUser();
-
-        if (currentUser.getRole() == Role.ADMIN) {
+        if (isCurrentUserAdmin()) {
             // Администратор может искать по частичному совпадению номера карты
             List<Card> cards = cardRepository.findByCardNumberContaining(cardNumber);
             return cards.stream()
@@ -74,7 +72,7 @@ public class CardServiceImpl extends AbstractCardService {
         } else {
             // Обычный пользователь может искать только свои карты по номеру
             List<Card> cards = cardRepository.findByUser_UserIdAndCardNumberContaining(
-                    currentUser.getUserId(), cardNumber);
+                    getCurrentUserId(), cardNumber);
             return cards.stream()
                     .map(CardMapper::toDto)
                     .collect(Collectors.toList());
@@ -84,10 +82,9 @@ public class CardServiceImpl extends AbstractCardService {
     @PreAuthorize("@cardSecurity.isOwner(#id)")
     public Card requestBlockCard(Long id) {
         Card card = getCardById(id);
-        User currentUser = getCurrentUser();
 
 
-        if (!card.getUser().getUserId().equals(currentUser.getUserId())) {
+        if (!card.getUser().getUserId().equals(getCurrentUserId())) {
             throw new AccessDeniedException("Пользователь не является владельцем карты");
         }
 
@@ -5,9 +5,10 @@ import com.example.bank.exception.ResourceNotFoundException;
 import com.example.bank.mapper.CreditCardMapper;
 import com.example.bank.model.card.creditCard.CreditCard;
 import com.example.bank.model.card.creditCard.CreditCardResponseDto;
-import com.example.bank.model.card.Card;
+import com.example.bank.model.card.CardSummary;
 import com.example.bank.Enums.CardType;
 import com.example.bank.model.user.User;
+import com.example.bank.repository.CardBalanceWriter;
 import com.example.bank.repository.CardRepository;
 import com.example.bank.repository.CreditCardRepository;
 import com.example.bank.repository.TransactionRepository;
@@ -16,15 +17,12 @@ import com.example.bank.security.CardSecurity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Optional;
 
 // Сервис для работы с кредитными счетами
 @Service
@@ -45,40 +43,26 @@ public class CreditCardService extends AbstractCardService {
 
     private static final Logger log = LoggerFactory.getLogger(CreditCardService.class);
 
+    // Начисление процентов идёт раз в месяц, поэтому второго конфликта подряд на пополнении не ожидается
+    private static final int DEPOSIT_DEBT_ATTEMPTS = 2;
+
     private final CreditCardRepository creditCardRepository;
     private final TransactionRepository transactionRepository;
+    private final LedgerService ledgerService;
 
     // Конструктор сервиса кредитных счетов
     public CreditCardService(CardRepository cardRepository,
                                 UserRepository userRepository,
                                 CardSecurity cardSecurity,
                                 CreditCardRepository creditCardRepository,
-                                TransactionRepository transactionRepository) {
-        super(cardRepository, userRepository, cardSecurity);
+                                TransactionRepository transactionRepository,
+                                LedgerService ledgerService,
+                                CardBalanceWriter balanceWriter,
+                                CardNumberAllocator cardNumberAllocator) {
+        super(cardRepository, userRepository, cardSecurity, balanceWriter, cardNumberAllocator);
         this.creditCardRepository = creditCardRepository;
         this.transactionRepository = transactionRepository;
-    }
-
-    // Начисление ежемесячных процентов по всем кредитным счетам
-    @Scheduled(cron = "0 0 0 1 * ?")
-    public void accrueMonthlyInterest() {
-        log.info("Monthly interest accrual started for all credit cards");
-        Pageable pageable = PageRequest.of(0, 500);
-        Page<CreditCard> cardPage;
-        do {
-            cardPage = creditCardRepository.findAll(pageable);
-            cardPage.getContent().forEach(acc -> {
-                try {
-                    acc.accrueInterest();
-                    acc.updateTotalDebt();
-                    creditCardRepository.save(acc);
-                } catch (Exception e) {
-                    log.error("Error accruing interest for card {}: {}", acc.getCardNumber(), e.getMessage(), e);
-                }
-            });
-            pageable = cardPage.nextPageable();
-        } while (cardPage.hasNext());
-        log.info("Monthly interest accrual finished for all credit cards");
+        this.ledgerService = ledgerService;
     }
 
     // Создание кредитного счета администратором
@@ -115,6 +99,8 @@ public class CreditCardService extends AbstractCardService {
             acc.setCardType(CardType.CREDIT);
 
             CreditCard saved = creditCardRepository.save(acc);
+            cardSecurity.cardSaved(saved);
+            ledgerService.recordOpeningCreditLine(saved.getId(), saved.getCreditLimit());
             log.info("Credit card {} created for user {}", saved.getCardNumber(), userID);
             return CreditCardMapper.toDto(saved);
         } catch (Exception e) {
@@ -125,8 +111,7 @@ public class CreditCardService extends AbstractCardService {
 
     // Создание кредитного счета обычным пользователем
     public CreditCardResponseDto createCardforUser() {
-        User user = getCurrentUser();
-        Long userId = user.getUserId();
+        Long userId = getCurrentUserId();
         log.info("Creating credit card by user{} with limit {} and rate {}", userId, defaultCreditLimit, defaultInterestRate);
         try {
 
@@ -135,7 +120,7 @@ public class CreditCardService extends AbstractCardService {
             }
 
             CreditCard acc = new CreditCard();
-            acc.setUser(user);
+            acc.setUser(getCurrentUser());
             acc.setCardNumber(generateUniqueCardNumber());
             acc.setCreditLimit(defaultCreditLimit);
             acc.setExpiryDate(LocalDate.now().plusYears(5));
@@ -147,6 +132,8 @@ public class CreditCardService extends AbstractCardService {
             acc.setCardType(CardType.CREDIT);
 
             CreditCard saved = creditCardRepository.save(acc);
+            cardSecurity.cardSaved(saved);
+            ledgerService.recordOpeningCreditLine(saved.getId(), saved.getCreditLimit());
             log.info("Credit card {} created for user {}", saved.getCardNumber(), userId);
             return CreditCardMapper.toDto(saved);
         } catch (Exception e) {
@@ -155,72 +142,58 @@ public class CreditCardService extends AbstractCardService {
         }
     }
 
-    // Обработка операции пополнения кредитного счета
+    // Атомарное пополнение кредитного счета: первый UPDATE по cards проверяет статус и блокирует строку.
+    // Доля процентов считается по прочитанному значению, а UPDATE долга применяется, только если оно не изменилось;
+    // если между ними успело пройти начисление процентов, доля пересчитывается.
+    // Часть суммы, ушедшая на проценты, не увеличивает доступный баланс
     @Override
-    public Card processDeposit(Card card, BigDecimal amount) {
-        log.info("Depositing to credit card {} amount {}", card.getCardNumber(), amount);
-        try {
-            CreditCard acc = (CreditCard) card;
-            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-                log.error("Deposit attempt with invalid amount: {}", amount);
-                throw new InvalidOperationException("Amount must be greater than zero");
-            }
-            checkCardBlock(acc);
-
-            BigDecimal toInterest = acc.getAccruedInterest().min(amount);
-            acc.setAccruedInterest(acc.getAccruedInterest().subtract(toInterest));
-            BigDecimal left = amount.subtract(toInterest);
-
-            if (left.compareTo(BigDecimal.ZERO) > 0) {
-                acc.setBalance(acc.getBalance().add(left));
-                acc.setDebt(acc.getDebt().subtract(left));
+    protected BigDecimal depositAtomically(CardSummary card, BigDecimal amount, LocalDate today) {
+        Long cardId = card.getId();
+        Optional<BigDecimal> balance = balanceWriter.depositIfActive(cardId, amount, today);
+        if (balance.isEmpty()) {
+            return null;
+        }
+        BigDecimal accruedInterest = null;
+        for (int attempt = 0; attempt < DEPOSIT_DEBT_ATTEMPTS && accruedInterest == null; attempt++) {
+            BigDecimal current = creditCardRepository.findAccruedInterestById(cardId).orElse(BigDecimal.ZERO);
+            if (creditCardRepository.applyDepositToDebt(cardId, amount, current) > 0) {
+                accruedInterest = current;
             }
-            acc.updateTotalDebt();
-            return acc;
-        } catch (Exception e) {
-            log.error("Error depositing to credit card {}: {}", card.getCardNumber(), e.getMessage(), e);
-            throw e;
         }
+        if (accruedInterest == null) {
+            throw new InvalidOperationException("Accrued interest was changed concurrently, retry the operation");
+        }
+        BigDecimal interestShare = accruedInterest.min(amount);
+        card.setBalance(interestShare.signum() > 0 ? balanceWriter.deduct(cardId, interestShare) : balance.get());
+        return amount.subtract(interestShare);
     }
 
-    // Обработка операции снятия с кредитного счета
+    // Атомарное списание с кредитного счета: остаток проверяется в UPDATE по cards, долг пересчитывается в БД
+    // по балансу, который вернул тот же UPDATE
     @Override
-    public Card processWithdraw(Card card, BigDecimal amount) {
-        log.info("Withdrawing from credit card {} amount {}", card.getCardNumber(), amount);
-        try {
-            CreditCard acc = (CreditCard) card;
-            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-                log.error("Withdraw attempt with invalid amount: {}", amount);
-                throw new InvalidOperationException("Amount must be greater than zero");
-            }
-            checkCardBlock(acc);
-
-            BigDecimal balance = card.getBalance();
-            if (amount.compareTo(balance) > 0) {
-                log.error("Insufficient funds: card {}, balance {}, withdrawal attempt {}", card.getCardNumber(), balance, amount);
-                throw new InvalidOperationException("Exceeds available credit");
-            }
-            BigDecimal creditLimit = acc.getCreditLimit();
-            balance = balance.subtract(amount);
-
-            BigDecimal totalDebt = acc.getDebt();
-            BigDecimal availableOwnFunds = creditLimit.subtract(totalDebt);
-            if (balance.compareTo(availableOwnFunds) < 0) {
-                BigDecimal newDebt = availableOwnFunds.subtract(balance);
-                totalDebt = totalDebt.add(newDebt);
-            }
-
-            acc.setBalance(balance);
-            acc.setDebt(totalDebt);
-            acc.updateTotalDebt();
+    protected boolean withdrawAtomically(CardSummary card, BigDecimal amount, LocalDate today) {
+        Optional<BigDecimal> balance = balanceWriter.withdrawIfActive(card.getId(), amount, today);
+        if (balance.isEmpty()) {
+            return false;
+        }
+        card.setBalance(balance.get());
+        creditCardRepository.applyWithdrawToDebt(card.getId(), balance.get());
+        return true;
+    }
 
-            return acc;
-        } catch (Exception e) {
-            log.error("Error withdrawing from credit card {}: {}", card.getCardNumber(), e.getMessage(), e);
-            throw e;
+    @Override
+    protected void validateAmount(BigDecimal amount, String message) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            log.error("Operation attempt with invalid amount: {}", amount);
+            throw new InvalidOperationException("Amount must be greater than zero");
         }
     }
 
+    @Override
+    protected String insufficientFundsMessage() {
+        return "Exceeds available credit";
+    }
+
     // Удаление кредитного счета по номеру (только для администратора)
     @PreAuthorize("hasRole('ADMIN')")
     public void deleteByCardNumber(String cardNumber) {
@@ -233,6 +206,7 @@ public class CreditCardService extends AbstractCardService {
                 throw new InvalidOperationException("Cannot delete credit card with outstanding debt");
             }
             cardRepository.deleteByCardNumber(cardNumber);
+            cardSecurity.cardRemoved(acc.getId());
             log.info("Credit card {} successfully deleted", cardNumber);
         } catch (Exception e) {
             log.error("Error deleting credit card {}: {}", cardNumber, e.getMessage(), e);
@@ -251,12 +225,17 @@ public class CreditCardService extends AbstractCardService {
                 throw new InvalidOperationException("New limit must be greater than current limit");
             }
 
+            // Баланс и лимит меняются UPDATE'ами, а не сохранением загруженной сущности: её balance мог устареть.
+            // Первый UPDATE по cards блокирует строку карты в том же порядке, что и денежные операции
             BigDecimal delta = newLimit.subtract(acc.getCreditLimit());
-            acc.setCreditLimit(newLimit);
-            acc.setBalance(acc.getBalance().add(delta));
-            acc.updateTotalDebt();
+            creditCardRepository.addToBalance(id, delta);
+            if (creditCardRepository.changeCreditLimit(id, acc.getCreditLimit(), newLimit) == 0) {
+                log.error("Credit limit of card {} was changed concurrently", id);
+                throw new InvalidOperationException("Credit limit was changed concurrently, retry the operation");
+            }
+            ledgerService.recordCreditLine(id, delta);
 
-            return acc;
+            return (CreditCard) getCardById(id);
         } catch (Exception e) {
             log.error("Error increasing limit {}: {}", id, e.getMessage(), e);
             throw e;
@@ -5,6 +5,7 @@ import com.example.bank.mapper.DebitCardMapper;
 import com.example.bank.model.card.debitCard.DebitCard;
 import com.example.bank.model.card.debitCard.DebitCardResponse;
 import com.example.bank.model.user.User;
+import com.example.bank.repository.CardBalanceWriter;
 import com.example.bank.repository.CardRepository;
 import com.example.bank.repository.UserRepository;
 import com.example.bank.security.CardSecurity;
@@ -22,8 +23,10 @@ public class DebitCardService extends AbstractCardService {
 
     public DebitCardService(CardRepository cardRepository,
                                UserRepository userRepository,
-                               CardSecurity cardSecurity) {
-        super(cardRepository, userRepository, cardSecurity);
+                               CardSecurity cardSecurity,
+                               CardBalanceWriter balanceWriter,
+                               CardNumberAllocator cardNumberAllocator) {
+        super(cardRepository, userRepository, cardSecurity, balanceWriter, cardNumberAllocator);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -42,6 +45,7 @@ public class DebitCardService extends AbstractCardService {
             card.setExpiryDate(LocalDate.now().plusYears(5));
 
             DebitCard saved = cardRepository.save(card);
+            cardSecurity.cardSaved(saved);
 
             if (user.getMainCard() == null) {
                 user.setMainCard(saved);
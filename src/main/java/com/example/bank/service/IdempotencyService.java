@@ -0,0 +1,191 @@
+package com.example.bank.service;
+
+import com.example.bank.cache.ExpiringLruCache;
+import com.example.bank.exception.IdempotencyConflictException;
+import com.example.bank.exception.IdempotencyKeyReuseException;
+import com.example.bank.exception.InvalidOperationException;
+import com.example.bank.model.card.CardDto;
+import com.example.bank.model.idempotency.IdempotencyRecord;
+import com.example.bank.repository.IdempotencyRecordRepository;
+import com.example.bank.security.BankPrincipal;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// Дедупликация денежных операций по заголовку Idempotency-Key.
+// Повтор с тем же ключом возвращает сохранённый ответ, не вызывая TransactionService.
+// Сначала проверяется локальный LRU-кэш (O(1)), и только при промахе — таблица idempotency_keys,
+// общая для всех экземпляров приложения.
+// Незавершённый захват живёт lease-seconds: если узел упал посреди операции, ключ освобождается быстро,
+// а не через сутки. Тот же ключ с другим телом запроса отклоняется с 422, а не отдаёт чужой ответ.
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate requiresNew;
+    private final ExpiringLruCache<String, StoredResponse> localCache;
+    private final Duration ttl;
+    private final Duration lease;
+
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${bank.idempotency.local-max-entries:10000}") int localMaxEntries,
+                              @Value("${bank.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                              @Value("${bank.idempotency.lease-seconds:30}") long leaseSeconds) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        // Захват и фиксация ключа коммитятся сразу, независимо от транзакции самой операции
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.localCache = new ExpiringLruCache<>(localMaxEntries, ttl.toMillis());
+    }
+
+    // Выполняет операцию один раз для пары (пользователь, операция, ключ).
+    // Без ключа операция выполняется как обычно
+    public CardDto execute(String operation, String idempotencyKey, Object request, Supplier<CardDto> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            log.error("Idempotency-Key is too long: {} chars", idempotencyKey.length());
+            throw new InvalidOperationException("Idempotency-Key must not exceed " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String scopeKey = currentUserScope() + ":" + operation + ":" + idempotencyKey;
+        String requestHash = hash(request);
+
+        StoredResponse cached = localCache.get(scopeKey);
+        if (cached != null) {
+            checkSameRequest(idempotencyKey, cached.requestHash(), requestHash);
+            log.info("Idempotent replay of {} from local cache", operation);
+            return readResponse(cached.response());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Optional<IdempotencyRecord> stored = repository.findById(scopeKey)
+                .filter(record -> record.getExpiresAt().isAfter(now));
+        if (stored.isPresent()) {
+            checkSameRequest(idempotencyKey, stored.get().getRequestHash(), requestHash);
+            String response = stored.get().getResponse();
+            if (response == null) {
+                log.warn("Idempotency-Key {} for {} is still in progress", idempotencyKey, operation);
+                throw new IdempotencyConflictException(idempotencyKey);
+            }
+            log.info("Idempotent replay of {} from database", operation);
+            localCache.put(scopeKey, new StoredResponse(stored.get().getRequestHash(), response));
+            return readResponse(response);
+        }
+
+        // Захват с короткой арендой: просроченная аренда (узел упал) удаляется и ключ захватывается заново
+        Integer claimed = requiresNew.execute(status -> {
+            repository.deleteExpired(scopeKey, now);
+            return repository.claim(scopeKey, requestHash, now, now.plus(lease));
+        });
+        if (claimed == null || claimed == 0) {
+            log.warn("Idempotency-Key {} for {} was claimed by a concurrent request", idempotencyKey, operation);
+            throw new IdempotencyConflictException(idempotencyKey);
+        }
+
+        CardDto result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            // Неуспешная операция не запоминается: клиент может повторить её с тем же ключом
+            requiresNew.executeWithoutResult(status -> repository.deleteById(scopeKey));
+            throw e;
+        }
+
+        String response = writeResponse(result);
+        // Операция уже проведена, поэтому сбой записи ответа не превращается в ошибку для клиента:
+        // ответ остаётся в локальном кэше, а в БД ключ освободится по окончании аренды
+        localCache.put(scopeKey, new StoredResponse(requestHash, response));
+        try {
+            requiresNew.executeWithoutResult(status ->
+                    repository.complete(scopeKey, response, LocalDateTime.now().plus(ttl)));
+        } catch (RuntimeException e) {
+            log.error("Failed to store idempotent response of {} for key {}: {}", operation, idempotencyKey, e.getMessage(), e);
+        }
+        return result;
+    }
+
+    // Удаление просроченных ключей из БД
+    @Scheduled(fixedDelayString = "${bank.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        try {
+            Integer removed = requiresNew.execute(status -> repository.deleteAllExpired(LocalDateTime.now()));
+            if (removed != null && removed > 0) {
+                log.info("Purged {} expired idempotency keys", removed);
+            }
+        } catch (Exception e) {
+            log.error("Error purging idempotency keys: {}", e.getMessage(), e);
+        }
+    }
+
+    // Ключи принадлежат пользователю по id: имя можно сменить, а после удаления пользователя занять заново,
+    // и тогда чужой повтор получил бы сохранённый ответ прежнего владельца
+    private String currentUserScope() {
+        BankPrincipal principal = BankPrincipal.current();
+        return principal == null ? "anonymous" : String.valueOf(principal.getUserId());
+    }
+
+    private void checkSameRequest(String idempotencyKey, String storedHash, String requestHash) {
+        // Записи без отпечатка (созданные до его появления) считаются совпадающими
+        if (storedHash != null && !Objects.equals(storedHash, requestHash)) {
+            log.warn("Idempotency-Key {} reused with a different request body", idempotencyKey);
+            throw new IdempotencyKeyReuseException(idempotencyKey);
+        }
+    }
+
+    // SHA-256 от JSON запроса: сравниваются разобранные поля, а не пробелы и порядок ключей в исходном теле
+    private String hash(Object request) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to fingerprint idempotent request", e);
+        }
+    }
+
+    private String writeResponse(CardDto dto) {
+        try {
+            return objectMapper.writeValueAsString(dto);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize idempotent response", e);
+        }
+    }
+
+    private CardDto readResponse(String json) {
+        try {
+            return objectMapper.readValue(json, CardDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to deserialize idempotent response", e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, String response) {
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.bank.service;
+
+import com.example.bank.model.interest.InterestAccrualCheckpoint;
+import com.example.bank.model.interest.InterestAccrualChunkResult;
+import com.example.bank.model.interest.InterestAccrualReport;
+import com.example.bank.repository.CreditCardRepository;
+import com.example.bank.repository.InterestAccrualCheckpointRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+// Ежемесячное начисление процентов по кредитным картам.
+// Карты делятся на диапазоны id, каждый диапазон — один UPDATE в своей транзакции на пуле потоков.
+// Завершённые диапазоны отмечаются в interest_accrual_checkpoints, поэтому после падения
+// повторный запуск за тот же месяц продолжает с необработанных диапазонов
+@Service
+public class InterestAccrualService {
+
+    private static final Logger log = LoggerFactory.getLogger(InterestAccrualService.class);
+
+    private final CreditCardRepository creditCardRepository;
+    private final InterestAccrualCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService accrualExecutor;
+
+    @Value("${bank.interest.accrual.chunk-size:1000}")
+    private int chunkSize;
+
+    public InterestAccrualService(CreditCardRepository creditCardRepository,
+                                  InterestAccrualCheckpointRepository checkpointRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${bank.interest.accrual.threads:4}") int threads) {
+        this.creditCardRepository = creditCardRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.accrualExecutor = Executors.newFixedThreadPool(Math.max(1, threads));
+    }
+
+    @Scheduled(cron = "${bank.interest.accrual.cron:0 0 0 1 * ?}")
+    public void scheduledAccrual() {
+        try {
+            accrue(currentPeriod());
+        } catch (Exception e) {
+            log.error("Monthly interest accrual failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Ручной запуск начисления за текущий месяц
+    @PreAuthorize("hasRole('ADMIN')")
+    public InterestAccrualReport accrueNow() {
+        return accrue(currentPeriod());
+    }
+
+    InterestAccrualReport accrue(LocalDate period) {
+        long started = System.nanoTime();
+        log.info("Monthly interest accrual started for period {}", period);
+
+        Long minId = creditCardRepository.findMinId();
+        Long maxId = creditCardRepository.findMaxId();
+        if (minId == null || maxId == null) {
+            log.info("No credit cards to accrue interest for");
+            return new InterestAccrualReport(period, 0, 0, 0, 0, 0, 0, List.of());
+        }
+
+        Set<Long> completed = checkpointRepository.findByPeriod(period).stream()
+                .map(InterestAccrualCheckpoint::getFromId)
+                .collect(Collectors.toSet());
+
+        int total = 0;
+        int skipped = 0;
+        List<CompletableFuture<InterestAccrualChunkResult>> chunks = new ArrayList<>();
+        for (long fromId = minId; fromId <= maxId; fromId += chunkSize) {
+            total++;
+            if (completed.contains(fromId)) {
+                skipped++;
+                continue;
+            }
+            long from = fromId;
+            long to = fromId + chunkSize;
+            chunks.add(CompletableFuture.supplyAsync(() -> accrueChunk(period, from, to), accrualExecutor));
+        }
+
+        long cardsUpdated = 0;
+        int failed = 0;
+        List<InterestAccrualChunkResult> results = new ArrayList<>();
+        for (CompletableFuture<InterestAccrualChunkResult> chunk : chunks) {
+            InterestAccrualChunkResult result = chunk.join();
+            results.add(result);
+            if (result.getError() != null) {
+                failed++;
+            } else {
+                cardsUpdated += result.getCardsUpdated();
+            }
+        }
+
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        double cardsPerSecond = elapsedMs == 0 ? cardsUpdated : cardsUpdated * 1000.0 / elapsedMs;
+        if (failed == 0) {
+            log.info("Monthly interest accrual finished for {}: {} cards in {} chunks ({} skipped), {} ms, {} cards/sec",
+                    period, cardsUpdated, total, skipped, elapsedMs, String.format("%.1f", cardsPerSecond));
+        } else {
+            log.error("Monthly interest accrual for {} left {} of {} chunks unfinished; rerun to resume",
+                    period, failed, total);
+        }
+        return new InterestAccrualReport(period, total, skipped, failed, cardsUpdated, elapsedMs, cardsPerSecond, results);
+    }
+
+    // Один диапазон: UPDATE и отметка о завершении коммитятся вместе
+    private InterestAccrualChunkResult accrueChunk(LocalDate period, long fromId, long toId) {
+        long started = System.nanoTime();
+        try {
+            Integer updated = transactionTemplate.execute(status -> {
+                int count = creditCardRepository.accrueInterestInRange(fromId, toId, period);
+                long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+                checkpointRepository.save(new InterestAccrualCheckpoint(period, fromId, toId, count, elapsedMs));
+                return count;
+            });
+            long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+            int count = updated == null ? 0 : updated;
+            log.debug("Accrued interest for {} cards in ids [{}, {}) in {} ms", count, fromId, toId, elapsedMs);
+            return new InterestAccrualChunkResult(fromId, toId, count, elapsedMs, null);
+        } catch (Exception e) {
+            long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+            log.error("Error accruing interest for ids [{}, {}): {}", fromId, toId, e.getMessage(), e);
+            return new InterestAccrualChunkResult(fromId, toId, 0, elapsedMs, e.getMessage());
+        }
+    }
+
+    private LocalDate currentPeriod() {
+        return LocalDate.now().withDayOfMonth(1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        accrualExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.bank.service;
+
+import com.example.bank.Enums.LedgerAccount;
+import com.example.bank.model.ledger.BalanceMismatch;
+import com.example.bank.model.ledger.BalanceSnapshot;
+import com.example.bank.model.ledger.CardBalanceResponse;
+import com.example.bank.model.ledger.LedgerEntry;
+import com.example.bank.model.ledger.ReconciliationReport;
+import com.example.bank.repository.BalanceSnapshotRepository;
+import com.example.bank.repository.CardRepository;
+import com.example.bank.repository.LedgerEntryRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Журнал двойной записи по картам.
+// Каждая денежная операция добавляет проводки (сумма по операции = 0) в той же транзакции,
+// что и изменение cards.balance. Баланс карты — кэшированная проекция журнала:
+// последний снимок + проводки после него. Сверка проверяет, что проекция совпадает с cards.balance.
+@Service
+public class LedgerService {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerService.class);
+
+    private final LedgerEntryRepository entryRepository;
+    private final BalanceSnapshotRepository snapshotRepository;
+    private final CardRepository cardRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService reconcileExecutor;
+
+    @Value("${bank.ledger.reconcile.chunk-size:1000}")
+    private int reconcileChunkSize;
+
+    @Value("${bank.ledger.baseline-on-startup:true}")
+    private boolean baselineOnStartup;
+
+    public LedgerService(LedgerEntryRepository entryRepository,
+                         BalanceSnapshotRepository snapshotRepository,
+                         CardRepository cardRepository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${bank.ledger.reconcile.threads:4}") int reconcileThreads) {
+        this.entryRepository = entryRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.cardRepository = cardRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reconcileExecutor = Executors.newFixedThreadPool(Math.max(1, reconcileThreads));
+    }
+
+    // Пополнение: деньги приходят извне. Если часть суммы погасила проценты по кредитной карте,
+    // она отдельной парой проводок уходит с карты на счёт процентных доходов
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeposit(Long transactionId, Long cardId, BigDecimal amount, BigDecimal credited) {
+        List<LedgerEntry> entries = new ArrayList<>();
+        entries.add(new LedgerEntry(transactionId, LedgerAccount.EXTERNAL, null, amount.negate()));
+        entries.add(new LedgerEntry(transactionId, LedgerAccount.CARD, cardId, amount));
+        addInterestLegs(entries, transactionId, cardId, amount, credited);
+        entryRepository.saveAll(numberCardEntries(entries));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordWithdraw(Long transactionId, Long cardId, BigDecimal amount) {
+        entryRepository.saveAll(numberCardEntries(List.of(
+                new LedgerEntry(transactionId, LedgerAccount.CARD, cardId, amount.negate()),
+                new LedgerEntry(transactionId, LedgerAccount.EXTERNAL, null, amount))));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransfer(Long transactionId, Long fromCardId, Long toCardId, BigDecimal amount, BigDecimal credited) {
+        List<LedgerEntry> entries = new ArrayList<>();
+        entries.add(new LedgerEntry(transactionId, LedgerAccount.CARD, fromCardId, amount.negate()));
+        entries.add(new LedgerEntry(transactionId, LedgerAccount.CARD, toCardId, amount));
+        addInterestLegs(entries, transactionId, toCardId, amount, credited);
+        entryRepository.saveAll(numberCardEntries(entries));
+    }
+
+    // Кредитный лимит новой карты — её первая проводка, номер известен без запроса
+    // (иначе автофлаш перед запросом номера разбивал бы пакетные вставки массового выпуска)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOpeningCreditLine(Long cardId, BigDecimal amount) {
+        LedgerEntry cardEntry = new LedgerEntry(null, LedgerAccount.CARD, cardId, amount);
+        cardEntry.setCardSeq(1L);
+        entryRepository.saveAll(List.of(
+                new LedgerEntry(null, LedgerAccount.CREDIT_LINE, null, amount.negate()),
+                cardEntry));
+    }
+
+    // Увеличение кредитного лимита увеличивает доступный баланс карты.
+    // Вызывается после UPDATE баланса карты в той же транзакции, иначе номер проводки может оспорить параллельная операция
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreditLine(Long cardId, BigDecimal amount) {
+        entryRepository.saveAll(numberCardEntries(List.of(
+                new LedgerEntry(null, LedgerAccount.CREDIT_LINE, null, amount.negate()),
+                new LedgerEntry(null, LedgerAccount.CARD, cardId, amount))));
+    }
+
+    // Баланс карты на момент времени: последний снимок не позже момента + проводки после него
+    @PreAuthorize("hasRole('ADMIN') or @cardSecurity.isOwner(#cardId)")
+    public CardBalanceResponse getBalanceAt(Long cardId, LocalDateTime at) {
+        LocalDateTime moment = at == null ? LocalDateTime.now() : at;
+        log.info("Computing ledger balance of card {} at {}", cardId, moment);
+        try {
+            Optional<BalanceSnapshot> snapshot =
+                    snapshotRepository.findFirstByCardIdAndTakenAtLessThanEqualOrderByIdDesc(cardId, moment);
+            BigDecimal base = snapshot.map(BalanceSnapshot::getBalance).orElse(BigDecimal.ZERO);
+            Long afterCardSeq = snapshot.map(BalanceSnapshot::getLastCardSeq).orElse(0L);
+            BigDecimal tail = entryRepository.sumForCardAfter(cardId, afterCardSeq, moment);
+            return new CardBalanceResponse(cardId, moment, base.add(tail));
+        } catch (Exception e) {
+            log.error("Error computing ledger balance of card {}: {}", cardId, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    // Периодические снимки: одна INSERT ... SELECT по всем картам с новыми проводками
+    @Scheduled(cron = "${bank.ledger.snapshot.cron:0 0 * * * ?}")
+    public void scheduledSnapshots() {
+        try {
+            takeSnapshots();
+        } catch (Exception e) {
+            log.error("Balance snapshot run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public int takeSnapshotsNow() {
+        return takeSnapshots();
+    }
+
+    private int takeSnapshots() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer created = transactionTemplate.execute(status -> snapshotRepository.takeSnapshots(now));
+        int count = created == null ? 0 : created;
+        log.info("Took {} balance snapshots", count);
+        return count;
+    }
+
+    // Карты без проводок и снимков (заведённые до журнала) получают начальный снимок по текущему балансу
+    @EventListener(ApplicationReadyEvent.class)
+    public void baselineCardsWithoutHistory() {
+        if (!baselineOnStartup) {
+            return;
+        }
+        try {
+            Integer created = transactionTemplate.execute(
+                    status -> snapshotRepository.baselineCardsWithoutHistory(LocalDateTime.now()));
+            if (created != null && created > 0) {
+                log.info("Baselined {} cards without ledger history", created);
+            }
+        } catch (Exception e) {
+            log.error("Ledger baseline failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Параллельная сверка cards.balance с журналом: диапазоны id карт проверяются на пуле потоков
+    @PreAuthorize("hasRole('ADMIN')")
+    public ReconciliationReport reconcile() {
+        long started = System.nanoTime();
+        Long maxId = cardRepository.findMaxId();
+        if (maxId == null) {
+            return new ReconciliationReport(0, 0, 0, List.of());
+        }
+
+        List<CompletableFuture<List<Object[]>>> chunks = new ArrayList<>();
+        for (long fromId = 0; fromId <= maxId; fromId += reconcileChunkSize) {
+            long from = fromId;
+            long to = fromId + reconcileChunkSize;
+            chunks.add(CompletableFuture.supplyAsync(
+                    () -> snapshotRepository.findReconciliationRows(from, to), reconcileExecutor));
+        }
+
+        long checked = 0;
+        List<BalanceMismatch> mismatches = new ArrayList<>();
+        for (CompletableFuture<List<Object[]>> chunk : chunks) {
+            for (Object[] row : chunk.join()) {
+                checked++;
+                Long cardId = ((Number) row[0]).longValue();
+                BigDecimal cardBalance = toBigDecimal(row[1]);
+                BigDecimal ledgerBalance = toBigDecimal(row[2]);
+                if (cardBalance.compareTo(ledgerBalance) != 0) {
+                    mismatches.add(new BalanceMismatch(cardId, cardBalance, ledgerBalance));
+                }
+            }
+        }
+
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        if (mismatches.isEmpty()) {
+            log.info("Reconciliation OK: {} cards in {} chunks, {} ms", checked, chunks.size(), elapsedMs);
+        } else {
+            log.error("Reconciliation found {} mismatching cards out of {} ({} ms)", mismatches.size(), checked, elapsedMs);
+        }
+        return new ReconciliationReport(checked, chunks.size(), elapsedMs, mismatches);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconcileExecutor.shutdownNow();
+    }
+
+    // Номера проводок карты продолжают последний закоммиченный номер. Денежные операции и смена лимита пишут журнал
+    // под блокировкой строки карты (UPDATE баланса перед записью журнала), так что номер не оспаривается;
+    // без блокировки второй писатель получит нарушение uk_ledger_entries_card_seq, а не дыру в снимке
+    private List<LedgerEntry> numberCardEntries(List<LedgerEntry> entries) {
+        Map<Long, Long> lastSeq = new HashMap<>();
+        for (LedgerEntry entry : entries) {
+            if (entry.getCardId() == null) {
+                continue;
+            }
+            long seq = lastSeq.computeIfAbsent(entry.getCardId(), this::lastCardSeq) + 1;
+            entry.setCardSeq(seq);
+            lastSeq.put(entry.getCardId(), seq);
+        }
+        return entries;
+    }
+
+    private long lastCardSeq(Long cardId) {
+        Long last = entryRepository.findLastCardSeq(cardId);
+        return last == null ? 0 : last;
+    }
+
+    private void addInterestLegs(List<LedgerEntry> entries, Long transactionId, Long cardId,
+                                 BigDecimal amount, BigDecimal credited) {
+        BigDecimal interestShare = amount.subtract(credited);
+        if (interestShare.signum() > 0) {
+            entries.add(new LedgerEntry(transactionId, LedgerAccount.CARD, cardId, interestShare.negate()));
+            entries.add(new LedgerEntry(transactionId, LedgerAccount.INTEREST_INCOME, null, interestShare));
+        }
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+}
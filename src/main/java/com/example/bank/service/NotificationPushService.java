@@ -0,0 +1,259 @@
+package com.example.bank.service;
+
+import com.example.bank.mapper.NotificationMapper;
+import com.example.bank.model.Notification;
+import com.example.bank.repository.NotificationRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Доставка уведомлений подключённым клиентам через Server-Sent Events вместо опроса /api/notifications/unread.
+// Ожидающее соединение — асинхронный запрос сервлета без потока, реестр хранит только SseEmitter по userId.
+// Отправка идёт на полосах: у каждой один поток и ограниченная очередь, пользователь всегда попадает на одну
+// полосу, поэтому его события приходят по порядку, а медленный клиент не задерживает консьюмер Kafka.
+// id события — userSeq уведомления: номера пользователя идут подряд и становятся видимыми по возрастанию,
+// в отличие от id из pooled-последовательности. При переподключении клиент передаёт Last-Event-ID и получает
+// уведомления с большим номером. Уведомления приходят со всех экземпляров через NotificationBroadcaster;
+// у каждого потока свой курсор — последний отправленный номер: повторы отбрасываются, а пропуск в номерах
+// (рассылка потерялась или обогнала соседнюю) добирается из БД. Доставка at-least-once, клиент отбрасывает
+// повторы по id события
+@Service
+public class NotificationPushService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationPushService.class);
+
+    public static final String EVENT_NAME = "notification";
+
+    private final NotificationRepository notificationRepository;
+    private final UserService userService;
+    private final NotificationRetentionPolicy retentionPolicy;
+
+    private final Map<Long, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    // Последний отправленный в поток userSeq, -1 — поток открыт без Last-Event-ID и ещё ничего не получил.
+    // Меняется только на полосе пользователя
+    private final Map<SseEmitter, AtomicLong> cursors = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ExecutorService[] stripes;
+
+    @Value("${bank.notifications.push.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${bank.notifications.push.max-connections-per-user:5}")
+    private int maxConnectionsPerUser;
+
+    @Value("${bank.notifications.push.catch-up-limit:100}")
+    private int catchUpLimit;
+
+    public NotificationPushService(NotificationRepository notificationRepository,
+                                   UserService userService,
+                                   NotificationRetentionPolicy retentionPolicy,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${bank.notifications.push.delivery-threads:4}") int deliveryThreads,
+                                   @Value("${bank.notifications.push.queue-capacity:10000}") int queueCapacity) {
+        this.notificationRepository = notificationRepository;
+        this.userService = userService;
+        this.retentionPolicy = retentionPolicy;
+        this.stripes = new ExecutorService[Math.max(1, deliveryThreads)];
+        for (int i = 0; i < stripes.length; i++) {
+            String name = "notification-push-" + i;
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        Gauge.builder("bank.notifications.push.connections", connections, AtomicInteger::get)
+                .description("Open notification streams")
+                .register(meterRegistry);
+    }
+
+    // Подписка текущего пользователя; lastEventId — userSeq последнего полученного уведомления (заголовок Last-Event-ID)
+    public SseEmitter subscribe(Long lastEventId) {
+        Long userId = userService.getCurrentUserId();
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        cursors.put(emitter, new AtomicLong(lastEventId == null ? -1 : lastEventId));
+        // compute, а не computeIfAbsent + add: иначе remove() может снять пустой набор между этими вызовами
+        Set<SseEmitter> emitters = subscribers.compute(userId, (id, current) -> {
+            Set<SseEmitter> set = current != null ? current : ConcurrentHashMap.newKeySet();
+            set.add(emitter);
+            return set;
+        });
+        connections.incrementAndGet();
+        emitter.onCompletion(() -> remove(userId, emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> remove(userId, emitter));
+
+        // Лишние соединения пользователя (забытые вкладки, зависшие клиенты) закрываются, новое остаётся
+        if (emitters.size() > maxConnectionsPerUser) {
+            emitters.stream().filter(other -> other != emitter)
+                    .limit(emitters.size() - maxConnectionsPerUser)
+                    .forEach(SseEmitter::complete);
+        }
+
+        // Догонка идёт на полосе пользователя: живые события, пришедшие после регистрации, встанут за ней
+        if (lastEventId != null) {
+            dispatch(userId, () -> catchUp(userId, emitter, lastEventId));
+        }
+        log.debug("User {} subscribed to notifications (last event {}), {} open streams",
+                userId, lastEventId, connections.get());
+        return emitter;
+    }
+
+    // Вызывается NotificationBroadcaster после фиксации вставки: уведомления уже с userSeq
+    public void publish(List<Notification> notifications) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Map<Long, List<Notification>> byUser = notifications.stream()
+                .filter(n -> subscribers.containsKey(n.getUserId()))
+                .collect(Collectors.groupingBy(Notification::getUserId));
+        byUser.forEach((userId, userNotifications) -> {
+            userNotifications.sort(Comparator.comparing(Notification::getUserSeq));
+            dispatch(userId, () -> {
+                Set<SseEmitter> emitters = subscribers.get(userId);
+                if (emitters != null) {
+                    emitters.forEach(emitter -> deliver(userId, emitter, userNotifications));
+                }
+            });
+        });
+    }
+
+    // Комментарий-пинг держит соединение через прокси и выявляет закрытые клиентом соединения.
+    // Одна задача на полосу, которая сама обходит своих подписчиков: задача на каждого пользователя
+    // при 100k соединений переполнила бы очереди и закрыла здоровые потоки
+    @Scheduled(fixedDelayString = "${bank.notifications.push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (int i = 0; i < stripes.length; i++) {
+            int stripe = i;
+            try {
+                stripes[stripe].execute(() -> subscribers.forEach((userId, emitters) -> {
+                    if (stripeOf(userId) == stripe) {
+                        emitters.forEach(emitter -> ping(userId, emitter));
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                // Полоса и так забита событиями: пинг пропускается, соединения не трогаются
+                log.warn("Notification push stripe {} is full, skipping heartbeat", stripe);
+            }
+        }
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdownNow();
+        }
+    }
+
+    // Живые уведомления: уже отправленные отбрасываются, пропуск перед ними сначала добирается из БД
+    private void deliver(Long userId, SseEmitter emitter, List<Notification> notifications) {
+        AtomicLong cursor = cursors.get(emitter);
+        if (cursor == null) {
+            return;
+        }
+        if (cursor.get() >= 0 && notifications.get(0).getUserSeq() > cursor.get() + 1) {
+            catchUp(userId, emitter, cursor.get());
+        }
+        long last = cursor.get();
+        send(userId, emitter, notifications.stream().filter(n -> n.getUserSeq() > last).toList());
+    }
+
+    private void catchUp(Long userId, SseEmitter emitter, Long afterSeq) {
+        try {
+            List<Notification> missed = notificationRepository.findAfter(
+                    userId, afterSeq, retentionPolicy.readHorizon(), PageRequest.of(0, catchUpLimit));
+            if (!missed.isEmpty()) {
+                send(userId, emitter, missed);
+                log.debug("Sent {} missed notifications to user {} after seq {}", missed.size(), userId, afterSeq);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to load missed notifications for user {} after seq {}: {}", userId, afterSeq, e.getMessage());
+            emitter.completeWithError(e);
+            remove(userId, emitter);
+        }
+    }
+
+    private void send(Long userId, SseEmitter emitter, List<Notification> notifications) {
+        try {
+            for (Notification notification : notifications) {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(notification.getUserSeq()))
+                        .name(EVENT_NAME)
+                        .data(NotificationMapper.toResponse(notification)));
+                AtomicLong cursor = cursors.get(emitter);
+                if (cursor != null) {
+                    cursor.set(notification.getUserSeq());
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился: соединение снимается, пропущенное он получит по Last-Event-ID
+            log.debug("Dropping notification stream of user {}: {}", userId, e.getMessage());
+            emitter.completeWithError(e);
+            remove(userId, emitter);
+        }
+    }
+
+    private void ping(Long userId, SseEmitter emitter) {
+        try {
+            emitter.send(SseEmitter.event().comment("ping"));
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            remove(userId, emitter);
+        }
+    }
+
+    private int stripeOf(Long userId) {
+        return Math.floorMod(userId.hashCode(), stripes.length);
+    }
+
+    private void dispatch(Long userId, Runnable task) {
+        try {
+            stripes[stripeOf(userId)].execute(task);
+        } catch (RejectedExecutionException e) {
+            // Очередь полосы переполнена: соединения пользователя закрываются, клиент переподключится с Last-Event-ID
+            log.warn("Notification push queue is full, closing streams of user {}", userId);
+            Set<SseEmitter> emitters = subscribers.get(userId);
+            if (emitters != null) {
+                emitters.forEach(SseEmitter::complete);
+            }
+        }
+    }
+
+    private void remove(Long userId, SseEmitter emitter) {
+        cursors.remove(emitter);
+        subscribers.computeIfPresent(userId, (id, emitters) -> {
+            if (emitters.remove(emitter)) {
+                connections.decrementAndGet();
+            }
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.bank.service;
+
+import com.example.bank.Enums.NotflicationType;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Срок хранения уведомлений по типу: bank.notifications.retention.days.<TYPE>, иначе default-days.
+// Горизонт чтения — самый долгий срок: всё старше него удаляется и не должно попадать в выборки,
+// а на секционированной таблице ограничение по created_at отсекает старые секции
+@Component
+public class NotificationRetentionPolicy {
+
+    private final Map<NotflicationType, Duration> retention = new EnumMap<>(NotflicationType.class);
+    private final Duration longest;
+
+    public NotificationRetentionPolicy(Environment environment) {
+        long defaultDays = environment.getProperty("bank.notifications.retention.default-days", Long.class, 180L);
+        for (NotflicationType type : NotflicationType.values()) {
+            long days = environment.getProperty("bank.notifications.retention.days." + type.name(), Long.class, defaultDays);
+            if (days <= 0) {
+                throw new IllegalArgumentException("Retention of " + type + " notifications must be positive: " + days);
+            }
+            retention.put(type, Duration.ofDays(days));
+        }
+        this.longest = Collections.max(retention.values());
+    }
+
+    public Duration retentionOf(NotflicationType type) {
+        return retention.get(type);
+    }
+
+    public Map<NotflicationType, Duration> getRetention() {
+        return Collections.unmodifiableMap(retention);
+    }
+
+    public Duration getLongest() {
+        return longest;
+    }
+
+    // Нижняя граница created_at для пользовательских запросов
+    public LocalDateTime readHorizon() {
+        return LocalDateTime.now().minus(longest);
+    }
+}
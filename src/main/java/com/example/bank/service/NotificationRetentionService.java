@@ -0,0 +1,186 @@
+package com.example.bank.service;
+
+import com.example.bank.Enums.NotflicationType;
+import com.example.bank.repository.NotificationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Удаление уведомлений старше срока хранения их типа (NotificationRetentionPolicy).
+// Если в PostgreSQL таблица notifications секционирована по месяцам created_at (db/notifications-partitioning.sql),
+// секции целиком старше самого долгого срока удаляются DROP TABLE без построчного DELETE, мёртвых строк и
+// раздувания индексов, а секции на bank.notifications.retention.premake-months вперёд создаются заранее.
+// Остальное (типы с коротким сроком, несекционированная таблица, H2) удаляется пачками по batch-size строк,
+// каждая пачка — отдельная короткая транзакция, между пачками пауза, чтобы autovacuum и реплики успевали
+@Service
+public class NotificationRetentionService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationRetentionService.class);
+
+    static final String TABLE = "notifications";
+    private static final Pattern PARTITION_NAME = Pattern.compile("^" + TABLE + "_p(\\d{6})$");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationRetentionPolicy retentionPolicy;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${bank.notifications.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bank.notifications.retention.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${bank.notifications.retention.max-batches-per-run:1000}")
+    private int maxBatchesPerRun;
+
+    @Value("${bank.notifications.retention.batch-pause-ms:50}")
+    private long batchPauseMs;
+
+    @Value("${bank.notifications.retention.premake-months:3}")
+    private int premakeMonths;
+
+    public NotificationRetentionService(NotificationRepository notificationRepository,
+                                        NotificationRetentionPolicy retentionPolicy,
+                                        JdbcTemplate jdbcTemplate,
+                                        PlatformTransactionManager transactionManager) {
+        this.notificationRepository = notificationRepository;
+        this.retentionPolicy = retentionPolicy;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Итог одного прогона
+    public record PurgeResult(List<String> droppedPartitions, long deletedRows) {
+    }
+
+    @Scheduled(cron = "${bank.notifications.retention.cron:0 30 3 * * ?}")
+    public void scheduledPurge() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            purge(LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("Notification retention run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    public PurgeResult purge(LocalDateTime now) {
+        long started = System.nanoTime();
+        List<String> dropped = isPartitioned() ? maintainPartitions(now) : List.of();
+
+        long deleted = 0;
+        for (Map.Entry<NotflicationType, Duration> entry : retentionPolicy.getRetention().entrySet()) {
+            deleted += deleteExpired(entry.getKey(), now.minus(entry.getValue()));
+        }
+        if (!dropped.isEmpty() || deleted > 0) {
+            log.info("Notification retention dropped partitions {} and deleted {} rows in {} ms",
+                    dropped, deleted, (System.nanoTime() - started) / 1_000_000);
+        }
+        return new PurgeResult(dropped, deleted);
+    }
+
+    // Пачки одного типа до исчерпания или лимита прогона; остаток удалит следующий запуск
+    private long deleteExpired(NotflicationType type, LocalDateTime cutoff) {
+        long deleted = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer removed = transactionTemplate.execute(status ->
+                    notificationRepository.deleteExpiredBatch(type.name(), cutoff, batchSize));
+            int count = removed == null ? 0 : removed;
+            deleted += count;
+            if (count < batchSize) {
+                return deleted;
+            }
+            pause();
+        }
+        log.warn("Notification retention hit max-batches-per-run for {}: {} rows deleted, the rest is left for the next run",
+                type, deleted);
+        return deleted;
+    }
+
+    private List<String> maintainPartitions(LocalDateTime now) {
+        for (YearMonth month : partitionsToCreate(YearMonth.from(now), premakeMonths)) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF " + TABLE +
+                    " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+        }
+        List<String> existing = jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = '" + TABLE + "'::regclass", String.class);
+        List<String> expired = partitionsToDrop(existing, now.minus(retentionPolicy.getLongest()));
+        for (String partition : expired) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+            log.info("Dropped expired notification partition {}", partition);
+        }
+        return expired;
+    }
+
+    private boolean isPartitioned() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(product)) {
+            return false;
+        }
+        Integer partitioned = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_partitioned_table " +
+                "WHERE partrelid = to_regclass('" + TABLE + "')", Integer.class);
+        return partitioned != null && partitioned > 0;
+    }
+
+    private void pause() {
+        if (batchPauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(batchPauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return TABLE + "_p" + month.format(PARTITION_SUFFIX);
+    }
+
+    // Текущий месяц и premakeMonths следующих
+    static List<YearMonth> partitionsToCreate(YearMonth current, int premakeMonths) {
+        List<YearMonth> months = new ArrayList<>();
+        for (int i = 0; i <= premakeMonths; i++) {
+            months.add(current.plusMonths(i));
+        }
+        return months;
+    }
+
+    // Секции, верхняя граница которых не позже cutoff; секция по умолчанию и чужие таблицы не трогаются
+    static List<String> partitionsToDrop(Collection<String> partitions, LocalDateTime cutoff) {
+        List<String> expired = new ArrayList<>();
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.parse(matcher.group(1), PARTITION_SUFFIX);
+            if (!month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                expired.add(partition);
+            }
+        }
+        expired.sort(null);
+        return expired;
+    }
+}
@@ -1,55 +1,136 @@
 package com.example.bank.service;
 
+import com.example.bank.exception.InvalidOperationException;
 import com.example.bank.mapper.NotificationMapper;
-import com.example.bank.model.Notification;
+import com.example.bank.model.NotificationPage;
 import com.example.bank.model.NotificationResponse;
-import com.example.bank.model.user.User;
 import com.example.bank.repository.NotificationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
+// Чтение уведомлений keyset-страницами по id (от новых к старым): стоимость страницы не зависит от размера истории.
+// Выданная страница отмечается прочитанной одним UPDATE по id её непрочитанных уведомлений
 @Service
 public class NotificationService {
+
+    private static final Comparator<NotificationResponse> NEWEST_FIRST =
+            Comparator.comparing(NotificationResponse::getId).reversed();
+
     private final NotificationRepository notificationRepository;
     private final UserService userService;
+    private final NotificationRetentionPolicy retentionPolicy;
+
+    @Value("${bank.notifications.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${bank.notifications.page.max-size:200}")
+    private int maxPageSize;
 
-    public NotificationService(NotificationRepository notificationRepository, UserService userService) {
+    public NotificationService(NotificationRepository notificationRepository, UserService userService,
+                               NotificationRetentionPolicy retentionPolicy) {
         this.notificationRepository = notificationRepository;
         this.userService = userService;
+        this.retentionPolicy = retentionPolicy;
     }
 
     //Получение непрочитанных уведомок
     @Transactional
-    public List<NotificationResponse> getUnreadNotification() {
-        User user = userService.getCurrentUser();
-        List<Notification> notifications = notificationRepository.findByUserIdAndReadFalse(user.getUserId());
-        readNotification(notifications);
-        return notifications.stream()
+    public NotificationPage getUnreadNotification(String cursor, Integer size) {
+        Long userId = userService.getCurrentUserId();
+        int pageSize = resolvePageSize(size);
+        LocalDateTime since = retentionPolicy.readHorizon();
+        NotificationPage page = toPage(notificationRepository.findPage(
+                userId, false, decodeCursor(cursor), since, PageRequest.of(0, pageSize + 1)).stream()
                 .map(NotificationMapper::toResponse)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()), pageSize);
+        readNotification(userId, page.getItems(), since);
+        return page;
     }
-    //Получение прочитанных уведомок
-    @Transactional
-    public List<NotificationResponse> getAlldNotification() {
-        User user = userService.getCurrentUser();
-        List<Notification> notifications = notificationRepository.findByUserId(user.getUserId());
-        readNotification(notifications);
-        return notifications.stream()
-                .map(NotificationMapper::toResponse)
-                .collect(Collectors.toList());
 
+    //Получение всех уведомок: две выборки по одному индексу (непрочитанные и прочитанные), слитые по id
+    @Transactional
+    public NotificationPage getAlldNotification(String cursor, Integer size) {
+        Long userId = userService.getCurrentUserId();
+        Long before = decodeCursor(cursor);
+        LocalDateTime since = retentionPolicy.readHorizon();
+        int pageSize = resolvePageSize(size);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<NotificationResponse> merged = new ArrayList<>();
+        notificationRepository.findPage(userId, false, before, since, limit)
+                .forEach(n -> merged.add(NotificationMapper.toResponse(n)));
+        notificationRepository.findPage(userId, true, before, since, limit)
+                .forEach(n -> merged.add(NotificationMapper.toResponse(n)));
+        merged.sort(NEWEST_FIRST);
+        NotificationPage page = toPage(merged, pageSize);
+        readNotification(userId, page.getItems(), since);
+        return page;
     }
 
+    // Количество непрочитанных для бейджа: index-only подсчёт без загрузки уведомлений
+    @Transactional(readOnly = true)
+    public long countUnread() {
+        return notificationRepository.countByUserIdAndReadFalseAndCreatedAtGreaterThanEqual(
+                userService.getCurrentUserId(), retentionPolicy.readHorizon());
+    }
 
+    // Отметить прочитанными все уведомления пользователя с id не больше upToId
+    @Transactional
+    public long markReadUpTo(Long upToId) {
+        if (upToId == null || upToId <= 0) {
+            throw new InvalidOperationException("upToId must be greater than zero");
+        }
+        return notificationRepository.markReadUpTo(userService.getCurrentUserId(), upToId,
+                retentionPolicy.readHorizon());
+    }
 
-    private void readNotification(List<Notification> notifications) {
-        notifications.forEach(notif -> notif.setRead(true));
+    private NotificationPage toPage(List<NotificationResponse> sorted, int pageSize) {
+        if (sorted.size() <= pageSize) {
+            return new NotificationPage(sorted, null);
+        }
+        List<NotificationResponse> items = new ArrayList<>(sorted.subList(0, pageSize));
+        return new NotificationPage(items, String.valueOf(items.get(pageSize - 1).getId()));
     }
 
+    // Закрываются ровно выданные непрочитанные; страница без них обходится без UPDATE
+    private void readNotification(Long userId, List<NotificationResponse> items, LocalDateTime since) {
+        List<Long> unreadIds = items.stream()
+                .filter(notif -> !Boolean.TRUE.equals(notif.getRead()))
+                .map(NotificationResponse::getId)
+                .toList();
+        if (unreadIds.isEmpty()) {
+            return;
+        }
+        notificationRepository.markRead(userId, unreadIds, since);
+        items.forEach(notif -> notif.setRead(true));
+    }
 
+    private Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new InvalidOperationException("Invalid cursor");
+        }
+    }
 
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size <= 0) {
+            throw new InvalidOperationException("Page size must be greater than zero");
+        }
+        return Math.min(size, maxPageSize);
+    }
 }
-
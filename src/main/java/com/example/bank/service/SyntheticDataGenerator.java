@@ -0,0 +1,567 @@
+package com.example.bank.service;
+
+import com.example.bank.Enums.CardStatus;
+import com.example.bank.Enums.CardType;
+import com.example.bank.Enums.NotflicationType;
+import com.example.bank.Enums.OperationType;
+import com.example.bank.Enums.Role;
+import com.example.bank.kafka.EventDTO;
+import com.example.bank.mapper.NotificationMapper;
+import com.example.bank.model.Notification;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SplittableRandom;
+
+// Генератор синтетических данных для нагрузочных прогонов: пользователи, карты, транзакции и уведомления.
+// Включается профилем datagen (application-datagen.properties) при остановленных экземплярах приложения,
+// после загрузки приложение завершается:
+//   java -jar Bank-0.0.1-SNAPSHOT.jar --spring.profiles.active=datagen --bank.datagen.users=1000000 --bank.datagen.transactions=10000000
+// Строки пишутся напрямую в таблицы пачками по bank.datagen.chunk-size: в PostgreSQL через COPY, в остальных БД
+// JDBC batch. id идут подряд выше текущих значений последовательностей, после загрузки последовательности
+// переводятся за последний id. Проводки ledger не пишутся — базовые проводки для новых карт создаёт
+// LedgerService.baselineCardsWithoutHistory при следующем обычном запуске.
+// Распределения детерминированы seed и датой запуска: число карт у пользователя — Zipf, число транзакций
+// на карту — Парето (тяжёлый хвост), суммы и балансы — логнормальные
+@Component
+@Profile("datagen")
+public class SyntheticDataGenerator implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final int CARD_NUMBER_LENGTH = 16;
+    private static final int ID_ALLOCATION_SIZE = 50;
+    private static final int UNREAD_AFTER_DAYS = 7;
+
+    private static final String[] USER_COLUMNS = {"user_id", "username", "password", "email", "first_name",
+            "last_name", "phone_number", "role", "created_at", "blocked", "token_version"};
+    private static final String[] CARD_COLUMNS = {"id", "card_number", "user_id", "expiry_date", "balance", "status",
+            "card_type", "credit_limit", "interest_rate", "minimum_payment_rate", "grace_period", "total_debt",
+            "accrued_interest", "debt", "payment_due_date", "last_interest_accrual"};
+    private static final String[] TRANSACTION_COLUMNS = {"id", "from_card", "to_card", "amount", "timestamp", "type",
+            "comment", "user_id"};
+    private static final String[] NOTIFICATION_COLUMNS = {"id", "user_id", "type", "title", "card_transfer_to",
+            "card_number", "comment", "message", "read", "created_at", "amount", "reference_id"};
+
+    // Пользователь получает main_card_id своей первой дебетовой карты; MERGE поддерживают PostgreSQL 15+ и H2
+    private static final String MAIN_CARD_SQL = "MERGE INTO users u " +
+            "USING (SELECT user_id, MIN(id) AS card_id FROM cards " +
+            "WHERE id BETWEEN ? AND ? AND card_type = 'DEBIT' GROUP BY user_id) m " +
+            "ON u.user_id = m.user_id " +
+            "WHEN MATCHED THEN UPDATE SET main_card_id = m.card_id";
+
+    private static final String[] FIRST_NAMES = {"Александр", "Мария", "Дмитрий", "Анна", "Сергей", "Елена",
+            "Иван", "Ольга", "Михаил", "Наталья", "Андрей", "Татьяна"};
+    private static final String[] LAST_NAMES = {"Иванов", "Смирнов", "Кузнецов", "Попов", "Васильев", "Петров",
+            "Соколов", "Михайлов", "Новиков", "Фёдоров", "Морозов", "Волков"};
+    private static final String[] COMMENTS = {"Перевод другу", "Оплата аренды", "Возврат долга", "Подарок",
+            "За обед", "Коммунальные платежи"};
+    private static final BigDecimal[] CREDIT_LIMITS = {new BigDecimal("10000"), new BigDecimal("30000"),
+            new BigDecimal("50000"), new BigDecimal("100000"), new BigDecimal("300000")};
+
+    private final DataSource dataSource;
+    private final PasswordEncoder passwordEncoder;
+    private final ApplicationContext applicationContext;
+
+    @Value("${bank.datagen.seed:42}")
+    private long seed;
+
+    @Value("${bank.datagen.users:10000}")
+    private int users;
+
+    @Value("${bank.datagen.transactions:100000}")
+    private long transactions;
+
+    @Value("${bank.datagen.max-cards-per-user:10}")
+    private int maxCardsPerUser;
+
+    @Value("${bank.datagen.cards-zipf-exponent:1.5}")
+    private double cardsZipfExponent;
+
+    @Value("${bank.datagen.transactions-pareto-alpha:1.2}")
+    private double transactionsParetoAlpha;
+
+    @Value("${bank.datagen.credit-card-share:0.3}")
+    private double creditCardShare;
+
+    @Value("${bank.datagen.credit-debt-share:0.6}")
+    private double creditDebtShare;
+
+    @Value("${bank.datagen.history-days:365}")
+    private int historyDays;
+
+    @Value("${bank.datagen.notifications:true}")
+    private boolean notifications;
+
+    @Value("${bank.datagen.chunk-size:50000}")
+    private int chunkSize;
+
+    @Value("${bank.datagen.bin:499999}")
+    private String bin;
+
+    @Value("${bank.datagen.password:password}")
+    private String password;
+
+    @Value("${bank.datagen.exit-on-finish:true}")
+    private boolean exitOnFinish;
+
+    public SyntheticDataGenerator(DataSource dataSource, PasswordEncoder passwordEncoder,
+                                  ApplicationContext applicationContext) {
+        this.dataSource = dataSource;
+        this.passwordEncoder = passwordEncoder;
+        this.applicationContext = applicationContext;
+    }
+
+    // Диапазоны id, занятые одним запуском генератора
+    public record Summary(long firstUserId, int users, long firstCardId, int cards,
+                          long firstTransactionId, long transactions, long firstNotificationId, long notifications) {
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        generate();
+        if (exitOnFinish) {
+            System.exit(SpringApplication.exit(applicationContext));
+        }
+    }
+
+    public Summary generate() throws SQLException, IOException {
+        if (users <= 0 || transactions < 0 || maxCardsPerUser <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("bank.datagen.users, max-cards-per-user and chunk-size must be positive");
+        }
+        long started = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        LocalDateTime historyEnd = LocalDate.now().atStartOfDay();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            boolean postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+            log.info("Generating {} users and {} transactions with seed {} via {}",
+                    users, transactions, seed, postgres ? "COPY" : "JDBC batch");
+
+            // Раскладка карт по пользователям считается заранее: владельцы нужны при генерации транзакций
+            double[] cardsCdf = zipfCdf(maxCardsPerUser, cardsZipfExponent);
+            int[] cardsPerUser = new int[users];
+            int cardCount = 0;
+            for (int u = 0; u < users; u++) {
+                cardsPerUser[u] = sampleCdf(cardsCdf, random.nextDouble());
+                cardCount += cardsPerUser[u];
+            }
+            int[] cardOwner = new int[cardCount];
+            for (int u = 0, c = 0; u < users; u++) {
+                for (int k = 0; k < cardsPerUser[u]; k++) {
+                    cardOwner[c++] = u;
+                }
+            }
+
+            long firstUserId = firstFreeId(connection, "users_seq", "users", "user_id");
+            long firstCardId = firstFreeId(connection, "cards_seq", "cards", "id");
+            long firstTransactionId = firstFreeId(connection, "transactions_seq", "transactions", "id");
+            long firstNotificationId = firstFreeId(connection, Notification.ID_SEQUENCE, "notifications", "id");
+            int accountDigits = CARD_NUMBER_LENGTH - 1 - bin.length();
+            if (firstCardId + cardCount > Math.pow(10, accountDigits)) {
+                throw new IllegalStateException("BIN " + bin + " leaves too few digits for card ids up to "
+                        + (firstCardId + cardCount));
+            }
+
+            long userRows = writeUsers(connection, postgres, random, firstUserId, historyEnd);
+            logProgress("users", userRows, started);
+            long cardRows = writeCards(connection, postgres, random, cardsPerUser, firstUserId, firstCardId, historyEnd);
+            logProgress("cards", cardRows, started);
+
+            try (PreparedStatement statement = connection.prepareStatement(MAIN_CARD_SQL)) {
+                statement.setLong(1, firstCardId);
+                statement.setLong(2, firstCardId + cardCount - 1);
+                statement.executeUpdate();
+            }
+            connection.commit();
+
+            int[] transactionsPerCard = paretoCounts(transactions, cardCount, transactionsParetoAlpha, random);
+            long[] written = writeTransactions(connection, postgres, random, transactionsPerCard, cardOwner,
+                    firstUserId, firstCardId, firstTransactionId, firstNotificationId, historyEnd);
+            logProgress("transactions", written[0], started);
+            logProgress("notifications", written[1], started);
+
+            advanceSequence(connection, postgres, "users_seq", firstUserId + users - 1);
+            advanceSequence(connection, postgres, "cards_seq", firstCardId + cardCount - 1);
+            if (written[0] > 0) {
+                advanceSequence(connection, postgres, "transactions_seq", firstTransactionId + written[0] - 1);
+            }
+            if (written[1] > 0) {
+                advanceSequence(connection, postgres, Notification.ID_SEQUENCE, firstNotificationId + written[1] - 1);
+            }
+            connection.commit();
+
+            log.info("Synthetic data generated in {} s: {} users, {} cards, {} transactions, {} notifications",
+                    (System.nanoTime() - started) / 1_000_000_000, users, cardCount, written[0], written[1]);
+            return new Summary(firstUserId, users, firstCardId, cardCount,
+                    firstTransactionId, written[0], firstNotificationId, written[1]);
+        } catch (SQLException | IOException | RuntimeException e) {
+            log.error("Synthetic data generation failed: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    private long writeUsers(Connection connection, boolean postgres, SplittableRandom random,
+                            long firstUserId, LocalDateTime historyEnd) throws SQLException, IOException {
+        // Один BCrypt-хеш на всех: кодирование пароля на каждого пользователя заняло бы часы
+        String passwordHash = passwordEncoder.encode(password);
+        try (RowSink sink = sink(connection, postgres, "users", USER_COLUMNS)) {
+            for (int u = 0; u < users; u++) {
+                long userId = firstUserId + u;
+                LocalDateTime createdAt = historyEnd.minusDays(historyDays + random.nextInt(historyDays * 2 + 1))
+                        .plusSeconds(random.nextInt(86_400));
+                sink.add(userId, "gen_" + userId, passwordHash, "gen_" + userId + "@example.com",
+                        FIRST_NAMES[random.nextInt(FIRST_NAMES.length)], LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                        String.format("+7%010d", userId), Role.USER, createdAt, random.nextDouble() < 0.005, 0L);
+            }
+            return sink.rows;
+        }
+    }
+
+    private long writeCards(Connection connection, boolean postgres, SplittableRandom random, int[] cardsPerUser,
+                            long firstUserId, long firstCardId, LocalDateTime historyEnd) throws SQLException, IOException {
+        LocalDate today = historyEnd.toLocalDate();
+        LocalDate paymentDueDate = today.plusMonths(1).withDayOfMonth(1);
+        try (RowSink sink = sink(connection, postgres, "cards", CARD_COLUMNS)) {
+            long cardId = firstCardId;
+            for (int u = 0; u < cardsPerUser.length; u++) {
+                for (int k = 0; k < cardsPerUser[u]; k++, cardId++) {
+                    LocalDate expiryDate = today.plusMonths(1 + random.nextInt(60));
+                    double statusRoll = random.nextDouble();
+                    CardStatus status = statusRoll < 0.02 ? CardStatus.BLOCKED
+                            : statusRoll < 0.03 ? CardStatus.CLOSED : CardStatus.ACTIVE;
+                    // Первая карта пользователя всегда дебетовая — она становится основной
+                    if (k == 0 || random.nextDouble() >= creditCardShare) {
+                        BigDecimal balance = money(Math.min(logNormal(random, 20_000, 1.5), 10_000_000));
+                        sink.add(cardId, cardNumber(cardId), firstUserId + u, expiryDate, balance, status,
+                                CardType.DEBIT, null, null, null, null, null, null, null, null, null);
+                        continue;
+                    }
+                    BigDecimal creditLimit = CREDIT_LIMITS[random.nextInt(CREDIT_LIMITS.length)];
+                    BigDecimal interestRate = BigDecimal.valueOf(150 + random.nextInt(41) * 5, 1);
+                    BigDecimal debt = BigDecimal.ZERO.setScale(2);
+                    BigDecimal accruedInterest = BigDecimal.ZERO.setScale(2);
+                    LocalDate lastInterestAccrual = null;
+                    if (random.nextDouble() < creditDebtShare) {
+                        debt = money(creditLimit.doubleValue() * (0.05 + random.nextDouble() * 0.9));
+                        accruedInterest = money(debt.doubleValue() * interestRate.doubleValue() / 1200 * random.nextDouble());
+                        lastInterestAccrual = today.withDayOfMonth(1);
+                    }
+                    sink.add(cardId, cardNumber(cardId), firstUserId + u, expiryDate, creditLimit.subtract(debt), status,
+                            CardType.CREDIT, creditLimit, interestRate, BigDecimal.valueOf(5), random.nextBoolean() ? 30 : 55,
+                            debt.add(accruedInterest), accruedInterest, debt, paymentDueDate, lastInterestAccrual);
+                }
+            }
+            return sink.rows;
+        }
+    }
+
+    private long[] writeTransactions(Connection connection, boolean postgres, SplittableRandom random,
+                                     int[] transactionsPerCard, int[] cardOwner, long firstUserId, long firstCardId,
+                                     long firstTransactionId, long firstNotificationId, LocalDateTime historyEnd)
+            throws SQLException, IOException {
+        int cardCount = cardOwner.length;
+        long historySeconds = historyDays * 86_400L;
+        LocalDateTime unreadSince = historyEnd.minusDays(UNREAD_AFTER_DAYS);
+        EventDTO event = new EventDTO();
+        long transactionId = firstTransactionId;
+        long notificationId = firstNotificationId;
+        try (RowSink transactionSink = sink(connection, postgres, "transactions", TRANSACTION_COLUMNS);
+             RowSink notificationSink = sink(connection, postgres, "notifications", NOTIFICATION_COLUMNS)) {
+            for (int c = 0; c < cardCount; c++) {
+                String cardNumber = cardNumber(firstCardId + c);
+                long userId = firstUserId + cardOwner[c];
+                for (int i = 0; i < transactionsPerCard[c]; i++, transactionId++) {
+                    double typeRoll = random.nextDouble();
+                    OperationType type = typeRoll < 0.4 ? OperationType.deposit
+                            : typeRoll < 0.75 || cardCount == 1 ? OperationType.withdraw : OperationType.transfer;
+                    BigDecimal amount = money(Math.max(1, Math.min(logNormal(random, 1_500, 1.3), 1_000_000)));
+                    LocalDateTime timestamp = historyEnd.minusSeconds(1 + random.nextLong(historySeconds));
+                    String comment = random.nextDouble() < 0.1 ? COMMENTS[random.nextInt(COMMENTS.length)] : null;
+                    int receiver = -1;
+                    String fromCard = type == OperationType.deposit ? null : cardNumber;
+                    String toCard = type == OperationType.deposit ? cardNumber : null;
+                    if (type == OperationType.transfer) {
+                        receiver = random.nextInt(cardCount - 1);
+                        if (receiver >= c) {
+                            receiver++;
+                        }
+                        toCard = cardNumber(firstCardId + receiver);
+                    }
+                    transactionSink.add(transactionId, fromCard, toCard, amount, timestamp, type, comment, userId);
+
+                    if (!notifications) {
+                        continue;
+                    }
+                    // Текст уведомления тот же, что собирает консьюмер из события
+                    NotflicationType notificationType = NotificationMapper.toNotificationType(type);
+                    String cardTransferTo = receiver < 0 ? null : CardServiceImpl.maskCardNumber(toCard);
+                    event.setType(type);
+                    event.setCardNumber(cardNumber);
+                    event.setCardTransferTo(cardTransferTo);
+                    event.setAmount(amount);
+                    event.setComment(comment);
+                    String title = NotificationMapper.toTitle(notificationType);
+                    String message = NotificationMapper.toMessage(event, notificationType);
+                    notificationSink.add(notificationId++, userId, notificationType, title, cardTransferTo, cardNumber,
+                            comment, message, timestamp.isBefore(unreadSince) || random.nextBoolean(), timestamp,
+                            amount, transactionId);
+                    if (receiver >= 0) {
+                        notificationSink.add(notificationId++, firstUserId + cardOwner[receiver], notificationType,
+                                title, cardTransferTo, cardNumber, comment, message,
+                                timestamp.isBefore(unreadSince) || random.nextBoolean(), timestamp, amount, transactionId);
+                    }
+                }
+                if ((c + 1) % 100_000 == 0) {
+                    log.info("Generated transactions for {} of {} cards", c + 1, cardCount);
+                }
+            }
+            return new long[]{transactionSink.rows, notificationSink.rows};
+        }
+    }
+
+    // Номер карты из id: BIN, id с ведущими нулями и контрольная цифра Луна — уникален, пока уникален id
+    String cardNumber(long cardId) {
+        StringBuilder number = new StringBuilder(CARD_NUMBER_LENGTH).append(bin);
+        String digits = Long.toString(cardId);
+        for (int i = bin.length() + digits.length(); i < CARD_NUMBER_LENGTH - 1; i++) {
+            number.append('0');
+        }
+        number.append(digits);
+        return number.append(CardNumberAllocator.luhnCheckDigit(number)).toString();
+    }
+
+    // Функция распределения Zipf на 1..max: P(k) ~ 1 / k^exponent
+    static double[] zipfCdf(int max, double exponent) {
+        double[] cdf = new double[max];
+        double sum = 0;
+        for (int k = 1; k <= max; k++) {
+            sum += 1 / Math.pow(k, exponent);
+            cdf[k - 1] = sum;
+        }
+        for (int i = 0; i < max; i++) {
+            cdf[i] /= sum;
+        }
+        cdf[max - 1] = 1.0;
+        return cdf;
+    }
+
+    // Значение 1..cdf.length для равномерного u из [0, 1)
+    static int sampleCdf(double[] cdf, double u) {
+        int index = Arrays.binarySearch(cdf, u);
+        int slot = index >= 0 ? index + 1 : -index - 1;
+        return Math.min(slot, cdf.length - 1) + 1;
+    }
+
+    // Раскладывает total по слотам пропорционально весам Парето; сумма результата равна total
+    static int[] paretoCounts(long total, int slots, double alpha, SplittableRandom random) {
+        double[] weights = new double[slots];
+        double sum = 0;
+        for (int i = 0; i < slots; i++) {
+            weights[i] = Math.pow(1 - random.nextDouble(), -1 / alpha);
+            sum += weights[i];
+        }
+        int[] counts = new int[slots];
+        long assigned = 0;
+        for (int i = 0; i < slots; i++) {
+            counts[i] = (int) (total * weights[i] / sum);
+            assigned += counts[i];
+        }
+        for (long i = assigned; i < total; i++) {
+            counts[random.nextInt(slots)]++;
+        }
+        return counts;
+    }
+
+    private static double logNormal(SplittableRandom random, double median, double sigma) {
+        return median * Math.exp(sigma * random.nextGaussian());
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // Первый id выше блока, выданного последовательностью, и выше уже существующих строк
+    private long firstFreeId(Connection connection, String sequence, String table, String idColumn) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            long hi = queryLong(statement, "SELECT nextval('" + sequence + "')");
+            long maxId = queryLong(statement, "SELECT COALESCE(MAX(" + idColumn + "), 0) FROM " + table);
+            return Math.max(hi, maxId) + 1;
+        }
+    }
+
+    // Следующий nextval вернёт lastId + ID_ALLOCATION_SIZE, т.е. pooled-блок Hibernate начнётся сразу после lastId
+    private void advanceSequence(Connection connection, boolean postgres, String sequence, long lastId) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (postgres) {
+                statement.execute("SELECT setval('" + sequence + "', " + lastId + ")");
+            } else {
+                statement.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (lastId + ID_ALLOCATION_SIZE));
+            }
+        }
+    }
+
+    private static long queryLong(Statement statement, String sql) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private void logProgress(String table, long rows, long started) {
+        double seconds = Math.max((System.nanoTime() - started) / 1e9, 0.001);
+        log.info("Wrote {} {} ({} s since start)", rows, table, String.format("%.1f", seconds));
+    }
+
+    private RowSink sink(Connection connection, boolean postgres, String table, String[] columns) throws SQLException {
+        return postgres ? new CopySink(connection, table, columns, chunkSize) : new BatchSink(connection, table, columns, chunkSize);
+    }
+
+    // Приёмник строк одной таблицы: копит пачку и записывает её одной операцией с фиксацией транзакции
+    private abstract static class RowSink implements AutoCloseable {
+
+        protected final Connection connection;
+        private final int chunkSize;
+        private int pending;
+        long rows;
+
+        RowSink(Connection connection, int chunkSize) {
+            this.connection = connection;
+            this.chunkSize = chunkSize;
+        }
+
+        void add(Object... values) throws SQLException, IOException {
+            append(values);
+            rows++;
+            if (++pending == chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() throws SQLException, IOException {
+            if (pending > 0) {
+                write();
+                connection.commit();
+                pending = 0;
+            }
+        }
+
+        protected abstract void append(Object[] values) throws SQLException;
+
+        protected abstract void write() throws SQLException, IOException;
+
+        @Override
+        public void close() throws SQLException, IOException {
+            flush();
+        }
+    }
+
+    // COPY ... FROM STDIN в формате CSV: пустое значение без кавычек — NULL, строки всегда в кавычках
+    private static class CopySink extends RowSink {
+
+        private final CopyManager copyManager;
+        private final String copySql;
+        private final StringBuilder buffer = new StringBuilder(1 << 20);
+
+        CopySink(Connection connection, String table, String[] columns, int chunkSize) throws SQLException {
+            super(connection, chunkSize);
+            this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            this.copySql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)";
+        }
+
+        @Override
+        protected void append(Object[] values) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                Object value = values[i];
+                if (value instanceof String text) {
+                    buffer.append('"').append(text.replace("\"", "\"\"")).append('"');
+                } else if (value instanceof Enum<?> constant) {
+                    buffer.append(constant.name());
+                } else if (value instanceof BigDecimal decimal) {
+                    buffer.append(decimal.toPlainString());
+                } else if (value != null) {
+                    buffer.append(value);
+                }
+            }
+            buffer.append('\n');
+        }
+
+        @Override
+        protected void write() throws SQLException, IOException {
+            copyManager.copyIn(copySql, new StringReader(buffer.toString()));
+            buffer.setLength(0);
+        }
+    }
+
+    private static class BatchSink extends RowSink {
+
+        private final PreparedStatement statement;
+
+        BatchSink(Connection connection, String table, String[] columns, int chunkSize) throws SQLException {
+            super(connection, chunkSize);
+            String placeholders = String.join(", ", Collections.nCopies(columns.length, "?"));
+            this.statement = connection.prepareStatement(
+                    "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")");
+        }
+
+        @Override
+        protected void append(Object[] values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                if (value instanceof LocalDateTime dateTime) {
+                    value = Timestamp.valueOf(dateTime);
+                } else if (value instanceof LocalDate date) {
+                    value = Date.valueOf(date);
+                } else if (value instanceof Enum<?> constant) {
+                    value = constant.name();
+                }
+                statement.setObject(i + 1, value);
+            }
+            statement.addBatch();
+        }
+
+        @Override
+        protected void write() throws SQLException {
+            statement.executeBatch();
+        }
+
+        @Override
+        public void close() throws SQLException, IOException {
+            try {
+                super.close();
+            } finally {
+                statement.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bank.service;
+
+import com.example.bank.Enums.CardType;
+import com.example.bank.exception.CardBlockedException;
+import com.example.bank.exception.InsufficientFundsException;
+import com.example.bank.exception.InvalidOperationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authorization.event.AuthorizationDeniedEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Таймер bank.transactions для пополнений, списаний и переводов с тегами operation, card_type и outcome.
+// Количество операций по исходу берётся из _count таймера, перцентили настраиваются в management.metrics.distribution.*
+@Component
+public class TransactionMetrics {
+
+    public static final String TIMER = "bank.transactions";
+
+    public static final String SUCCESS = "success";
+    public static final String INSUFFICIENT_FUNDS = "insufficient_funds";
+    public static final String BLOCKED_CARD = "blocked_card";
+    public static final String ACCESS_DENIED = "access_denied";
+    public static final String REJECTED = "rejected";
+    public static final String ERROR = "error";
+
+    private static final String UNKNOWN_CARD_TYPE = "unknown";
+    private static final Set<String> OPERATIONS = Set.of("deposit", "withdraw", "transfer");
+
+    private final MeterRegistry meterRegistry;
+
+    public TransactionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    // Фиксирует длительность операции; error == null — операция прошла успешно
+    public void stop(Timer.Sample sample, String operation, CardType cardType, Throwable error) {
+        sample.stop(timer(operation, cardType, outcomeOf(error)));
+    }
+
+    // Отказ @PreAuthorize происходит до входа в метод сервиса, поэтому считается по событию Spring Security
+    @EventListener
+    public void onAuthorizationDenied(AuthorizationDeniedEvent<?> event) {
+        if (event.getObject() instanceof MethodInvocation invocation
+                && invocation.getMethod().getDeclaringClass() == TransactionService.class
+                && OPERATIONS.contains(invocation.getMethod().getName())) {
+            timer(invocation.getMethod().getName(), null, ACCESS_DENIED).record(0, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    static String outcomeOf(Throwable error) {
+        if (error == null) {
+            return SUCCESS;
+        }
+        if (error instanceof InsufficientFundsException) {
+            return INSUFFICIENT_FUNDS;
+        }
+        if (error instanceof CardBlockedException) {
+            return BLOCKED_CARD;
+        }
+        if (error instanceof AccessDeniedException) {
+            return ACCESS_DENIED;
+        }
+        if (error instanceof IllegalArgumentException || error instanceof InvalidOperationException) {
+            return REJECTED;
+        }
+        return ERROR;
+    }
+
+    private Timer timer(String operation, CardType cardType, String outcome) {
+        return Timer.builder(TIMER)
+                .description("Deposit, withdraw and transfer latency by card type and outcome")
+                .tag("operation", operation)
+                .tag("card_type", cardType == null ? UNKNOWN_CARD_TYPE : cardType.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
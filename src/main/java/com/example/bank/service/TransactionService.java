@@ -1,29 +1,41 @@
 package com.example.bank.service;
 
+import com.example.bank.Enums.CardType;
 import com.example.bank.Enums.OperationType;
 import com.example.bank.exception.InvalidOperationException;
 import com.example.bank.exception.ResourceNotFoundException;
-import com.example.bank.kafka.TransactionEventProducer;
+import com.example.bank.kafka.TransactionEventOutbox;
 import com.example.bank.mapper.CardMapper;
 import com.example.bank.mapper.NotificationMapper;
 import com.example.bank.mapper.TransactionMapper;
-import com.example.bank.model.card.Card;
+import com.example.bank.model.card.CardContentionResponse;
 import com.example.bank.model.card.CardDto;
-import com.example.bank.model.card.creditCard.CreditCard;
-import com.example.bank.model.card.debitCard.DebitCard;
+import com.example.bank.model.card.CardSummary;
 import com.example.bank.model.transaction.Transaction;
+import com.example.bank.model.transaction.TransactionCursor;
+import com.example.bank.model.transaction.TransactionPage;
 import com.example.bank.model.transaction.TransactionResponse;
 import com.example.bank.repository.CardRepository;
 import com.example.bank.repository.TransactionRepository;
+import com.example.bank.repository.UserRepository;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.math.BigDecimal;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,100 +44,148 @@ public class TransactionService {
     private static final Logger log = LoggerFactory.getLogger(TransactionService.class);
 
 
-    private final TransactionEventProducer eventProducer;
+    private final TransactionEventOutbox eventOutbox;
 
     private final CardRepository cardRepository;
     private final TransactionRepository transactionRepository;
-    private final Map<Class<? extends Card>, AbstractCardService> serviceMap;
+    private final UserRepository userRepository;
+    private final Map<CardType, AbstractCardService> serviceMap;
     private final CardServiceImpl cardService;
+    private final CardLockManager cardLockManager;
+    private final LedgerService ledgerService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionMetrics metrics;
+
+    private static final Comparator<TransactionResponse> NEWEST_FIRST =
+            Comparator.comparing(TransactionResponse::getTimestamp)
+                    .thenComparing(TransactionResponse::getId)
+                    .reversed();
+
+    @Value("${bank.transactions.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${bank.transactions.page.max-size:200}")
+    private int maxPageSize;
 
 
     public TransactionService(
             CardRepository cardRepository,
             TransactionRepository transactionRepository,
+            UserRepository userRepository,
             CreditCardService creditCardService,
             DebitCardService debitCardService,
-            TransactionEventProducer eventProducer, CardServiceImpl cardService   // <---- обязательно!
+            TransactionEventOutbox eventOutbox, CardServiceImpl cardService,   // <---- обязательно!
+            CardLockManager cardLockManager,
+            LedgerService ledgerService,
+            PlatformTransactionManager transactionManager,
+            TransactionMetrics metrics
           ) {
         this.cardRepository = cardRepository;
         this.transactionRepository = transactionRepository;
-        this.eventProducer = eventProducer;
+        this.userRepository = userRepository;
+        this.eventOutbox = eventOutbox;
         this.cardService = cardService;
-        this.serviceMap = new HashMap<>();
-        this.serviceMap.put(CreditCard.class, creditCardService);
-        this.serviceMap.put(DebitCard.class, debitCardService);
+        this.cardLockManager = cardLockManager;
+        this.ledgerService = ledgerService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metrics = metrics;
+        this.serviceMap = new EnumMap<>(CardType.class);
+        this.serviceMap.put(CardType.CREDIT, creditCardService);
+        this.serviceMap.put(CardType.DEBIT, debitCardService);
     }
 
 
 
-    // Операция пополнения счета
-    @Transactional
+    // Операция пополнения счета.
+    // Исход пишется в метрику после фиксации транзакции: сбой коммита считается ошибкой, а не успехом
     @PreAuthorize("@cardSecurity.isOwner(#id)")
     public CardDto deposit(Long id, BigDecimal amount, String comment) {
         log.info("Deposit to card {}: amount {}", id, amount);
+        Timer.Sample sample = metrics.start();
+        AtomicReference<CardType> cardType = new AtomicReference<>();
         try {
-            Card card = cardService.getCardById(id);
-            AbstractCardService service = serviceMap.get(card.getClass());
-            if (service == null) {
-                log.error("Unsupported card type for deposit: {}", card.getClass());
-                throw new InvalidOperationException("Unsupported card type");
-            }
-
-            Card updatedCard = service.processDeposit(card, amount);
-
-            Transaction transaction = new Transaction();
-            transaction.setToCard(card.getCardNumber());
-            transaction.setAmount(amount);
-            transaction.setType(OperationType.deposit);
-            transaction.setComment(comment);
-            transaction.setUser(card.getUser());
-            transactionRepository.save(transaction);
-            eventProducer.sendTransactionEvent(NotificationMapper.toEventDTO(transaction));
-
-
-            return CardMapper.toDto(updatedCard);
+            CardDto result = transactionTemplate.execute(status -> doDeposit(id, amount, comment, cardType));
+            metrics.stop(sample, "deposit", cardType.get(), null);
+            return result;
         } catch (Exception e) {
             log.error("Deposit error for card {}: {}", id, e.getMessage(), e);
+            metrics.stop(sample, "deposit", cardType.get(), e);
             throw e;
         }
     }
 
-    // Операция снятия со счета
-    @Transactional
+    private CardDto doDeposit(Long id, BigDecimal amount, String comment, AtomicReference<CardType> cardType) {
+        CardSummary card = cardService.getCardSummary(id);
+        cardType.set(card.getCardType());
+        AbstractCardService service = serviceMap.get(card.getCardType());
+        if (service == null) {
+            log.error("Unsupported card type for deposit: {}", card.getCardType());
+            throw new InvalidOperationException("Unsupported card type");
+        }
+
+        BigDecimal credited = service.applyDeposit(card, amount);
+
+        Transaction transaction = new Transaction();
+        transaction.setToCard(card.getCardNumber());
+        transaction.setAmount(amount);
+        transaction.setType(OperationType.deposit);
+        transaction.setComment(comment);
+        transaction.setUser(userRepository.getReferenceById(card.getOwnerId()));
+        transactionRepository.save(transaction);
+        ledgerService.recordDeposit(transaction.getId(), card.getId(), amount, credited);
+        eventOutbox.enqueue(NotificationMapper.toEventDTO(transaction));
+
+
+        return CardMapper.toDto(card);
+    }
+
+    // Операция снятия со счета; исход, как и у пополнения, пишется после фиксации
     @PreAuthorize("@cardSecurity.isOwner(#id)")
     public CardDto withdraw(Long id, BigDecimal amount, String comment) {
         log.info("Withdraw from card {}: amount {}", id, amount);
+        Timer.Sample sample = metrics.start();
+        AtomicReference<CardType> cardType = new AtomicReference<>();
         try {
-            Card card = cardService.getCardById(id);
-            AbstractCardService service = serviceMap.get(card.getClass());
-            if (service == null) {
-                log.error("Unsupported card type for withdrawal: {}", card.getClass());
-                throw new InvalidOperationException("Unsupported card type");
-            }
+            CardDto result = transactionTemplate.execute(status -> doWithdraw(id, amount, comment, cardType));
+            metrics.stop(sample, "withdraw", cardType.get(), null);
+            return result;
+        } catch (Exception e) {
+            log.error("Withdraw error for card {}: {}", id, e.getMessage(), e);
+            metrics.stop(sample, "withdraw", cardType.get(), e);
+            throw e;
+        }
+    }
 
-            Card updatedCard = service.processWithdraw(card, amount);
+    private CardDto doWithdraw(Long id, BigDecimal amount, String comment, AtomicReference<CardType> cardType) {
+        CardSummary card = cardService.getCardSummary(id);
+        cardType.set(card.getCardType());
+        AbstractCardService service = serviceMap.get(card.getCardType());
+        if (service == null) {
+            log.error("Unsupported card type for withdrawal: {}", card.getCardType());
+            throw new InvalidOperationException("Unsupported card type");
+        }
 
-            Transaction transaction = new Transaction();
-            transaction.setFromCard(card.getCardNumber());
-            transaction.setAmount(amount);
-            transaction.setType(OperationType.withdraw);
-            transaction.setComment(comment);
-            transaction.setUser(card.getUser());
-            transactionRepository.save(transaction);
+        service.applyWithdraw(card, amount);
 
+        Transaction transaction = new Transaction();
+        transaction.setFromCard(card.getCardNumber());
+        transaction.setAmount(amount);
+        transaction.setType(OperationType.withdraw);
+        transaction.setComment(comment);
+        transaction.setUser(userRepository.getReferenceById(card.getOwnerId()));
+        transactionRepository.save(transaction);
+        ledgerService.recordWithdraw(transaction.getId(), card.getId(), amount);
 
-            eventProducer.sendTransactionEvent(NotificationMapper.toEventDTO(transaction));
 
+        eventOutbox.enqueue(NotificationMapper.toEventDTO(transaction));
 
-            return CardMapper.toDto(updatedCard);
-        } catch (Exception e) {
-            log.error("Withdraw error for card {}: {}", id, e.getMessage(), e);
-            throw e;
-        }
+
+        return CardMapper.toDto(card);
     }
 
     // Операция перевода средств
-    @Transactional
+    // Транзакция открывается внутри блокировок карт, чтобы при конфликте в БД
+    // можно было повторить перевод целиком в новой транзакции
     @PreAuthorize("@cardSecurity.isOwner(#fromId) and @cardSecurity.isOwner(#toId)")
     public CardDto transfer(Long fromId, Long toId, BigDecimal amount, String comment) {
         if (fromId.equals(toId)) {
@@ -133,38 +193,64 @@ public class TransactionService {
         }
 
         log.info("Transfer: {} → {}, amount {}", fromId, toId, amount);
+        Timer.Sample sample = metrics.start();
+        // Тип карты списания известен только внутри транзакции перевода
+        AtomicReference<CardType> cardType = new AtomicReference<>();
         try {
-            Card fromCard = cardService.getCardById(fromId);
-            Card toCard = cardService.getCardById(toId);
+            CardDto result = cardLockManager.executeLocked(fromId, toId,
+                    () -> transactionTemplate.execute(status -> doTransfer(fromId, toId, amount, comment, cardType)));
+            metrics.stop(sample, "transfer", cardType.get(), null);
+            return result;
+        } catch (Exception e) {
+            log.error("Transfer error from {} to {}: {}", fromId, toId, e.getMessage(), e);
+            metrics.stop(sample, "transfer", cardType.get(), e);
+            throw e;
+        }
+    }
+
+    private CardDto doTransfer(Long fromId, Long toId, BigDecimal amount, String comment, AtomicReference<CardType> cardType) {
+        CardSummary fromCard = cardService.getCardSummary(fromId);
+        cardType.set(fromCard.getCardType());
+        CardSummary toCard = cardService.getCardSummary(toId);
 
-            AbstractCardService fromService = serviceMap.get(fromCard.getClass());
-            AbstractCardService toService = serviceMap.get(toCard.getClass());
-            if (fromService == null || toService == null) {
-                log.error("Unsupported card type for transfer: {} or {}", fromCard.getClass(), toCard.getClass());
-                throw new InvalidOperationException("Unsupported card type");
-            }
+        AbstractCardService fromService = serviceMap.get(fromCard.getCardType());
+        AbstractCardService toService = serviceMap.get(toCard.getCardType());
+        if (fromService == null || toService == null) {
+            log.error("Unsupported card type for transfer: {} or {}", fromCard.getCardType(), toCard.getCardType());
+            throw new InvalidOperationException("Unsupported card type");
+        }
 
-            fromCard = fromService.processWithdraw(fromCard, amount);
-            toService.processDeposit(toCard, amount);
+        // Атомарные UPDATE блокируют строки всегда в порядке возрастания id, чтобы встречные переводы не зациклились.
+        // Если списание не прошло, вся транзакция откатывается вместе с уже выполненным пополнением
+        BigDecimal credited;
+        if (fromId < toId) {
+            fromService.applyWithdraw(fromCard, amount);
+            credited = toService.applyDeposit(toCard, amount);
+        } else {
+            credited = toService.applyDeposit(toCard, amount);
+            fromService.applyWithdraw(fromCard, amount);
+        }
 
-            Transaction transaction = new Transaction();
-            transaction.setFromCard(fromCard.getCardNumber());
-            transaction.setToCard(toCard.getCardNumber());
-            transaction.setAmount(amount);
-            transaction.setType(OperationType.transfer);
-            transaction.setComment(comment);
-            transaction.setUser(fromCard.getUser());
-            transactionRepository.save(transaction);
+        Transaction transaction = new Transaction();
+        transaction.setFromCard(fromCard.getCardNumber());
+        transaction.setToCard(toCard.getCardNumber());
+        transaction.setAmount(amount);
+        transaction.setType(OperationType.transfer);
+        transaction.setComment(comment);
+        transaction.setUser(userRepository.getReferenceById(fromCard.getOwnerId()));
+        transactionRepository.save(transaction);
+        ledgerService.recordTransfer(transaction.getId(), fromId, toId, amount, credited);
 
-            eventProducer.sendTransactionEvent(NotificationMapper.toEventDTO(transaction));
+        eventOutbox.enqueue(NotificationMapper.toEventDTO(transaction));
 
 
-            return CardMapper.toDto(fromCard);
+        return CardMapper.toDto(fromCard);
+    }
 
-        } catch (Exception e) {
-            log.error("Transfer error from {} to {}: {}", fromId, toId, e.getMessage(), e);
-            throw e;
-        }
+    // Счётчики конкуренции за блокировки карт
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<CardContentionResponse> getCardContention() {
+        return cardLockManager.getContentionSnapshot();
     }
 
     // Получить транзакцию по ID
@@ -184,42 +270,64 @@ public class TransactionService {
     }
 
 
-    // Получить транзакции по счету
+    // Получить транзакции по счету: keyset-страница от новых к старым
     @PreAuthorize("@cardSecurity.isOwner(#cardNumber)")
-    public List<TransactionResponse> getTransactionsByCard(String cardNumber) {
-        List<Transaction> transactions = transactionRepository.findByFromCardOrToCard(cardNumber, cardNumber);
-        return transactions.stream()
-                .map(TransactionMapper::toDto)
-                .collect(Collectors.toList());
+    public TransactionPage getTransactionsByCard(String cardNumber, String cursor, Integer size) {
+        TransactionCursor after = TransactionCursor.decode(cursor);
+        int pageSize = resolvePageSize(size);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        return mergePage(
+                transactionRepository.findPageByFromCard(cardNumber, after.getTimestamp(), after.getId(), limit),
+                transactionRepository.findPageByToCard(cardNumber, after.getTimestamp(), after.getId(), limit),
+                pageSize);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
-    public List<TransactionResponse> getTransactionsByUser(Long userId) {
-        List<Card> userCards = cardRepository.findByUserUserId(userId);
-        List<String> cardNumbers = userCards.stream()
-                .map(Card::getCardNumber)
-                .collect(Collectors.toList());
+    public TransactionPage getTransactionsByUser(Long userId, String cursor, Integer size) {
+        return loadUserPage(userId, cursor, size);
+    }
+
+    public TransactionPage getTransactionsForUser(String cursor, Integer size) {
+        return loadUserPage(cardService.getCurrentUserId(), cursor, size);
+    }
 
+    private TransactionPage loadUserPage(Long userId, String cursor, Integer size) {
+        TransactionCursor after = TransactionCursor.decode(cursor);
+        int pageSize = resolvePageSize(size);
+        List<String> cardNumbers = cardRepository.findCardNumbersByUserId(userId);
         if (cardNumbers.isEmpty()) {
-            return List.of();
+            return new TransactionPage(List.of(), null);
         }
-
-        List<Transaction> transactions = transactionRepository.findByFromCardInOrToCardIn(
-                cardNumbers,
-                cardNumbers
-        );
-
-        return transactions.stream()
-                .map(TransactionMapper::toDto)
-                .collect(Collectors.toList());
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        return mergePage(
+                transactionRepository.findPageByFromCardIn(cardNumbers, after.getTimestamp(), after.getId(), limit),
+                transactionRepository.findPageByToCardIn(cardNumbers, after.getTimestamp(), after.getId(), limit),
+                pageSize);
     }
 
-    public List<TransactionResponse> getTransactionsForUser() {
-        return getTransactionsByUser(cardService.getCurrentUser().getUserId());
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size <= 0) {
+            throw new InvalidOperationException("Page size must be greater than zero");
+        }
+        return Math.min(size, maxPageSize);
     }
 
-
-
-
-
+    // Слияние двух отсортированных выборок (по отправителю и по получателю).
+    // Перевод между картами одного пользователя попадает в обе — дубликаты отбрасываются по id
+    private TransactionPage mergePage(List<TransactionResponse> outgoing, List<TransactionResponse> incoming, int pageSize) {
+        Map<Long, TransactionResponse> unique = new LinkedHashMap<>();
+        outgoing.forEach(t -> unique.put(t.getId(), t));
+        incoming.forEach(t -> unique.putIfAbsent(t.getId(), t));
+
+        List<TransactionResponse> sorted = new ArrayList<>(unique.values());
+        sorted.sort(NEWEST_FIRST);
+        if (sorted.size() <= pageSize) {
+            return new TransactionPage(sorted, null);
+        }
+        List<TransactionResponse> items = new ArrayList<>(sorted.subList(0, pageSize));
+        return new TransactionPage(items, TransactionCursor.of(items.get(pageSize - 1)).encode());
+    }
 }
\ No newline at end of file
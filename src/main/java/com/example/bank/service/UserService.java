@@ -1,5 +1,6 @@
 package com.example.bank.service;
 
+import com.example.bank.Enums.Role;
 import com.example.bank.exception.ResourceNotFoundException;
 import com.example.bank.mapper.CardMapper;
 import com.example.bank.mapper.UserMapper;
@@ -11,6 +12,8 @@ import com.example.bank.model.user.User;
 import com.example.bank.model.user.UserDto;
 import com.example.bank.repository.CardRepository;
 import com.example.bank.repository.UserRepository;
+import com.example.bank.security.BankPrincipal;
+import com.example.bank.security.TokenRevocationList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -22,6 +25,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class UserService {
@@ -31,11 +36,14 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final CardRepository cardRepository;
+    private final TokenRevocationList tokenRevocationList;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, CardRepository cardRepository) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, CardRepository cardRepository,
+                       TokenRevocationList tokenRevocationList) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.cardRepository = cardRepository;
+        this.tokenRevocationList = tokenRevocationList;
     }
 
     // Создание нового пользователя
@@ -51,6 +59,8 @@ public class UserService {
 
         try {
             User savedUser = userRepository.save(user);
+            // С id из последовательности INSERT откладывается до flush; нарушение уникальности нужно поймать здесь
+            userRepository.flush();
 
             UserDto userDto = UserMapper.toDto(savedUser);
 
@@ -99,9 +109,47 @@ public class UserService {
         }
 
         userRepository.deleteById(id);
+        tokenRevocationList.revokeBefore(id, Long.MAX_VALUE);
         log.info("User deleted successfully: id={}", id);
     }
 
+    // Частичное обновление пользователя: свой профиль может менять сам пользователь,
+    // роль и блокировку (status) — только администратор.
+    // Блокировка, смена роли или пароля увеличивает версию токенов, и ранее выданные JWT перестают приниматься
+    @PreAuthorize("hasRole('ADMIN') or (@cardSecurity.isSelfOrAdmin(#id)"
+            + " and !#updates.containsKey('role') and !#updates.containsKey('status'))")
+    public User applyUpdates(Long id, Map<String, Object> updates) {
+        User user = getUserById(id);
+        Boolean wasBlocked = user.getBlocked();
+        Role previousRole = user.getRole();
+
+        updates.forEach((key, value) -> {
+            switch (key) {
+                case "username" -> user.setUsername((String) value);
+                case "password" -> user.setPassword((String) value);
+                case "email" -> user.setEmail((String) value);
+                case "firstName" -> user.setFirstName((String) value);
+                case "lastName" -> user.setLastName((String) value);
+                case "phoneNumber" -> user.setPhoneNumber((String) value);
+                case "status" -> user.setBlocked((Boolean) value);
+                case "role" -> user.setRole(Role.valueOf((String) value));
+            }
+        });
+
+        boolean securityChanged = !Objects.equals(wasBlocked, user.getBlocked()) || previousRole != user.getRole()
+                || updates.containsKey("password");
+        if (securityChanged) {
+            long version = (user.getTokenVersion() == null ? 0L : user.getTokenVersion()) + 1;
+            user.setTokenVersion(version);
+        }
+
+        User updatedUser = update(user);
+        if (securityChanged) {
+            tokenRevocationList.revokeBefore(updatedUser.getUserId(), updatedUser.getTokenVersion());
+        }
+        return updatedUser;
+    }
+
     // Обновление информации о пользователе
     public User update(User user) {
         log.info("Updating user: userId={}, username={}",
@@ -144,7 +192,28 @@ public class UserService {
     }
 
     // Получение текущего пользователя из контекста безопасности
+    // Сущность User загружается лениво: пока нужен только id, запроса к users нет
     public User getCurrentUser() {
+        BankPrincipal principal = BankPrincipal.current();
+        if (principal != null) {
+            return userRepository.getReferenceById(principal.getUserId());
+        }
+        return findCurrentUserByName();
+    }
+
+    // id текущего пользователя из принципала запроса
+    public Long getCurrentUserId() {
+        BankPrincipal principal = BankPrincipal.current();
+        return principal != null ? principal.getUserId() : findCurrentUserByName().getUserId();
+    }
+
+    public boolean isCurrentUserAdmin() {
+        BankPrincipal principal = BankPrincipal.current();
+        return principal != null ? principal.isAdmin() : findCurrentUserByName().getRole() == Role.ADMIN;
+    }
+
+    // Запасной путь для аутентификации без BankPrincipal: поиск по имени пользователя
+    private User findCurrentUserByName() {
         log.info("Retrieving current user from security context");
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
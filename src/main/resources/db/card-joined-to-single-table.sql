@@ -0,0 +1,64 @@
+-- Перенос иерархии карт из JOINED (cards + credit_cards + debit_cards) в SINGLE_TABLE (одна таблица cards).
+--
+-- Выполняется один раз при остановленных экземплярах приложения, до первого запуска версии с SINGLE_TABLE:
+--
+--   psql -h <host> -U <user> -d <db> -f card-joined-to-single-table.sql
+--
+-- Дискриминатором служит существующая колонка card_type. Таблицы credit_cards и debit_cards не удаляются,
+-- чтобы можно было вернуться на JOINED (card-single-table-to-joined.sql); удалить их после проверки:
+--   DROP TABLE credit_cards; DROP TABLE debit_cards;
+
+BEGIN;
+
+LOCK TABLE cards, credit_cards, debit_cards IN EXCLUSIVE MODE;
+
+ALTER TABLE cards ADD COLUMN IF NOT EXISTS credit_limit numeric(38,2);
+ALTER TABLE cards ADD COLUMN IF NOT EXISTS interest_rate numeric(38,2);
+ALTER TABLE cards ADD COLUMN IF NOT EXISTS minimum_payment_rate numeric(38,2);
+ALTER TABLE cards ADD COLUMN IF NOT EXISTS grace_period integer;
+ALTER TABLE cards ADD COLUMN IF NOT EXISTS total_debt numeric(38,2);
+ALTER TABLE cards ADD COLUMN IF NOT EXISTS accrued_interest numeric(38,2);
+ALTER TABLE cards ADD COLUMN IF NOT EXISTS debt numeric(38,2);
+ALTER TABLE cards ADD COLUMN IF NOT EXISTS payment_due_date date;
+ALTER TABLE cards ADD COLUMN IF NOT EXISTS last_interest_accrual date;
+
+UPDATE cards c SET
+    credit_limit = cc.credit_limit,
+    interest_rate = cc.interest_rate,
+    minimum_payment_rate = cc.minimum_payment_rate,
+    grace_period = cc.grace_period,
+    total_debt = cc.total_debt,
+    accrued_interest = cc.accrued_interest,
+    debt = cc.debt,
+    payment_due_date = cc.payment_due_date,
+    last_interest_accrual = cc.last_interest_accrual,
+    card_type = 'CREDIT'
+FROM credit_cards cc
+WHERE cc.id = c.id;
+
+UPDATE cards c SET card_type = 'DEBIT'
+FROM debit_cards dc
+WHERE dc.id = c.id AND c.card_type IS DISTINCT FROM 'DEBIT';
+
+ALTER TABLE cards ALTER COLUMN card_type SET NOT NULL;
+
+-- Внешние ключи на таблицы подклассов (users.main_card_id -> debit_cards) переводятся на cards
+DO $$
+DECLARE
+    fk record;
+BEGIN
+    FOR fk IN
+        SELECT con.conrelid::regclass AS table_name, con.conname, att.attname AS column_name
+        FROM pg_constraint con
+        JOIN pg_attribute att ON att.attrelid = con.conrelid AND att.attnum = con.conkey[1]
+        WHERE con.contype = 'f'
+          AND con.confrelid IN ('credit_cards'::regclass, 'debit_cards'::regclass)
+          AND con.conrelid NOT IN ('credit_cards'::regclass, 'debit_cards'::regclass)
+    LOOP
+        EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', fk.table_name, fk.conname);
+        EXECUTE format('ALTER TABLE %s ADD CONSTRAINT %I FOREIGN KEY (%I) REFERENCES cards (id)',
+                       fk.table_name, fk.conname, fk.column_name);
+    END LOOP;
+END $$;
+
+COMMIT;
@@ -0,0 +1,52 @@
+-- Возврат иерархии карт из SINGLE_TABLE в JOINED (spring.jpa.mapping-resources=META-INF/card-joined-orm.xml).
+--
+-- Выполняется при остановленных экземплярах приложения:
+--
+--   psql -h <host> -U <user> -d <db> -f card-single-table-to-joined.sql
+--
+-- Поля кредитных карт копируются из cards в credit_cards (строки, оставшиеся от прежней раскладки, обновляются).
+-- Колонки подклассов в cards остаются на месте: раскладка JOINED их не читает.
+
+BEGIN;
+
+LOCK TABLE cards IN EXCLUSIVE MODE;
+
+CREATE TABLE IF NOT EXISTS debit_cards (
+    id bigint PRIMARY KEY REFERENCES cards (id)
+);
+
+CREATE TABLE IF NOT EXISTS credit_cards (
+    id bigint PRIMARY KEY REFERENCES cards (id),
+    credit_limit numeric(38,2) NOT NULL,
+    interest_rate numeric(38,2) NOT NULL,
+    minimum_payment_rate numeric(38,2) NOT NULL,
+    grace_period integer NOT NULL,
+    total_debt numeric(38,2) NOT NULL,
+    accrued_interest numeric(38,2) NOT NULL,
+    debt numeric(38,2) NOT NULL,
+    payment_due_date date NOT NULL,
+    last_interest_accrual date
+);
+
+INSERT INTO debit_cards (id)
+SELECT id FROM cards WHERE card_type = 'DEBIT'
+ON CONFLICT (id) DO NOTHING;
+
+INSERT INTO credit_cards (id, credit_limit, interest_rate, minimum_payment_rate, grace_period,
+                          total_debt, accrued_interest, debt, payment_due_date, last_interest_accrual)
+SELECT id, credit_limit, interest_rate, minimum_payment_rate, grace_period,
+       total_debt, accrued_interest, debt, payment_due_date, last_interest_accrual
+FROM cards
+WHERE card_type = 'CREDIT'
+ON CONFLICT (id) DO UPDATE SET
+    credit_limit = EXCLUDED.credit_limit,
+    interest_rate = EXCLUDED.interest_rate,
+    minimum_payment_rate = EXCLUDED.minimum_payment_rate,
+    grace_period = EXCLUDED.grace_period,
+    total_debt = EXCLUDED.total_debt,
+    accrued_interest = EXCLUDED.accrued_interest,
+    debt = EXCLUDED.debt,
+    payment_due_date = EXCLUDED.payment_due_date,
+    last_interest_accrual = EXCLUDED.last_interest_accrual;
+
+COMMIT;
@@ -0,0 +1,44 @@
+-- Перевод первичных ключей с IDENTITY на pooled-последовательности (allocationSize = 50).
+--
+-- ddl-auto=update создаёт недостающие последовательности, но начинает их с 1 и не трогает
+-- существующие identity-колонки, поэтому на базе с данными скрипт нужно выполнить один раз,
+-- остановив все экземпляры приложения:
+--
+--   psql -h <host> -U <user> -d <db> -f identity-to-sequence.sql
+--
+-- Значение последовательности — верхняя граница выдаваемого блока: после setval(seq, MAX(id))
+-- следующий блок начинается с MAX(id) + 1. Скрипт можно выполнять повторно.
+--
+-- После перевода id больше не растут в порядке фиксации: каждый экземпляр выдаёт id из своего блока,
+-- и строка, закоммиченная позже, может получить меньший id. Ничего, что полагается на порядок id
+-- (границы снимков баланса, курсоры догоняющего чтения), строить на них нельзя — см. ledger-card-seq.sql.
+
+BEGIN;
+
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS cards_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS transactions_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS notifications_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS ledger_entries_seq INCREMENT BY 50;
+
+-- Пустая таблица: следующий nextval вернёт 1, Hibernate обрабатывает это как начальное значение
+SELECT setval('users_seq', COALESCE(MAX(user_id), 1), MAX(user_id) IS NOT NULL) FROM users;
+SELECT setval('cards_seq', COALESCE(MAX(id), 1), MAX(id) IS NOT NULL) FROM cards;
+SELECT setval('transactions_seq', COALESCE(MAX(id), 1), MAX(id) IS NOT NULL) FROM transactions;
+SELECT setval('notifications_seq', COALESCE(MAX(id), 1), MAX(id) IS NOT NULL) FROM notifications;
+SELECT setval('ledger_entries_seq', COALESCE(MAX(id), 1), MAX(id) IS NOT NULL) FROM ledger_entries;
+
+-- Старые identity/serial-генераторы больше не используются: вставка без явного id должна падать,
+-- а не выдавать значения, пересекающиеся с блоками последовательностей
+ALTER TABLE users ALTER COLUMN user_id DROP IDENTITY IF EXISTS;
+ALTER TABLE users ALTER COLUMN user_id DROP DEFAULT;
+ALTER TABLE cards ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE cards ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE transactions ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE transactions ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE notifications ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE notifications ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE ledger_entries ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE ledger_entries ALTER COLUMN id DROP DEFAULT;
+
+COMMIT;
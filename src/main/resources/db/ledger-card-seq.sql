@@ -0,0 +1,34 @@
+-- Граница снимков баланса: вместо id проводки — порядковый номер проводки внутри карты (card_seq).
+--
+-- ddl-auto=update добавит пустую колонку ledger_entries.card_seq, но не заполнит её и не переименует
+-- balance_snapshots.last_entry_id, поэтому на базе с данными скрипт нужно выполнить один раз,
+-- остановив все экземпляры приложения:
+--
+--   psql -h <host> -U <user> -d <db> -f ledger-card-seq.sql
+--
+-- Существующие проводки нумеруются в порядке id, снимки получают номер последней учтённой проводки.
+-- Проводки, которые старые снимки уже пропустили, этим не возвращаются — после миграции стоит
+-- запустить сверку (POST /api/ledger/reconcile).
+
+BEGIN;
+
+ALTER TABLE ledger_entries ADD COLUMN IF NOT EXISTS card_seq BIGINT;
+
+UPDATE ledger_entries e SET card_seq = n.seq
+FROM (SELECT id, ROW_NUMBER() OVER (PARTITION BY card_id ORDER BY id) AS seq
+      FROM ledger_entries WHERE card_id IS NOT NULL) n
+WHERE e.id = n.id AND e.card_seq IS NULL;
+
+ALTER TABLE balance_snapshots ADD COLUMN IF NOT EXISTS last_card_seq BIGINT;
+
+UPDATE balance_snapshots s SET last_card_seq = COALESCE(
+        (SELECT MAX(e.card_seq) FROM ledger_entries e WHERE e.card_id = s.card_id AND e.id <= s.last_entry_id), 0)
+WHERE s.last_card_seq IS NULL;
+
+ALTER TABLE balance_snapshots ALTER COLUMN last_card_seq SET NOT NULL;
+ALTER TABLE balance_snapshots DROP COLUMN IF EXISTS last_entry_id;
+
+DROP INDEX IF EXISTS idx_ledger_entries_card_id;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_ledger_entries_card_seq ON ledger_entries (card_id, card_seq);
+
+COMMIT;
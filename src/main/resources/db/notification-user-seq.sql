@@ -0,0 +1,31 @@
+-- Курсор потока уведомлений: порядковый номер уведомления у пользователя (user_seq) вместо id.
+--
+-- ddl-auto=update создаёт таблицу счётчиков и пустую колонку notifications.user_seq, но не заполняет их,
+-- поэтому на базе с данными скрипт нужно выполнить один раз, остановив все экземпляры приложения:
+--
+--   psql -h <host> -U <user> -d <db> -f notification-user-seq.sql
+--
+-- Существующие уведомления нумеруются в порядке id. Клиенты, переподключающиеся со старым Last-Event-ID
+-- (id уведомления, а не номер), один раз не получат догонку — номера заметно меньше id.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS notification_user_seqs (
+    user_id  BIGINT PRIMARY KEY,
+    last_seq BIGINT NOT NULL
+);
+
+ALTER TABLE notifications ADD COLUMN IF NOT EXISTS user_seq BIGINT;
+
+UPDATE notifications n SET user_seq = s.seq
+FROM (SELECT id, ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY id) AS seq FROM notifications) s
+WHERE n.id = s.id AND n.user_seq IS NULL;
+
+INSERT INTO notification_user_seqs (user_id, last_seq)
+SELECT user_id, MAX(user_seq) FROM notifications GROUP BY user_id
+ON CONFLICT (user_id) DO UPDATE SET last_seq = GREATEST(notification_user_seqs.last_seq, EXCLUDED.last_seq);
+
+-- На секционированной таблице индекс создаётся в каждой секции
+CREATE INDEX IF NOT EXISTS idx_notifications_user_seq ON notifications (user_id, user_seq);
+
+COMMIT;
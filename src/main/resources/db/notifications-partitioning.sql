@@ -0,0 +1,59 @@
+-- Перевод notifications в таблицу, секционированную по месяцам created_at (PostgreSQL 12+).
+--
+-- После перевода NotificationRetentionService удаляет секции старше самого долгого срока хранения
+-- одним DROP TABLE вместо построчного DELETE (без мёртвых строк, VACUUM и раздувания индексов)
+-- и заранее создаёт секции на bank.notifications.retention.premake-months вперёд.
+-- Выполняется один раз при остановленных экземплярах приложения:
+--
+--   psql -h <host> -U <user> -d <db> -f notifications-partitioning.sql
+--
+-- Первичный ключ секционированной таблицы обязан включать ключ секционирования, поэтому он становится
+-- (id, created_at); id по-прежнему уникален — его выдаёт notifications_seq. Строки, не попавшие ни в одну
+-- месячную секцию, уходят в notifications_default.
+
+BEGIN;
+
+LOCK TABLE notifications IN ACCESS EXCLUSIVE MODE;
+
+UPDATE notifications SET created_at = now() WHERE created_at IS NULL;
+
+-- Имена индексов освобождаются для новой таблицы
+DROP INDEX IF EXISTS idx_notifications_user_read_id;
+DROP INDEX IF EXISTS idx_notifications_type_created_at;
+ALTER TABLE notifications RENAME TO notifications_legacy;
+ALTER INDEX IF EXISTS notifications_pkey RENAME TO notifications_legacy_pkey;
+
+CREATE TABLE notifications (LIKE notifications_legacy INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+    PARTITION BY RANGE (created_at);
+ALTER TABLE notifications ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE notifications ADD PRIMARY KEY (id, created_at);
+
+-- Месячные секции от самой старой строки до трёх месяцев вперёд
+DO $$
+DECLARE
+    month date;
+BEGIN
+    FOR month IN
+        SELECT generate_series(
+                       date_trunc('month', COALESCE((SELECT MIN(created_at) FROM notifications_legacy), now())),
+                       date_trunc('month', now()) + interval '3 months',
+                       interval '1 month')::date
+    LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF notifications FOR VALUES FROM (%L) TO (%L)',
+                       'notifications_p' || to_char(month, 'YYYYMM'), month, (month + interval '1 month')::date);
+    END LOOP;
+END $$;
+
+CREATE TABLE IF NOT EXISTS notifications_default PARTITION OF notifications DEFAULT;
+
+INSERT INTO notifications SELECT * FROM notifications_legacy;
+
+DROP TABLE notifications_legacy;
+
+-- Индексы на секционированной таблице создаются в каждой секции, в том числе в будущих
+CREATE INDEX idx_notifications_user_read_id ON notifications (user_id, read, id);
+CREATE INDEX idx_notifications_type_created_at ON notifications (type, created_at);
+
+COMMIT;
+
+ANALYZE notifications;
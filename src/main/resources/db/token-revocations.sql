@@ -0,0 +1,29 @@
+-- Отзывы JWT переезжают из users.tokens_revoked_at в общую таблицу token_revocations.
+--
+-- ddl-auto=update создаст пустую таблицу token_revocations, но не перенесёт в неё отзывы, сделанные
+-- до обновления, и не удалит старую колонку. Скрипт нужно выполнить один раз во время выкладки:
+--
+--   psql -h <host> -U <user> -d <db> -f token-revocations.sql
+--
+-- Переносятся только отзывы моложе времени жизни токена (jwt.expiration-minutes, по умолчанию 60 минут),
+-- более старые уже ничего не отсекают.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS token_revocations (
+    user_id     BIGINT PRIMARY KEY,
+    min_version BIGINT    NOT NULL,
+    revoked_at  TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_token_revocations_revoked_at ON token_revocations (revoked_at);
+
+INSERT INTO token_revocations (user_id, min_version, revoked_at)
+SELECT user_id, token_version, tokens_revoked_at
+FROM users
+WHERE tokens_revoked_at > now() - INTERVAL '60 minutes'
+ON CONFLICT DO NOTHING;
+
+ALTER TABLE users DROP COLUMN IF EXISTS tokens_revoked_at;
+
+COMMIT;
@@ -0,0 +1,112 @@
+package com.example.bank.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringLruCacheTest {
+
+    @Test
+    void put_ShouldEvictLeastRecentlyUsedEntry() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2, 60_000);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a"); // "b" становится самой старой записью
+        cache.put("c", "3");
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void get_ShouldDropExpiredEntry() {
+        AtomicLong now = new AtomicLong(1_000);
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, 500, now::get);
+        cache.put("key", "value");
+
+        now.addAndGet(499);
+        assertEquals("value", cache.get("key"));
+
+        now.addAndGet(1);
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void computeIfAbsent_ShouldReuseLiveEntryAndSnapshotSkipExpired() {
+        AtomicLong now = new AtomicLong(1_000);
+        ExpiringLruCache<String, List<String>> cache = new ExpiringLruCache<>(10, 500, now::get);
+        List<String> first = cache.computeIfAbsent("a", k -> List.of("a1"));
+        now.addAndGet(300);
+        cache.put("b", List.of("b1"));
+
+        assertSame(first, cache.computeIfAbsent("a", k -> List.of("a2")));
+        now.addAndGet(200);
+
+        // "a" прожила 500 мс и не попадает в снимок, "b" ещё жива
+        assertEquals(List.of("b"), List.copyOf(cache.snapshot().keySet()));
+        assertEquals(1, cache.size());
+        assertEquals(List.of("a2"), cache.computeIfAbsent("a", k -> List.of("a2")));
+    }
+
+    @Test
+    void computeIfAbsent_ShouldCreateValueOnceUnderConcurrentAccess() throws Exception {
+        ExpiringLruCache<String, Object> cache = new ExpiringLruCache<>(1000, 60_000);
+        AtomicInteger created = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                results.add(pool.submit(() -> cache.computeIfAbsent("card", k -> {
+                    created.incrementAndGet();
+                    return new Object();
+                })));
+            }
+            Object first = results.get(0).get();
+            for (Future<Object> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void put_ShouldKeepSizeNearLimitAndRecentlyReadEntries() throws Exception {
+        ExpiringLruCache<Integer, Integer> cache = new ExpiringLruCache<>(100, 60_000);
+        cache.put(-1, -1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int base = t * 10_000;
+                writers.add(pool.submit(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        cache.put(base + i, i);
+                        cache.get(-1); // часто читаемая запись не вытесняется
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        // Пока один поток вытесняет, другие продолжают вставлять, поэтому лимит может быть превышен ненадолго
+        cache.put(-2, -2);
+        assertTrue(cache.size() <= 100, () -> "size " + cache.size());
+        assertEquals(-1, cache.get(-1));
+    }
+}
@@ -0,0 +1,391 @@
+package com.example.bank.integration;
+
+import com.example.bank.Enums.Role;
+import com.example.bank.kafka.TransactionEventOutbox;
+import com.example.bank.model.card.debitCard.DebitCard;
+import com.example.bank.model.user.User;
+import com.example.bank.repository.CardRepository;
+import com.example.bank.repository.UserRepository;
+import com.example.bank.service.CardNumberAllocator;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Нагрузочный прогон REST API: приложение поднимается с профилем test (H2 в режиме PostgreSQL)
+// и embedded Kafka, outbox-ретранслятор и консьюмер уведомлений работают как в проде.
+// Нагрузка open-loop: запросы отправляются по расписанию с заданной частотой, не дожидаясь ответов,
+// задержка считается от запланированного момента отправки, поэтому очередь перед сервером не скрывается.
+//
+//   mvn test -Dtest=ApiLoadTest -Dbank.benchmark=true \
+//       -Dbank.load.users=100 -Dbank.load.rate=300 -Dbank.load.duration-seconds=60 \
+//       -Dbank.load.mix=login:5,deposit:25,withdraw:15,transfer:15,cards:20,unread:20
+//
+// Отчёт по эндпоинтам (пропускная способность, p50..p99.9, ошибки по статусам) пишется в лог,
+// гистограммы HdrHistogram — в target/load-test/<endpoint>.hgrm
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 1, topics = TransactionEventOutbox.TOPIC,
+        bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+@TestPropertySource(properties = {
+        "bank.outbox.relay.enabled=true",
+        "logging.level.com.example.bank=WARN",
+        "logging.level.com.example.bank.integration.ApiLoadTest=INFO",
+        "logging.level.org.springframework=WARN",
+        "logging.level.org.apache.kafka=WARN"
+})
+@EnabledIfSystemProperty(named = "bank.benchmark", matches = "true")
+public class ApiLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiLoadTest.class);
+
+    private static final String PASSWORD = "load-password";
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000.00");
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final int users = Integer.getInteger("bank.load.users", 100);
+    private final int rate = Integer.getInteger("bank.load.rate", 200);
+    private final int durationSeconds = Integer.getInteger("bank.load.duration-seconds", 30);
+    private final int warmupSeconds = Integer.getInteger("bank.load.warmup-seconds", 5);
+    private final int maxInFlight = Integer.getInteger("bank.load.max-in-flight", 2_000);
+    private final double maxErrorRate = Double.parseDouble(System.getProperty("bank.load.max-error-rate", "0.01"));
+    private final String mix = System.getProperty("bank.load.mix",
+            "login:5,deposit:25,withdraw:15,transfer:15,cards:20,unread:20");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardNumberAllocator cardNumberAllocator;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    // Эндпоинты смеси; имя используется в bank.load.mix и в отчёте
+    enum Endpoint {
+        LOGIN("login", "POST /auth/login"),
+        DEPOSIT("deposit", "POST /api/transactions/deposit"),
+        WITHDRAW("withdraw", "POST /api/transactions/withdraw"),
+        TRANSFER("transfer", "POST /api/transactions/transfer"),
+        CARDS("cards", "GET /api/cards/getCards"),
+        UNREAD("unread", "GET /api/notifications/unread");
+
+        final String key;
+        final String title;
+
+        Endpoint(String key, String title) {
+            this.key = key;
+            this.title = title;
+        }
+
+        static Endpoint of(String key) {
+            for (Endpoint endpoint : values()) {
+                if (endpoint.key.equals(key)) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("Unknown endpoint in bank.load.mix: " + key);
+        }
+    }
+
+    // Пользователь с двумя дебетовыми картами: переводы идут между своими картами, проверка владельца проходит
+    record LoadUser(String username, String token, long firstCardId, long secondCardId) {
+    }
+
+    @Test
+    public void openLoopMix() throws Exception {
+        String baseUrl = "http://localhost:" + port + "/api";
+        Endpoint[] schedule = weightedSchedule(mix);
+        List<LoadUser> loadUsers = seed(baseUrl);
+        log.info("Seeded {} users with {} cards, running {} req/s for {} s (+{} s warmup), mix {}",
+                users, users * 2, rate, durationSeconds, warmupSeconds, mix);
+
+        Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+        AtomicInteger inFlight = new AtomicInteger();
+        SplittableRandom random = new SplittableRandom(42);
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long totalRequests = (long) rate * (warmupSeconds + durationSeconds);
+        long warmupRequests = (long) rate * warmupSeconds;
+        long started = System.nanoTime();
+        long measureStart = started + warmupRequests * intervalNanos;
+
+        for (long i = 0; i < totalRequests; i++) {
+            long intended = started + i * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = schedule[random.nextInt(schedule.length)];
+            boolean measured = i >= warmupRequests;
+            if (inFlight.get() >= maxInFlight) {
+                // Сервер не успевает: запрос не отправляется и считается ошибкой, иначе генератор упрётся в память
+                if (measured) {
+                    stats.get(endpoint).dropped.incrementAndGet();
+                }
+                continue;
+            }
+            HttpRequest request = request(baseUrl, endpoint, loadUsers.get(random.nextInt(loadUsers.size())), random);
+            inFlight.incrementAndGet();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        inFlight.decrementAndGet();
+                        if (measured) {
+                            stats.get(endpoint).record(System.nanoTime() - intended,
+                                    error == null ? response.statusCode() : -1);
+                        }
+                    });
+        }
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        double measuredSeconds = (System.nanoTime() - measureStart) / 1e9;
+
+        double errorRate = report(stats, measuredSeconds);
+        assertTrue(errorRate <= maxErrorRate,
+                "Error rate " + String.format("%.4f", errorRate) + " exceeds bank.load.max-error-rate=" + maxErrorRate);
+    }
+
+    private List<LoadUser> seed(String baseUrl) {
+        // BCrypt считается один раз: хеш одинаковый для всех пользователей нагрузки
+        String passwordHash = passwordEncoder.encode(PASSWORD);
+        List<long[]> cardIds = new ArrayList<>(users);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int from = 0; from < users; from += 500) {
+            int to = Math.min(users, from + 500);
+            int chunkStart = from;
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = chunkStart; i < to; i++) {
+                    User user = new User();
+                    user.setUsername(username(i));
+                    user.setPassword(passwordHash);
+                    user.setEmail(username(i) + "@load.test");
+                    user.setPhoneNumber(String.format("+7999%07d", i));
+                    user.setFirstName("Load");
+                    user.setLastName("User" + i);
+                    user.setRole(Role.USER);
+                    user.setBlocked(false);
+                    user.setCreatedAt(LocalDateTime.now());
+                    userRepository.save(user);
+
+                    DebitCard first = debitCard(user);
+                    DebitCard second = debitCard(user);
+                    cardRepository.saveAll(List.of(first, second));
+                    user.setMainCard(first);
+                    cardIds.add(new long[]{first.getId(), second.getId()});
+                }
+            });
+        }
+
+        // Токены получаем через настоящий /auth/login небольшими параллельными окнами: BCrypt-проверка на сервере дорогая
+        List<LoadUser> loadUsers = new ArrayList<>(users);
+        int window = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (int from = 0; from < users; from += window) {
+            List<CompletableFuture<HttpResponse<String>>> logins = new ArrayList<>(window);
+            for (int i = from; i < Math.min(users, from + window); i++) {
+                logins.add(client.sendAsync(loginRequest(baseUrl, username(i)), HttpResponse.BodyHandlers.ofString()));
+            }
+            for (int i = from; i < Math.min(users, from + window); i++) {
+                HttpResponse<String> response = logins.get(i - from).join();
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Login of " + username(i) + " failed with " + response.statusCode());
+                }
+                loadUsers.add(new LoadUser(username(i), response.body().trim(), cardIds.get(i)[0], cardIds.get(i)[1]));
+            }
+        }
+        return loadUsers;
+    }
+
+    private DebitCard debitCard(User user) {
+        DebitCard card = new DebitCard();
+        card.setUser(user);
+        card.setCardNumber(cardNumberAllocator.nextCardNumber());
+        card.setExpiryDate(LocalDate.now().plusYears(5));
+        card.setBalance(INITIAL_BALANCE);
+        return card;
+    }
+
+    private HttpRequest request(String baseUrl, Endpoint endpoint, LoadUser user, SplittableRandom random) {
+        return switch (endpoint) {
+            case LOGIN -> loginRequest(baseUrl, user.username());
+            case DEPOSIT -> post(baseUrl + "/api/transactions/deposit", user,
+                    "{\"id\":" + user.firstCardId() + ",\"amount\":1.00,\"comment\":\"load\"}");
+            case WITHDRAW -> post(baseUrl + "/api/transactions/withdraw", user,
+                    "{\"id\":" + user.firstCardId() + ",\"amount\":1.00,\"comment\":\"load\"}");
+            case TRANSFER -> {
+                // Направление случайное, чтобы встречные переводы конкурировали за блокировки карт
+                boolean forward = random.nextBoolean();
+                long fromId = forward ? user.firstCardId() : user.secondCardId();
+                long toId = forward ? user.secondCardId() : user.firstCardId();
+                yield post(baseUrl + "/api/transactions/transfer", user,
+                        "{\"fromId\":" + fromId + ",\"toId\":" + toId + ",\"amount\":1.00,\"comment\":\"load\"}");
+            }
+            case CARDS -> get(baseUrl + "/api/cards/getCards", user);
+            case UNREAD -> get(baseUrl + "/api/notifications/unread", user);
+        };
+    }
+
+    private HttpRequest loginRequest(String baseUrl, String username) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .build();
+    }
+
+    private HttpRequest post(String url, LoadUser user, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + user.token())
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest get(String url, LoadUser user) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + user.token())
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    // Смесь "login:5,deposit:25" разворачивается в массив, из которого эндпоинт выбирается равновероятно
+    static Endpoint[] weightedSchedule(String mix) {
+        List<Endpoint> schedule = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            Endpoint endpoint = Endpoint.of(pair[0].trim());
+            int weight = Integer.parseInt(pair[1].trim());
+            for (int i = 0; i < weight; i++) {
+                schedule.add(endpoint);
+            }
+        }
+        if (schedule.isEmpty()) {
+            throw new IllegalArgumentException("bank.load.mix has no endpoints: " + mix);
+        }
+        return schedule.toArray(new Endpoint[0]);
+    }
+
+    private double report(Map<Endpoint, EndpointStats> stats, double measuredSeconds) throws IOException {
+        Path directory = Path.of("target", "load-test");
+        Files.createDirectories(directory);
+        long totalRequests = 0;
+        long totalErrors = 0;
+        StringBuilder table = new StringBuilder(String.format("%n%-34s %9s %9s %8s %8s %8s %8s %8s %8s  %s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors", "statuses"));
+        for (Map.Entry<Endpoint, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats endpointStats = entry.getValue();
+            Histogram histogram;
+            Map<Integer, Long> statuses;
+            synchronized (endpointStats) {
+                histogram = endpointStats.histogram.copy();
+                statuses = new TreeMap<>(endpointStats.statuses);
+            }
+            long requests = histogram.getTotalCount() + endpointStats.dropped.get();
+            if (requests == 0) {
+                continue;
+            }
+            long errors = endpointStats.errors.get() + endpointStats.dropped.get();
+            totalRequests += requests;
+            totalErrors += errors;
+            if (endpointStats.dropped.get() > 0) {
+                statuses.put(0, endpointStats.dropped.get());
+            }
+            table.append(String.format("%-34s %9d %9.1f %8.2f %8.2f %8.2f %8.2f %8.2f %7.2f%%  %s%n",
+                    entry.getKey().title, requests, histogram.getTotalCount() / measuredSeconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()), errors * 100.0 / requests, statuses));
+            try (PrintStream out = new PrintStream(
+                    new FileOutputStream(directory.resolve(entry.getKey().key + ".hgrm").toFile()))) {
+                histogram.outputPercentileDistribution(out, 1_000_000.0);
+            }
+        }
+        double errorRate = totalRequests == 0 ? 0 : (double) totalErrors / totalRequests;
+        table.append(String.format("total: %d requests, %.1f req/s, error rate %.2f%% (status 0 = dropped, -1 = I/O error)",
+                totalRequests, totalRequests / measuredSeconds, errorRate * 100));
+        log.info("Load test report ({} req/s offered, {} s measured):{}", rate, String.format("%.1f", measuredSeconds), table);
+        return errorRate;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static String username(int i) {
+        return "load-user-" + i;
+    }
+
+    // Статистика одного эндпоинта; ответы приходят из потоков HttpClient, поэтому запись синхронизирована
+    static final class EndpointStats {
+        final Histogram histogram = new Histogram(MAX_LATENCY_NANOS, 3);
+        final Map<Integer, Long> statuses = new TreeMap<>();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+
+        synchronized void record(long latencyNanos, int status) {
+            histogram.recordValue(Math.min(latencyNanos, MAX_LATENCY_NANOS));
+            statuses.merge(status, 1L, Long::sum);
+            if (status < 200 || status >= 300) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.bank.integration;
+
+import com.example.bank.model.card.creditCard.CreditCard;
+import com.example.bank.model.card.creditCard.CreditCardCreateRequest;
+import com.example.bank.model.transaction.TransactionOperationRequest;
+import com.example.bank.model.user.CreateUserDto;
+import com.example.bank.model.user.LoginRequest;
+import com.example.bank.repository.CreditCardRepository;
+import com.example.bank.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Операции по кредитной карте на прежней раскладке JOINED (META-INF/card-joined-orm.xml).
+// Своя база: create-drop этой раскладки не должен менять схему, которую используют закэшированные контексты SINGLE_TABLE.
+// На JOINED Hibernate выполняет HQL UPDATE кредитной карты как многотабличный; с PostgreSQL-диалектом это
+// WITH ... MATERIALIZED, который H2 не разбирает. Поэтому тест явно включает InlineMutationStrategy
+// (выборка id и UPDATE ... WHERE id IN) и проверяет логику раскладки, а не тот CTE-SQL, который выполняется в PostgreSQL
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:joineddb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;MODE=PostgreSQL",
+        "spring.jpa.mapping-resources=META-INF/card-joined-orm.xml",
+        "spring.jpa.properties.hibernate.query.mutation_strategy=org.hibernate.query.sqm.mutation.internal.inline.InlineMutationStrategy"
+})
+public class CardJoinedLayoutIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String userToken;
+    private Long creditCardId;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        String adminToken = login("admin", "admin123");
+
+        CreateUserDto userDto = new CreateUserDto();
+        userDto.setUsername("joineduser");
+        userDto.setPassword("password123");
+        userDto.setFirstName("Joined");
+        userDto.setLastName("User");
+        userDto.setEmail("joined@example.com");
+        userDto.setPhoneNumber("5550001111");
+        mockMvc.perform(post("/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userDto)))
+                .andExpect(status().isOk());
+        userToken = login("joineduser", "password123");
+
+        CreditCardCreateRequest request = new CreditCardCreateRequest();
+        request.setUserId(userRepository.findByUsername("joineduser").orElseThrow().getUserId());
+        request.setCreditLimit(new BigDecimal("5000.00"));
+        request.setInterestRate(new BigDecimal("12.00"));
+        request.setGracePeriod(30);
+        String cardResponse = mockMvc.perform(post("/api/credit-cards/createforadmin")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        creditCardId = objectMapper.readTree(cardResponse).get("id").asLong();
+    }
+
+    @Test
+    public void creditWithdrawAndDeposit_updateDebtInCreditCardsTable() throws Exception {
+        perform("withdraw", "1000.00");
+        // Поля кредитной карты действительно лежат в отдельной таблице
+        assertEquals(0, new BigDecimal("1000.00").compareTo(jdbcTemplate.queryForObject(
+                "SELECT debt FROM credit_cards WHERE id = ?", BigDecimal.class, creditCardId)));
+
+        CreditCard afterWithdraw = creditCardRepository.findById(creditCardId).orElseThrow();
+        assertEquals(0, new BigDecimal("4000.00").compareTo(afterWithdraw.getBalance()));
+        assertEquals(0, new BigDecimal("1000.00").compareTo(afterWithdraw.getDebt()));
+        assertEquals(0, new BigDecimal("1000.00").compareTo(afterWithdraw.getTotalDebt()));
+
+        perform("deposit", "400.00");
+        CreditCard afterDeposit = creditCardRepository.findById(creditCardId).orElseThrow();
+        assertEquals(0, new BigDecimal("4400.00").compareTo(afterDeposit.getBalance()));
+        assertEquals(0, new BigDecimal("600.00").compareTo(afterDeposit.getDebt()));
+        assertEquals(0, new BigDecimal("600.00").compareTo(afterDeposit.getTotalDebt()));
+    }
+
+    @Test
+    public void accrueInterestInRange_updatesCreditCardsTable() throws Exception {
+        perform("withdraw", "1200.00");
+        LocalDate period = LocalDate.now().withDayOfMonth(1);
+
+        // 12% годовых: 1% в месяц от долга 1200
+        assertEquals(1, creditCardRepository.accrueInterestInRange(creditCardId, creditCardId + 1, period));
+        CreditCard card = creditCardRepository.findById(creditCardId).orElseThrow();
+        assertEquals(0, new BigDecimal("12.00").compareTo(card.getAccruedInterest()));
+        assertEquals(0, new BigDecimal("1212.00").compareTo(card.getTotalDebt()));
+        assertEquals(period, card.getLastInterestAccrual());
+
+        // Повторный запуск за тот же период карту пропускает
+        assertEquals(0, creditCardRepository.accrueInterestInRange(creditCardId, creditCardId + 1, period));
+
+        // Пополнение сначала гасит начисленные проценты, долг в credit_cards уменьшается на остаток
+        perform("deposit", "100.00");
+        CreditCard afterDeposit = creditCardRepository.findById(creditCardId).orElseThrow();
+        assertEquals(0, new BigDecimal("3888.00").compareTo(afterDeposit.getBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(afterDeposit.getAccruedInterest()));
+        assertEquals(0, new BigDecimal("1112.00").compareTo(afterDeposit.getDebt()));
+        assertEquals(0, new BigDecimal("1112.00").compareTo(afterDeposit.getTotalDebt()));
+    }
+
+    private void perform(String operation, String amount) throws Exception {
+        TransactionOperationRequest request = new TransactionOperationRequest();
+        request.setId(creditCardId);
+        request.setAmount(new BigDecimal(amount));
+        mockMvc.perform(post("/api/transactions/" + operation)
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+    }
+
+    private String login(String username, String password) throws Exception {
+        return mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequest(username, password))))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.bank.integration;
+
+import com.example.bank.model.card.Card;
+import com.example.bank.model.card.creditCard.CreditCard;
+import com.example.bank.model.card.debitCard.DebitCard;
+import com.example.bank.model.user.User;
+import com.example.bank.repository.CardRepository;
+import com.example.bank.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongConsumer;
+
+// Задержки чтения и обновления карт для текущей раскладки иерархии.
+// Запускается дважды и результаты сравниваются:
+//   mvn test -Dspring.profiles.active=test -Dtest=CardLayoutBenchmarkTest -Dbank.benchmark=true
+//   mvn test -Dspring.profiles.active=test -Dtest=CardLayoutBenchmarkTest -Dbank.benchmark=true \
+//       -Dspring.jpa.mapping-resources=META-INF/card-joined-orm.xml
+// Каждая операция начинается с пустого persistence context, чтобы чтение шло в БД
+@SpringBootTest
+@EnabledIfSystemProperty(named = "bank.benchmark", matches = "true")
+public class CardLayoutBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(CardLayoutBenchmarkTest.class);
+    private static final int CARDS = 2_000;
+    private static final int OPERATIONS = 5_000;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${spring.jpa.mapping-resources:}")
+    private String mappingResources;
+
+    @Test
+    public void readAndUpdateLatency() {
+        String layout = mappingResources.contains("card-joined") ? "JOINED" : "SINGLE_TABLE";
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> ids = new ArrayList<>(CARDS);
+            List<String> numbers = new ArrayList<>(CARDS);
+            createCards(ids, numbers);
+            Random random = new Random(42);
+
+            measure(layout, "findById", i -> cardRepository.findById(ids.get(random.nextInt(CARDS))).orElseThrow());
+            measure(layout, "findByCardNumber", i -> cardRepository.findByCardNumber(numbers.get(random.nextInt(CARDS))).orElseThrow());
+            measure(layout, "credit card update", i -> {
+                // Чётные индексы — кредитные карты: баланс и долг меняются вместе, как при списании
+                CreditCard card = (CreditCard) cardRepository.findById(ids.get(random.nextInt(CARDS / 2) * 2)).orElseThrow();
+                card.setBalance(card.getBalance().subtract(BigDecimal.ONE));
+                card.setDebt(card.getDebt().add(BigDecimal.ONE));
+                card.updateTotalDebt();
+                entityManager.flush();
+            });
+            measure(layout, "debit card update", i -> {
+                Card card = cardRepository.findById(ids.get(random.nextInt(CARDS / 2) * 2 + 1)).orElseThrow();
+                card.setBalance(card.getBalance().add(BigDecimal.ONE));
+                entityManager.flush();
+            });
+            status.setRollbackOnly();
+        });
+    }
+
+    private void createCards(List<Long> ids, List<String> numbers) {
+        User user = userRepository.findByUsername("admin").orElseThrow();
+        for (int i = 0; i < CARDS; i++) {
+            Card card = i % 2 == 0 ? creditCard() : new DebitCard();
+            card.setUser(user);
+            card.setCardNumber("43" + String.format("%014d", i));
+            card.setExpiryDate(LocalDate.now().plusYears(5));
+            entityManager.persist(card);
+            ids.add(card.getId());
+            numbers.add(card.getCardNumber());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private CreditCard creditCard() {
+        CreditCard card = new CreditCard();
+        card.setCreditLimit(new BigDecimal("10000"));
+        card.setBalance(new BigDecimal("10000"));
+        card.setInterestRate(new BigDecimal("15"));
+        return card;
+    }
+
+    private void measure(String layout, String operation, LongConsumer work) {
+        long[] nanos = new long[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            entityManager.clear();
+            long started = System.nanoTime();
+            work.accept(i);
+            nanos[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+        double avgMicros = Arrays.stream(nanos).average().orElse(0) / 1_000;
+        log.info("{} {}: avg {} us, p50 {} us, p99 {} us, {} ops/sec", layout, operation,
+                String.format("%.1f", avgMicros), nanos[OPERATIONS / 2] / 1_000, nanos[OPERATIONS * 99 / 100] / 1_000,
+                String.format("%.0f", avgMicros == 0 ? 0 : 1_000_000 / avgMicros));
+    }
+}
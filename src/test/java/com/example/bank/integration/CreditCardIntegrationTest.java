@@ -207,6 +207,22 @@ public class CreditCardIntegrationTest {
                 .andExpect(jsonPath("$.creditLimit").value(6000.00));
     }
 
+    @Test
+    public void increaseCreditLimit_asAdmin_keepsLedgerInSyncWithBalance() throws Exception {
+        mockMvc.perform(put("/api/credit-cards/{id}/increase-limit", creditCardId)
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("newLimit", "6000.00")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(6000.00));
+
+        // Проводка лимита получила следующий номер после проводки открытия карты и вошла в баланс по журналу
+        mockMvc.perform(get("/api/ledger/cards/" + creditCardId + "/balance")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(6000.00));
+    }
+
     @Test
     public void increaseCreditLimit_asUser_returnsForbidden() throws Exception {
         // Пытаемся увеличить кредитный лимит как обычный пользователь
@@ -222,6 +238,8 @@ public class CreditCardIntegrationTest {
         mockMvc.perform(post("/api/credit-cards/accrue-interest")
                         .header("Authorization", "Bearer " + adminToken)
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.chunksTotal").value(1))
+                .andExpect(jsonPath("$.chunksFailed").value(0));
     }
 }
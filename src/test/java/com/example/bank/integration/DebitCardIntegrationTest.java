@@ -1,10 +1,14 @@
 package com.example.bank.integration;
 
+import com.example.bank.Enums.Role;
+import com.example.bank.model.card.debitCard.DebitCard;
 import com.example.bank.model.user.CreateUserDto;
 import com.example.bank.model.user.User;
+import com.example.bank.repository.CardRepository;
 import com.example.bank.repository.UserRepository;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +18,10 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -25,6 +33,9 @@ public class DebitCardIntegrationTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CardRepository cardRepository;
+
 
     @Autowired
     private MockMvc mockMvc;
@@ -32,6 +43,9 @@ public class DebitCardIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EntityManager entityManager;
+
     private Long userId;
     private String adminToken;
     private String userToken;
@@ -135,5 +149,85 @@ public class DebitCardIntegrationTest {
                 .andExpect(status().isNoContent());
     }
 
+    @Test
+    public void bulkIssue_asAdmin_streamsResultPerLine() throws Exception {
+        String body = "userId,type,creditLimit\n" + userId + ",DEBIT\n" + userId + ",CREDIT,5000\n999999,DEBIT\n";
 
-}
\ No newline at end of file
+        String response = mockMvc.perform(post("/api/cards/bulk")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType("text/csv")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = response.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("CREATED", objectMapper.readTree(lines[0]).get("status").asText());
+        assertEquals("CREDIT", objectMapper.readTree(lines[1]).get("type").asText());
+        assertEquals("ERROR", objectMapper.readTree(lines[2]).get("status").asText());
+        assertEquals(3, cardRepository.findByUserUserId(userId).size());
+    }
+
+    @Test
+    public void bulkIssue_asUser_isRejected() throws Exception {
+        mockMvc.perform(post("/api/cards/bulk")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType("application/x-ndjson")
+                        .content("{\"userId\":" + userId + ",\"type\":\"DEBIT\"}\n"))
+                .andExpect(status().isInternalServerError());
+
+        assertEquals(1, cardRepository.findByUserUserId(userId).size());
+    }
+
+    @Test
+    public void listAllCards_asAdmin_queryCountDoesNotGrowWithCardOwners() throws Exception {
+        createCardOwners("few", 2);
+        long withFewOwners = countAllCardsPageStatements();
+
+        createCardOwners("many", 6);
+        long withManyOwners = countAllCardsPageStatements();
+
+        // Владельцы и их основные карты приходят вместе со страницей, а не отдельным SELECT на каждого;
+        // count не выполняется, пока все карты помещаются на одну страницу
+        assertEquals(withFewOwners, withManyOwners);
+        assertEquals(1, withManyOwners);
+    }
+
+    @Test
+    public void getCards_asUser_staysWithinQueryBudget() throws Exception {
+        entityManager.flush();
+        entityManager.clear();
+        QueryCounter.assertAtMost(2, "GET /api/cards/getCards", () -> mockMvc.perform(get("/api/cards/getCards")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk()));
+    }
+
+    private void createCardOwners(String prefix, int owners) {
+        for (int i = 0; i < owners; i++) {
+            User owner = new User();
+            owner.setUsername(prefix + "-owner-" + i);
+            owner.setPassword("x");
+            owner.setRole(Role.USER);
+            owner.setCreatedAt(LocalDateTime.now());
+            userRepository.save(owner);
+
+            DebitCard card = new DebitCard();
+            card.setUser(owner);
+            card.setCardNumber(String.format("4999%012d", owner.getUserId()));
+            card.setExpiryDate(LocalDate.now().plusYears(3));
+            cardRepository.save(card);
+            owner.setMainCard(card);
+        }
+    }
+
+    private long countAllCardsPageStatements() throws Exception {
+        entityManager.flush();
+        entityManager.clear();
+        return QueryCounter.count(() -> mockMvc.perform(get("/api/cards/all")
+                        .param("size", "100")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk()));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.bank.integration;
+
+import com.example.bank.Enums.NotflicationType;
+import com.example.bank.model.Notification;
+import com.example.bank.model.card.debitCard.DebitCard;
+import com.example.bank.model.user.User;
+import com.example.bank.repository.NotificationBatchWriter;
+import com.example.bank.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Замер скорости массовой вставки уведомлений и выпуска карт.
+// "row-by-row" — INSERT на каждую сущность сразу при persist, как было с IDENTITY
+// (detach после flush, чтобы persistence context не рос и не искажал замер).
+// "batched" — один flush на пачку: pooled-последовательность + hibernate.jdbc.batch_size.
+// Запуск: mvn test -Dspring.profiles.active=test -Dtest=IdGenerationBenchmarkTest -Dbank.benchmark=true
+// (для PostgreSQL дополнительно -Dspring.datasource.url=... и учётные данные)
+@SpringBootTest
+@EnabledIfSystemProperty(named = "bank.benchmark", matches = "true")
+public class IdGenerationBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGenerationBenchmarkTest.class);
+    private static final int ROWS = 5_000;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NotificationBatchWriter notificationWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void notificationInserts() {
+        Long userId = userRepository.findByUsername("admin").orElseThrow().getUserId();
+
+        measure("notifications row-by-row", rows -> {
+            for (int i = 0; i < rows; i++) {
+                Notification notification = notification(userId, i);
+                entityManager.persist(notification);
+                entityManager.flush();
+                entityManager.detach(notification);
+            }
+        });
+        measure("notifications batched", rows -> {
+            for (int i = 0; i < rows; i++) {
+                entityManager.persist(notification(userId, i));
+            }
+            entityManager.flush();
+        });
+        measure("notifications jdbc writer", rows -> {
+            List<Notification> notifications = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                notifications.add(notification(userId, i));
+            }
+            assertEquals(rows, notificationWriter.insertAll(notifications, 500));
+        });
+    }
+
+    @Test
+    public void cardIssuance() {
+        User owner = userRepository.findByUsername("admin").orElseThrow();
+
+        measure("cards row-by-row", rows -> {
+            User user = entityManager.merge(owner);
+            for (int i = 0; i < rows; i++) {
+                DebitCard card = card(user, "4100" + String.format("%012d", i));
+                entityManager.persist(card);
+                entityManager.flush();
+                entityManager.detach(card);
+            }
+        });
+        measure("cards batched", rows -> {
+            User user = entityManager.merge(owner);
+            for (int i = 0; i < rows; i++) {
+                entityManager.persist(card(user, "4200" + String.format("%012d", i)));
+            }
+            entityManager.flush();
+        });
+    }
+
+    // Каждый прогон в своей транзакции с откатом, чтобы не оставлять данные в базе
+    private void measure(String name, Consumer<Integer> work) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            long started = System.nanoTime();
+            work.accept(ROWS);
+            long elapsedMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+            log.info("{}: {} rows in {} ms, {} rows/sec",
+                    name, ROWS, elapsedMs, String.format("%.1f", ROWS * 1000.0 / elapsedMs));
+            entityManager.clear();
+            status.setRollbackOnly();
+        });
+    }
+
+    private Notification notification(Long userId, int i) {
+        Notification notification = new Notification();
+        notification.setUserId(userId);
+        notification.setType(NotflicationType.DEPOSIT);
+        notification.setTitle("Зачисление");
+        notification.setCardNumber("**** **** **** 0000");
+        notification.setMessage("Benchmark notification " + i);
+        notification.setAmount(BigDecimal.TEN);
+        return notification;
+    }
+
+    private DebitCard card(User user, String cardNumber) {
+        DebitCard card = new DebitCard();
+        card.setCardNumber(cardNumber);
+        card.setUser(user);
+        card.setExpiryDate(LocalDate.now().plusYears(5));
+        return card;
+    }
+}
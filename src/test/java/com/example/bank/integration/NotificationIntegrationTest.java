@@ -0,0 +1,211 @@
+package com.example.bank.integration;
+
+import com.example.bank.Enums.NotflicationType;
+import com.example.bank.mapper.NotificationMapper;
+import com.example.bank.model.Notification;
+import com.example.bank.model.user.LoginRequest;
+import com.example.bank.repository.NotificationRepository;
+import com.example.bank.repository.UserRepository;
+import com.example.bank.service.NotificationRetentionService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Keyset-страницы уведомлений, массовая отметка о прочтении, счётчик непрочитанных и срок хранения
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class NotificationIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationRetentionService notificationRetentionService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Long adminId;
+    private String adminToken;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        adminToken = mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequest("admin", "admin123"))))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString()
+                .trim();
+        adminId = userRepository.findByUsername("admin").orElseThrow().getUserId();
+    }
+
+    @Test
+    public void unread_pagesNewestFirstAndMarksOnlyReturnedPageRead() throws Exception {
+        long unreadBefore = unreadCount();
+        List<Long> ids = save(5);
+
+        MockHttpServletResponse first = getPage("/api/notifications/unread?size=2");
+        assertEquals(List.of(ids.get(4), ids.get(3)), idsOf(first));
+        assertEquals(String.valueOf(ids.get(3)), first.getHeader("X-Next-Cursor"));
+        assertTrue(readJson(first).get(0).get("read").asBoolean());
+        assertEquals(unreadBefore + 3, unreadCount());
+
+        // Следующая страница непрочитанных начинается ниже курсора
+        MockHttpServletResponse second = getPage("/api/notifications/unread?size=2&cursor=" + first.getHeader("X-Next-Cursor"));
+        assertEquals(List.of(ids.get(2), ids.get(1)), idsOf(second));
+        assertEquals(unreadBefore + 1, unreadCount());
+
+        // /all отдаёт и прочитанные, и непрочитанные в порядке id
+        MockHttpServletResponse all = getPage("/api/notifications/all?size=5");
+        assertEquals(List.of(ids.get(4), ids.get(3), ids.get(2), ids.get(1), ids.get(0)), idsOf(all).subList(0, 5));
+    }
+
+    @Test
+    public void markRead_closesEverythingUpToIdWithSingleStatement() throws Exception {
+        List<Long> ids = save(4);
+        long unreadBefore = unreadCount();
+
+        clearPersistenceContext();
+        String body = QueryCounter.assertAtMost(2, "POST /api/notifications/read", () -> mockMvc.perform(
+                        post("/api/notifications/read")
+                                .header("Authorization", "Bearer " + adminToken)
+                                .param("upToId", String.valueOf(ids.get(2))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        assertTrue(objectMapper.readTree(body).get("count").asLong() >= 3);
+        clearPersistenceContext();
+        assertEquals(unreadBefore - objectMapper.readTree(body).get("count").asLong(), unreadCount());
+        assertFalse(notificationRepository.findById(ids.get(3)).orElseThrow().getRead());
+        assertTrue(notificationRepository.findById(ids.get(0)).orElseThrow().getRead());
+    }
+
+    @Test
+    public void notificationPages_queryCountDoesNotGrowWithHistory() throws Exception {
+        save(3);
+        long smallUnread = countPageStatements("/api/notifications/unread?size=2");
+        long smallAll = countPageStatements("/api/notifications/all?size=2");
+
+        save(60);
+        assertEquals(smallUnread, countPageStatements("/api/notifications/unread?size=2"));
+        assertEquals(smallAll, countPageStatements("/api/notifications/all?size=2"));
+    }
+
+    @Test
+    public void retention_purgesExpiredByTypeAndReadsSkipPastHorizon() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        Long expiredInfo = save(NotflicationType.INFO, now.minusDays(40));
+        Long keptDeposit = save(NotflicationType.DEPOSIT, now.minusDays(40));
+        Long expiredDeposit = save(NotflicationType.DEPOSIT, now.minusDays(200));
+
+        // Старше самого долгого срока хранения — не показывается ещё до удаления
+        clearPersistenceContext();
+        List<Long> visible = idsOf(getPage("/api/notifications/all?size=200"));
+        assertTrue(visible.contains(keptDeposit));
+        assertFalse(visible.contains(expiredDeposit));
+
+        NotificationRetentionService.PurgeResult result = notificationRetentionService.purge(now);
+
+        clearPersistenceContext();
+        assertTrue(result.deletedRows() >= 2);
+        assertTrue(result.droppedPartitions().isEmpty());
+        assertFalse(notificationRepository.existsById(expiredInfo));
+        assertFalse(notificationRepository.existsById(expiredDeposit));
+        assertTrue(notificationRepository.existsById(keptDeposit));
+    }
+
+    @Test
+    public void unread_withInvalidCursor_isRejected() throws Exception {
+        mockMvc.perform(get("/api/notifications/unread")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<Long> save(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Notification notification = new Notification();
+            notification.setUserId(adminId);
+            notification.setType(NotflicationType.DEPOSIT);
+            notification.setTitle("Зачисление");
+            notification.setMessage("Пополнение на сумму " + (i + 1) + " ₽");
+            notification.setAmount(BigDecimal.valueOf(i + 1));
+            ids.add(notificationRepository.save(notification).getId());
+        }
+        return ids;
+    }
+
+    private Long save(NotflicationType type, LocalDateTime createdAt) {
+        Notification notification = new Notification();
+        notification.setUserId(adminId);
+        notification.setType(type);
+        notification.setTitle(NotificationMapper.toTitle(type));
+        notification.setMessage("Уведомление от " + createdAt);
+        notification.setCreatedAt(createdAt);
+        return notificationRepository.save(notification).getId();
+    }
+
+    private long unreadCount() throws Exception {
+        clearPersistenceContext();
+        return readJson(getPage("/api/notifications/unread/count")).get("count").asLong();
+    }
+
+    private long countPageStatements(String url) throws Exception {
+        clearPersistenceContext();
+        return QueryCounter.count(() -> getPage(url));
+    }
+
+    private MockHttpServletResponse getPage(String url) throws Exception {
+        return mockMvc.perform(get(url).header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+    }
+
+    private List<Long> idsOf(MockHttpServletResponse response) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        readJson(response).forEach(node -> ids.add(node.get("id").asLong()));
+        return ids;
+    }
+
+    private JsonNode readJson(MockHttpServletResponse response) throws Exception {
+        return objectMapper.readTree(response.getContentAsString());
+    }
+
+    private void clearPersistenceContext() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.bank.integration;
+
+import com.example.bank.Enums.NotflicationType;
+import com.example.bank.model.Notification;
+import com.example.bank.model.user.LoginRequest;
+import com.example.bank.repository.NotificationBatchWriter;
+import com.example.bank.repository.NotificationRepository;
+import com.example.bank.repository.UserRepository;
+import com.example.bank.service.NotificationPushService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.MockMvcPrint;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Поток уведомлений: догонка по Last-Event-ID и доставка новых уведомлений подключённому клиенту.
+// Без @Transactional: догонку читает поток доставки, ему нужны зафиксированные строки.
+// Без печати MockMvc: ответ потока дописывает поток доставки, печать заголовков гонялась бы с ним
+@SpringBootTest
+@AutoConfigureMockMvc(print = MockMvcPrint.NONE)
+public class NotificationStreamIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationPushService notificationPushService;
+
+    @Autowired
+    private NotificationBatchWriter notificationWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> createdNotifications = new ArrayList<>();
+    private Long adminId;
+    private String adminToken;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        adminToken = mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequest("admin", "admin123"))))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString()
+                .trim();
+        adminId = userRepository.findByUsername("admin").orElseThrow().getUserId();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        notificationRepository.deleteAllById(createdNotifications);
+    }
+
+    @Test
+    public void stream_replaysMissedNotificationsAndPushesNewOnes() throws Exception {
+        Notification seen = save("100.00");
+        Notification missed = save("200.00");
+
+        MockHttpServletResponse response = subscribe(seen.getUserSeq());
+
+        // Догонка: только то, что новее Last-Event-ID
+        awaitContent(response, "id:" + missed.getUserSeq() + "\n");
+        assertFalse(response.getContentAsString().contains("id:" + seen.getUserSeq() + "\n"));
+        assertTrue(response.getContentAsString().contains("event:" + NotificationPushService.EVENT_NAME));
+
+        // Новое уведомление после вставки консьюмером уходит в открытый поток
+        Notification fresh = save("300.00");
+        notificationPushService.publish(List.of(fresh));
+        awaitContent(response, "id:" + fresh.getUserSeq() + "\n");
+        // Строки id и data события пишутся в ответ по отдельности
+        awaitContent(response, "\"amount\":300.00");
+        assertTrue(notificationPushService.getConnections() >= 1);
+    }
+
+    @Test
+    public void stream_fillsGapInUserSeqFromDatabaseAndDropsRepeats() throws Exception {
+        Notification seen = save("100.00");
+        MockHttpServletResponse response = subscribe(seen.getUserSeq());
+
+        // Рассылка lost не дошла до этого экземпляра, пришла только следующая
+        Notification lost = save("200.00");
+        Notification next = save("300.00");
+        // Номера пользователя выдаются подряд
+        assertEquals(seen.getUserSeq() + 1, lost.getUserSeq());
+        assertEquals(lost.getUserSeq() + 1, next.getUserSeq());
+        notificationPushService.publish(List.of(next));
+        awaitContent(response, "id:" + next.getUserSeq() + "\n");
+        assertTrue(response.getContentAsString().contains("id:" + lost.getUserSeq() + "\n"));
+        assertTrue(response.getContentAsString().indexOf("id:" + lost.getUserSeq() + "\n")
+                < response.getContentAsString().indexOf("id:" + next.getUserSeq() + "\n"));
+
+        // Повтор уже отправленного (рассылка с опозданием) в поток не попадает
+        notificationPushService.publish(List.of(lost, next));
+        Notification last = save("400.00");
+        notificationPushService.publish(List.of(last));
+        awaitContent(response, "id:" + last.getUserSeq() + "\n");
+        String content = response.getContentAsString();
+        assertEquals(content.indexOf("id:" + next.getUserSeq() + "\n"), content.lastIndexOf("id:" + next.getUserSeq() + "\n"));
+    }
+
+    @Test
+    public void stream_withoutToken_isRejected() throws Exception {
+        mockMvc.perform(get("/api/notifications/stream"))
+                .andExpect(status().is4xxClientError());
+    }
+
+    private MockHttpServletResponse subscribe(Long lastEventId) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/notifications/stream")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .header("Last-Event-ID", lastEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return result.getResponse();
+    }
+
+    // Как консьюмер: пакетная вставка выдаёт id и номер userSeq
+    private Notification save(String amount) {
+        Notification notification = new Notification();
+        notification.setUserId(adminId);
+        notification.setType(NotflicationType.DEPOSIT);
+        notification.setTitle("Зачисление");
+        notification.setMessage("Пополнение на сумму " + amount + " ₽");
+        notification.setAmount(new BigDecimal(amount));
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> notificationWriter.insertAll(List.of(notification), 10));
+        createdNotifications.add(notification.getId());
+        return notification;
+    }
+
+    private void awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!response.getContentAsString().contains(expected)) {
+            assertTrue(System.currentTimeMillis() < deadline,
+                    "Stream did not receive " + expected + ": " + response.getContentAsString());
+            Thread.sleep(20);
+        }
+    }
+}
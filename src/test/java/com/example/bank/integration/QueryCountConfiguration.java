@@ -0,0 +1,47 @@
+package com.example.bank.integration;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+// Подсчёт SQL-запросов в интеграционных тестах: DataSource оборачивается datasource-proxy со счётчиком
+// на поток (QueryCounter), QueryCountFilter собирает отчёт по эндпоинтам. Подключается ко всем тестам
+// с @AutoConfigureMockMvc через test-ресурс META-INF/spring/...AutoConfigureMockMvc.imports
+@TestConfiguration
+public class QueryCountConfiguration {
+
+    @Bean
+    static BeanPostProcessor queryCountingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(QueryCounter.DATA_SOURCE)
+                            .countQuery()
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    QueryCountFilter queryCountFilter() {
+        return new QueryCountFilter();
+    }
+
+    // Снаружи цепочки Spring Security, чтобы в счёт попадали и запросы фильтра аутентификации
+    @Bean
+    FilterRegistrationBean<QueryCountFilter> queryCountFilterRegistration(QueryCountFilter queryCountFilter) {
+        FilterRegistrationBean<QueryCountFilter> registration = new FilterRegistrationBean<>(queryCountFilter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
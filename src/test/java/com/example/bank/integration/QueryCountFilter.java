@@ -0,0 +1,80 @@
+package com.example.bank.integration;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Число SQL-запросов на каждый эндпоинт за прогон тестов. Сводка копится между контекстами одного прогона
+// и перезаписывается при закрытии каждого из них, так что после mvn test в target/query-counts/endpoints.csv
+// лежат все эндпоинты, отсортированные по максимуму запросов на вызов — CI сохраняет файл как артефакт
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryCountFilter.class);
+    private static final Path REPORT = Path.of("target", "query-counts", "endpoints.csv");
+    private static final Map<String, EndpointStats> ENDPOINTS = new ConcurrentHashMap<>();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long before = QueryCounter.current();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String endpoint = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+            ENDPOINTS.computeIfAbsent(endpoint, e -> new EndpointStats()).record(QueryCounter.current() - before);
+        }
+    }
+
+    // GenericFilterBean вызывает destroy() при закрытии контекста
+    @Override
+    public void destroy() {
+        List<Map.Entry<String, EndpointStats>> rows = new ArrayList<>(ENDPOINTS.entrySet());
+        if (rows.isEmpty()) {
+            return;
+        }
+        rows.sort(Comparator.comparing((Map.Entry<String, EndpointStats> row) -> row.getValue().max).reversed()
+                .thenComparing(Map.Entry::getKey));
+        List<String> lines = new ArrayList<>();
+        lines.add("endpoint,requests,max_statements,avg_statements");
+        for (Map.Entry<String, EndpointStats> row : rows) {
+            EndpointStats stats = row.getValue();
+            lines.add(String.format("\"%s\",%d,%d,%.1f", row.getKey(), stats.requests, stats.max,
+                    (double) stats.total / stats.requests));
+        }
+        try {
+            Files.createDirectories(REPORT.getParent());
+            Files.write(REPORT, lines);
+        } catch (IOException e) {
+            log.warn("Could not write query count report {}: {}", REPORT, e.getMessage());
+        }
+        log.info("SQL statements per endpoint ({} endpoints, {}):\n{}", rows.size(), REPORT,
+                String.join("\n", lines));
+    }
+
+    private static class EndpointStats {
+        private long requests;
+        private long total;
+        private long max;
+
+        synchronized void record(long statements) {
+            requests++;
+            total += statements;
+            max = Math.max(max, statements);
+        }
+    }
+}
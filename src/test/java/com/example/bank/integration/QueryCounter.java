@@ -0,0 +1,47 @@
+package com.example.bank.integration;
+
+import net.ttddyy.dsproxy.QueryCount;
+import net.ttddyy.dsproxy.QueryCountHolder;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Число SQL-запросов, выполненных текущим потоком через DataSource из QueryCountConfiguration.
+// MockMvc обрабатывает запрос в потоке теста, поэтому счётчик видит все запросы эндпоинта (JPA, JdbcTemplate,
+// нативные) и не видит фоновые задачи. Перед замером EntityManager очищается, иначе кэш первого уровня
+// тестовой транзакции прячет ленивые и EAGER-загрузки
+public final class QueryCounter {
+
+    public static final String DATA_SOURCE = "bank";
+
+    private QueryCounter() {
+    }
+
+    public static long current() {
+        QueryCount count = QueryCountHolder.get(DATA_SOURCE);
+        return count == null ? 0 : count.getTotal();
+    }
+
+    // Без обёртки DataSource счётчик молча показывал бы ноль, и любой бюджет проходил бы
+    private static long measured(long before) {
+        assertTrue(QueryCountHolder.get(DATA_SOURCE) != null,
+                "SQL statements are not counted: the test context has no QueryCountConfiguration (needs @AutoConfigureMockMvc)");
+        return current() - before;
+    }
+
+    public static long count(Callable<?> work) throws Exception {
+        long before = current();
+        work.call();
+        return measured(before);
+    }
+
+    public static <T> T assertAtMost(long max, String operation, Callable<T> work) throws Exception {
+        long before = current();
+        T result = work.call();
+        long executed = measured(before);
+        assertTrue(executed <= max,
+                () -> operation + " executed " + executed + " SQL statements, expected at most " + max);
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.bank.integration;
+
+import com.example.bank.model.user.User;
+import com.example.bank.Enums.Role;
+import com.example.bank.repository.UserRepository;
+import com.example.bank.service.CardNumberAllocator;
+import com.example.bank.service.SyntheticDataGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Генератор на H2 (путь JDBC batch): объёмы, связи между таблицами, сдвиг последовательностей и повторяемость по seed
+@SpringBootTest
+public class SyntheticDataGeneratorTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<SyntheticDataGenerator.Summary> generated = new ArrayList<>();
+
+    @AfterEach
+    void removeGeneratedData() {
+        for (SyntheticDataGenerator.Summary summary : generated) {
+            long lastUserId = summary.firstUserId() + summary.users() - 1;
+            jdbcTemplate.update("DELETE FROM notifications WHERE id BETWEEN ? AND ?",
+                    summary.firstNotificationId(), summary.firstNotificationId() + summary.notifications());
+            jdbcTemplate.update("DELETE FROM transactions WHERE id BETWEEN ? AND ?",
+                    summary.firstTransactionId(), summary.firstTransactionId() + summary.transactions());
+            jdbcTemplate.update("UPDATE users SET main_card_id = NULL WHERE user_id BETWEEN ? AND ?",
+                    summary.firstUserId(), lastUserId);
+            jdbcTemplate.update("DELETE FROM cards WHERE user_id BETWEEN ? AND ?", summary.firstUserId(), lastUserId);
+            jdbcTemplate.update("DELETE FROM users WHERE user_id BETWEEN ? AND ?", summary.firstUserId(), lastUserId);
+        }
+        userRepository.findByUsername("after_datagen").ifPresent(userRepository::delete);
+    }
+
+    @Test
+    public void generate_shouldLoadLinkedDataAndMoveSequencesPastIt() throws Exception {
+        SyntheticDataGenerator.Summary summary = generate(42);
+
+        long firstUserId = summary.firstUserId();
+        long lastUserId = firstUserId + summary.users() - 1;
+        assertEquals(200, count("SELECT COUNT(*) FROM users WHERE user_id BETWEEN ? AND ?", firstUserId, lastUserId));
+        assertEquals(summary.cards(), count("SELECT COUNT(*) FROM cards WHERE user_id BETWEEN ? AND ?", firstUserId, lastUserId));
+        assertTrue(summary.cards() >= 200);
+        assertEquals(5_000, summary.transactions());
+        assertEquals(5_000, count("SELECT COUNT(*) FROM transactions WHERE user_id BETWEEN ? AND ?", firstUserId, lastUserId));
+
+        // Уведомление владельцу на каждую операцию и ещё одно получателю на каждый перевод
+        long transfers = count("SELECT COUNT(*) FROM transactions WHERE user_id BETWEEN ? AND ? AND type = 'transfer'",
+                firstUserId, lastUserId);
+        assertTrue(transfers > 0);
+        assertEquals(5_000 + transfers, summary.notifications());
+        assertEquals(summary.notifications(), count("SELECT COUNT(*) FROM notifications WHERE user_id BETWEEN ? AND ?",
+                firstUserId, lastUserId));
+
+        // У каждого пользователя есть основная дебетовая карта
+        assertEquals(0, count("SELECT COUNT(*) FROM users u LEFT JOIN cards c ON c.id = u.main_card_id " +
+                "WHERE u.user_id BETWEEN ? AND ? AND (c.id IS NULL OR c.card_type <> 'DEBIT')", firstUserId, lastUserId));
+        assertTrue(jdbcTemplate.queryForList("SELECT card_number FROM cards WHERE user_id BETWEEN ? AND ?",
+                String.class, firstUserId, lastUserId).stream().allMatch(CardNumberAllocator::isLuhnValid));
+        assertEquals(0, count("SELECT COUNT(*) FROM cards WHERE user_id BETWEEN ? AND ? AND card_type = 'CREDIT' " +
+                "AND balance + debt <> credit_limit", firstUserId, lastUserId));
+
+        // Новые сущности получают id за пределами загруженных диапазонов
+        User user = new User();
+        user.setUsername("after_datagen");
+        user.setPassword("x");
+        user.setRole(Role.USER);
+        user.setCreatedAt(LocalDateTime.now());
+        assertTrue(userRepository.save(user).getUserId() > lastUserId);
+    }
+
+    @Test
+    public void generate_sameSeedShouldProduceSameDistributions() throws Exception {
+        SyntheticDataGenerator.Summary first = generate(7);
+        SyntheticDataGenerator.Summary second = generate(7);
+
+        assertEquals(first.cards(), second.cards());
+        assertEquals(first.notifications(), second.notifications());
+        assertEquals(sumOfAmounts(first), sumOfAmounts(second));
+        assertNotEquals(first.firstUserId(), second.firstUserId());
+    }
+
+    private SyntheticDataGenerator.Summary generate(long seed) throws Exception {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(dataSource, passwordEncoder, applicationContext);
+        ReflectionTestUtils.setField(generator, "seed", seed);
+        ReflectionTestUtils.setField(generator, "users", 200);
+        ReflectionTestUtils.setField(generator, "transactions", 5_000L);
+        ReflectionTestUtils.setField(generator, "maxCardsPerUser", 10);
+        ReflectionTestUtils.setField(generator, "cardsZipfExponent", 1.5);
+        ReflectionTestUtils.setField(generator, "transactionsParetoAlpha", 1.2);
+        ReflectionTestUtils.setField(generator, "creditCardShare", 0.3);
+        ReflectionTestUtils.setField(generator, "creditDebtShare", 0.6);
+        ReflectionTestUtils.setField(generator, "historyDays", 365);
+        ReflectionTestUtils.setField(generator, "notifications", true);
+        // Пачка не кратна объёмам, чтобы проверить дозапись хвоста
+        ReflectionTestUtils.setField(generator, "chunkSize", 777);
+        ReflectionTestUtils.setField(generator, "bin", "499999");
+        ReflectionTestUtils.setField(generator, "password", "password");
+        SyntheticDataGenerator.Summary summary = generator.generate();
+        generated.add(summary);
+        return summary;
+    }
+
+    private BigDecimal sumOfAmounts(SyntheticDataGenerator.Summary summary) {
+        return jdbcTemplate.queryForObject("SELECT SUM(amount) FROM transactions WHERE id BETWEEN ? AND ?",
+                BigDecimal.class, summary.firstTransactionId(), summary.firstTransactionId() + summary.transactions() - 1);
+    }
+
+    private long count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
+    }
+}
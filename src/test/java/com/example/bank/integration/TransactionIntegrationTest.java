@@ -1,5 +1,6 @@
 package com.example.bank.integration;
 
+import com.example.bank.Enums.Role;
 import com.example.bank.model.card.creditCard.CreditCardCreateRequest;
 import com.example.bank.model.transaction.TransactionOperationRequest;
 import com.example.bank.model.transaction.TransferRequest;
@@ -8,9 +9,11 @@ import com.example.bank.model.user.User;
 import com.example.bank.repository.UserRepository;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
@@ -19,18 +22,25 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
 @Transactional
 @TestPropertySource(properties = {
         "bank.credit.default.interest-rate=15.0",
         "bank.credit.default.limit=10000.0",
         "bank.credit.default.minimum-payment-rate=5.0",
-        "bank.credit.default.grace-period=30"
+        "bank.credit.default.grace-period=30",
+        // Actuator на основном порту: MockMvc не видит отдельный management-контекст
+        "management.server.port="
 })
 public class TransactionIntegrationTest {
 
@@ -43,6 +53,9 @@ public class TransactionIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EntityManager entityManager;
+
     private Long userId;
     private String adminToken;
     private String userToken;
@@ -177,6 +190,88 @@ public class TransactionIntegrationTest {
                 .andExpect(jsonPath("$.balance").value(100.00));
     }
 
+    @Test
+    public void moneyOperations_areExportedToPrometheusByOutcome() throws Exception {
+        TransactionOperationRequest request = new TransactionOperationRequest();
+        request.setId(debitCardId);
+        request.setAmount(new BigDecimal("100.00"));
+        mockMvc.perform(post("/api/transactions/deposit")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        // Чужая карта: отказ @PreAuthorize до входа в сервис
+        Long adminId = userRepository.findByUsername("admin").orElseThrow().getUserId();
+        String adminCard = mockMvc.perform(post("/api/debit-cards/" + adminId)
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        request.setId(objectMapper.readTree(adminCard).get("id").asLong());
+        mockMvc.perform(post("/api/transactions/withdraw")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().is5xxServerError());
+
+        // Scrape без токена, как это делает Prometheus
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        assertTrue(scrape.contains("bank_transactions_seconds_count{application=\"Bank\",card_type=\"DEBIT\",operation=\"deposit\",outcome=\"success\"}"));
+        assertTrue(scrape.contains("bank_transactions_seconds_count{application=\"Bank\",card_type=\"unknown\",operation=\"withdraw\",outcome=\"access_denied\"}"));
+        // Бакеты гистограммы для histogram_quantile на стороне Prometheus
+        assertTrue(scrape.contains("bank_transactions_seconds_bucket{application=\"Bank\",card_type=\"DEBIT\",operation=\"deposit\",outcome=\"success\",le="));
+        assertTrue(scrape.contains("hikaricp_connections_acquire_seconds_bucket{"));
+    }
+
+    @Test
+    public void depositWithSameIdempotencyKey_isAppliedOnce() throws Exception {
+        TransactionOperationRequest request = new TransactionOperationRequest();
+        request.setId(debitCardId);
+        request.setAmount(new BigDecimal("100.00"));
+        request.setComment("Retried deposit");
+        String idempotencyKey = java.util.UUID.randomUUID().toString();
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/transactions/deposit")
+                            .header("Authorization", "Bearer " + userToken)
+                            .header("Idempotency-Key", idempotencyKey)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.balance").value(100.00));
+        }
+    }
+
+    @Test
+    public void idempotencyKeyReusedWithDifferentAmount_isRejected() throws Exception {
+        TransactionOperationRequest request = new TransactionOperationRequest();
+        request.setId(debitCardId);
+        request.setAmount(new BigDecimal("100.00"));
+        String idempotencyKey = java.util.UUID.randomUUID().toString();
+
+        mockMvc.perform(post("/api/transactions/deposit")
+                        .header("Authorization", "Bearer " + userToken)
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        // Тот же ключ с другой суммой не выполняется и не отдаёт старый ответ
+        request.setAmount(new BigDecimal("900.00"));
+        mockMvc.perform(post("/api/transactions/deposit")
+                        .header("Authorization", "Bearer " + userToken)
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
     @Test
     public void withdrawFromCard_asUser_succeeds() throws Exception {
         // Сначала пополняем счет
@@ -236,6 +331,82 @@ public class TransactionIntegrationTest {
                 .andExpect(jsonPath("$.balance").value(100.00));
     }
 
+    @Test
+    public void ledgerBalance_matchesCardBalanceAfterTransfer() throws Exception {
+        TransactionOperationRequest depositRequest = new TransactionOperationRequest();
+        depositRequest.setId(debitCardId);
+        depositRequest.setAmount(new BigDecimal("200.00"));
+        depositRequest.setComment("Initial deposit");
+
+        mockMvc.perform(post("/api/transactions/deposit")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(depositRequest)))
+                .andExpect(status().isOk());
+
+        TransferRequest transferRequest = new TransferRequest();
+        transferRequest.setFromId(debitCardId);
+        transferRequest.setToId(creditCardId);
+        transferRequest.setAmount(new BigDecimal("50.00"));
+        transferRequest.setComment("Ledger transfer");
+
+        mockMvc.perform(post("/api/transactions/transfer")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transferRequest)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/ledger/snapshots")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        // Баланс по журналу совпадает с cards.balance: 200 - 50 на дебетовой, лимит + 50 на кредитной
+        mockMvc.perform(get("/api/ledger/cards/" + debitCardId + "/balance")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(150.00));
+
+        mockMvc.perform(get("/api/ledger/cards/" + creditCardId + "/balance")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(5050.00));
+
+        mockMvc.perform(post("/api/ledger/reconcile")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mismatches").isEmpty());
+    }
+
+    @Test
+    public void ledgerSnapshot_includesEntryWithLowerIdCommittedAfterIt() throws Exception {
+        deposit("200.00");
+        mockMvc.perform(post("/api/ledger/snapshots")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        // Проводка с id меньше уже учтённых в снимке: так выглядит запись, закоммиченная позже соседней
+        clearPersistenceContext();
+        entityManager.createNativeQuery("INSERT INTO ledger_entries (id, account, card_id, card_seq, amount, created_at) " +
+                        "SELECT MIN(id) - 1000, 'CARD', :cardId, " +
+                        "(SELECT MAX(card_seq) + 1 FROM ledger_entries WHERE card_id = :cardId), 25.00, :now " +
+                        "FROM ledger_entries")
+                .setParameter("cardId", debitCardId)
+                .setParameter("now", LocalDateTime.now())
+                .executeUpdate();
+        entityManager.createNativeQuery("UPDATE cards SET balance = balance + 25.00 WHERE id = :cardId")
+                .setParameter("cardId", debitCardId)
+                .executeUpdate();
+
+        mockMvc.perform(post("/api/ledger/snapshots")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/ledger/cards/" + debitCardId + "/balance")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(225.00));
+    }
+
     @Test
     public void getTransactionsByCard_asUser_succeeds() throws Exception { // Тест получения транзакций для пользователя
         // Сначала выполняем операцию, чтобы были транзакции
@@ -259,6 +430,84 @@ public class TransactionIntegrationTest {
                 .andExpect(jsonPath("$[0].amount").value(100.00));
     }
 
+    @Test
+    public void getTransactionsForUser_pagesWithCursor() throws Exception { // Тест постраничной выдачи по курсору
+        for (String amount : new String[]{"10.00", "20.00", "30.00"}) {
+            TransactionOperationRequest depositRequest = new TransactionOperationRequest();
+            depositRequest.setId(debitCardId);
+            depositRequest.setAmount(new BigDecimal(amount));
+            mockMvc.perform(post("/api/transactions/deposit")
+                            .header("Authorization", "Bearer " + userToken)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(depositRequest)))
+                    .andExpect(status().isOk());
+        }
+
+        String cursor = mockMvc.perform(get("/api/transactions/getAllForUser")
+                        .param("size", "2")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].amount").value(30.00))
+                .andExpect(jsonPath("$[1].amount").value(20.00))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        mockMvc.perform(get("/api/transactions/getAllForUser")
+                        .param("size", "2")
+                        .param("cursor", cursor)
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].amount").value(10.00))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    public void blockingUser_revokesIssuedToken() throws Exception { // Тест отзыва JWT при блокировке пользователя
+        mockMvc.perform(get("/api/transactions/getAllForUser")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch("/api/users/{id}", userId)
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": true}"))
+                .andExpect(status().isOk());
+
+        // Ранее выданный токен больше не аутентифицирует запросы
+        mockMvc.perform(get("/api/transactions/getAllForUser")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void updateUser_asUser_allowsOwnProfileOnly() throws Exception { // Тест самостоятельного изменения профиля
+        mockMvc.perform(patch("/api/users/{id}", userId)
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Renamed\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.firstName").value("Renamed"));
+
+        // Роль и блокировку меняет только администратор: отказ @PreAuthorize, как и для других админских операций
+        mockMvc.perform(patch("/api/users/{id}", userId)
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"role\": \"ADMIN\"}"))
+                .andExpect(status().isInternalServerError());
+        assertEquals(Role.USER, userRepository.findById(userId).orElseThrow().getRole());
+
+        // Чужой профиль недоступен
+        Long adminId = userRepository.findByUsername("admin").orElseThrow().getUserId();
+        mockMvc.perform(patch("/api/users/{id}", adminId)
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Hacked\"}"))
+                .andExpect(status().isInternalServerError());
+        assertNotEquals("Hacked", userRepository.findById(adminId).orElseThrow().getFirstName());
+    }
+
     @Test
     public void getAllTransactions_asAdmin_succeeds() throws Exception { // Тест получения всех транзакций администратором
         // Сначала выполняем операцию, чтобы были транзакции
@@ -281,5 +530,73 @@ public class TransactionIntegrationTest {
                 .andExpect(jsonPath("$").isArray());
     }
 
+    // Бюджеты SQL-запросов на операцию: рост означает лишние выборки (N+1, повторная загрузка карты или пользователя)
+    @Test
+    public void moneyOperations_stayWithinQueryBudget() throws Exception {
+        // В бюджете по одному чтению последнего номера проводки (card_seq) на каждую затронутую карту
+        TransactionOperationRequest request = new TransactionOperationRequest();
+        request.setId(debitCardId);
+        request.setAmount(new BigDecimal("200.00"));
+        clearPersistenceContext();
+        QueryCounter.assertAtMost(7, "POST /api/transactions/deposit", () -> mockMvc.perform(post("/api/transactions/deposit")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk()));
+
+        request.setAmount(new BigDecimal("50.00"));
+        clearPersistenceContext();
+        QueryCounter.assertAtMost(7, "POST /api/transactions/withdraw", () -> mockMvc.perform(post("/api/transactions/withdraw")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk()));
 
-}
\ No newline at end of file
+        TransferRequest transferRequest = new TransferRequest();
+        transferRequest.setFromId(debitCardId);
+        transferRequest.setToId(creditCardId);
+        transferRequest.setAmount(new BigDecimal("50.00"));
+        clearPersistenceContext();
+        QueryCounter.assertAtMost(12, "POST /api/transactions/transfer", () -> mockMvc.perform(post("/api/transactions/transfer")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transferRequest)))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    public void transactionHistory_queryCountDoesNotGrowWithRows() throws Exception {
+        deposit("10.00");
+        long withOneRow = countHistoryStatements();
+
+        for (int i = 0; i < 5; i++) {
+            deposit("20.00");
+        }
+        long withSixRows = countHistoryStatements();
+
+        assertEquals(withOneRow, withSixRows);
+    }
+
+    private void deposit(String amount) throws Exception {
+        TransactionOperationRequest request = new TransactionOperationRequest();
+        request.setId(debitCardId);
+        request.setAmount(new BigDecimal(amount));
+        mockMvc.perform(post("/api/transactions/deposit")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+    }
+
+    private long countHistoryStatements() throws Exception {
+        clearPersistenceContext();
+        return QueryCounter.count(() -> mockMvc.perform(get("/api/transactions/getAllForUser")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk()));
+    }
+
+    private void clearPersistenceContext() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.bank.kafka;
+
+import com.example.bank.Enums.OperationType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventCodecsTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final JsonEventCodec jsonCodec = new JsonEventCodec(objectMapper);
+    private final BinaryEventCodec binaryCodec = new BinaryEventCodec();
+
+    @Test
+    void binary_ShouldRoundTripAllFields() {
+        EventDTO event = transfer();
+
+        EventDTO decoded = binaryCodec.decode(binaryCodec.encode(event));
+
+        assertEquals(event, decoded);
+        // Масштаб суммы сохраняется, как и в JSON
+        assertEquals(2, decoded.getAmount().scale());
+    }
+
+    @Test
+    void binary_ShouldKeepNullsAndExtremeValues() {
+        EventDTO event = new EventDTO();
+        event.setTransactionId(Long.MAX_VALUE);
+        event.setType(OperationType.withdraw);
+        event.setCardNumber("");
+        event.setAmount(new BigDecimal("-12345678901234567890.123456789"));
+        event.setUserId(0L);
+        event.setTimestamp(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 1));
+
+        EventDTO decoded = binaryCodec.decode(binaryCodec.encode(event));
+
+        assertEquals(event, decoded);
+        assertNull(decoded.getComment());
+        assertNull(decoded.getReceiverCardNumber());
+    }
+
+    @Test
+    void binary_ShouldBeSmallerThanJson() {
+        EventDTO event = transfer();
+
+        int binarySize = binaryCodec.encode(event).length;
+        int jsonSize = jsonCodec.encode(event).length;
+
+        assertTrue(binarySize * 2 < jsonSize, "binary " + binarySize + " bytes vs json " + jsonSize);
+    }
+
+    @Test
+    void binary_ShouldSkipFieldsAddedByNewerWriters() {
+        byte[] frame = binaryCodec.encode(transfer());
+        ByteArrayOutputStream newer = new ByteArrayOutputStream();
+        newer.writeBytes(frame);
+        // Поле 15 (varint) и поле 14 (байты), которых этот читатель не знает
+        newer.write(15 << 3);
+        newer.write(42);
+        newer.write(14 << 3 | 2);
+        newer.write(3);
+        newer.writeBytes(new byte[]{1, 2, 3});
+
+        assertEquals(transfer(), binaryCodec.decode(newer.toByteArray()));
+    }
+
+    @Test
+    void binary_ShouldRejectUnknownVersionAndTruncatedFrames() {
+        byte[] frame = binaryCodec.encode(transfer());
+        byte[] future = frame.clone();
+        future[1] = (byte) (BinaryEventCodec.VERSION + 1);
+        // Обрыв посреди номера карты
+        byte[] truncated = Arrays.copyOf(frame, 10);
+
+        assertThrows(IllegalArgumentException.class, () -> binaryCodec.decode(future));
+        assertThrows(IllegalArgumentException.class, () -> binaryCodec.decode(truncated));
+    }
+
+    @Test
+    void codecs_ShouldSelectPerTopicAndDetectFormatOnRead() {
+        EventCodecs codecs = new EventCodecs(List.of(jsonCodec, binaryCodec), new MockEnvironment()
+                .withProperty("bank.kafka.codec.Binary", "binary"));
+        EventDTO event = transfer();
+
+        assertSame(jsonCodec, codecs.forTopic("Other"));
+        assertSame(binaryCodec, codecs.forTopic("Binary"));
+        // Чтение не зависит от настройки топика
+        assertEquals(event, codecs.decode(jsonCodec.encode(event)));
+        assertEquals(event, codecs.decode(binaryCodec.encode(event)));
+        assertThrows(IllegalArgumentException.class, () -> codecs.decode("not an event".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void codecs_ShouldStoreJsonAsIsAndBinaryAsBase64InOutbox() throws Exception {
+        EventCodecs codecs = new EventCodecs(List.of(jsonCodec, binaryCodec), new MockEnvironment()
+                .withProperty("bank.kafka.codec.Binary", "binary"));
+        EventDTO event = transfer();
+
+        String json = codecs.encodeForOutbox("Json", event);
+        String binary = codecs.encodeForOutbox("Binary", event);
+
+        assertEquals(objectMapper.writeValueAsString(event), json);
+        assertArrayEquals(json.getBytes(StandardCharsets.UTF_8), EventCodecs.fromOutboxPayload(json));
+        assertTrue(binary.startsWith(EventCodecs.OUTBOX_BASE64_PREFIX));
+        assertArrayEquals(binaryCodec.encode(event), EventCodecs.fromOutboxPayload(binary));
+    }
+
+    @Test
+    void codecs_ShouldFailFastOnUnknownCodecName() {
+        EventCodecs codecs = new EventCodecs(List.of(jsonCodec, binaryCodec), new MockEnvironment()
+                .withProperty("bank.kafka.codec.default", "avro"));
+
+        assertThrows(IllegalStateException.class, () -> codecs.forTopic(TransactionEventOutbox.TOPIC));
+    }
+
+    private static EventDTO transfer() {
+        EventDTO event = new EventDTO();
+        event.setTransactionId(123456L);
+        event.setType(OperationType.transfer);
+        event.setCardNumber("4000001234567899");
+        event.setCardTransferTo("**** **** **** 3210");
+        event.setReceiverCardNumber("4000009876543210");
+        event.setAmount(new BigDecimal("1500.00"));
+        event.setUserId(7L);
+        event.setComment("Оплата аренды");
+        event.setTimestamp(LocalDateTime.of(2026, 10, 17, 12, 30, 15, 123_456_789));
+        return event;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.bank.kafka;
+
+import com.example.bank.Enums.NotflicationType;
+import com.example.bank.model.Notification;
+import com.example.bank.service.NotificationPushService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationBroadcasterTest {
+
+    @Mock private TransactionEventProducer producer;
+    @Mock private NotificationPushService notificationPushService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private NotificationBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new NotificationBroadcaster(producer, notificationPushService, objectMapper);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void broadcast_ShouldSendOneMessagePerUserThatListenersHandBackToPush() {
+        when(producer.send(eq(NotificationBroadcaster.TOPIC), anyString(), any(byte[].class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        broadcaster.broadcast(List.of(notification(1L, 10L, 1L), notification(2L, 20L, 7L), notification(3L, 10L, 2L)));
+
+        ArgumentCaptor<byte[]> payload = ArgumentCaptor.forClass(byte[].class);
+        verify(producer).send(eq(NotificationBroadcaster.TOPIC), eq("10"), payload.capture());
+        verify(producer).send(eq(NotificationBroadcaster.TOPIC), eq("20"), any(byte[].class));
+
+        // Экземпляр, получивший сообщение, отдаёт уведомления пользователя локальным потокам в исходном порядке
+        broadcaster.listen(new ConsumerRecord<>(NotificationBroadcaster.TOPIC, 0, 0L, "10", payload.getValue()));
+
+        ArgumentCaptor<List<Notification>> published = ArgumentCaptor.forClass(List.class);
+        verify(notificationPushService).publish(published.capture());
+        assertEquals(List.of(1L, 3L), published.getValue().stream().map(Notification::getId).toList());
+        assertEquals(List.of(1L, 2L), published.getValue().stream().map(Notification::getUserSeq).toList());
+        assertEquals(new BigDecimal("100.00"), published.getValue().get(0).getAmount());
+    }
+
+    @Test
+    void listen_ShouldSkipMalformedMessage() {
+        broadcaster.listen(new ConsumerRecord<>(NotificationBroadcaster.TOPIC, 0, 0L, "10",
+                "{not json".getBytes(StandardCharsets.UTF_8)));
+
+        verify(notificationPushService, never()).publish(anyList());
+    }
+
+    private static Notification notification(Long id, Long userId, Long userSeq) {
+        Notification notification = new Notification();
+        notification.setId(id);
+        notification.setUserId(userId);
+        notification.setUserSeq(userSeq);
+        notification.setType(NotflicationType.DEPOSIT);
+        notification.setTitle("Зачисление");
+        notification.setMessage("Пополнение");
+        notification.setAmount(new BigDecimal("100.00"));
+        return notification;
+    }
+}
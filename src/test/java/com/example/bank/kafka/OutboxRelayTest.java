@@ -0,0 +1,166 @@
+package com.example.bank.kafka;
+
+import com.example.bank.model.outbox.OutboxEvent;
+import com.example.bank.model.outbox.OutboxRelayState;
+import com.example.bank.repository.OutboxEventRepository;
+import com.example.bank.repository.OutboxRelayStateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock private OutboxEventRepository outboxEventRepository;
+    @Mock private OutboxRelayStateRepository relayStateRepository;
+    @Mock private TransactionEventProducer producer;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @InjectMocks
+    private OutboxRelay relay;
+
+    private OutboxRelayState state;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(relay, "batchSize", 10);
+        ReflectionTestUtils.setField(relay, "sendTimeoutMs", 100L);
+        state = new OutboxRelayState(TransactionEventOutbox.TOPIC);
+        when(relayStateRepository.findByTopicForUpdate(TransactionEventOutbox.TOPIC)).thenReturn(Optional.of(state));
+    }
+
+    @Test
+    void drainBatch_sendsEventsDeletesThemAndAdvancesPosition() {
+        when(outboxEventRepository.findByTopicOrderByIdAsc(eq(TransactionEventOutbox.TOPIC), any(Pageable.class)))
+                .thenReturn(List.of(event(1L), event(2L)));
+        when(producer.send(eq(TransactionEventOutbox.TOPIC), any(), any(byte[].class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        int sent = relay.drainBatch(TransactionEventOutbox.TOPIC);
+
+        // Проверка, что отправленные события удаляются, а позиция сдвигается
+        assertEquals(2, sent);
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        assertEquals(2L, state.getLastEventId());
+        assertEquals(2L, state.getDrainedTotal());
+    }
+
+    @Test
+    void drainBatch_keepsEventsAfterFirstFailure() {
+        when(outboxEventRepository.findByTopicOrderByIdAsc(eq(TransactionEventOutbox.TOPIC), any(Pageable.class)))
+                .thenReturn(List.of(event(1L), event(2L), event(3L)));
+        when(producer.send(eq(TransactionEventOutbox.TOPIC), any(), eq(bytes("payload-1"))))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+        when(producer.send(eq(TransactionEventOutbox.TOPIC), any(), eq(bytes("payload-2"))))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+
+        int sent = relay.drainBatch(TransactionEventOutbox.TOPIC);
+
+        // Удаляется только префикс до первой ошибки, остальное уйдёт при следующем запуске
+        assertEquals(1, sent);
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L));
+        assertEquals(1L, state.getLastEventId());
+        verify(producer, never()).send(eq(TransactionEventOutbox.TOPIC), any(), eq(bytes("payload-3")));
+    }
+
+    @Test
+    void drainBatch_stopsOnFirstThrottledSendWhenWindowIsSmallerThanBatch() {
+        // Настоящий продюсер с окном в 3 сообщения, брокер подтверждает отправку через 500 мс
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransactionEventProducer windowed = new TransactionEventProducer(kafkaTemplate, meterRegistry, 3);
+        ReflectionTestUtils.setField(windowed, "acquireTimeoutMs", 20L);
+        OutboxRelay windowedRelay = new OutboxRelay(outboxEventRepository, relayStateRepository, windowed, transactionManager);
+        ReflectionTestUtils.setField(windowedRelay, "batchSize", 10);
+        ReflectionTestUtils.setField(windowedRelay, "sendTimeoutMs", 5000L);
+        SendResult<String, byte[]> result = mock(SendResult.class);
+        when(kafkaTemplate.send(eq(TransactionEventOutbox.TOPIC), any(), any(byte[].class)))
+                .thenAnswer(inv -> CompletableFuture.supplyAsync(() -> result,
+                        CompletableFuture.delayedExecutor(500, TimeUnit.MILLISECONDS)));
+        List<OutboxEvent> events = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            events.add(event(id));
+        }
+        when(outboxEventRepository.findByTopicOrderByIdAsc(eq(TransactionEventOutbox.TOPIC), any(Pageable.class)))
+                .thenReturn(events);
+
+        int sent = windowedRelay.drainBatch(TransactionEventOutbox.TOPIC);
+
+        // Четвёртое событие упёрлось в окно, остальные шесть даже не пытались ждать его
+        assertEquals(3, sent);
+        verify(kafkaTemplate, times(3)).send(eq(TransactionEventOutbox.TOPIC), any(), any(byte[].class));
+        assertEquals(1.0, meterRegistry.get("bank.kafka.produce.throttled").counter().count());
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L, 2L, 3L));
+        assertEquals(3L, state.getLastEventId());
+    }
+
+    @Test
+    void drainBatch_createsMissingStateRowWithoutSave() {
+        when(relayStateRepository.findByTopicForUpdate(TransactionEventOutbox.TOPIC))
+                .thenReturn(Optional.empty(), Optional.of(state));
+        when(outboxEventRepository.findByTopicOrderByIdAsc(eq(TransactionEventOutbox.TOPIC), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        assertEquals(0, relay.drainBatch(TransactionEventOutbox.TOPIC));
+
+        // Строка создаётся через INSERT ... ON CONFLICT DO NOTHING, гонка узлов не ломает транзакцию
+        verify(relayStateRepository).insertIfAbsent(eq(TransactionEventOutbox.TOPIC), any());
+        verify(relayStateRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void drainBatch_doesNothingWhenOutboxIsEmpty() {
+        when(outboxEventRepository.findByTopicOrderByIdAsc(eq(TransactionEventOutbox.TOPIC), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        assertEquals(0, relay.drainBatch(TransactionEventOutbox.TOPIC));
+        verifyNoInteractions(producer);
+        verify(outboxEventRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    @Test
+    void drainBatch_sendsBinaryOutboxPayloadAsRawFrame() {
+        byte[] frame = new BinaryEventCodec().encode(new EventDTO());
+        OutboxEvent event = event(1L);
+        event.setPayload(EventCodecs.OUTBOX_BASE64_PREFIX + Base64.getEncoder().encodeToString(frame));
+        when(outboxEventRepository.findByTopicOrderByIdAsc(eq(TransactionEventOutbox.TOPIC), any(Pageable.class)))
+                .thenReturn(List.of(event));
+        when(producer.send(eq(TransactionEventOutbox.TOPIC), any(), eq(frame)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        assertEquals(1, relay.drainBatch(TransactionEventOutbox.TOPIC));
+    }
+
+    private static byte[] bytes(String payload) {
+        return payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static OutboxEvent event(Long id) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        event.setTopic(TransactionEventOutbox.TOPIC);
+        event.setPayload("payload-" + id);
+        return event;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.bank.kafka;
+
+import com.example.bank.Enums.NotflicationType;
+import com.example.bank.Enums.OperationType;
+import com.example.bank.model.Notification;
+import com.example.bank.model.card.CardOwnership;
+import com.example.bank.repository.CardRepository;
+import com.example.bank.repository.NotificationBatchWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionEventConsumerTest {
+
+    @Mock private NotificationBatchWriter notificationWriter;
+    @Mock private CardRepository cardRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private Consumer<String, byte[]> consumer;
+    @Mock private NotificationBroadcaster notificationBroadcaster;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final JsonEventCodec jsonCodec = new JsonEventCodec(objectMapper);
+    private final BinaryEventCodec binaryCodec = new BinaryEventCodec();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TransactionEventConsumer eventConsumer;
+
+    @BeforeEach
+    void setUp() {
+        EventCodecs eventCodecs = new EventCodecs(List.of(jsonCodec, binaryCodec), new MockEnvironment());
+        eventConsumer = new TransactionEventConsumer(notificationWriter, cardRepository, eventCodecs, transactionManager,
+                meterRegistry, notificationBroadcaster);
+        ReflectionTestUtils.setField(eventConsumer, "insertBatchSize", 100);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listen_ShouldResolveReceiversWithOneQueryAndInsertOnce() throws Exception {
+        when(cardRepository.findOwnershipByCardNumberIn(anyCollection()))
+                .thenReturn(List.of(new CardOwnership(20L, "2222", 200L), new CardOwnership(30L, "3333", 300L)));
+        when(notificationWriter.insertAll(anyList(), eq(100))).thenAnswer(inv -> ((List<?>) inv.getArgument(0)).size());
+        when(consumer.currentLag(new TopicPartition(TransactionEventOutbox.TOPIC, 0))).thenReturn(OptionalLong.of(42));
+
+        // Пачка из сообщений обоих форматов, как в топике во время перехода на двоичный кодек
+        eventConsumer.listen(List.of(
+                record(0, event(1L, OperationType.deposit, null)),
+                record(1, binaryCodec.encode(event(2L, OperationType.transfer, "2222"))),
+                record(2, event(3L, OperationType.transfer, "3333"))), consumer);
+
+        // Одна выборка владельцев на всю пачку
+        ArgumentCaptor<Collection<String>> cards = ArgumentCaptor.forClass(Collection.class);
+        verify(cardRepository, times(1)).findOwnershipByCardNumberIn(cards.capture());
+        assertEquals(2, cards.getValue().size());
+        verify(cardRepository, never()).findByCardNumber(anyString());
+
+        // Одна пакетная вставка: 3 уведомления отправителям + 2 получателям
+        ArgumentCaptor<List<Notification>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(notificationWriter, times(1)).insertAll(inserted.capture(), eq(100));
+        assertEquals(5, inserted.getValue().size());
+        assertEquals(200L, inserted.getValue().get(2).getUserId());
+        assertEquals(NotflicationType.TRANSFER, inserted.getValue().get(2).getType());
+        // Подключённым клиентам всех экземпляров рассылаются те же уведомления после вставки
+        verify(notificationBroadcaster).broadcast(inserted.getValue());
+
+        assertEquals(3, eventConsumer.getRecordsConsumed());
+        assertEquals(5, eventConsumer.getNotificationsInserted());
+        assertEquals(42, eventConsumer.getLastLag());
+
+        // Те же значения видны через метрики
+        assertEquals(42.0, meterRegistry.get("bank.notifications.consumer.lag").gauge().value());
+        assertEquals(3.0, meterRegistry.get("bank.notifications.consumer.batch.size").summary().totalAmount());
+        assertEquals(5.0, meterRegistry.get("bank.notifications.consumer.inserted").functionCounter().count());
+    }
+
+    @Test
+    void listen_ShouldSkipMalformedRecords() throws Exception {
+        when(notificationWriter.insertAll(anyList(), anyInt())).thenReturn(1);
+
+        eventConsumer.listen(List.of(
+                record(0, "{not json".getBytes(StandardCharsets.UTF_8)),
+                record(1, event(1L, OperationType.deposit, null)),
+                record(2, new byte[]{BinaryEventCodec.MAGIC, 99})), consumer);
+
+        // Битое сообщение пропущено, остальные обработаны
+        verify(notificationWriter).insertAll(argThat(list -> list.size() == 1), anyInt());
+        verify(cardRepository, never()).findOwnershipByCardNumberIn(anyCollection());
+    }
+
+    @Test
+    void toNotifications_ShouldSkipReceiverWhenCardUnknown() {
+        when(cardRepository.findOwnershipByCardNumberIn(anyCollection())).thenReturn(List.of());
+
+        List<Notification> notifications = eventConsumer.toNotifications(
+                List.of(event(1L, OperationType.transfer, "9999")));
+
+        assertEquals(1, notifications.size());
+        assertEquals(10L, notifications.get(0).getUserId());
+    }
+
+    private ConsumerRecord<String, byte[]> record(long offset, EventDTO event) throws Exception {
+        return record(offset, objectMapper.writeValueAsBytes(event));
+    }
+
+    private ConsumerRecord<String, byte[]> record(long offset, byte[] value) {
+        return new ConsumerRecord<>(TransactionEventOutbox.TOPIC, 0, offset, "k", value);
+    }
+
+    private EventDTO event(Long transactionId, OperationType type, String receiverCard) {
+        EventDTO event = new EventDTO();
+        event.setTransactionId(transactionId);
+        event.setType(type);
+        event.setCardNumber("1111");
+        event.setCardTransferTo(receiverCard == null ? null : "**** **** **** " + receiverCard);
+        event.setReceiverCardNumber(receiverCard);
+        event.setAmount(BigDecimal.TEN);
+        event.setUserId(10L);
+        return event;
+    }
+}
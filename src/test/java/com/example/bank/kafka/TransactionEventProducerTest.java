@@ -0,0 +1,86 @@
+package com.example.bank.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionEventProducerTest {
+
+    private static final String TOPIC = TransactionEventOutbox.TOPIC;
+
+    @Mock private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionEventProducer producer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        producer = new TransactionEventProducer(kafkaTemplate, meterRegistry, 1);
+        ReflectionTestUtils.setField(producer, "acquireTimeoutMs", 20L);
+    }
+
+    @Test
+    void send_ShouldRefuseWhileWindowIsFullAndResumeAfterAck() {
+        CompletableFuture<SendResult<String, byte[]>> pending = new CompletableFuture<>();
+        when(kafkaTemplate.send(eq(TOPIC), anyString(), any(byte[].class)))
+                .thenReturn(pending, CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        producer.send(TOPIC, "card-1", new byte[]{1});
+        CompletableFuture<SendResult<String, byte[]>> refused = producer.send(TOPIC, "card-1", new byte[]{2});
+
+        // Второе сообщение не ушло в Kafka: окно занято неподтверждённым первым
+        ExecutionException e = assertThrows(ExecutionException.class, refused::get);
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        verify(kafkaTemplate, times(1)).send(eq(TOPIC), anyString(), any(byte[].class));
+        assertEquals(1.0, meterRegistry.get("bank.kafka.produce.throttled").counter().count());
+        assertEquals(1.0, meterRegistry.get("bank.kafka.produce.in-flight").gauge().value());
+
+        pending.complete(mock(SendResult.class));
+
+        assertTrue(producer.send(TOPIC, "card-1", new byte[]{3}).isDone());
+        assertEquals(0.0, meterRegistry.get("bank.kafka.produce.in-flight").gauge().value());
+        assertEquals(2, meterRegistry.get("bank.kafka.produce").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void send_ShouldReleaseSlotOnBrokerAndClientErrors() {
+        when(kafkaTemplate.send(eq(TOPIC), anyString(), any(byte[].class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+                .thenThrow(new IllegalStateException("producer closed"))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        assertTrue(producer.send(TOPIC, "card-1", new byte[]{1}).isCompletedExceptionally());
+        assertThrows(IllegalStateException.class, () -> producer.send(TOPIC, "card-1", new byte[]{2}));
+
+        // Оба слота вернулись в окно, поэтому третья отправка проходит без ожидания
+        assertFalse(producer.send(TOPIC, "card-1", new byte[]{3}).isCompletedExceptionally());
+        assertEquals(2, meterRegistry.get("bank.kafka.produce").tag("outcome", "error").timer().count());
+        assertEquals(0.0, meterRegistry.get("bank.kafka.produce.throttled").counter().count());
+    }
+
+    @Test
+    void messageKey_ShouldBeCardNumberOrUser() {
+        EventDTO event = new EventDTO();
+        event.setUserId(7L);
+        assertEquals("user-7", TransactionEventOutbox.messageKey(event));
+
+        event.setCardNumber("4000001234567899");
+        assertEquals("4000001234567899", TransactionEventOutbox.messageKey(event));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.bank.security;
+
+import com.example.bank.exception.ResourceNotFoundException;
+import com.example.bank.model.card.CardOwnership;
+import com.example.bank.model.card.debitCard.DebitCard;
+import com.example.bank.model.user.User;
+import com.example.bank.repository.CardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardOwnershipIndexTest {
+
+    @Mock private CardRepository cardRepository;
+
+    private CardOwnershipIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CardOwnershipIndex(cardRepository, 100, 600);
+    }
+
+    @Test
+    void ownerOf_ShouldQueryOnceAndServeBothKeysFromCache() {
+        when(cardRepository.findOwnershipById(5L)).thenReturn(Optional.of(new CardOwnership(5L, "4000123412341234", 7L)));
+
+        assertEquals(7L, index.ownerOf(5L));
+        assertEquals(7L, index.ownerOf(5L));
+        assertEquals(7L, index.ownerOf("4000123412341234"));
+
+        // Один скалярный запрос заполняет индекс и по id, и по номеру
+        verify(cardRepository, times(1)).findOwnershipById(5L);
+        verify(cardRepository, never()).findOwnershipByCardNumber(anyString());
+        verify(cardRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void invalidate_ShouldForceReload() {
+        when(cardRepository.findOwnershipById(5L))
+                .thenReturn(Optional.of(new CardOwnership(5L, "4000123412341234", 7L)))
+                .thenReturn(Optional.of(new CardOwnership(5L, "4000123412341234", 8L)));
+
+        assertEquals(7L, index.ownerOf(5L));
+        index.invalidate(5L);
+
+        assertEquals(8L, index.ownerOf(5L));
+    }
+
+    @Test
+    void cardSaved_ShouldPrimeIndexWithNewOwner() {
+        User owner = new User();
+        owner.setUserId(9L);
+        DebitCard card = new DebitCard();
+        card.setId(6L);
+        card.setCardNumber("4000999988887777");
+        card.setUser(owner);
+
+        index.cardSaved(card);
+
+        assertEquals(9L, index.ownerOf(6L));
+        assertEquals(9L, index.ownerOf("4000999988887777"));
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void ownerOf_UnknownCardShouldThrow() {
+        when(cardRepository.findOwnershipByCardNumber("missing")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> index.ownerOf("missing"));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.bank.security;
+
+import com.example.bank.Enums.Role;
+import com.example.bank.model.user.TokenRevocation;
+import com.example.bank.repository.TokenRevocationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationListTest {
+
+    @Mock private TokenRevocationRepository repository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong now = new AtomicLong(System.currentTimeMillis());
+    private TokenRevocationList revocationList;
+
+    @BeforeEach
+    void setUp() {
+        revocationList = newNode();
+    }
+
+    private TokenRevocationList newNode() {
+        return new TokenRevocationList(repository, new TransactionTemplate(transactionManager),
+                Duration.ofMinutes(60), now::get);
+    }
+
+    private static TokenClaims claims(Long userId, long version) {
+        return new TokenClaims("user" + userId, userId, Role.USER, false, version);
+    }
+
+    @Test
+    void revokeBefore_ShouldPersistRevocationAndApplyItLocally() {
+        when(repository.findById(7L)).thenReturn(Optional.empty());
+
+        revocationList.revokeBefore(7L, 3L);
+
+        ArgumentCaptor<TokenRevocation> saved = ArgumentCaptor.forClass(TokenRevocation.class);
+        verify(repository).save(saved.capture());
+        assertEquals(7L, saved.getValue().getUserId());
+        assertEquals(3L, saved.getValue().getMinVersion());
+        assertTrue(revocationList.isRevoked(claims(7L, 2L)));
+        assertFalse(revocationList.isRevoked(claims(7L, 3L)));
+    }
+
+    @Test
+    void revokeBefore_ShouldNotLowerStoredVersionOfDeletedUser() {
+        TokenRevocation deleted = new TokenRevocation(7L, Long.MAX_VALUE, LocalDateTime.now().minusMinutes(5));
+        when(repository.findById(7L)).thenReturn(Optional.of(deleted));
+
+        revocationList.revokeBefore(7L, 3L);
+
+        assertEquals(Long.MAX_VALUE, deleted.getMinVersion());
+        verify(repository).save(deleted);
+    }
+
+    @Test
+    void synchronize_ShouldRestoreDeletedUserAndPickUpOtherNodes() {
+        // Новый узел (или узел после рестарта) не видел отзывов — он получает их из общей таблицы
+        when(repository.findByRevokedAtAfter(any())).thenReturn(List.of(
+                new TokenRevocation(7L, Long.MAX_VALUE, LocalDateTime.now().minusMinutes(30)),
+                new TokenRevocation(8L, 4L, LocalDateTime.now().minusMinutes(1))));
+
+        revocationList.synchronize();
+
+        assertTrue(revocationList.isRevoked(claims(7L, 100L)));
+        assertTrue(revocationList.isRevoked(claims(8L, 3L)));
+        assertFalse(revocationList.isRevoked(claims(8L, 4L)));
+        assertFalse(revocationList.isRevoked(claims(9L, 0L)));
+        verify(repository).deleteRevokedBefore(any());
+    }
+
+    @Test
+    void isRevoked_ShouldKeepEveryUserUntilTokenLifetimePasses() {
+        when(repository.findById(any())).thenReturn(Optional.empty());
+        for (long userId = 1; userId <= 1000; userId++) {
+            revocationList.revokeBefore(userId, 1L);
+        }
+
+        // Вытеснения по размеру нет: первый отозванный пользователь по-прежнему отсекается
+        now.addAndGet(Duration.ofMinutes(59).toMillis());
+        assertTrue(revocationList.isRevoked(claims(1L, 0L)));
+
+        // После времени жизни токена все его старые токены истекли сами
+        now.addAndGet(Duration.ofMinutes(2).toMillis());
+        assertFalse(revocationList.isRevoked(claims(1L, 0L)));
+    }
+
+    @Test
+    void revokeBefore_ShouldUndoLocalEntryWhenTransactionRollsBack() {
+        when(repository.findById(7L)).thenReturn(Optional.empty());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            revocationList.revokeBefore(7L, 3L);
+            assertTrue(revocationList.isRevoked(claims(7L, 2L)));
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertFalse(revocationList.isRevoked(claims(7L, 2L)));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.bank.service;
+
+import com.example.bank.model.card.creditCard.CreditCard;
+import com.example.bank.model.card.issuance.CardIssuanceFormat;
+import com.example.bank.model.card.issuance.CardIssuanceSummary;
+import com.example.bank.model.user.User;
+import com.example.bank.repository.CardRepository;
+import com.example.bank.repository.UserRepository;
+import com.example.bank.security.CardSecurity;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardIssuanceServiceTest {
+
+    @Mock private UserRepository userRepository;
+    @Mock private CardRepository cardRepository;
+    @Mock private CardNumberAllocator cardNumberAllocator;
+    @Mock private LedgerService ledgerService;
+    @Mock private CardSecurity cardSecurity;
+    @Mock private EntityManager entityManager;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CardIssuanceService issuanceService;
+
+    @BeforeEach
+    void setUp() {
+        issuanceService = new CardIssuanceService(userRepository, cardRepository, cardNumberAllocator,
+                ledgerService, cardSecurity, objectMapper, entityManager, transactionManager);
+        ReflectionTestUtils.setField(issuanceService, "chunkSize", 2);
+        ReflectionTestUtils.setField(issuanceService, "defaultCreditLimit", new BigDecimal("10000"));
+        ReflectionTestUtils.setField(issuanceService, "defaultInterestRate", new BigDecimal("15"));
+        ReflectionTestUtils.setField(issuanceService, "defaultMinimumPaymentRate", new BigDecimal("5"));
+        ReflectionTestUtils.setField(issuanceService, "defaultGracePeriod", 30);
+    }
+
+    @Test
+    void issue_ShouldResolveUsersOncePerChunkAndStreamResultPerLine() throws Exception {
+        when(userRepository.findAllById(anyCollection())).thenReturn(List.of(user(1L), user(2L)));
+        when(cardNumberAllocator.nextCardNumber()).thenReturn("4000000000000002", "4000000000000010", "4000000000000028");
+
+        String input = """
+                {"userId":1,"type":"DEBIT"}
+                {"userId":2,"type":"CREDIT","creditLimit":5000}
+
+                {"userId":1,"type":"DEBIT"}
+                """;
+        StringWriter output = new StringWriter();
+        CardIssuanceSummary summary = issuanceService.issue(
+                new BufferedReader(new StringReader(input)), CardIssuanceFormat.NDJSON, output);
+
+        // Три заявки при пачке 2 — две выборки пользователей и две batch-вставки
+        verify(userRepository, times(2)).findAllById(anyCollection());
+        verify(cardRepository, times(2)).saveAll(anyList());
+        verify(entityManager, times(2)).clear();
+        verify(ledgerService).recordOpeningCreditLine(anyLong(), eq(new BigDecimal("5000")));
+        assertEquals(3, summary.getCreated());
+
+        String[] lines = output.toString().split("\n");
+        assertEquals(3, lines.length);
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertEquals(2, second.get("line").asLong());
+        assertEquals("CREATED", second.get("status").asText());
+        assertEquals("CREDIT", second.get("type").asText());
+        assertEquals("**** **** **** 0010", second.get("cardNumber").asText());
+        assertEquals(4, objectMapper.readTree(lines[2]).get("line").asLong());
+    }
+
+    @Test
+    void issue_ShouldReportBadLinesWithoutStoppingTheStream() throws Exception {
+        when(userRepository.findAllById(anyCollection())).thenReturn(List.of());
+
+        String input = "userId,type,creditLimit\nabc,DEBIT\n7,CREDIT,-1\n";
+        StringWriter output = new StringWriter();
+        CardIssuanceSummary summary = issuanceService.issue(
+                new BufferedReader(new StringReader(input)), CardIssuanceFormat.CSV, output);
+
+        assertEquals(2, summary.getFailed());
+        String[] lines = output.toString().split("\n");
+        assertTrue(objectMapper.readTree(lines[0]).get("error").asText().startsWith("Malformed line"));
+        assertEquals("User not found with id 7", objectMapper.readTree(lines[1]).get("error").asText());
+        verify(cardNumberAllocator, never()).nextCardNumber();
+    }
+
+    @Test
+    void issue_CsvCreditCardShouldUseDefaultsForEmptyFields() throws Exception {
+        when(userRepository.findAllById(anyCollection())).thenReturn(List.of(user(3L)));
+        when(cardNumberAllocator.nextCardNumber()).thenReturn("4000000000000002");
+
+        issuanceService.issue(new BufferedReader(new StringReader("3,credit,,,\n")), CardIssuanceFormat.CSV, new StringWriter());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CreditCard>> captor = ArgumentCaptor.forClass(List.class);
+        verify(cardRepository).saveAll(captor.capture());
+        CreditCard card = captor.getValue().get(0);
+        assertEquals(new BigDecimal("10000"), card.getCreditLimit());
+        assertEquals(new BigDecimal("15"), card.getInterestRate());
+        assertEquals(30, card.getGracePeriod());
+    }
+
+    private User user(Long id) {
+        User user = new User();
+        user.setUserId(id);
+        return user;
+    }
+}
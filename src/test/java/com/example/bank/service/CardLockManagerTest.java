@@ -0,0 +1,146 @@
+package com.example.bank.service;
+
+import com.example.bank.model.card.CardContentionResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.PessimisticLockingFailureException;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardLockManagerTest {
+
+    private CardLockManager lockManager;
+
+    @BeforeEach
+    void setUp() {
+        lockManager = new CardLockManager(16, 200, 3, 1, 2, 60_000);
+    }
+
+    @Test
+    void executeLocked_retriesOnLockConflictAndCountsRetries() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = lockManager.executeLocked(1L, 2L, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new PessimisticLockingFailureException("deadlock detected");
+            }
+            return "done";
+        });
+
+        // Проверка, что операция повторяется до успеха и повторы учитываются по обеим картам
+        assertEquals("done", result);
+        assertEquals(3, calls.get());
+        List<CardContentionResponse> snapshot = lockManager.getContentionSnapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals(2, snapshot.get(0).getRetries());
+    }
+
+    @Test
+    void contentionSnapshot_keepsOnlyMostRecentCards() {
+        for (long cardId = 1; cardId <= 3; cardId++) {
+            AtomicInteger calls = new AtomicInteger();
+            lockManager.executeLocked(cardId, cardId, () -> {
+                if (calls.incrementAndGet() < 2) {
+                    throw new PessimisticLockingFailureException("lock timeout");
+                }
+                return null;
+            });
+        }
+
+        // Счётчики ограничены contention.max-cards: карта 1 вытеснена более поздними
+        List<CardContentionResponse> snapshot = lockManager.getContentionSnapshot();
+        assertEquals(List.of(2L, 3L), snapshot.stream().map(CardContentionResponse::getCardId).toList());
+        assertEquals(1, snapshot.get(0).getRetries());
+    }
+
+    @Test
+    void executeLocked_givesUpAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(PessimisticLockingFailureException.class, () ->
+                lockManager.executeLocked(1L, 2L, () -> {
+                    calls.incrementAndGet();
+                    throw new PessimisticLockingFailureException("lock timeout");
+                }));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void executeLocked_doesNotRetryBusinessErrors() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () ->
+                lockManager.executeLocked(1L, 2L, () -> {
+                    calls.incrementAndGet();
+                    throw new IllegalStateException("Недостаточно средств");
+                }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void executeLocked_oppositeTransfersDoNotDeadlock() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new java.util.ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                long from = i % 2 == 0 ? 1L : 2L;
+                long to = i % 2 == 0 ? 2L : 1L;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return lockManager.executeLocked(from, to, () -> {
+                        maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                        inside.decrementAndGet();
+                        return null;
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Встречные переводы по одной паре карт выполняются строго по одному
+        assertEquals(1, maxInside.get());
+    }
+
+    @Test
+    void executeLocked_timesOutWhenCardIsHeld() throws Exception {
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> lockManager.executeLocked(1L, 2L, () -> {
+            held.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        holder.start();
+        held.await();
+        try {
+            assertThrows(CannotAcquireLockException.class,
+                    () -> lockManager.executeLocked(2L, 3L, () -> null));
+            assertTrue(lockManager.getContentionSnapshot().stream()
+                    .anyMatch(c -> c.getCardId() == 2L && c.getLockWaits() == 1));
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.bank.service;
+
+import com.example.bank.model.card.CardNumberRange;
+import com.example.bank.repository.CardNumberRangeRepository;
+import com.example.bank.repository.CardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardNumberAllocatorTest {
+
+    @Mock private CardNumberRangeRepository rangeRepository;
+    @Mock private CardRepository cardRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private CardNumberAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        allocator = new CardNumberAllocator(rangeRepository, cardRepository, transactionManager, "400000", 10);
+    }
+
+    @Test
+    void nextCardNumber_ShouldBeLuhnValidWithBin() {
+        when(rangeRepository.findByBinForUpdate("400000")).thenReturn(Optional.of(new CardNumberRange("400000", 0L)));
+
+        String number = allocator.nextCardNumber();
+
+        assertEquals(16, number.length());
+        assertTrue(number.startsWith("400000"));
+        assertEquals("4000000000000002", number);
+        assertTrue(CardNumberAllocator.isLuhnValid(number));
+    }
+
+    @Test
+    void nextCardNumber_ShouldQueryDatabaseOncePerBlock() {
+        CardNumberRange range = new CardNumberRange("400000", 0L);
+        when(rangeRepository.findByBinForUpdate("400000")).thenReturn(Optional.of(range));
+
+        for (int i = 0; i < 25; i++) {
+            allocator.nextCardNumber();
+        }
+
+        // 25 номеров при блоке 10 — три резервирования, каждое в своей транзакции
+        verify(rangeRepository, times(3)).findByBinForUpdate("400000");
+        verify(transactionManager, times(3)).commit(any());
+        assertEquals(30L, range.getNextAccount());
+        assertEquals(3L, range.getReservedBlocks());
+    }
+
+    @Test
+    void firstRange_ShouldStartAtZeroAndSkipLegacyNumbers() {
+        when(rangeRepository.findByBinForUpdate("400000")).thenReturn(Optional.empty());
+        // Старая карта со случайным номером далеко в диапазоне не сдвигает его начало
+        when(cardRepository.findMaxCardNumberStartingWith("400000")).thenReturn(Optional.of("4000009876543210"));
+        when(cardRepository.findCardNumbersBetween("4000000000000000", "4000000000000099"))
+                .thenReturn(List.of(allocator.toCardNumber(0), allocator.toCardNumber(2)));
+
+        String first = allocator.nextCardNumber();
+        String second = allocator.nextCardNumber();
+
+        ArgumentCaptor<CardNumberRange> captor = ArgumentCaptor.forClass(CardNumberRange.class);
+        verify(rangeRepository).saveAndFlush(captor.capture());
+        assertEquals(10L, captor.getValue().getNextAccount());
+        assertEquals(987654321L, captor.getValue().getLegacyMaxAccount());
+        assertEquals(allocator.toCardNumber(1), first);
+        assertEquals(allocator.toCardNumber(3), second);
+    }
+
+    @Test
+    void nextCardNumber_ShouldNotQueryCardsPastLegacyNumbers() {
+        CardNumberRange range = new CardNumberRange("400000", 0L);
+        range.setLegacyMaxAccount(4L);
+        when(rangeRepository.findByBinForUpdate("400000")).thenReturn(Optional.of(range));
+        when(cardRepository.findCardNumbersBetween("4000000000000000", "4000000000000049"))
+                .thenReturn(List.of(allocator.toCardNumber(4)));
+
+        List<String> issued = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            issued.add(allocator.nextCardNumber());
+        }
+
+        // Блок [0, 10) проверяется только до номера 4 включительно, следующий блок — без запроса
+        assertFalse(issued.contains(allocator.toCardNumber(4)));
+        assertEquals(allocator.toCardNumber(15), issued.get(14));
+        verify(cardRepository, times(1)).findCardNumbersBetween(anyString(), anyString());
+    }
+
+    @Test
+    void nextCardNumber_ShouldNotRepeatAcrossThreads() throws Exception {
+        CardNumberRange range = new CardNumberRange("400000", 0L);
+        when(rangeRepository.findByBinForUpdate("400000")).thenReturn(Optional.of(range));
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        Set<String> issued = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 250; i++) {
+                    issued.add(allocator.nextCardNumber());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertEquals(1000, issued.size());
+        assertEquals(100L, range.getReservedBlocks());
+    }
+
+    @Test
+    void isLuhnValid_ShouldRejectWrongCheckDigit() {
+        assertTrue(CardNumberAllocator.isLuhnValid("4539578763621486"));
+        assertFalse(CardNumberAllocator.isLuhnValid("4539578763621487"));
+        assertFalse(CardNumberAllocator.isLuhnValid("45395787636214a6"));
+    }
+}
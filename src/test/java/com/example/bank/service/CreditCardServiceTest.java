@@ -1,17 +1,17 @@
 package com.example.bank.service;
 
 import com.example.bank.exception.InvalidOperationException;
+import com.example.bank.Enums.CardType;
+import com.example.bank.model.card.CardSummary;
 import com.example.bank.model.card.creditCard.CreditCard;
 import com.example.bank.repository.*;
 import com.example.bank.security.CardSecurity;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
-import org.springframework.data.domain.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -28,11 +28,18 @@ class CreditCardServiceTest {
     private UserRepository userRepository;
     @Mock
     private CardSecurity cardSecurity;
+    @Mock
+    private LedgerService ledgerService;
+    @Mock
+    private CardBalanceWriter balanceWriter;
+    @Mock
+    private CardNumberAllocator cardNumberAllocator;
 
     @InjectMocks
     private CreditCardService creditCardService;
 
     private CreditCard card;
+    private CardSummary summary;
 
     @BeforeEach
     void setUp() {
@@ -46,111 +53,155 @@ class CreditCardServiceTest {
         card.setInterestRate(BigDecimal.valueOf(12)); // 12% годовых
         card.setExpiryDate(LocalDate.now().plusYears(1));
         card.setStatus(com.example.bank.Enums.CardStatus.ACTIVE);
+
+        summary = new CardSummary(3L, "4000000000000003", CardType.CREDIT, LocalDate.now().plusYears(1), 1L);
     }
 
 
     @Test
-    void testProcessWithdrawWithinLimit() {
-        // Проверка снятия в пределах лимита: баланс уменьшается, долг увеличивается
-        creditCardService.processWithdraw(card, BigDecimal.valueOf(200));
+    void testAccrueInterestAddsInterest() {
+        // Проверка начисления процентов на тело долга (массовое начисление — InterestAccrualServiceTest)
+        card.setDebt(BigDecimal.valueOf(1000));
 
-        assertEquals(BigDecimal.valueOf(800), card.getBalance());
-        assertEquals(BigDecimal.valueOf(200), card.getDebt());
-    }
+        card.accrueInterest();
+        card.updateTotalDebt();
 
-    @Test
-    void testProcessWithdrawExceedsLimitThrows() {
-        // Проверка, что при превышении лимита выбрасывается исключение
-        assertThrows(InvalidOperationException.class, () ->
-                creditCardService.processWithdraw(card, BigDecimal.valueOf(2000)));
+        // 12% годовых = 1% в месяц → 10 от 1000
+        assertEquals(BigDecimal.valueOf(10.00).setScale(2), card.getAccruedInterest().setScale(2));
+        assertEquals(BigDecimal.valueOf(1010.00).setScale(2), card.getTotalDebt().setScale(2));
     }
 
     @Test
-    void testProcessDepositReducesDebt() {
-        // Проверка, что депозит уменьшает долг и увеличивает баланс
-        card.setDebt(BigDecimal.valueOf(300));
-        card.setBalance(BigDecimal.valueOf(700));
+    void testAccrueInterestOnEmptyCardDoesNothing() {
+        // Проверка, что у нового аккаунта без долга начисление процентов ничего не меняет
+        card.setBalance(BigDecimal.valueOf(1200));
 
-        creditCardService.processDeposit(card, BigDecimal.valueOf(100));
+        card.accrueInterest();
+        card.updateTotalDebt();
 
-        assertEquals(BigDecimal.valueOf(800), card.getBalance());
-        assertEquals(BigDecimal.valueOf(200), card.getDebt());
+        assertEquals(BigDecimal.ZERO, card.getAccruedInterest());
+        assertEquals(BigDecimal.ZERO, card.getDebt());
+        assertEquals(BigDecimal.valueOf(1200), card.getBalance());
+        assertEquals(BigDecimal.ZERO, card.getTotalDebt());
     }
 
     @Test
-    void testAccrueMonthlyInterestAddsInterest() {
-        // Проверка начисления процентов на тело долга
-        card.setDebt(BigDecimal.valueOf(1000));
-
-        Page<CreditCard> page = new PageImpl<>(List.of(card));
-        when(creditCardRepository.findAll(any(Pageable.class))).thenReturn(page);
-
-        creditCardService.accrueMonthlyInterest();
-
-        // 12% годовых = 1% в месяц → 10 от 1000
-        assertEquals(BigDecimal.valueOf(10.00).setScale(2), card.getAccruedInterest().setScale(2));
-        verify(creditCardRepository, atLeastOnce()).save(card);
+    void testApplyDepositSplitsInterestAndDebtInDatabase() {
+        // Проверка, что кредитное пополнение выполняется цепочкой UPDATE, начиная с проверки статуса карты
+        BigDecimal amount = BigDecimal.valueOf(100);
+        when(balanceWriter.depositIfActive(eq(3L), eq(amount), any(LocalDate.class)))
+                .thenReturn(java.util.Optional.of(BigDecimal.valueOf(1100)));
+        when(creditCardRepository.findAccruedInterestById(3L)).thenReturn(java.util.Optional.of(BigDecimal.valueOf(30)));
+        when(creditCardRepository.applyDepositToDebt(3L, amount, BigDecimal.valueOf(30))).thenReturn(1);
+        when(balanceWriter.deduct(3L, BigDecimal.valueOf(30))).thenReturn(BigDecimal.valueOf(1070));
+
+        BigDecimal credited = creditCardService.applyDeposit(summary, amount);
+
+        // 30 уходит на проценты, баланс растёт только на остаток
+        assertEquals(BigDecimal.valueOf(70), credited);
+        assertEquals(BigDecimal.valueOf(1070), summary.getBalance());
+        InOrder order = inOrder(balanceWriter, creditCardRepository);
+        order.verify(balanceWriter).depositIfActive(eq(3L), eq(amount), any(LocalDate.class));
+        order.verify(creditCardRepository).applyDepositToDebt(3L, amount, BigDecimal.valueOf(30));
+        order.verify(balanceWriter).deduct(3L, BigDecimal.valueOf(30));
     }
 
     @Test
-    void testDepositPaysOffInterestAndPartOfDebt() {
-        // Проверка погашения процентов и части тела долга при депозите
-        card.setTotalDebt(BigDecimal.valueOf(550));   // 500 тело + 50 проценты
-        card.setDebt(BigDecimal.valueOf(500));
-        card.setAccruedInterest(BigDecimal.valueOf(50));
-        card.setBalance(BigDecimal.valueOf(500));
-
-        creditCardService.processDeposit(card, BigDecimal.valueOf(60));
-
-        assertEquals(BigDecimal.ZERO, card.getAccruedInterest());   // проценты погашены
-        assertEquals(BigDecimal.valueOf(490), card.getDebt());      // долг уменьшился на 10
-        assertEquals(BigDecimal.valueOf(510), card.getBalance());   // баланс вырос на 10
-        assertEquals(BigDecimal.valueOf(490), card.getTotalDebt()); // общий долг пересчитан
+    void testApplyDepositRecomputesInterestShareAfterConcurrentAccrual() {
+        // Проверка, что доля процентов берётся из того значения, с которым сработал UPDATE долга
+        BigDecimal amount = BigDecimal.valueOf(100);
+        when(balanceWriter.depositIfActive(eq(3L), eq(amount), any(LocalDate.class)))
+                .thenReturn(java.util.Optional.of(BigDecimal.valueOf(1100)));
+        when(creditCardRepository.findAccruedInterestById(3L))
+                .thenReturn(java.util.Optional.of(BigDecimal.ZERO), java.util.Optional.of(BigDecimal.valueOf(12)));
+        when(creditCardRepository.applyDepositToDebt(3L, amount, BigDecimal.ZERO)).thenReturn(0);
+        when(creditCardRepository.applyDepositToDebt(3L, amount, BigDecimal.valueOf(12))).thenReturn(1);
+        when(balanceWriter.deduct(3L, BigDecimal.valueOf(12))).thenReturn(BigDecimal.valueOf(1088));
+
+        BigDecimal credited = creditCardService.applyDeposit(summary, amount);
+
+        assertEquals(BigDecimal.valueOf(88), credited);
+        assertEquals(BigDecimal.valueOf(1088), summary.getBalance());
     }
 
     @Test
-    void testDepositPaysOffPartOfInterestOnly() {
-        // Проверка погашения только части процентов при депозите
-        card.setTotalDebt(BigDecimal.valueOf(550));   // 500 тело + 50 проценты
-        card.setDebt(BigDecimal.valueOf(500));
-        card.setAccruedInterest(BigDecimal.valueOf(50));
-        card.setBalance(BigDecimal.valueOf(500));
-
-        creditCardService.processDeposit(card, BigDecimal.valueOf(40));
-
-        assertEquals(BigDecimal.valueOf(10), card.getAccruedInterest());
-        assertEquals(BigDecimal.valueOf(500), card.getDebt());
-        assertEquals(BigDecimal.valueOf(500), card.getBalance());
-        assertEquals(BigDecimal.valueOf(510), card.getTotalDebt());
+    void testApplyDepositFailsWhenInterestKeepsChanging() {
+        BigDecimal amount = BigDecimal.valueOf(100);
+        when(balanceWriter.depositIfActive(eq(3L), eq(amount), any(LocalDate.class)))
+                .thenReturn(java.util.Optional.of(BigDecimal.valueOf(1100)));
+        when(creditCardRepository.findAccruedInterestById(3L)).thenReturn(java.util.Optional.of(BigDecimal.ZERO));
+        when(creditCardRepository.applyDepositToDebt(3L, amount, BigDecimal.ZERO)).thenReturn(0);
+
+        assertThrows(InvalidOperationException.class, () -> creditCardService.applyDeposit(summary, amount));
+        verify(balanceWriter, never()).deduct(any(), any());
     }
 
     @Test
-    void testWithdrawCreatesDebtCorrectly() {
-        // Проверка корректного обновления тела долга при снятии
-        card.setBalance(BigDecimal.valueOf(1200));
+    void testApplyWithdrawOverLimitSkipsDebtUpdate() {
+        // Проверка, что при нехватке средств долг не пересчитывается
+        when(balanceWriter.withdrawIfActive(eq(3L), any(), any(LocalDate.class))).thenReturn(java.util.Optional.empty());
+        when(cardRepository.findStatusById(3L)).thenReturn(java.util.Optional.of(com.example.bank.Enums.CardStatus.ACTIVE));
+
+        InvalidOperationException ex = assertThrows(InvalidOperationException.class,
+                () -> creditCardService.applyWithdraw(summary, BigDecimal.valueOf(2000)));
+        assertEquals("Exceeds available credit", ex.getMessage());
+        verify(creditCardRepository, never()).applyWithdrawToDebt(any(), any());
+    }
 
-        creditCardService.processWithdraw(card, BigDecimal.valueOf(300));
+    @Test
+    void testApplyWithdrawPassesBalanceAfterWithdrawToDebtUpdate() {
+        when(balanceWriter.withdrawIfActive(eq(3L), any(), any(LocalDate.class)))
+                .thenReturn(java.util.Optional.of(BigDecimal.valueOf(4000)));
+
+        creditCardService.applyWithdraw(summary, BigDecimal.valueOf(1000));
+
+        // Долг считается по балансу, который вернул UPDATE списания, без отдельного чтения cards
+        InOrder order = inOrder(balanceWriter, creditCardRepository);
+        order.verify(balanceWriter).withdrawIfActive(eq(3L), eq(BigDecimal.valueOf(1000)), any(LocalDate.class));
+        order.verify(creditCardRepository).applyWithdrawToDebt(3L, BigDecimal.valueOf(4000));
+        verify(cardRepository, never()).findBalanceById(any());
+        assertEquals(BigDecimal.valueOf(4000), summary.getBalance());
+    }
 
-        assertEquals(BigDecimal.ZERO, card.getAccruedInterest());
-        assertEquals(BigDecimal.valueOf(100), card.getDebt());      // долг после снятия
-        assertEquals(BigDecimal.valueOf(900), card.getBalance());   // баланс уменьшился
-        assertEquals(BigDecimal.valueOf(100), card.getTotalDebt());
+    @Test
+    void testIncreaseCreditLimitUpdatesBalanceInDatabaseBeforeLedger() {
+        // Проверка, что лимит и баланс меняются UPDATE'ами: строка карты блокируется до нумерации проводок
+        card.setId(3L);
+        when(cardRepository.findById(3L)).thenReturn(java.util.Optional.of(card));
+        when(creditCardRepository.changeCreditLimit(3L, BigDecimal.valueOf(1000), BigDecimal.valueOf(1500))).thenReturn(1);
+
+        creditCardService.increaseCreditLimit(3L, BigDecimal.valueOf(1500));
+
+        InOrder order = inOrder(creditCardRepository, ledgerService);
+        order.verify(creditCardRepository).addToBalance(3L, BigDecimal.valueOf(500));
+        order.verify(creditCardRepository).changeCreditLimit(3L, BigDecimal.valueOf(1000), BigDecimal.valueOf(1500));
+        order.verify(ledgerService).recordCreditLine(3L, BigDecimal.valueOf(500));
+        verify(cardRepository, never()).save(any());
     }
 
     @Test
-    void testAccrueInterestOnEmptyCardDoesNothing() {
-        // Проверка, что у нового аккаунта без долга начисление процентов ничего не меняет
-        card.setBalance(BigDecimal.valueOf(1200));
+    void testIncreaseCreditLimitRejectsConcurrentLimitChange() {
+        // Лимит изменили между чтением и UPDATE: операция отклоняется, проводки не пишутся
+        card.setId(3L);
+        when(cardRepository.findById(3L)).thenReturn(java.util.Optional.of(card));
+        when(creditCardRepository.changeCreditLimit(any(), any(), any())).thenReturn(0);
+
+        assertThrows(InvalidOperationException.class,
+                () -> creditCardService.increaseCreditLimit(3L, BigDecimal.valueOf(1500)));
+        verify(ledgerService, never()).recordCreditLine(any(), any());
+    }
 
-        Page<CreditCard> page = new PageImpl<>(List.of(card));
-        when(creditCardRepository.findAll(any(Pageable.class))).thenReturn(page);
+    @Test
+    void testDeleteByCardNumberInvalidatesOwnershipIndex() {
+        // Удалённая карта не должна оставаться в индексе владельцев
+        card.setId(3L);
+        when(cardRepository.findByCardNumber("4000000000000003")).thenReturn(java.util.Optional.of(card));
 
-        creditCardService.accrueMonthlyInterest();
+        creditCardService.deleteByCardNumber("4000000000000003");
 
-        assertEquals(BigDecimal.ZERO, card.getAccruedInterest());
-        assertEquals(BigDecimal.ZERO, card.getDebt());
-        assertEquals(BigDecimal.valueOf(1200), card.getBalance());
-        assertEquals(BigDecimal.ZERO, card.getTotalDebt());
+        InOrder order = inOrder(cardRepository, cardSecurity);
+        order.verify(cardRepository).deleteByCardNumber("4000000000000003");
+        order.verify(cardSecurity).cardRemoved(3L);
     }
 
 
@@ -1,11 +1,14 @@
 package com.example.bank.service;
 
 import com.example.bank.Enums.CardStatus;
+import com.example.bank.Enums.CardType;
 import com.example.bank.exception.CardBlockedException;
 import com.example.bank.exception.InvalidOperationException;
+import com.example.bank.model.card.CardSummary;
 import com.example.bank.model.card.debitCard.DebitCard;
 import com.example.bank.model.card.debitCard.DebitCardResponse;
 import com.example.bank.model.user.User;
+import com.example.bank.repository.CardBalanceWriter;
 import com.example.bank.repository.CardRepository;
 import com.example.bank.repository.UserRepository;
 import com.example.bank.security.CardSecurity;
@@ -37,6 +40,12 @@ class DebitCardServiceTest {
     @Mock
     private CardSecurity cardSecurity;
 
+    @Mock
+    private CardBalanceWriter balanceWriter;
+
+    @Mock
+    private CardNumberAllocator cardNumberAllocator;
+
     @Mock
     private SecurityContext securityContext;
 
@@ -46,16 +55,12 @@ class DebitCardServiceTest {
     @InjectMocks
     private DebitCardService debitCardService;
 
-    private DebitCard card;
+    private CardSummary card;
 
     @BeforeEach
     void setUp() {
         SecurityContextHolder.setContext(securityContext);
-        card = new DebitCard();
-        card.setCardNumber("1234567890");
-        card.setBalance(new BigDecimal(1000));
-        card.setExpiryDate(LocalDate.now().plusYears(1));
-        card.setStatus(CardStatus.ACTIVE);
+        card = new CardSummary(7L, "1234567890", CardType.DEBIT, LocalDate.now().plusYears(1), 1L);
     }
 
     @Test
@@ -84,39 +89,55 @@ class DebitCardServiceTest {
 
 
     @Test
-    void testDeposit() {
-        // Проверка, что депозит увеличивает баланс
-        debitCardService.processDeposit(card, new BigDecimal(100));
+    void applyDeposit_shouldTakeNewBalanceFromUpdate() {
+        // Новый баланс приходит из того же UPDATE, отдельного чтения карты нет
+        when(balanceWriter.depositIfActive(eq(7L), eq(new BigDecimal(100)), any(LocalDate.class)))
+                .thenReturn(Optional.of(new BigDecimal(1100)));
+
+        assertEquals(new BigDecimal(100), debitCardService.applyDeposit(card, new BigDecimal(100)));
         assertEquals(new BigDecimal(1100), card.getBalance());
+        verify(cardRepository, never()).findBalanceById(any());
     }
 
     @Test
-    void testWithdraw() {
-        // Проверка, что снятие уменьшает баланс
-        debitCardService.processWithdraw(card, new BigDecimal(100));
+    void applyWithdraw_shouldUpdateBalanceInDatabase() {
+        when(balanceWriter.withdrawIfActive(eq(7L), eq(new BigDecimal(100)), any(LocalDate.class)))
+                .thenReturn(Optional.of(new BigDecimal(900)));
+
+        debitCardService.applyWithdraw(card, new BigDecimal(100));
+
         assertEquals(new BigDecimal(900), card.getBalance());
+        verify(cardRepository, never()).findStatusById(any());
     }
 
     @Test
-    void testWithdraw_shouldThrowExceptionWhenAmountIsNegative() {
+    void applyWithdraw_shouldRejectNegativeAmountWithoutUpdate() {
         // Проверка, что при отрицательной сумме выбрасывается исключение
-        assertThrows(IllegalArgumentException.class, () -> debitCardService.processWithdraw(card, new BigDecimal(-100)));
+        assertThrows(IllegalArgumentException.class, () -> debitCardService.applyWithdraw(card, new BigDecimal(-100)));
+        verifyNoInteractions(balanceWriter);
     }
 
     @Test
-    void testWithdraw_shouldThrowExceptionWhenAmountIsGreaterThanBalance() {
-        // Проверка, что при превышении баланса выбрасывается исключение
-        assertThrows(InvalidOperationException.class, () -> debitCardService.processWithdraw(card, new BigDecimal(1100)));
-    }
+    void applyWithdraw_shouldReportInsufficientFundsWhenNoRowUpdated() {
+        when(balanceWriter.withdrawIfActive(eq(7L), any(), any(LocalDate.class))).thenReturn(Optional.empty());
+        when(cardRepository.findStatusById(7L)).thenReturn(Optional.of(CardStatus.ACTIVE));
 
-    @Test
-    void testWithdraw_shouldThrowExceptionWhenCardIsBlocked() {
-        // Проверка, что при заблокированной карте выбрасывается исключение
-        card.setStatus(CardStatus.BLOCKED);
-        assertThrows(CardBlockedException.class, () -> debitCardService.processWithdraw(card, new BigDecimal(100)));
+        assertThrows(InvalidOperationException.class, () -> debitCardService.applyWithdraw(card, new BigDecimal(5000)));
     }
 
+    @Test
+    void applyWithdraw_shouldReportBlockedCardWhenNoRowUpdated() {
+        when(balanceWriter.withdrawIfActive(eq(7L), any(), any(LocalDate.class))).thenReturn(Optional.empty());
+        when(cardRepository.findStatusById(7L)).thenReturn(Optional.of(CardStatus.BLOCKED));
 
+        assertThrows(CardBlockedException.class, () -> debitCardService.applyWithdraw(card, new BigDecimal(100)));
+    }
 
+    @Test
+    void applyDeposit_shouldReportBlockedCardWhenNoRowUpdated() {
+        when(balanceWriter.depositIfActive(eq(7L), any(), any(LocalDate.class))).thenReturn(Optional.empty());
+        when(cardRepository.findStatusById(7L)).thenReturn(Optional.of(CardStatus.BLOCKED));
 
-}
\ No newline at end of file
+        assertThrows(CardBlockedException.class, () -> debitCardService.applyDeposit(card, new BigDecimal(100)));
+    }
+}
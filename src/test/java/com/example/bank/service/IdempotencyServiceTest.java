@@ -0,0 +1,208 @@
+package com.example.bank.service;
+
+import com.example.bank.Enums.Role;
+import com.example.bank.exception.IdempotencyConflictException;
+import com.example.bank.exception.IdempotencyKeyReuseException;
+import com.example.bank.exception.InvalidOperationException;
+import com.example.bank.model.card.CardDto;
+import com.example.bank.model.idempotency.IdempotencyRecord;
+import com.example.bank.model.transaction.TransactionOperationRequest;
+import com.example.bank.repository.IdempotencyRecordRepository;
+import com.example.bank.security.BankPrincipal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock private IdempotencyRecordRepository repository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private IdempotencyService idempotencyService;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(repository, new ObjectMapper(), transactionManager, 100, 60, 30);
+        authenticate(42L, "user");
+    }
+
+    private static void authenticate(Long userId, String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new BankPrincipal(userId, username, Role.USER), null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void execute_ShouldRunOnceAndReplayFromLocalCache() {
+        when(repository.findById("42:deposit:k1")).thenReturn(Optional.empty());
+        when(repository.claim(eq("42:deposit:k1"), any(), any(), any())).thenReturn(1);
+
+        CardDto first = idempotencyService.execute("deposit", "k1", deposit("10"), this::operation);
+        CardDto second = idempotencyService.execute("deposit", "k1", deposit("10"), this::operation);
+
+        // Повтор возвращает тот же ответ без вызова операции и без обращения к БД
+        assertEquals(1, calls.get());
+        assertEquals(first, second);
+        verify(repository, times(1)).findById(any());
+        verify(repository).complete(eq("42:deposit:k1"), contains("\"balance\":150"), any());
+    }
+
+    @Test
+    void execute_ShouldScopeKeysByUserIdNotUsername() {
+        when(repository.findById(any())).thenReturn(Optional.empty());
+        when(repository.claim(any(), any(), any(), any())).thenReturn(1);
+        idempotencyService.execute("deposit", "k1", deposit("10"), this::operation);
+
+        // Пользователь сменил имя: ключ по-прежнему его, повтор не проводит операцию второй раз
+        authenticate(42L, "renamed");
+        idempotencyService.execute("deposit", "k1", deposit("10"), this::operation);
+        assertEquals(1, calls.get());
+
+        // Другой пользователь, занявший прежнее имя, получает собственный ключ
+        authenticate(43L, "user");
+        idempotencyService.execute("deposit", "k1", deposit("10"), this::operation);
+        assertEquals(2, calls.get());
+        verify(repository).claim(eq("42:deposit:k1"), any(), any(), any());
+        verify(repository).claim(eq("43:deposit:k1"), any(), any(), any());
+    }
+
+    @Test
+    void execute_ShouldReplayStoredResponseOnLocalMiss() {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setScopeKey("42:withdraw:k2");
+        record.setResponse("{\"id\":7,\"cardNumber\":\"**** **** **** 1234\",\"balance\":42,\"cardType\":\"DEBIT\"}");
+        record.setExpiresAt(LocalDateTime.now().plusMinutes(5));
+        when(repository.findById("42:withdraw:k2")).thenReturn(Optional.of(record));
+
+        CardDto result = idempotencyService.execute("withdraw", "k2", deposit("10"), this::operation);
+
+        assertEquals(0, calls.get());
+        assertEquals(BigDecimal.valueOf(42), result.getBalance());
+        verify(repository, never()).claim(any(), any(), any(), any());
+    }
+
+    @Test
+    void execute_ShouldRejectKeyClaimedByConcurrentRequest() {
+        when(repository.findById("42:transfer:k3")).thenReturn(Optional.empty());
+        when(repository.claim(eq("42:transfer:k3"), any(), any(), any())).thenReturn(0);
+
+        assertThrows(IdempotencyConflictException.class,
+                () -> idempotencyService.execute("transfer", "k3", deposit("10"), this::operation));
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void execute_ShouldReleaseKeyWhenOperationFails() {
+        when(repository.findById("42:deposit:k4")).thenReturn(Optional.empty());
+        when(repository.claim(eq("42:deposit:k4"), any(), any(), any())).thenReturn(1);
+
+        assertThrows(InvalidOperationException.class, () -> idempotencyService.execute("deposit", "k4", deposit("10"), () -> {
+            throw new InvalidOperationException("Недостаточно средств");
+        }));
+        verify(repository).deleteById("42:deposit:k4");
+        verify(repository, never()).complete(any(), any(), any());
+    }
+
+    @Test
+    void execute_ShouldClaimWithShortLeaseAndExtendItOnCompletion() {
+        when(repository.findById("42:deposit:k5")).thenReturn(Optional.empty());
+        when(repository.claim(eq("42:deposit:k5"), any(), any(), any())).thenReturn(1);
+        LocalDateTime before = LocalDateTime.now();
+
+        idempotencyService.execute("deposit", "k5", deposit("10"), this::operation);
+
+        // Захват живёт секунды (упавший узел не держит ключ сутки), готовый ответ — полный срок
+        ArgumentCaptor<LocalDateTime> leaseUntil = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).claim(eq("42:deposit:k5"), matches("[0-9a-f]{64}"), any(), leaseUntil.capture());
+        assertTrue(leaseUntil.getValue().isBefore(before.plusMinutes(1)));
+        ArgumentCaptor<LocalDateTime> expiresAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).complete(eq("42:deposit:k5"), any(), expiresAt.capture());
+        assertTrue(expiresAt.getValue().isAfter(before.plusMinutes(59)));
+    }
+
+    @Test
+    void execute_ShouldRejectSameKeyWithDifferentBody() {
+        when(repository.findById("42:deposit:k6")).thenReturn(Optional.empty());
+        when(repository.claim(eq("42:deposit:k6"), any(), any(), any())).thenReturn(1);
+        idempotencyService.execute("deposit", "k6", deposit("10"), this::operation);
+
+        // Тот же ключ, другая сумма: ни повтора старого ответа, ни новой операции
+        assertThrows(IdempotencyKeyReuseException.class,
+                () -> idempotencyService.execute("deposit", "k6", deposit("99"), this::operation));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void execute_ShouldRejectDifferentBodyForStoredOrPendingKey() {
+        IdempotencyRecord pending = new IdempotencyRecord();
+        pending.setScopeKey("42:transfer:k7");
+        pending.setRequestHash("0".repeat(64));
+        pending.setExpiresAt(LocalDateTime.now().plusSeconds(20));
+        when(repository.findById("42:transfer:k7")).thenReturn(Optional.of(pending));
+
+        assertThrows(IdempotencyKeyReuseException.class,
+                () -> idempotencyService.execute("transfer", "k7", deposit("10"), this::operation));
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void execute_ShouldReturnResultWhenStoringResponseFails() {
+        when(repository.findById("42:deposit:k8")).thenReturn(Optional.empty());
+        when(repository.claim(eq("42:deposit:k8"), any(), any(), any())).thenReturn(1);
+        when(repository.complete(eq("42:deposit:k8"), any(), any())).thenThrow(new IllegalStateException("db down"));
+
+        CardDto first = idempotencyService.execute("deposit", "k8", deposit("10"), this::operation);
+        CardDto replay = idempotencyService.execute("deposit", "k8", deposit("10"), this::operation);
+
+        // Деньги уже проведены: клиент получает результат, повтор на этом узле отдаётся из кэша
+        assertEquals(first, replay);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void execute_ShouldBypassStoreWithoutKey() {
+        idempotencyService.execute("deposit", null, deposit("10"), this::operation);
+
+        assertEquals(1, calls.get());
+        verifyNoInteractions(repository);
+    }
+
+    private static TransactionOperationRequest deposit(String amount) {
+        TransactionOperationRequest request = new TransactionOperationRequest();
+        request.setId(7L);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+
+    private CardDto operation() {
+        calls.incrementAndGet();
+        CardDto dto = new CardDto();
+        dto.setId(7L);
+        dto.setBalance(BigDecimal.valueOf(150));
+        return dto;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.bank.service;
+
+import com.example.bank.model.interest.InterestAccrualCheckpoint;
+import com.example.bank.model.interest.InterestAccrualReport;
+import com.example.bank.repository.CreditCardRepository;
+import com.example.bank.repository.InterestAccrualCheckpointRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InterestAccrualServiceTest {
+
+    private static final LocalDate PERIOD = LocalDate.of(2026, 10, 1);
+
+    @Mock private CreditCardRepository creditCardRepository;
+    @Mock private InterestAccrualCheckpointRepository checkpointRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private InterestAccrualService accrualService;
+
+    @BeforeEach
+    void setUp() {
+        accrualService = new InterestAccrualService(creditCardRepository, checkpointRepository, transactionManager, 2);
+        ReflectionTestUtils.setField(accrualService, "chunkSize", 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accrualService.shutdown();
+    }
+
+    @Test
+    void accrue_ShouldSplitIdsIntoChunksAndCheckpointEach() {
+        when(creditCardRepository.findMinId()).thenReturn(1L);
+        when(creditCardRepository.findMaxId()).thenReturn(25L);
+        when(checkpointRepository.findByPeriod(PERIOD)).thenReturn(List.of());
+        when(creditCardRepository.accrueInterestInRange(anyLong(), anyLong(), eq(PERIOD))).thenReturn(4);
+
+        InterestAccrualReport report = accrualService.accrue(PERIOD);
+
+        // Диапазоны [1,11), [11,21), [21,31), каждый со своей отметкой
+        assertEquals(3, report.getChunksTotal());
+        assertEquals(0, report.getChunksFailed());
+        assertEquals(12, report.getCardsUpdated());
+        verify(creditCardRepository).accrueInterestInRange(1L, 11L, PERIOD);
+        verify(creditCardRepository).accrueInterestInRange(11L, 21L, PERIOD);
+        verify(creditCardRepository).accrueInterestInRange(21L, 31L, PERIOD);
+        verify(checkpointRepository, times(3)).save(any(InterestAccrualCheckpoint.class));
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void accrue_ShouldResumeFromCheckpoints() {
+        when(creditCardRepository.findMinId()).thenReturn(1L);
+        when(creditCardRepository.findMaxId()).thenReturn(25L);
+        when(checkpointRepository.findByPeriod(PERIOD)).thenReturn(List.of(
+                new InterestAccrualCheckpoint(PERIOD, 1L, 11L, 4, 5),
+                new InterestAccrualCheckpoint(PERIOD, 11L, 21L, 4, 5)));
+        when(creditCardRepository.accrueInterestInRange(21L, 31L, PERIOD)).thenReturn(3);
+
+        InterestAccrualReport report = accrualService.accrue(PERIOD);
+
+        // Завершённые до падения диапазоны повторно не обрабатываются
+        assertEquals(2, report.getChunksSkipped());
+        assertEquals(3, report.getCardsUpdated());
+        verify(creditCardRepository, times(1)).accrueInterestInRange(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void accrue_FailedChunkShouldNotBeCheckpointed() {
+        when(creditCardRepository.findMinId()).thenReturn(1L);
+        when(creditCardRepository.findMaxId()).thenReturn(15L);
+        when(checkpointRepository.findByPeriod(PERIOD)).thenReturn(List.of());
+        when(creditCardRepository.accrueInterestInRange(1L, 11L, PERIOD)).thenReturn(2);
+        when(creditCardRepository.accrueInterestInRange(11L, 21L, PERIOD)).thenThrow(new RuntimeException("db down"));
+
+        InterestAccrualReport report = accrualService.accrue(PERIOD);
+
+        // Ошибка одного диапазона не прерывает остальные; он откатывается и будет повторён при следующем запуске
+        assertEquals(1, report.getChunksFailed());
+        assertEquals(2, report.getCardsUpdated());
+        ArgumentCaptor<InterestAccrualCheckpoint> captor = ArgumentCaptor.forClass(InterestAccrualCheckpoint.class);
+        verify(checkpointRepository).save(captor.capture());
+        assertEquals(1L, captor.getValue().getFromId());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void accrue_WithoutCreditCardsShouldDoNothing() {
+        when(creditCardRepository.findMinId()).thenReturn(null);
+        when(creditCardRepository.findMaxId()).thenReturn(null);
+
+        InterestAccrualReport report = accrualService.accrue(PERIOD);
+
+        assertEquals(0, report.getChunksTotal());
+        verify(creditCardRepository, never()).accrueInterestInRange(anyLong(), anyLong(), any());
+    }
+}
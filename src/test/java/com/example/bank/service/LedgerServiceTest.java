@@ -0,0 +1,145 @@
+package com.example.bank.service;
+
+import com.example.bank.Enums.LedgerAccount;
+import com.example.bank.model.ledger.BalanceSnapshot;
+import com.example.bank.model.ledger.CardBalanceResponse;
+import com.example.bank.model.ledger.LedgerEntry;
+import com.example.bank.model.ledger.ReconciliationReport;
+import com.example.bank.repository.BalanceSnapshotRepository;
+import com.example.bank.repository.CardRepository;
+import com.example.bank.repository.LedgerEntryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerServiceTest {
+
+    @Mock private LedgerEntryRepository entryRepository;
+    @Mock private BalanceSnapshotRepository snapshotRepository;
+    @Mock private CardRepository cardRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private LedgerService ledgerService;
+
+    @BeforeEach
+    void setUp() {
+        ledgerService = new LedgerService(entryRepository, snapshotRepository, cardRepository, transactionManager, 2);
+        ReflectionTestUtils.setField(ledgerService, "reconcileChunkSize", 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledgerService.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordDeposit_ShouldWriteBalancedLegsIncludingInterest() {
+        ledgerService.recordDeposit(11L, 5L, BigDecimal.valueOf(100), BigDecimal.valueOf(70));
+
+        ArgumentCaptor<List<LedgerEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(entryRepository).saveAll(captor.capture());
+        List<LedgerEntry> entries = captor.getValue();
+
+        // Сумма проводок операции равна нулю, а карта в итоге получает 70
+        assertEquals(4, entries.size());
+        assertEquals(0, entries.stream().map(LedgerEntry::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add).signum());
+        assertEquals(BigDecimal.valueOf(70), entries.stream()
+                .filter(e -> e.getAccount() == LedgerAccount.CARD)
+                .map(LedgerEntry::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        assertTrue(entries.stream().allMatch(e -> e.getTransactionId() == 11L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordTransfer_ShouldContinueCardSequencesPerCard() {
+        when(entryRepository.findLastCardSeq(5L)).thenReturn(7L);
+        when(entryRepository.findLastCardSeq(6L)).thenReturn(null);
+
+        ledgerService.recordTransfer(12L, 5L, 6L, BigDecimal.valueOf(100), BigDecimal.valueOf(80));
+
+        ArgumentCaptor<List<LedgerEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(entryRepository).saveAll(captor.capture());
+        List<LedgerEntry> entries = captor.getValue();
+
+        // Номер запрашивается один раз на карту, проводки одной карты получают номера подряд
+        assertEquals(List.of(8L, 1L, 2L), entries.stream()
+                .filter(e -> e.getAccount() == LedgerAccount.CARD)
+                .map(LedgerEntry::getCardSeq)
+                .toList());
+        assertNull(entries.stream()
+                .filter(e -> e.getAccount() == LedgerAccount.INTEREST_INCOME)
+                .findFirst().orElseThrow().getCardSeq());
+        verify(entryRepository, times(2)).findLastCardSeq(anyLong());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordOpeningCreditLine_ShouldStartCardSequenceWithoutQuery() {
+        ledgerService.recordOpeningCreditLine(5L, BigDecimal.valueOf(5000));
+
+        ArgumentCaptor<List<LedgerEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(entryRepository).saveAll(captor.capture());
+        assertEquals(1L, captor.getValue().stream()
+                .filter(e -> e.getAccount() == LedgerAccount.CARD)
+                .findFirst().orElseThrow().getCardSeq());
+        verify(entryRepository, never()).findLastCardSeq(anyLong());
+    }
+
+    @Test
+    void getBalanceAt_ShouldAddTailToLatestSnapshot() {
+        LocalDateTime at = LocalDateTime.now().minusDays(1);
+        BalanceSnapshot snapshot = new BalanceSnapshot();
+        snapshot.setCardId(5L);
+        snapshot.setBalance(BigDecimal.valueOf(300));
+        snapshot.setLastCardSeq(40L);
+        when(snapshotRepository.findFirstByCardIdAndTakenAtLessThanEqualOrderByIdDesc(5L, at))
+                .thenReturn(Optional.of(snapshot));
+        when(entryRepository.sumForCardAfter(5L, 40L, at)).thenReturn(BigDecimal.valueOf(-50));
+
+        CardBalanceResponse response = ledgerService.getBalanceAt(5L, at);
+
+        assertEquals(BigDecimal.valueOf(250), response.getBalance());
+        assertEquals(at, response.getAt());
+    }
+
+    @Test
+    void reconcile_ShouldCheckAllChunksAndReportMismatches() {
+        when(cardRepository.findMaxId()).thenReturn(25L);
+        when(snapshotRepository.findReconciliationRows(anyLong(), anyLong())).thenAnswer(inv -> {
+            long from = inv.getArgument(0);
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[]{from + 1, BigDecimal.TEN, BigDecimal.TEN});
+            if (from == 10) {
+                rows.add(new Object[]{from + 2, BigDecimal.TEN, BigDecimal.ONE});
+            }
+            return rows;
+        });
+
+        ReconciliationReport report = ledgerService.reconcile();
+
+        assertEquals(3, report.getChunks());
+        assertEquals(4, report.getCardsChecked());
+        assertEquals(1, report.getMismatches().size());
+        assertEquals(12L, report.getMismatches().get(0).getCardId());
+    }
+}
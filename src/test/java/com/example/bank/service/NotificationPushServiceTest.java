@@ -0,0 +1,83 @@
+package com.example.bank.service;
+
+import com.example.bank.repository.NotificationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationPushServiceTest {
+
+    @Mock private NotificationRepository notificationRepository;
+    @Mock private UserService userService;
+
+    private NotificationPushService pushService;
+
+    @BeforeEach
+    void setUp() {
+        // Одна полоса с очередью на 2 задачи
+        pushService = new NotificationPushService(notificationRepository, userService,
+                new NotificationRetentionPolicy(new MockEnvironment()), new SimpleMeterRegistry(), 1, 2);
+        ReflectionTestUtils.setField(pushService, "timeoutMs", 60_000L);
+        ReflectionTestUtils.setField(pushService, "maxConnectionsPerUser", 5);
+        ReflectionTestUtils.setField(pushService, "catchUpLimit", 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pushService.shutdown();
+    }
+
+    @Test
+    void heartbeat_ShouldNotOverflowQueueWithMoreSubscribersThanCapacity() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch drained = new CountDownLatch(1);
+        when(notificationRepository.findAfter(eq(100L), anyLong(), any(), any())).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        when(notificationRepository.findAfter(eq(200L), anyLong(), any(), any())).thenAnswer(inv -> {
+            drained.countDown();
+            return List.of();
+        });
+
+        // Догонка пользователя 100 занимает единственный поток полосы, пока тест её не отпустит
+        when(userService.getCurrentUserId()).thenReturn(100L);
+        pushService.subscribe(1L);
+
+        List<SseEmitter> emitters = new ArrayList<>();
+        for (long userId = 1; userId <= 10; userId++) {
+            when(userService.getCurrentUserId()).thenReturn(userId);
+            emitters.add(pushService.subscribe(null));
+        }
+
+        pushService.heartbeat();
+
+        // Догонка пользователя 200 встаёт в очередь за пингом: когда она выполнится, пинг уже прошёл
+        when(userService.getCurrentUserId()).thenReturn(200L);
+        pushService.subscribe(1L);
+        release.countDown();
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+
+        assertEquals(12, pushService.getConnections());
+        for (SseEmitter emitter : emitters) {
+            assertDoesNotThrow(() -> emitter.send(SseEmitter.event().comment("still open")));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.bank.service;
+
+import com.example.bank.Enums.NotflicationType;
+import com.example.bank.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationRetentionServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 17, 3, 30);
+
+    @Mock private NotificationRepository notificationRepository;
+    @Mock private JdbcTemplate jdbcTemplate;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private NotificationRetentionPolicy policy;
+    private NotificationRetentionService retentionService;
+
+    @BeforeEach
+    void setUp() {
+        policy = new NotificationRetentionPolicy(new MockEnvironment()
+                .withProperty("bank.notifications.retention.default-days", "90")
+                .withProperty("bank.notifications.retention.days.INFO", "30")
+                .withProperty("bank.notifications.retention.days.FRAUD", "365"));
+        retentionService = new NotificationRetentionService(notificationRepository, policy, jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(retentionService, "batchSize", 100);
+        ReflectionTestUtils.setField(retentionService, "maxBatchesPerRun", 3);
+        ReflectionTestUtils.setField(retentionService, "batchPauseMs", 0L);
+        ReflectionTestUtils.setField(retentionService, "premakeMonths", 2);
+    }
+
+    @Test
+    void policy_ShouldFallBackToDefaultAndTrackLongest() {
+        assertEquals(Duration.ofDays(30), policy.retentionOf(NotflicationType.INFO));
+        assertEquals(Duration.ofDays(90), policy.retentionOf(NotflicationType.TRANSFER));
+        assertEquals(Duration.ofDays(365), policy.getLongest());
+    }
+
+    @Test
+    void purge_ShouldDeleteEachTypeInBatchesUntilShortBatch() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+        when(notificationRepository.deleteExpiredBatch(anyString(), any(), eq(100))).thenReturn(0);
+        when(notificationRepository.deleteExpiredBatch(eq("TRANSFER"), eq(NOW.minusDays(90)), eq(100)))
+                .thenReturn(100, 100, 7);
+
+        NotificationRetentionService.PurgeResult result = retentionService.purge(NOW);
+
+        assertEquals(207, result.deletedRows());
+        assertTrue(result.droppedPartitions().isEmpty());
+        verify(notificationRepository).deleteExpiredBatch("INFO", NOW.minusDays(30), 100);
+        verify(notificationRepository).deleteExpiredBatch("FRAUD", NOW.minusDays(365), 100);
+        // Без секционирования DDL не выполняется
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void purge_ShouldStopAtMaxBatchesPerRun() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+        when(notificationRepository.deleteExpiredBatch(anyString(), any(), eq(100))).thenReturn(0);
+        when(notificationRepository.deleteExpiredBatch(eq("DEPOSIT"), any(), eq(100))).thenReturn(100);
+
+        assertEquals(300, retentionService.purge(NOW).deletedRows());
+        verify(notificationRepository, times(3)).deleteExpiredBatch(eq("DEPOSIT"), any(), eq(100));
+    }
+
+    @Test
+    void purge_ShouldCreateUpcomingAndDropExpiredPartitionsOnPostgres() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Integer.class))).thenReturn(1);
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class))).thenReturn(List.of(
+                "notifications_p202509", "notifications_p202510", "notifications_p202511", "notifications_default"));
+        when(notificationRepository.deleteExpiredBatch(anyString(), any(), eq(100))).thenReturn(0);
+
+        NotificationRetentionService.PurgeResult result = retentionService.purge(NOW);
+
+        // Срок самого долгого типа — 365 дней: октябрь 2025 ещё частично в нём
+        assertEquals(List.of("notifications_p202509"), result.droppedPartitions());
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS notifications_p202509");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS notifications_p202612 PARTITION OF notifications " +
+                "FOR VALUES FROM ('2026-12-01') TO ('2027-01-01')");
+    }
+
+    @Test
+    void partitionsToDrop_ShouldKeepDefaultAndForeignTables() {
+        List<String> expired = NotificationRetentionService.partitionsToDrop(List.of(
+                "notifications_p202602", "notifications_p202601", "notifications_default", "notifications_p2026"),
+                LocalDateTime.of(2026, 3, 1, 0, 0));
+
+        assertEquals(List.of("notifications_p202601", "notifications_p202602"), expired);
+        assertEquals(List.of(YearMonth.of(2026, 10), YearMonth.of(2026, 11)),
+                NotificationRetentionService.partitionsToCreate(YearMonth.of(2026, 10), 1));
+    }
+}
@@ -1,14 +1,20 @@
 package com.example.bank.service;
 
+import com.example.bank.exception.InvalidOperationException;
 import com.example.bank.model.Notification;
 
+import com.example.bank.model.NotificationPage;
 import com.example.bank.model.NotificationResponse;
 import com.example.bank.model.user.User;
 import com.example.bank.repository.NotificationRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,15 +29,23 @@ class NotificationServiceTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private NotificationRetentionPolicy retentionPolicy;
+
     @InjectMocks
     private NotificationService notificationService;
 
+    private static final LocalDateTime HORIZON = LocalDateTime.of(2026, 4, 1, 0, 0);
+
     private User currentUser;
     private List<Notification> notifications;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(notificationService, "defaultPageSize", 50);
+        ReflectionTestUtils.setField(notificationService, "maxPageSize", 200);
+        when(retentionPolicy.readHorizon()).thenReturn(HORIZON);
 
         currentUser = new User();
         currentUser.setUserId(1L);
@@ -57,35 +71,111 @@ class NotificationServiceTest {
 
     @Test
     void testGetUnreadNotification() {
-        when(userService.getCurrentUser()).thenReturn(currentUser);
-        when(notificationRepository.findByUserIdAndReadFalse(1L)).thenReturn(notifications);
+        when(userService.getCurrentUserId()).thenReturn(currentUser.getUserId());
+        when(notificationRepository.findPage(
+                eq(1L), eq(false), eq(Long.MAX_VALUE), eq(HORIZON), any(Pageable.class))).thenReturn(newestFirst());
 
-        List<NotificationResponse> result = notificationService.getUnreadNotification();
+        NotificationPage result = notificationService.getUnreadNotification(null, null);
 
         assertNotNull(result);
-        assertEquals(2, result.size());
-        verify(notificationRepository, times(1)).findByUserIdAndReadFalse(1L);
-        verify(userService, times(1)).getCurrentUser();
+        assertEquals(2, result.getItems().size());
+        assertNull(result.getNextCursor());
+        assertEquals(2L, result.getItems().get(0).getId());
+        verify(userService, times(1)).getCurrentUserId();
+        verify(userService, never()).getCurrentUser();
+
+        // Страница отмечается прочитанной одним UPDATE по её id, сущности не изменяются
+        verify(notificationRepository, times(1)).markRead(1L, List.of(2L, 1L), HORIZON);
+        assertTrue(result.getItems().stream().allMatch(NotificationResponse::getRead));
+        assertFalse(notifications.get(0).getRead());
+    }
+
+    @Test
+    void testGetUnreadNotification_ShouldReturnCursorWhenMoreRemain() {
+        when(userService.getCurrentUserId()).thenReturn(currentUser.getUserId());
+        when(notificationRepository.findPage(
+                eq(1L), eq(false), eq(5L), eq(HORIZON), eq(PageRequest.of(0, 2)))).thenReturn(newestFirst());
+
+        NotificationPage result = notificationService.getUnreadNotification("5", 1);
 
-        // Проверка, что уведомления помечаются как прочитанные после получения
-        assertTrue(notifications.get(0).getRead());
-        assertTrue(notifications.get(1).getRead());
+        assertEquals(1, result.getItems().size());
+        assertEquals("2", result.getNextCursor());
+        verify(notificationRepository).markRead(1L, List.of(2L), HORIZON);
     }
 
     @Test
     void testGetAlldNotification() {
-        when(userService.getCurrentUser()).thenReturn(currentUser);
-        when(notificationRepository.findByUserId(1L)).thenReturn(notifications);
-
-        List<NotificationResponse> result = notificationService.getAlldNotification();
+        Notification read = new Notification();
+        read.setId(3L);
+        read.setUserId(1L);
+        read.setRead(true);
+        read.setTitle("Test Notification 3");
+        read.setMessage("This is test notification 3");
+        when(userService.getCurrentUserId()).thenReturn(currentUser.getUserId());
+        when(notificationRepository.findPage(
+                eq(1L), eq(false), eq(Long.MAX_VALUE), eq(HORIZON), any(Pageable.class))).thenReturn(newestFirst());
+        when(notificationRepository.findPage(
+                eq(1L), eq(true), eq(Long.MAX_VALUE), eq(HORIZON), any(Pageable.class))).thenReturn(List.of(read));
+
+        NotificationPage result = notificationService.getAlldNotification(null, null);
 
         assertNotNull(result);
-        assertEquals(2, result.size());
-        verify(notificationRepository, times(1)).findByUserId(1L);
-        verify(userService, times(1)).getCurrentUser();
+        assertEquals(List.of(3L, 2L, 1L), result.getItems().stream().map(NotificationResponse::getId).toList());
+        verify(userService, times(1)).getCurrentUserId();
+        verify(userService, never()).getCurrentUser();
+
+        // Проверка, что все уведомления страницы помечаются как прочитанные; UPDATE только по непрочитанным
+        verify(notificationRepository, times(1)).markRead(1L, List.of(2L, 1L), HORIZON);
+        assertTrue(result.getItems().stream().allMatch(NotificationResponse::getRead));
+    }
+
+    @Test
+    void testGetAlldNotification_PageWithoutUnreadSkipsUpdate() {
+        Notification read = new Notification();
+        read.setId(3L);
+        read.setUserId(1L);
+        read.setRead(true);
+        read.setTitle("Test Notification 3");
+        read.setMessage("This is test notification 3");
+        when(userService.getCurrentUserId()).thenReturn(currentUser.getUserId());
+        when(notificationRepository.findPage(
+                eq(1L), eq(false), eq(Long.MAX_VALUE), eq(HORIZON), any(Pageable.class))).thenReturn(List.of());
+        when(notificationRepository.findPage(
+                eq(1L), eq(true), eq(Long.MAX_VALUE), eq(HORIZON), any(Pageable.class))).thenReturn(List.of(read));
+
+        NotificationPage result = notificationService.getAlldNotification(null, null);
+
+        assertEquals(1, result.getItems().size());
+        verify(notificationRepository, never()).markRead(anyLong(), anyCollection(), any());
+    }
+
+    @Test
+    void testGetUnreadNotification_InvalidCursor() {
+        when(userService.getCurrentUserId()).thenReturn(currentUser.getUserId());
+
+        assertThrows(InvalidOperationException.class, () -> notificationService.getUnreadNotification("abc", null));
+        assertThrows(InvalidOperationException.class, () -> notificationService.getAlldNotification(null, 0));
+        verify(notificationRepository, never()).markRead(anyLong(), anyCollection(), any());
+    }
+
+    @Test
+    void testCountUnread() {
+        when(userService.getCurrentUserId()).thenReturn(currentUser.getUserId());
+        when(notificationRepository.countByUserIdAndReadFalseAndCreatedAtGreaterThanEqual(1L, HORIZON)).thenReturn(7L);
+
+        assertEquals(7L, notificationService.countUnread());
+    }
+
+    @Test
+    void testMarkReadUpTo() {
+        when(userService.getCurrentUserId()).thenReturn(currentUser.getUserId());
+        when(notificationRepository.markReadUpTo(1L, 42L, HORIZON)).thenReturn(3);
+
+        assertEquals(3L, notificationService.markReadUpTo(42L));
+        assertThrows(InvalidOperationException.class, () -> notificationService.markReadUpTo(0L));
+    }
 
-        // Проверка, что все уведомления помечаются как прочитанные
-        assertTrue(notifications.get(0).getRead());
-        assertTrue(notifications.get(1).getRead());
+    private List<Notification> newestFirst() {
+        return List.of(notifications.get(1), notifications.get(0));
     }
-}
\ No newline at end of file
+}
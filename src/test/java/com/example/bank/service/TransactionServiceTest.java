@@ -1,27 +1,41 @@
 package com.example.bank.service;
 
+import com.example.bank.Enums.CardType;
 import com.example.bank.Enums.OperationType;
+import com.example.bank.exception.CardBlockedException;
+import com.example.bank.exception.InsufficientFundsException;
 import com.example.bank.exception.InvalidOperationException;
 import com.example.bank.exception.ResourceNotFoundException;
-import com.example.bank.kafka.TransactionEventProducer;
+import com.example.bank.kafka.TransactionEventOutbox;
 import com.example.bank.model.card.CardDto;
-import com.example.bank.model.card.creditCard.CreditCard;
-import com.example.bank.model.card.debitCard.DebitCard;
+import com.example.bank.model.card.CardSummary;
 import com.example.bank.model.transaction.Transaction;
+import com.example.bank.model.transaction.TransactionCursor;
+import com.example.bank.model.transaction.TransactionPage;
 import com.example.bank.model.transaction.TransactionResponse;
 import com.example.bank.model.user.User;
 import com.example.bank.repository.CardRepository;
 import com.example.bank.repository.TransactionRepository;
+import com.example.bank.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -32,170 +46,229 @@ class TransactionServiceTest {
 
     @Mock private CardRepository cardRepository;
     @Mock private TransactionRepository transactionRepository;
+    @Mock private UserRepository userRepository;
     @Mock private CreditCardService creditCardService;
     @Mock private DebitCardService debitCardService;
-    @Mock private TransactionEventProducer eventProducer;
+    @Mock private TransactionEventOutbox eventOutbox;
     @Mock private CardServiceImpl cardService;
+    @Mock private CardLockManager cardLockManager;
+    @Mock private LedgerService ledgerService;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Spy private TransactionMetrics metrics = new TransactionMetrics(meterRegistry);
 
     @InjectMocks
     private TransactionService transactionService;
 
-    private CreditCard creditCard;
-    private DebitCard debitCard;
+    private CardSummary creditCard;
+    private CardSummary debitCard;
 
     @BeforeEach
     void setUp() {
-        creditCard = new CreditCard();
-        creditCard.setCardNumber("CR123");
-        creditCard.setBalance(BigDecimal.valueOf(1000));
-        creditCard.setExpiryDate(LocalDate.now().plusYears(1));
-        creditCard.setStatus(com.example.bank.Enums.CardStatus.ACTIVE);
+        creditCard = new CardSummary(1L, "CR123", CardType.CREDIT, LocalDate.now().plusYears(1), 123L);
+        debitCard = new CardSummary(2L, "DB123", CardType.DEBIT, LocalDate.now().plusYears(1), 12L);
+    }
 
-        debitCard = new DebitCard();
-        debitCard.setCardNumber("DB123");
-        debitCard.setBalance(BigDecimal.valueOf(500));
-        debitCard.setExpiryDate(LocalDate.now().plusYears(1));
-        debitCard.setStatus(com.example.bank.Enums.CardStatus.ACTIVE);
+    private static User user(Long userId) {
+        User user = new User();
+        user.setUserId(userId);
+        return user;
     }
 
     @Test
     void deposit_ShouldWorkForCreditCard() {
         BigDecimal amount = BigDecimal.valueOf(100);
-        CreditCard updated = new CreditCard();
-        updated.setCardNumber("CR123");
-        updated.setBalance(BigDecimal.valueOf(1100));
-        updated.setId(1L);
-        User user = new User();
-        user.setUserId(123L);
-        creditCard.setUser(user);
-        creditCard.setId(1L);
-        updated.setUser(user);
 
-        when(cardService.getCardById(1L)).thenReturn(creditCard);
-        when(creditCardService.processDeposit(eq(creditCard), eq(amount))).thenReturn(updated);
+        when(cardService.getCardSummary(1L)).thenReturn(creditCard);
+        when(userRepository.getReferenceById(123L)).thenReturn(user(123L));
+        when(creditCardService.applyDeposit(creditCard, amount)).thenAnswer(inv -> {
+            creditCard.setBalance(BigDecimal.valueOf(1100));
+            return amount;
+        });
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(inv -> inv.getArgument(0));
 
         CardDto result = transactionService.deposit(1L, amount, "ok");
-        // Проверка, что баланс корректно обновляется при депозите
-        assertEquals(updated.getBalance(), result.getBalance());
+        // Баланс в ответе — значение, которое вернул UPDATE пополнения; карта целиком не загружается
+        assertEquals(BigDecimal.valueOf(1100), result.getBalance());
+        verify(cardService, never()).getCardById(any());
+        verify(cardService, never()).getBalance(any());
+        verify(creditCardService).applyDeposit(creditCard, amount);
         verify(transactionRepository).save(any(Transaction.class));
-        verify(eventProducer).sendTransactionEvent(any());
+        verify(ledgerService).recordDeposit(any(), eq(1L), eq(amount), any());
+        verify(eventOutbox).enqueue(any());
+        assertEquals(1, meterRegistry.get(TransactionMetrics.TIMER)
+                .tags("operation", "deposit", "card_type", "CREDIT", "outcome", "success").timer().count());
     }
 
 
+    @Test
+    void deposit_ShouldCountFailedCommitAsError() {
+        when(cardService.getCardSummary(2L)).thenReturn(debitCard);
+        when(userRepository.getReferenceById(12L)).thenReturn(user(12L));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(inv -> inv.getArgument(0));
+        doThrow(new TransactionSystemException("commit failed")).when(transactionManager).commit(any());
+
+        assertThrows(TransactionSystemException.class, () -> transactionService.deposit(2L, BigDecimal.TEN, "lost"));
+
+        // Успех не засчитывается, пока транзакция не зафиксирована
+        assertNull(meterRegistry.find(TransactionMetrics.TIMER).tags("outcome", "success").timer());
+        assertEquals(1, meterRegistry.get(TransactionMetrics.TIMER)
+                .tags("operation", "deposit", "card_type", "DEBIT", "outcome", "error").timer().count());
+    }
+
     @Test
     void deposit_ShouldThrowForNegativeAmount_Credit() {
         BigDecimal negative = BigDecimal.valueOf(-100);
-        creditCard.setId(1L);
-        when(cardService.getCardById(1L)).thenReturn(creditCard);
-        when(creditCardService.processDeposit(eq(creditCard), eq(negative)))
-                .thenThrow(new InvalidOperationException("Amount must be greater than zero"));
+        when(cardService.getCardSummary(1L)).thenReturn(creditCard);
+        doThrow(new InvalidOperationException("Amount must be greater than zero"))
+                .when(creditCardService).applyDeposit(eq(creditCard), eq(negative));
 
         InvalidOperationException ex = assertThrows(InvalidOperationException.class,
                 () -> transactionService.deposit(1L, negative, "invalid"));
         assertEquals("Amount must be greater than zero", ex.getMessage());
         verify(transactionRepository, never()).save(any());
-        verify(eventProducer, never()).sendTransactionEvent(any());
+        verify(eventOutbox, never()).enqueue(any());
     }
 
     @Test
     void deposit_ShouldThrowIfCardNotFound() {
-        when(cardService.getCardById(999L)).thenThrow(new ResourceNotFoundException("Card", "id", 999L));
+        when(cardService.getCardSummary(999L)).thenThrow(new ResourceNotFoundException("Card", "id", 999L));
 
         assertThrows(ResourceNotFoundException.class,
                 () -> transactionService.deposit(999L, BigDecimal.TEN, "no"));
         verify(transactionRepository, never()).save(any());
-        verify(eventProducer, never()).sendTransactionEvent(any());
+        verify(eventOutbox, never()).enqueue(any());
     }
 
     @Test
     void withdraw_ShouldWorkForDebitCard() {
         BigDecimal amount = BigDecimal.valueOf(50);
-        DebitCard updated = new DebitCard();
-        updated.setCardNumber("DB123");
-        updated.setBalance(BigDecimal.valueOf(450));
-        updated.setId(2L);
-        User user = new User();
-        user.setUserId(12L);
-        updated.setUser(user);
-        debitCard.setUser(user);
-        debitCard.setId(2L);
 
-        when(cardService.getCardById(2L)).thenReturn(debitCard);
-        when(debitCardService.processWithdraw(eq(debitCard), eq(amount))).thenReturn(updated);
+        when(cardService.getCardSummary(2L)).thenReturn(debitCard);
+        when(userRepository.getReferenceById(12L)).thenReturn(user(12L));
+        doAnswer(inv -> {
+            debitCard.setBalance(BigDecimal.valueOf(450));
+            return null;
+        }).when(debitCardService).applyWithdraw(debitCard, amount);
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(inv -> inv.getArgument(0));
 
         CardDto result = transactionService.withdraw(2L, amount, "ok");
         // Проверка, что баланс корректно уменьшается при выводе
-        assertEquals(updated.getBalance(), result.getBalance());
+        assertEquals(BigDecimal.valueOf(450), result.getBalance());
+        verify(debitCardService).applyWithdraw(debitCard, amount);
         verify(transactionRepository).save(any(Transaction.class));
-        verify(eventProducer).sendTransactionEvent(any());
+        verify(ledgerService).recordWithdraw(any(), eq(2L), eq(amount));
+        verify(eventOutbox).enqueue(any());
     }
 
 
+    @Test
+    void withdraw_ShouldCountInsufficientFundsAndBlockedCardSeparately() {
+        when(cardService.getCardSummary(2L)).thenReturn(debitCard);
+        doThrow(new InsufficientFundsException("Недостаточно средств"))
+                .doThrow(new CardBlockedException(debitCard))
+                .when(debitCardService).applyWithdraw(eq(debitCard), any());
+
+        assertThrows(InvalidOperationException.class, () -> transactionService.withdraw(2L, BigDecimal.TEN, "a"));
+        assertThrows(CardBlockedException.class, () -> transactionService.withdraw(2L, BigDecimal.TEN, "b"));
+
+        assertEquals(1, meterRegistry.get(TransactionMetrics.TIMER)
+                .tags("operation", "withdraw", "card_type", "DEBIT", "outcome", "insufficient_funds").timer().count());
+        assertEquals(1, meterRegistry.get(TransactionMetrics.TIMER)
+                .tags("operation", "withdraw", "card_type", "DEBIT", "outcome", "blocked_card").timer().count());
+    }
+
     @Test
     void withdraw_ShouldThrowForNegativeAmount_Debit() {
         BigDecimal negative = BigDecimal.valueOf(-100);
-        debitCard.setId(2L);
-        when(cardService.getCardById(2L)).thenReturn(debitCard);
-        when(debitCardService.processWithdraw(eq(debitCard), eq(negative)))
-                .thenThrow(new InvalidOperationException("Amount must be greater than zero"));
+        when(cardService.getCardSummary(2L)).thenReturn(debitCard);
+        doThrow(new InvalidOperationException("Amount must be greater than zero"))
+                .when(debitCardService).applyWithdraw(eq(debitCard), eq(negative));
 
         assertThrows(InvalidOperationException.class,
                 () -> transactionService.withdraw(2L, negative, "invalid"));
         verify(transactionRepository, never()).save(any());
-        verify(eventProducer, never()).sendTransactionEvent(any());
+        verify(eventOutbox, never()).enqueue(any());
     }
 
     @Test
     void transfer_ShouldWork_FromDebitToCredit() {
         BigDecimal amount = BigDecimal.valueOf(100);
 
-        DebitCard from = new DebitCard();
-        from.setCardNumber("DB12");
-        from.setBalance(BigDecimal.valueOf(600));
-        from.setId(3L);
-        User user = new User();
-        user.setUserId(12L);
-        from.setUser(user);
-
-        CreditCard to = new CreditCard();
-        to.setCardNumber("CR1");
-        to.setBalance(BigDecimal.valueOf(200));
-        to.setId(4L);
-
-        when(cardService.getCardById(3L)).thenReturn(from);
-        when(cardService.getCardById(4L)).thenReturn(to);
-        when(debitCardService.processWithdraw(eq(from), eq(amount))).thenReturn(from);
-        when(creditCardService.processDeposit(eq(to), eq(amount))).thenReturn(to);
+        CardSummary from = new CardSummary(3L, "DB12", CardType.DEBIT, LocalDate.now().plusYears(1), 12L);
+        CardSummary to = new CardSummary(4L, "CR1", CardType.CREDIT, LocalDate.now().plusYears(1), 12L);
+
+        runLockedInline();
+        when(cardService.getCardSummary(3L)).thenReturn(from);
+        when(cardService.getCardSummary(4L)).thenReturn(to);
+        when(userRepository.getReferenceById(12L)).thenReturn(user(12L));
+        doAnswer(inv -> {
+            from.setBalance(BigDecimal.valueOf(500));
+            return null;
+        }).when(debitCardService).applyWithdraw(from, amount);
+        when(creditCardService.applyDeposit(to, amount)).thenReturn(BigDecimal.valueOf(90));
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(inv -> inv.getArgument(0));
 
         CardDto result = transactionService.transfer(3L, 4L, amount, "ok");
 
         assertEquals("**** **** **** DB12", result.getCardNumber());
+        assertEquals(BigDecimal.valueOf(500), result.getBalance());
+        verify(debitCardService).applyWithdraw(from, amount);
+        verify(creditCardService).applyDeposit(to, amount);
         verify(transactionRepository).save(any(Transaction.class));
-        verify(eventProducer).sendTransactionEvent(any());
+        verify(ledgerService).recordTransfer(any(), eq(3L), eq(4L), eq(amount), eq(BigDecimal.valueOf(90)));
+        verify(eventOutbox).enqueue(any());
     }
 
     @Test
     void transfer_ShouldThrowForNegativeAmount() {
         BigDecimal negative = BigDecimal.valueOf(-100);
-        DebitCard from = new DebitCard(); 
-        from.setCardNumber("DB1");
-        from.setId(5L);
-        CreditCard to = new CreditCard(); 
-        to.setCardNumber("CR1");
-        to.setId(6L);
-
-        when(cardService.getCardById(5L)).thenReturn(from);
-        when(cardService.getCardById(6L)).thenReturn(to);
-        when(debitCardService.processWithdraw(eq(from), eq(negative)))
-                .thenThrow(new InvalidOperationException("Amount must be greater than zero"));
+        CardSummary from = new CardSummary(5L, "DB1", CardType.DEBIT, LocalDate.now().plusYears(1), 12L);
+        CardSummary to = new CardSummary(6L, "CR1", CardType.CREDIT, LocalDate.now().plusYears(1), 12L);
+
+        runLockedInline();
+        when(cardService.getCardSummary(5L)).thenReturn(from);
+        when(cardService.getCardSummary(6L)).thenReturn(to);
+        doThrow(new InvalidOperationException("Amount must be greater than zero"))
+                .when(debitCardService).applyWithdraw(eq(from), eq(negative));
 
         assertThrows(InvalidOperationException.class,
                 () -> transactionService.transfer(5L, 6L, negative, "fail"));
         verify(transactionRepository, never()).save(any());
-        verify(eventProducer, never()).sendTransactionEvent(any());
+        verify(eventOutbox, never()).enqueue(any());
+    }
+
+    @Test
+    void transfer_ShouldUpdateRowsInIdOrder() {
+        BigDecimal amount = BigDecimal.valueOf(10);
+        CardSummary from = new CardSummary(9L, "DB9", CardType.DEBIT, LocalDate.now().plusYears(1), 12L);
+        CardSummary to = new CardSummary(2L, "DB2", CardType.DEBIT, LocalDate.now().plusYears(1), 13L);
+
+        runLockedInline();
+        when(cardService.getCardSummary(9L)).thenReturn(from);
+        when(cardService.getCardSummary(2L)).thenReturn(to);
+        when(userRepository.getReferenceById(12L)).thenReturn(user(12L));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        transactionService.transfer(9L, 2L, amount, "ok");
+
+        // Строка с меньшим id обновляется (и блокируется) первой, даже если это карта получателя
+        var order = inOrder(debitCardService);
+        order.verify(debitCardService).applyDeposit(to, amount);
+        order.verify(debitCardService).applyWithdraw(from, amount);
+        verify(cardLockManager).executeLocked(eq(9L), eq(2L), any());
+    }
+
+    @Test
+    void transfer_ShouldPropagateLockFailure() {
+        when(cardLockManager.executeLocked(eq(3L), eq(4L), any()))
+                .thenThrow(new PessimisticLockingFailureException("lock timeout"));
+
+        assertThrows(PessimisticLockingFailureException.class,
+                () -> transactionService.transfer(3L, 4L, BigDecimal.TEN, "busy"));
+        verify(transactionRepository, never()).save(any());
+        verify(eventOutbox, never()).enqueue(any());
     }
 
     @Test
@@ -229,26 +302,63 @@ class TransactionServiceTest {
     }
 
     @Test
-    void getTransactionsByCard_ShouldReturnFilteredList() {
-        Transaction t = new Transaction();
-        t.setFromCard("DB123");
-        t.setAmount(BigDecimal.TEN);
-        when(transactionRepository.findByFromCardOrToCard("DB123", "DB123"))
-                .thenReturn(List.of(t));
-
-        List<TransactionResponse> result = transactionService.getTransactionsByCard("DB123");
-        // Проверка, что транзакции по карте возвращаются корректно
-        assertEquals(1, result.size());
+    void getTransactionsByCard_ShouldMergeDirectionsAndReturnCursor() {
+        ReflectionTestUtils.setField(transactionService, "defaultPageSize", 2);
+        ReflectionTestUtils.setField(transactionService, "maxPageSize", 10);
+        LocalDateTime now = LocalDateTime.now();
+        TransactionResponse t1 = response(1L, now.minusMinutes(3));
+        TransactionResponse t2 = response(2L, now.minusMinutes(2));
+        TransactionResponse t3 = response(3L, now.minusMinutes(1));
+        when(transactionRepository.findPageByFromCard(eq("DB123"), any(), any(), any()))
+                .thenReturn(List.of(t3, t1));
+        when(transactionRepository.findPageByToCard(eq("DB123"), any(), any(), any()))
+                .thenReturn(List.of(t2));
+
+        TransactionPage page = transactionService.getTransactionsByCard("DB123", null, null);
+        // Проверка, что выборки слиты от новых к старым, а курсор указывает на последнюю выданную
+        assertEquals(List.of(t3, t2), page.getItems());
+        TransactionCursor next = TransactionCursor.decode(page.getNextCursor());
+        assertEquals(t2.getTimestamp(), next.getTimestamp());
+        assertEquals(2L, next.getId());
     }
 
+    @Test
+    void getTransactionsByCard_ShouldCapPageSize() {
+        ReflectionTestUtils.setField(transactionService, "maxPageSize", 10);
+        when(transactionRepository.findPageByFromCard(any(), any(), any(), any())).thenReturn(List.of());
+        when(transactionRepository.findPageByToCard(any(), any(), any(), any())).thenReturn(List.of());
+
+        TransactionPage page = transactionService.getTransactionsByCard("DB123", null, 1000);
+        // Проверка, что размер страницы ограничен сверху и последняя страница без курсора
+        assertNull(page.getNextCursor());
+        verify(transactionRepository).findPageByFromCard(eq("DB123"), any(), any(), eq(PageRequest.of(0, 11)));
+    }
 
+    @Test
+    void getTransactionsByCard_ShouldRejectInvalidCursor() {
+        assertThrows(InvalidOperationException.class,
+                () -> transactionService.getTransactionsByCard("DB123", "not-a-cursor", null));
+    }
 
     @Test
     void getTransactionsByUser_ShouldReturnEmptyIfNoCards() {
-        when(cardRepository.findByUserUserId(2L)).thenReturn(List.of());
-        List<TransactionResponse> result = transactionService.getTransactionsByUser(2L);
+        when(cardRepository.findCardNumbersByUserId(2L)).thenReturn(List.of());
+        TransactionPage result = transactionService.getTransactionsByUser(2L, null, null);
         // Проверка, что если у пользователя нет карт, возвращается пустой список
-        assertTrue(result.isEmpty());
-        verify(transactionRepository, never()).findByFromCardInOrToCardIn(anyList(), anyList());
+        assertTrue(result.getItems().isEmpty());
+        verify(transactionRepository, never()).findPageByFromCardIn(anyList(), any(), any(), any());
+    }
+
+    private TransactionResponse response(Long id, LocalDateTime timestamp) {
+        TransactionResponse response = new TransactionResponse();
+        response.setId(id);
+        response.setTimestamp(timestamp);
+        return response;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runLockedInline() {
+        when(cardLockManager.executeLocked(anyLong(), anyLong(), any()))
+                .thenAnswer(inv -> ((Supplier<Object>) inv.getArgument(2)).get());
     }
 }
@@ -9,12 +9,15 @@ import com.example.bank.model.user.User;
 import com.example.bank.model.user.UserDto;
 import com.example.bank.repository.CardRepository;
 import com.example.bank.repository.UserRepository;
+import com.example.bank.security.BankPrincipal;
+import com.example.bank.security.TokenRevocationList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -22,6 +25,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
@@ -41,6 +45,9 @@ public class UserServiceTest {
 
     @Mock
     private CardRepository cardRepository;
+
+    @Mock
+    private TokenRevocationList tokenRevocationList;
     
     private DebitCard card;
 
@@ -204,4 +211,79 @@ public class UserServiceTest {
 
 
 
-}
\ No newline at end of file
+
+    @Test
+    void applyUpdates_BlockingUserShouldRevokeTokens() {
+        User user = new User();
+        user.setUserId(7L);
+        user.setRole(Role.USER);
+        user.setBlocked(false);
+        user.setTokenVersion(2L);
+        user.setPassword("secret");
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(userRepository.existsById(7L)).thenReturn(true);
+        when(userRepository.save(user)).thenReturn(user);
+
+        userService.applyUpdates(7L, Map.of("status", true));
+
+        // Версия токенов увеличена, старые токены попадают в deny-list
+        assertTrue(user.getBlocked());
+        assertEquals(3L, user.getTokenVersion());
+        verify(tokenRevocationList).revokeBefore(7L, 3L);
+    }
+
+    @Test
+    void applyUpdates_PasswordChangeShouldRevokeTokens() {
+        User user = new User();
+        user.setUserId(7L);
+        user.setRole(Role.USER);
+        user.setBlocked(false);
+        user.setTokenVersion(2L);
+        user.setPassword("secret");
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(userRepository.existsById(7L)).thenReturn(true);
+        when(passwordEncoder.encode("newSecret")).thenReturn("encoded");
+        when(userRepository.save(user)).thenReturn(user);
+
+        userService.applyUpdates(7L, Map.of("password", "newSecret"));
+
+        // Токены, выданные под старым паролем, перестают приниматься
+        assertEquals(3L, user.getTokenVersion());
+        verify(tokenRevocationList).revokeBefore(7L, 3L);
+    }
+
+    @Test
+    void applyUpdates_ProfileChangeShouldKeepTokens() {
+        User user = new User();
+        user.setUserId(7L);
+        user.setRole(Role.USER);
+        user.setBlocked(false);
+        user.setTokenVersion(2L);
+        user.setPassword("secret");
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(userRepository.existsById(7L)).thenReturn(true);
+        when(userRepository.save(user)).thenReturn(user);
+
+        userService.applyUpdates(7L, Map.of("email", "new@example.com"));
+
+        assertEquals(2L, user.getTokenVersion());
+        verify(tokenRevocationList, never()).revokeBefore(anyLong(), anyLong());
+    }
+
+    @Test
+    void getCurrentUser_WithBankPrincipalShouldNotQueryUsers() {
+        SecurityContextHolder.clearContext();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new BankPrincipal(7L, "johndoe", Role.USER), null, List.of()));
+        User reference = new User();
+        when(userRepository.getReferenceById(7L)).thenReturn(reference);
+        try {
+            // id берётся из принципала, User — ленивая ссылка без SELECT
+            assertEquals(7L, userService.getCurrentUserId());
+            assertSame(reference, userService.getCurrentUser());
+            verify(userRepository, never()).findByUsername(anyString());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}